@@ -0,0 +1,95 @@
+package com.example.stock_manager.benchmark;
+
+import com.example.stock_manager.StockManagerApplication;
+import com.example.stock_manager.bulk.ImportResult;
+import com.example.stock_manager.bulk.PositionBulkService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Onboarding di un cliente da CSV: import di {@code rows} posizioni su tabella vuota
+ * (batch JDBC e commit a blocchi) e, separatamente, export in streaming delle stesse
+ * posizioni con i prezzi correnti. Un colpo per iterazione:
+ * {@code mvn -P benchmark verify -Djmh.args="BulkImport"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BulkImportBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private PositionBulkService bulkService;
+    private JdbcTemplate jdbcTemplate;
+    private byte[] csv;
+
+    @Setup
+    public void setUp() {
+        context = SpringApplication.run(StockManagerApplication.class,
+                "--server.port=0",
+                "--spring.jpa.show-sql=false",
+                "--stock.journal.enabled=false",
+                "--logging.level.root=WARN");
+        bulkService = context.getBean(PositionBulkService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        StringBuilder content = new StringBuilder("symbol,quantity\n");
+        for (int i = 0; i < rows; i++) {
+            content.append(Portfolios.symbol(i)).append(',').append(1 + i % 1_000).append('\n');
+        }
+        csv = content.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // import su tabella vuota; l'export invece parte dalla tabella gia' popolata
+    @Setup(Level.Iteration)
+    public void prepareTable(BenchmarkParams params) throws IOException {
+        jdbcTemplate.update("DELETE FROM stock");
+        if (params.getBenchmark().endsWith("exportCsv")) {
+            importCsv();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long importCsv() throws IOException {
+        ImportResult result = bulkService.importCsv(new ByteArrayInputStream(csv));
+        if (result.imported() != rows) {
+            throw new IllegalStateException("Imported " + result.imported() + " of " + rows + ": " + result.errors());
+        }
+        return result.imported();
+    }
+
+    @Benchmark
+    public void exportCsv() throws IOException {
+        bulkService.exportCsv(OutputStream.nullOutputStream());
+    }
+}
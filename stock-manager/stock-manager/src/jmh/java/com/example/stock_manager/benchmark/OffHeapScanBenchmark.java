@@ -0,0 +1,99 @@
+package com.example.stock_manager.benchmark;
+
+import com.example.stock_manager.dto.PortfolioSummary;
+import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.offheap.OffHeapPositionStore;
+import com.example.stock_manager.repository.StockRepository;
+import com.example.stock_manager.service.PortfolioAggregator;
+import com.example.stock_manager.service.PortfolioService;
+import com.example.stock_manager.service.impl.StockPriceServiceImpl;
+import com.example.stock_manager.symbol.SymbolRegistry;
+import com.example.stock_manager.valuation.PortfolioValuator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Valorizzazione di un book grande: lista di entita' {@link Stock} su heap (come dopo un
+ * {@code findAll()}) contro il book fuori heap, per i soli totali e per il riepilogo
+ * completo, piu' la sola scansione sequenziale dei record come riferimento di banda.
+ * Con {@code -prof gc} si vede il lavoro del GC.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g", "-XX:MaxDirectMemorySize=1g"})
+public class OffHeapScanBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int positions;
+
+    private List<Stock> stocks;
+    private StockPriceServiceImpl priceService;
+    private OffHeapPositionStore store;
+    private PortfolioService entityService;
+    private PortfolioService offHeapService;
+
+    @Setup
+    public void setUp() {
+        stocks = Portfolios.stocks(positions);
+        SymbolRegistry registry = Portfolios.registry(positions);
+        priceService = Portfolios.prices(stocks, registry);
+        StockRepository repository = Portfolios.repository(stocks);
+        store = new OffHeapPositionStore(registry, 1 << 20);
+        for (Stock stock : stocks) {
+            store.create(stock.getSymbol(), stock.getQuantity());
+        }
+        PortfolioAggregator aggregator = new PortfolioAggregator(repository, priceService, Portfolios.offHeap(null));
+        PortfolioValuator valuator = new PortfolioValuator(100_000, 16_384);
+        entityService = new PortfolioService(repository, priceService, aggregator, valuator, registry,
+                Portfolios.offHeap(null));
+        offHeapService = new PortfolioService(repository, priceService, aggregator, valuator, registry,
+                Portfolios.offHeap(store));
+    }
+
+    @Benchmark
+    public double entities() {
+        return entityService.getTotalValue(stocks);
+    }
+
+    @Benchmark
+    public double offHeap() {
+        return store.valuate(priceService::getPrice).totalValue();
+    }
+
+    @Benchmark
+    public PortfolioSummary entitiesSummary() {
+        return entityService.getPortfolioSummary();
+    }
+
+    @Benchmark
+    public PortfolioSummary offHeapSummary() {
+        return offHeapService.getPortfolioSummary();
+    }
+
+    @Benchmark
+    public PortfolioSummary offHeapTotals() {
+        return offHeapService.getPortfolioSummary(false);
+    }
+
+    @Benchmark
+    public long offHeapQuantityScan() {
+        long[] total = {0};
+        store.forEach((symbolId, quantity) -> total[0] += quantity);
+        return total[0];
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.stock_manager.benchmark;
+
+import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.valuation.PortfolioValuator;
+import com.example.stock_manager.valuation.PortfolioValuator.Valuation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Valorizzazione completa (dettagli, totali, massimo) in sequenza contro fork-join,
+ * per scegliere {@code stock.valuation.parallel-threshold} sulla macchina di produzione.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ParallelValuationBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int positions;
+
+    @Param({"16384"})
+    private int chunkSize;
+
+    private List<Stock> stocks;
+    private double[] prices;
+    private PortfolioValuator sequential;
+    private PortfolioValuator parallel;
+
+    @Setup
+    public void setUp() {
+        stocks = Portfolios.stocks(positions);
+        prices = Portfolios.prices(stocks).getPrices(stocks.stream().map(Stock::getSymbol).toArray(String[]::new));
+        sequential = new PortfolioValuator(Integer.MAX_VALUE, chunkSize);
+        parallel = new PortfolioValuator(0, chunkSize);
+    }
+
+    @Benchmark
+    public Valuation sequentialSummary() {
+        return sequential.valuate(stocks, prices, true);
+    }
+
+    @Benchmark
+    public Valuation parallelSummary() {
+        return parallel.valuate(stocks, prices, true);
+    }
+
+    @Benchmark
+    public Valuation sequentialTotals() {
+        return sequential.valuate(stocks, prices, false);
+    }
+
+    @Benchmark
+    public Valuation parallelTotals() {
+        return parallel.valuate(stocks, prices, false);
+    }
+}
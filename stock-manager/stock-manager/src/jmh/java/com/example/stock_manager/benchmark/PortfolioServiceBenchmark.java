@@ -0,0 +1,70 @@
+package com.example.stock_manager.benchmark;
+
+import com.example.stock_manager.dto.PortfolioSummary;
+import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.repository.StockRepository;
+import com.example.stock_manager.service.PortfolioAggregator;
+import com.example.stock_manager.service.PortfolioService;
+import com.example.stock_manager.service.StockPriceService;
+import com.example.stock_manager.symbol.SymbolRegistry;
+import com.example.stock_manager.valuation.PortfolioValuator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Riepilogo e titolo di maggior valore: percorso con scansione completa
+ * contro gli aggregati incrementali.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class PortfolioServiceBenchmark {
+
+    @Param({"10", "10000", "1000000"})
+    private int positions;
+
+    private List<Stock> stocks;
+    private PortfolioService portfolioService;
+
+    @Setup
+    public void setUp() {
+        stocks = Portfolios.stocks(positions);
+        SymbolRegistry registry = Portfolios.registry(positions);
+        StockPriceService priceService = Portfolios.prices(stocks, registry);
+        StockRepository repository = Portfolios.repository(stocks);
+        PortfolioAggregator aggregator = new PortfolioAggregator(repository, priceService, Portfolios.offHeap(null));
+        aggregator.rebuild();
+        portfolioService = new PortfolioService(repository, priceService, aggregator,
+                new PortfolioValuator(100_000, 16_384), registry, Portfolios.offHeap(null));
+    }
+
+    @Benchmark
+    public PortfolioSummary portfolioSummary() {
+        return portfolioService.getPortfolioSummary();
+    }
+
+    @Benchmark
+    public Stock highestValueStock() {
+        return portfolioService.findHighestValueStock();
+    }
+
+    @Benchmark
+    public Stock highestValueStockScan() {
+        return portfolioService.findHighestValueStock(stocks);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.stock_manager.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.offheap.OffHeapPositionStore;
+import com.example.stock_manager.repository.StockRepository;
+import com.example.stock_manager.service.impl.StockPriceServiceImpl;
+import com.example.stock_manager.symbol.SymbolRegistry;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dati comuni ai benchmark: portafogli sintetici, un repository in memoria e un
+ * servizio prezzi gia' popolato, senza contesto Spring ne' database.
+ */
+final class Portfolios {
+
+    static {
+        // un log per ogni prezzo impostato falserebbe setup e misure
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+
+    private Portfolios() {
+        // utility class
+    }
+
+    static List<Stock> stocks(int positions) {
+        List<Stock> stocks = new ArrayList<>(positions);
+        for (int i = 0; i < positions; i++) {
+            stocks.add(Stock.builder()
+                    .symbol(symbol(i))
+                    .quantity(1 + i % 1_000)
+                    .build());
+        }
+        return stocks;
+    }
+
+    static String symbol(int i) {
+        return "SYM" + i;
+    }
+
+    /**
+     * Registro grande abbastanza per i simboli del portafoglio e i prezzi mock del servizio.
+     */
+    static SymbolRegistry registry(int positions) {
+        return new SymbolRegistry(positions + 16);
+    }
+
+    static StockPriceServiceImpl prices(List<Stock> stocks) {
+        return prices(stocks, registry(stocks.size()));
+    }
+
+    static StockPriceServiceImpl prices(List<Stock> stocks, SymbolRegistry registry) {
+        StockPriceServiceImpl priceService = new StockPriceServiceImpl(registry);
+        for (int i = 0; i < stocks.size(); i++) {
+            priceService.updatePrice(stocks.get(i).getSymbol(), 10.0 + (i * 31) % 500);
+        }
+        return priceService;
+    }
+
+    /**
+     * Repository che risponde solo a {@code findAll()}: basta ai metodi misurati e
+     * non aggiunge il costo di un mock.
+     */
+    static StockRepository repository(List<Stock> stocks) {
+        return (StockRepository) Proxy.newProxyInstance(
+                StockRepository.class.getClassLoader(),
+                new Class<?>[]{StockRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findAll") && method.getParameterCount() == 0) {
+                        return stocks;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * Book fuori heap per i costruttori dei servizi: null = disabilitato.
+     */
+    static ObjectProvider<OffHeapPositionStore> offHeap(OffHeapPositionStore store) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        if (store != null) {
+            beans.addBean("offHeapPositionStore", store);
+        }
+        return beans.getBeanProvider(OffHeapPositionStore.class);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.stock_manager.benchmark;
+
+import com.example.stock_manager.StockManagerApplication;
+import com.example.stock_manager.dto.CreateStockRequest;
+import com.example.stock_manager.service.StockTransactionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vendite sistematicamente rifiutate via HTTP (quantita' 1, vendita da 2 -> 400): misura
+ * le risposte d'errore al secondo che il percorso eccezione + handler riesce a servire.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(64)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class RejectedSellLoadBenchmark {
+
+    private static final int SYMBOLS = 100;
+    private static final String[] BODIES = new String[SYMBOLS];
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private URI sell;
+
+    @Setup
+    public void setUp() {
+        context = SpringApplication.run(StockManagerApplication.class,
+                "--server.port=0",
+                "--spring.jpa.show-sql=false",
+                "--stock.journal.enabled=false",
+                "--logging.level.root=WARN");
+        StockTransactionService transactions = context.getBean(StockTransactionService.class);
+        for (int i = 0; i < SYMBOLS; i++) {
+            transactions.createStock(new CreateStockRequest("REJ" + i, 1));
+            BODIES[i] = "{\"symbol\":\"REJ" + i + "\",\"quantity\":2}";
+        }
+        int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+        sell = URI.create("http://localhost:" + port + "/api/stocks/sell");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int rejectedSell() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(sell)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(BODIES[ThreadLocalRandom.current().nextInt(SYMBOLS)]))
+                .build();
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 400) {
+            throw new IllegalStateException(sell + " returned " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+}
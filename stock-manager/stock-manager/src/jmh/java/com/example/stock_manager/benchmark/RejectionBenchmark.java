@@ -0,0 +1,60 @@
+package com.example.stock_manager.benchmark;
+
+import com.example.stock_manager.exception.InsufficientStockException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo di un rifiuto lanciato e raccolto a {@code depth} frame di profondita' (uno stack
+ * Spring MVC + servizio ne conta un centinaio): eccezione di business senza stack trace
+ * contro un'eccezione che lo cattura, come prima della gerarchia stackless.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RejectionBenchmark {
+
+    @Param({"10", "100"})
+    private int depth;
+
+    @Benchmark
+    public String stackless() {
+        try {
+            return descend(depth, true);
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Benchmark
+    public String withStackTrace() {
+        try {
+            return descend(depth, false);
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static String descend(int remaining, boolean stackless) {
+        if (remaining > 0) {
+            return descend(remaining - 1, stackless);
+        }
+        if (stackless) {
+            throw new InsufficientStockException("AAPL", 1, 2);
+        }
+        throw new IllegalStateException("Insufficient stock for 'AAPL': available " + 1 + ", requested " + 2);
+    }
+}
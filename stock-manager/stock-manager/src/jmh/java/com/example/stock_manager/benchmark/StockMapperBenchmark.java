@@ -0,0 +1,55 @@
+package com.example.stock_manager.benchmark;
+
+import com.example.stock_manager.mapper.StockMapper;
+import com.example.stock_manager.model.Stock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mappatura entita' -> DTO su un intero portafoglio, come nelle risposte dei listing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class StockMapperBenchmark {
+
+    @Param({"10", "10000", "1000000"})
+    private int positions;
+
+    private List<Stock> stocks;
+
+    @Setup
+    public void setUp() {
+        stocks = Portfolios.stocks(positions);
+    }
+
+    @Benchmark
+    public void toResponse(Blackhole blackhole) {
+        for (Stock stock : stocks) {
+            blackhole.consume(StockMapper.toResponse(stock));
+        }
+    }
+
+    @Benchmark
+    public void toValueResponse(Blackhole blackhole) {
+        for (Stock stock : stocks) {
+            blackhole.consume(StockMapper.toValueResponse(stock, 150.0));
+        }
+    }
+}
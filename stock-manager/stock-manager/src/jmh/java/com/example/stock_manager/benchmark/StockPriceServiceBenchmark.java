@@ -0,0 +1,90 @@
+package com.example.stock_manager.benchmark;
+
+import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.service.impl.StockPriceServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link StockPriceServiceImpl#getPrice} letto da piu' thread insieme, con e
+ * senza un thread che aggiorna i prezzi nel frattempo; {@code writers} misura piu'
+ * scrittori contemporanei, che non si escludono tra loro.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class StockPriceServiceBenchmark {
+
+    @Param({"10", "10000", "1000000"})
+    private int positions;
+
+    private String[] symbols;
+    private StockPriceServiceImpl priceService;
+
+    @Setup
+    public void setUp() {
+        List<Stock> stocks = Portfolios.stocks(positions);
+        priceService = Portfolios.prices(stocks);
+        symbols = stocks.stream().map(Stock::getSymbol).toArray(String[]::new);
+    }
+
+    /**
+     * Cursore per thread: ognuno scorre i simboli con un passo diverso.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next = (int) Thread.currentThread().getId() * 7_919;
+
+        int next(int bound) {
+            next = (next + 1) % bound;
+            return next;
+        }
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public double readOnly(Cursor cursor) {
+        return priceService.getPrice(symbols[cursor.next(symbols.length)]);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public double reader(Cursor cursor) {
+        return priceService.getPrice(symbols[cursor.next(symbols.length)]);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void writer(Cursor cursor) {
+        int i = cursor.next(symbols.length);
+        priceService.updatePrice(symbols[i], 10.0 + i % 500);
+    }
+
+    @Benchmark
+    @Group("writers")
+    @GroupThreads(4)
+    public void concurrentWriter(Cursor cursor) {
+        int i = cursor.next(symbols.length);
+        priceService.updatePrice(symbols[i], 10.0 + i % 500);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.stock_manager.benchmark;
+
+import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.service.StockTransactionService;
+import com.example.stock_manager.symbol.SymbolRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class StockTransactionServiceBenchmark {
+
+    @Param({"10", "10000", "1000000"})
+    private int positions;
+
+    private StockTransactionService transactionService;
+
+    @Setup
+    public void setUp() {
+        List<Stock> stocks = Portfolios.stocks(positions);
+        // publisher, EntityManager e metriche non servono alle letture misurate
+        SymbolRegistry registry = Portfolios.registry(positions);
+        transactionService = new StockTransactionService(
+                Portfolios.repository(stocks), Portfolios.prices(stocks, registry), null, null, null, registry);
+    }
+
+    @Benchmark
+    public List<Stock> stocksByValue() {
+        return transactionService.getStocksByValue();
+    }
+}
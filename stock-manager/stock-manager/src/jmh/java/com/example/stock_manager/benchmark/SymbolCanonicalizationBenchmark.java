@@ -0,0 +1,68 @@
+package com.example.stock_manager.benchmark;
+
+import com.example.stock_manager.symbol.SymbolRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Validazione e canonicalizzazione del simbolo per richiesta: regex + toUpperCase (come
+ * prima del registro) contro il registro dei simboli. I simboli arrivano in minuscolo,
+ * il caso in cui toUpperCase alloca. Lanciare con il profiler GC per i byte allocati per
+ * operazione: {@code mvn -P benchmark verify -Djmh.args="SymbolCanonicalization -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SymbolCanonicalizationBenchmark {
+
+    private static final Pattern SYMBOL = Pattern.compile("^[A-Za-z0-9]+$");
+
+    @Param({"1000"})
+    private int symbols;
+
+    private String[] requests;
+    private SymbolRegistry registry;
+
+    @Setup
+    public void setUp() {
+        requests = new String[symbols];
+        registry = new SymbolRegistry(symbols);
+        for (int i = 0; i < symbols; i++) {
+            requests[i] = ("sym" + i).toLowerCase(Locale.ROOT);
+            registry.id(requests[i]);
+        }
+    }
+
+    @Benchmark
+    public void regexAndToUpperCase(Blackhole blackhole) {
+        for (String symbol : requests) {
+            blackhole.consume(SYMBOL.matcher(symbol).matches());
+            blackhole.consume(symbol.toUpperCase());
+        }
+    }
+
+    @Benchmark
+    public void registry(Blackhole blackhole) {
+        for (String symbol : requests) {
+            // id -1 = grafia non valida: validazione e canonicalizzazione in una lookup
+            blackhole.consume(registry.name(registry.id(symbol)));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.stock_manager.benchmark;
+
+import com.example.stock_manager.StockManagerApplication;
+import com.example.stock_manager.dto.CreateStockRequest;
+import com.example.stock_manager.service.StockTransactionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carico HTTP sugli endpoint buy/sell/summary con richieste servite da platform thread
+ * (pool Tomcat da 200) o da virtual thread. Con piu' client che thread del pool, il
+ * throughput indica le richieste al secondo sostenibili e il SampleTime i percentili
+ * (p99) di latenza. Il modo {@code virtual} richiede che il fork giri su JDK 21+:
+ * {@code mvn -P benchmark verify -Djmh.args="ThreadingModeLoad -jvm /path/to/jdk21/bin/java"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(400)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ThreadingModeLoadBenchmark {
+
+    private static final int SYMBOLS = 1_000;
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+
+    @Setup
+    public void setUp() {
+        boolean virtual = threads.equals("virtual");
+        if (virtual && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("Virtual threads need a JDK 21+ fork, running " + Runtime.version());
+        }
+        context = SpringApplication.run(StockManagerApplication.class,
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtual,
+                "--spring.datasource.hikari.maximum-pool-size=32",
+                "--spring.jpa.show-sql=false",
+                "--stock.journal.enabled=false",
+                "--logging.level.root=WARN");
+        StockTransactionService transactions = context.getBean(StockTransactionService.class);
+        for (int i = 0; i < SYMBOLS; i++) {
+            // quantita' ampia: le vendite non esauriscono mai la posizione
+            transactions.createStock(new CreateStockRequest(symbol(i), 1_000_000_000));
+        }
+        int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+        baseUrl = "http://localhost:" + port + "/api/stocks";
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int buy() throws IOException, InterruptedException {
+        return trade("buy");
+    }
+
+    @Benchmark
+    public int sell() throws IOException, InterruptedException {
+        return trade("sell");
+    }
+
+    @Benchmark
+    public int summary() throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/summary")).GET().build());
+    }
+
+    private int trade(String side) throws IOException, InterruptedException {
+        String body = "{\"symbol\":\"" + symbol(ThreadLocalRandom.current().nextInt(SYMBOLS)) + "\",\"quantity\":1}";
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/" + side))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build());
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(request.uri() + " returned " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+
+    private static String symbol(int i) {
+        return "LOAD" + i;
+    }
+}
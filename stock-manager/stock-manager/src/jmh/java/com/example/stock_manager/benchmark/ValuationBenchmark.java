@@ -0,0 +1,78 @@
+package com.example.stock_manager.benchmark;
+
+import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.valuation.FixedPoint;
+import com.example.stock_manager.valuation.ValueAccumulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Somma prezzo x quantita' su un portafoglio: virgola mobile (percorso precedente)
+ * contro virgola fissa, con e senza la conversione del prezzo in micro-unita'.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ValuationBenchmark {
+
+    @Param({"10", "10000", "1000000"})
+    private int positions;
+
+    private double[] prices;
+    private long[] priceMicros;
+    private int[] quantities;
+
+    @Setup
+    public void setUp() {
+        List<Stock> stocks = Portfolios.stocks(positions);
+        prices = Portfolios.prices(stocks).getPrices(stocks.stream().map(Stock::getSymbol).toArray(String[]::new));
+        priceMicros = new long[positions];
+        quantities = new int[positions];
+        for (int i = 0; i < positions; i++) {
+            priceMicros[i] = FixedPoint.toMicros(prices[i]);
+            quantities[i] = stocks.get(i).getQuantity();
+        }
+    }
+
+    @Benchmark
+    public double doubleSum() {
+        double total = 0.0;
+        for (int i = 0; i < prices.length; i++) {
+            total += prices[i] * quantities[i];
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double fixedPointSum() {
+        ValueAccumulator total = new ValueAccumulator();
+        for (int i = 0; i < prices.length; i++) {
+            total.add(FixedPoint.toMicros(prices[i]), quantities[i]);
+        }
+        return total.totalValue();
+    }
+
+    @Benchmark
+    public double fixedPointSumPrescaled() {
+        ValueAccumulator total = new ValueAccumulator();
+        for (int i = 0; i < priceMicros.length; i++) {
+            total.add(priceMicros[i], quantities[i]);
+        }
+        return total.totalValue();
+    }
+}
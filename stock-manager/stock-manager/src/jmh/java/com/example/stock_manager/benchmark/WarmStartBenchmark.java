@@ -0,0 +1,109 @@
+package com.example.stock_manager.benchmark;
+
+import com.example.stock_manager.StockManagerApplication;
+import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.persistence.PriceSnapshotStore;
+import com.example.stock_manager.service.impl.StockPriceServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Avvio e recupero nel profilo durable con {@code positions} posizioni su file:
+ * avvio completo del contesto (Flyway, JPA, ripristino prezzi, ricostruzione degli
+ * aggregati) e, separatamente, il solo ripristino dello snapshot dei prezzi.
+ * Un colpo per iterazione: {@code mvn -P benchmark verify -Djmh.args="WarmStart"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class WarmStartBenchmark {
+
+    @Param({"1000000"})
+    private int positions;
+
+    private Path directory;
+    private String[] args;
+    private PriceSnapshotStore snapshot;
+
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        directory = Files.createTempDirectory("warm-start");
+        args = new String[]{
+                "--spring.profiles.active=durable",
+                "--stock.data-directory=" + directory,
+                "--server.port=0",
+                "--stock.journal.enabled=false",
+                "--stock.symbols.max-symbols=" + (positions + 16),
+                "--logging.level.root=WARN"
+        };
+        // primo avvio a vuoto: Flyway crea lo schema
+        SpringApplication.run(StockManagerApplication.class, args).close();
+
+        List<Stock> stocks = Portfolios.stocks(positions);
+        try (Connection connection = DriverManager.getConnection(
+                "jdbc:h2:file:" + directory.resolve("stockdb"), "sa", "")) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO stock (symbol, quantity) VALUES (?, ?)")) {
+                for (int i = 0; i < stocks.size(); i++) {
+                    insert.setString(1, stocks.get(i).getSymbol());
+                    insert.setInt(2, stocks.get(i).getQuantity());
+                    insert.addBatch();
+                    if (i % 10_000 == 9_999) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+        }
+        snapshot = new PriceSnapshotStore(Portfolios.prices(stocks),
+                directory.resolve("prices.snapshot"), Duration.ofMinutes(1));
+        snapshot.save();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public long coldStart() {
+        try (ConfigurableApplicationContext context = SpringApplication.run(StockManagerApplication.class, args)) {
+            return context.getStartupDate();
+        }
+    }
+
+    @Benchmark
+    public int priceRestore() {
+        return new PriceSnapshotStore(new StockPriceServiceImpl(Portfolios.registry(positions)), directory.resolve("prices.snapshot"),
+                Duration.ofMinutes(1)).restore();
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.stock_manager.bulk;
+
+import java.util.List;
+
+/**
+ * Esito di un import CSV: posizioni create, righe rifiutate e il dettaglio dei primi
+ * rifiuti (al massimo {@code stock.bulk.max-reported-errors}).
+ */
+public record ImportResult(long imported, long rejected, List<RowError> errors) {
+
+    /**
+     * Riga rifiutata: numero di riga nel file (da 1), simbolo letto e motivo.
+     */
+    public record RowError(long line, String symbol, String error) {
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.stock_manager.bulk;
+
+import com.example.stock_manager.event.PositionChangedEvent;
+import com.example.stock_manager.event.PositionChangedEvent.Operation;
+import com.example.stock_manager.exception.DuplicateStockException;
+import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.service.StockPriceService;
+import com.example.stock_manager.service.StockTransactionService;
+import com.example.stock_manager.symbol.Symbols;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Import ed export in blocco delle posizioni in CSV, una riga {@code SIMBOLO,QUANTITA}
+ * per posizione (intestazione opzionale, righe {@code #} di commento, campi successivi
+ * ignorati: un export si reimporta cosi' com'e'). L'import legge il corpo in streaming e
+ * scrive a blocchi di {@code chunk-size} righe: un batch JDBC e un commit per blocco,
+ * con gli stessi eventi di {@code createStock}. Le righe non valide e i simboli gia'
+ * presenti vengono rifiutati singolarmente senza fermare l'import; i blocchi gia'
+ * committati restano anche se l'import si interrompe. Un blocco che fallisce anche dopo un
+ * nuovo tentativo viene rifiutato per intero e l'import prosegue con il successivo.
+ */
+@Service
+@Slf4j
+public class PositionBulkService {
+
+    static final String HEADER = "symbol,quantity,price,value";
+    private static final String HEADER_PREFIX = "symbol,quantity";
+
+    // inserisce solo se assente: 0 righe aggiornate = simbolo gia' presente (nel DB o prima nel file)
+    private static final String INSERT_IF_ABSENT = """
+            MERGE INTO stock t
+            USING (VALUES (CAST(? AS VARCHAR(255)), CAST(? AS INTEGER))) s(symbol, quantity)
+            ON t.symbol = s.symbol
+            WHEN NOT MATCHED THEN INSERT (symbol, quantity) VALUES (s.symbol, s.quantity)
+            """;
+    private static final int IO_BUFFER = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManagerFactory entityManagerFactory;
+    private final StockTransactionService transactionService;
+    private final StockPriceService stockPriceService;
+    private final int chunkSize;
+    private final int maxReportedErrors;
+
+    @Autowired
+    public PositionBulkService(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               ApplicationEventPublisher eventPublisher,
+                               EntityManagerFactory entityManagerFactory,
+                               StockTransactionService transactionService,
+                               StockPriceService stockPriceService,
+                               @Value("${stock.bulk.chunk-size:5000}") int chunkSize,
+                               @Value("${stock.bulk.max-reported-errors:1000}") int maxReportedErrors) {
+        if (chunkSize < 1 || maxReportedErrors < 0) {
+            throw new IllegalArgumentException("Bulk chunk size must be positive and max reported errors not negative");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.entityManagerFactory = entityManagerFactory;
+        this.transactionService = transactionService;
+        this.stockPriceService = stockPriceService;
+        this.chunkSize = chunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    public ImportResult importCsv(InputStream in) throws IOException {
+        long started = System.nanoTime();
+        Chunk chunk = new Chunk(chunkSize);
+        Outcome outcome = new Outcome(maxReportedErrors);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), IO_BUFFER);
+        long lineNumber = 0;
+        boolean firstRow = true;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String row = line.strip();
+            if (row.isEmpty() || row.charAt(0) == '#') {
+                continue;
+            }
+            if (firstRow) {
+                firstRow = false;
+                if (row.regionMatches(true, 0, HEADER_PREFIX, 0, HEADER_PREFIX.length())) {
+                    continue; // intestazione
+                }
+            }
+            parse(row, lineNumber, chunk, outcome);
+            if (chunk.count == chunkSize) {
+                flush(chunk, outcome);
+            }
+        }
+        flush(chunk, outcome);
+        log.info("Imported {} positions ({} rejected) in {} ms", outcome.imported, outcome.rejected,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return new ImportResult(outcome.imported, outcome.rejected, outcome.reportedErrors());
+    }
+
+    /**
+     * Scrive tutte le posizioni in ordine di simbolo con prezzo e valore correnti,
+     * una riga alla volta: la tabella non viene mai caricata per intero.
+     */
+    public void exportCsv(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), IO_BUFFER);
+        writer.write(HEADER);
+        writer.write('\n');
+        try {
+            transactionService.streamAllStocks(stock -> write(writer, stock));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private void write(Writer writer, Stock stock) {
+        double price = stockPriceService.getPrice(stock.getSymbol());
+        try {
+            writer.write(stock.getSymbol());
+            writer.write(',');
+            writer.write(Integer.toString(stock.getQuantity()));
+            writer.write(',');
+            writer.write(Double.toString(price));
+            writer.write(',');
+            writer.write(Double.toString(price * stock.getQuantity()));
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // stessi vincoli e messaggi di CreateStockRequest
+    private static void parse(String row, long lineNumber, Chunk chunk, Outcome outcome) {
+        int comma = row.indexOf(',');
+        String symbol = (comma < 0 ? row : row.substring(0, comma)).strip();
+        if (comma < 0) {
+            outcome.reject(lineNumber, symbol, "Quantity is required");
+            return;
+        }
+        if (symbol.isEmpty()) {
+            outcome.reject(lineNumber, symbol, "Symbol cannot be blank");
+            return;
+        }
+        if (symbol.length() > Symbols.MAX_LENGTH) {
+            outcome.reject(lineNumber, symbol, "Symbol must be between 1 and 10 characters");
+            return;
+        }
+        String canonical = Symbols.normalize(symbol);
+        if (canonical == null) {
+            outcome.reject(lineNumber, symbol, "Symbol must contain only letters and numbers");
+            return;
+        }
+        int end = row.indexOf(',', comma + 1);
+        String field = row.substring(comma + 1, end < 0 ? row.length() : end).strip();
+        int quantity;
+        try {
+            quantity = Integer.parseInt(field);
+        } catch (NumberFormatException e) {
+            outcome.reject(lineNumber, symbol, "Quantity must be an integer");
+            return;
+        }
+        if (quantity < 1) {
+            outcome.reject(lineNumber, symbol, "Quantity must be at least 1");
+            return;
+        }
+        chunk.add(lineNumber, canonical, quantity);
+    }
+
+    private void flush(Chunk chunk, Outcome outcome) {
+        if (chunk.count == 0) {
+            return;
+        }
+        int[] counts;
+        try {
+            counts = transactionTemplate.execute(status -> insert(chunk));
+        } catch (DuplicateKeyException e) {
+            // simbolo creato in concorrenza dopo il controllo della MERGE: il blocco e' stato
+            // annullato, al secondo tentativo la riga e' visibile e viene rifiutata come duplicato
+            try {
+                counts = transactionTemplate.execute(status -> insert(chunk));
+            } catch (DataAccessException retryFailure) {
+                // un solo nuovo tentativo: il blocco annullato viene rifiutato per intero
+                log.warn("Bulk import chunk at lines {}-{} failed after retry", chunk.lines[0],
+                        chunk.lines[chunk.count - 1], retryFailure);
+                for (int i = 0; i < chunk.count; i++) {
+                    outcome.reject(chunk.lines[i], chunk.symbols[i], "Chunk failed: " + retryFailure.getMostSpecificCause().getMessage());
+                }
+                chunk.count = 0;
+                return;
+            }
+        }
+        for (int i = 0; i < chunk.count; i++) {
+            if (counts[i] == 0) {
+                outcome.reject(chunk.lines[i], chunk.symbols[i], new DuplicateStockException(chunk.symbols[i]).getMessage());
+            } else {
+                outcome.imported++;
+            }
+        }
+        chunk.count = 0;
+        // le scritture JDBC non passano da Hibernate: i risultati in cache (es. existsById = false) vanno scartati
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegion(Stock.QUERY_CACHE_REGION);
+    }
+
+    private int[] insert(Chunk chunk) {
+        int[] counts = jdbcTemplate.batchUpdate(INSERT_IF_ABSENT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                statement.setString(1, chunk.symbols[i]);
+                statement.setInt(2, chunk.quantities[i]);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return chunk.count;
+            }
+        });
+        for (int i = 0; i < chunk.count; i++) {
+            if (counts[i] != 0) {
+                eventPublisher.publishEvent(new PositionChangedEvent(chunk.symbols[i], chunk.quantities[i],
+                        Operation.CREATE));
+            }
+        }
+        return counts;
+    }
+
+    private static final class Chunk {
+        private final long[] lines;
+        private final String[] symbols;
+        private final int[] quantities;
+        private int count;
+
+        private Chunk(int size) {
+            this.lines = new long[size];
+            this.symbols = new String[size];
+            this.quantities = new int[size];
+        }
+
+        private void add(long line, String symbol, int quantity) {
+            lines[count] = line;
+            symbols[count] = symbol;
+            quantities[count] = quantity;
+            count++;
+        }
+    }
+
+    // tiene le maxErrors righe rifiutate con numero piu' basso: i duplicati emergono al
+    // flush del blocco, dopo righe successive gia' rifiutate
+    private static final class Outcome {
+        private static final Comparator<ImportResult.RowError> BY_LINE =
+                Comparator.comparingLong(ImportResult.RowError::line);
+
+        private final int maxErrors;
+        private final PriorityQueue<ImportResult.RowError> errors = new PriorityQueue<>(BY_LINE.reversed());
+        private long imported;
+        private long rejected;
+
+        private Outcome(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        private void reject(long line, String symbol, String error) {
+            rejected++;
+            if (errors.size() < maxErrors) {
+                errors.add(new ImportResult.RowError(line, symbol, error));
+            } else if (maxErrors > 0 && line < errors.peek().line()) {
+                errors.poll();
+                errors.add(new ImportResult.RowError(line, symbol, error));
+            }
+        }
+
+        private List<ImportResult.RowError> reportedErrors() {
+            List<ImportResult.RowError> sorted = new ArrayList<>(errors);
+            sorted.sort(BY_LINE);
+            return sorted;
+        }
+    }
+}
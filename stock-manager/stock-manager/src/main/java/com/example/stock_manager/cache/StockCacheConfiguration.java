@@ -0,0 +1,84 @@
+package com.example.stock_manager.cache;
+
+import com.example.stock_manager.model.Stock;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Cache di secondo livello e query cache di Hibernate per {@link Stock}, su JCache con
+ * Caffeine in-process. Le regioni vengono create qui con limite di dimensione e TTL:
+ * <ul>
+ *   <li>{@code stock}: entita' per simbolo ({@code findById}), {@code max-entries} / {@code ttl};</li>
+ *   <li>{@code stock-queries}: risultati di {@code findAll} ed {@code existsById},
+ *       {@code query-max-entries} / {@code ttl};</li>
+ *   <li>timestamp di aggiornamento delle tabelle: senza limiti, perche' un timestamp
+ *       sfrattato farebbe considerare valido un risultato di query non piu' aggiornato.</li>
+ * </ul>
+ * L'invalidazione la fa Hibernate: le scritture via entita' aggiornano la regione al commit,
+ * le istruzioni bulk di {@code StockRepository} (buy/sell) la svuotano.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "stock.cache", name = "enabled", havingValue = "true")
+public class StockCacheConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public CacheManager stockCacheManager(@Value("${stock.cache.max-entries:10000}") long maxEntries,
+                                          @Value("${stock.cache.query-max-entries:1000}") long queryMaxEntries,
+                                          @Value("${stock.cache.ttl:5m}") Duration ttl) {
+        if (maxEntries < 1 || queryMaxEntries < 1 || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Cache sizes and TTL must be positive");
+        }
+        // URI univoco: ogni contesto Spring (es. nei test) ha il proprio CacheManager
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("stock-cache-" + UUID.randomUUID()), getClass().getClassLoader());
+        cacheManager.createCache(Stock.CACHE_REGION, region(OptionalLong.of(maxEntries), ttl));
+        cacheManager.createCache(Stock.QUERY_CACHE_REGION, region(OptionalLong.of(queryMaxEntries), ttl));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                region(OptionalLong.of(queryMaxEntries), ttl));
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                region(OptionalLong.empty(), null));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer stockCacheHibernateProperties(CacheManager stockCacheManager) {
+        return properties -> {
+            properties.put("hibernate.cache.use_second_level_cache", true);
+            properties.put("hibernate.cache.use_query_cache", true);
+            properties.put("hibernate.cache.region.factory_class", "jcache");
+            properties.put("hibernate.javax.cache.cache_manager", stockCacheManager);
+            // le regioni mancanti sarebbero create senza limiti: meglio fallire all'avvio
+            properties.put("hibernate.javax.cache.missing_cache_strategy", "fail");
+            properties.put("hibernate.generate_statistics", true);
+        };
+    }
+
+    @Bean
+    public MeterBinder stockCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        return new StockCacheMetrics(entityManagerFactory.unwrap(SessionFactory.class).getStatistics());
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(OptionalLong maxEntries, Duration ttl) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(maxEntries);
+        configuration.setExpireAfterWrite(ttl == null ? OptionalLong.empty() : OptionalLong.of(ttl.toNanos()));
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.stock_manager.cache;
+
+import com.example.stock_manager.model.Stock;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Richieste alla cache di secondo livello per regione, lette dalle statistiche di Hibernate:
+ * {@code stock.cache.requests{region,result=hit|miss}}, {@code stock.cache.puts{region}} e
+ * {@code stock.cache.hit.ratio{region}} (cumulato dall'avvio).
+ */
+public class StockCacheMetrics implements MeterBinder {
+
+    private static final String[] REGIONS = {Stock.CACHE_REGION, Stock.QUERY_CACHE_REGION};
+
+    private final Statistics statistics;
+
+    public StockCacheMetrics(Statistics statistics) {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (String region : REGIONS) {
+            FunctionCounter.builder("stock.cache.requests", statistics, count(region, CacheRegionStatistics::getHitCount))
+                    .description("Second-level cache lookups")
+                    .tags("region", region, "result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("stock.cache.requests", statistics, count(region, CacheRegionStatistics::getMissCount))
+                    .description("Second-level cache lookups")
+                    .tags("region", region, "result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("stock.cache.puts", statistics, count(region, CacheRegionStatistics::getPutCount))
+                    .description("Entries stored in the second-level cache")
+                    .tag("region", region)
+                    .register(registry);
+            Gauge.builder("stock.cache.hit.ratio", statistics, stats -> hitRatio(stats, region))
+                    .description("Second-level cache hit ratio since startup")
+                    .tag("region", region)
+                    .register(registry);
+        }
+    }
+
+    static double hitRatio(Statistics statistics, String region) {
+        CacheRegionStatistics stats = statistics.getCacheRegionStatistics(region);
+        if (stats == null) {
+            return 0.0;
+        }
+        long lookups = stats.getHitCount() + stats.getMissCount();
+        return lookups == 0 ? 0.0 : (double) stats.getHitCount() / lookups;
+    }
+
+    // La regione puo' non esistere ancora (o la cache essere spenta): conta zero
+    private static ToDoubleFunction<Statistics> count(String region, ToLongFunction<CacheRegionStatistics> counter) {
+        return statistics -> {
+            CacheRegionStatistics stats = statistics.getCacheRegionStatistics(region);
+            return stats == null ? 0 : counter.applyAsLong(stats);
+        };
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.stock_manager.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Con {@code spring.threads.virtual.enabled=true} su un JDK precedente al 21 Spring Boot
+ * ripiega in silenzio sui platform thread: qui lo si rende visibile. Il progetto usa Java 17,
+ * quindi senza un runtime 21+ il profilo {@code virtual} e' inerte.
+ * <p>
+ * Su JDK 21-23 un virtual thread che attende I/O dentro un blocco {@code synchronized} blocca
+ * il carrier (pinning, risolto nel JDK 24). Le sezioni che fanno I/O sotto lock (append e
+ * snapshot del journal, snapshot dei prezzi, ricostruzione degli aggregati dal database)
+ * usano {@code ReentrantLock}; i blocchi {@code synchronized} rimasti proteggono solo stato
+ * in memoria. Per verificarlo sotto carico: {@code -Djdk.tracePinnedThreads=short}.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadsCheck {
+
+    static final int MIN_JAVA_VERSION = 21;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report() {
+        report(Runtime.version().feature());
+    }
+
+    // restituisce true se i virtual thread sono effettivamente attivi
+    boolean report(int javaVersion) {
+        if (javaVersion < MIN_JAVA_VERSION) {
+            log.warn("Virtual threads requested but running on Java {}: requests use platform threads", javaVersion);
+            return false;
+        }
+        log.info("Virtual threads enabled for request handling and async work (Java {})", javaVersion);
+        return true;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.stock_manager.controller;
+
+import com.example.stock_manager.dto.CreateStockRequest;
+import com.example.stock_manager.dto.PortfolioSummary;
+import com.example.stock_manager.dto.StockResponse;
+import com.example.stock_manager.dto.StockValueResponse;
+import com.example.stock_manager.dto.TransactionRequest;
+import com.example.stock_manager.dto.UpdateStockRequest;
+import com.example.stock_manager.mapper.StockMapper;
+import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.portfolio.ClientPortfolioService;
+import com.example.stock_manager.service.StockPriceService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Endpoint di {@link StockController} per un portafoglio cliente. Prezzi, stream,
+ * tick e storico restano su {@code /api/stocks}: sono di mercato, non del portafoglio.
+ */
+@RestController
+@RequestMapping("/api/portfolios/{portfolioId}/stocks")
+@RequiredArgsConstructor
+public class PortfolioController {
+
+    private final ClientPortfolioService clientPortfolioService;
+    private final StockPriceService stockPriceService;
+
+    @PostMapping
+    public ResponseEntity<StockResponse> create(@PathVariable String portfolioId,
+                                                @Valid @RequestBody CreateStockRequest request) {
+        Stock created = clientPortfolioService.createStock(portfolioId, request.getSymbol(), request.getQuantity());
+        return ResponseEntity.status(HttpStatus.CREATED).body(StockMapper.toResponse(created));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<StockResponse>> findAll(@PathVariable String portfolioId) {
+        return ResponseEntity.ok(clientPortfolioService.getAllStocks(portfolioId).stream()
+                .map(StockMapper::toResponse)
+                .toList());
+    }
+
+    @GetMapping("/{symbol}")
+    public ResponseEntity<StockResponse> findBySymbol(@PathVariable String portfolioId, @PathVariable String symbol) {
+        return ResponseEntity.ok(StockMapper.toResponse(clientPortfolioService.getStockBySymbol(portfolioId, symbol)));
+    }
+
+    @PutMapping("/{symbol}")
+    public ResponseEntity<StockResponse> update(@PathVariable String portfolioId, @PathVariable String symbol,
+                                                @Valid @RequestBody UpdateStockRequest request) {
+        Stock updated = clientPortfolioService.updateStock(portfolioId, symbol, request.getQuantity());
+        return ResponseEntity.ok(StockMapper.toResponse(updated));
+    }
+
+    @DeleteMapping("/{symbol}")
+    public ResponseEntity<Void> delete(@PathVariable String portfolioId, @PathVariable String symbol) {
+        clientPortfolioService.deleteStock(portfolioId, symbol);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/total-value")
+    public ResponseEntity<Double> getTotalValue(@PathVariable String portfolioId) {
+        return ResponseEntity.ok(clientPortfolioService.getTotalValue(portfolioId));
+    }
+
+    @GetMapping("/average-price")
+    public ResponseEntity<Double> getAveragePricePerShare(@PathVariable String portfolioId) {
+        return ResponseEntity.ok(clientPortfolioService.getAveragePricePerShare(portfolioId));
+    }
+
+    @GetMapping("/summary")
+    public ResponseEntity<PortfolioSummary> getSummary(@PathVariable String portfolioId) {
+        return ResponseEntity.ok(clientPortfolioService.getPortfolioSummary(portfolioId));
+    }
+
+    @GetMapping("/highest-value")
+    public ResponseEntity<StockValueResponse> getHighestValueStock(@PathVariable String portfolioId) {
+        Stock highest = clientPortfolioService.findHighestValueStock(portfolioId);
+        if (highest == null) {
+            return ResponseEntity.notFound().build();
+        }
+        double price = stockPriceService.getPrice(highest.getSymbol());
+        return ResponseEntity.ok(StockMapper.toValueResponse(highest, price));
+    }
+
+    @PostMapping("/buy")
+    public ResponseEntity<StockResponse> buyStock(@PathVariable String portfolioId,
+                                                  @Valid @RequestBody TransactionRequest request) {
+        Stock stock = clientPortfolioService.buyStock(portfolioId, request.getSymbol(), request.getQuantity());
+        return ResponseEntity.ok(StockMapper.toResponse(stock));
+    }
+
+    @PostMapping("/sell")
+    public ResponseEntity<StockResponse> sellStock(@PathVariable String portfolioId,
+                                                   @Valid @RequestBody TransactionRequest request) {
+        Stock stock = clientPortfolioService.sellStock(portfolioId, request.getSymbol(), request.getQuantity());
+        if (stock == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(StockMapper.toResponse(stock));
+    }
+}
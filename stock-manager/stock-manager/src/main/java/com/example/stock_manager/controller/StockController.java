@@ -1,33 +1,69 @@
 package com.example.stock_manager.controller;
 
+import com.example.stock_manager.bulk.ImportResult;
+import com.example.stock_manager.bulk.PositionBulkService;
+import com.example.stock_manager.dto.BatchTransactionRequest;
+import com.example.stock_manager.dto.BatchTransactionResponse;
+import com.example.stock_manager.dto.Candle;
 import com.example.stock_manager.dto.PortfolioSummary;
+import com.example.stock_manager.dto.PricePoint;
 import com.example.stock_manager.dto.CreateStockRequest;
 import com.example.stock_manager.dto.StockResponse;
 import com.example.stock_manager.dto.StockValueResponse;
 import com.example.stock_manager.dto.TransactionRequest;
 import com.example.stock_manager.dto.UpdateStockRequest;
+import com.example.stock_manager.engine.StripedWriteEngine;
+import com.example.stock_manager.history.CandleInterval;
+import com.example.stock_manager.history.PriceHistory;
+import com.example.stock_manager.ingest.IngestResult;
+import com.example.stock_manager.ingest.TickIngestionPipeline;
 import com.example.stock_manager.mapper.StockMapper;
 import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.model.TransactionSide;
 import com.example.stock_manager.service.PortfolioService;
+import com.example.stock_manager.service.PortfolioVersion;
 import com.example.stock_manager.service.StockPriceService;
 import com.example.stock_manager.service.StockTransactionService;
+import com.example.stock_manager.stream.PriceStreamHub;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.json.JsonMapper;
 
-import java.util.Comparator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/stocks")
 @RequiredArgsConstructor
 public class StockController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String NDJSON = "application/x-ndjson";
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final ObjectWriter STOCK_WRITER = JsonMapper.shared().writerFor(StockResponse.class);
+
     private final PortfolioService portfolioService;
     private final StockTransactionService transactionService;
     private final StockPriceService stockPriceService;
+    private final ObjectProvider<StripedWriteEngine> writeEngine;
+    private final PriceStreamHub priceStreamHub;
+    private final TickIngestionPipeline tickPipeline;
+    private final PriceHistory priceHistory;
+    private final PortfolioVersion portfolioVersion;
+    private final PositionBulkService bulkService;
 
     // --- CRUD DELEGATED TO SERVICE ---
 
@@ -38,11 +74,36 @@ public class StockController {
     }
 
     @GetMapping
-    public ResponseEntity<List<StockResponse>> findAll() {
-        List<StockResponse> stocks = transactionService.getAllStocks().stream()
+    public ResponseEntity<List<StockResponse>> findAll(@RequestParam(required = false) String after,
+                                                       @RequestParam(required = false) Integer limit,
+                                                       WebRequest request) {
+        if (after == null && limit == null) {
+            return versioned(request, () -> transactionService.getAllStocks().stream()
+                    .map(StockMapper::toResponse)
+                    .toList());
+        }
+        int pageSize = pageSize(limit);
+        String etag = portfolioVersion.etag();
+        if (request.checkNotModified(etag)) {
+            return notModified(etag);
+        }
+        List<StockResponse> page = transactionService.getStocksPage(after, pageSize).stream()
                 .map(StockMapper::toResponse)
                 .toList();
-        return ResponseEntity.ok(stocks);
+        return withNextCursor(page, pageSize, page.isEmpty() ? null : page.get(page.size() - 1).getSymbol(), etag);
+    }
+
+    @GetMapping(produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        StreamingResponseBody body = out -> transactionService.streamAllStocks(stock -> {
+            try {
+                out.write(STOCK_WRITER.writeValueAsBytes(StockMapper.toResponse(stock)));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
     }
 
     @GetMapping("/{symbol}")
@@ -64,18 +125,19 @@ public class StockController {
     }
 
     @GetMapping("/total-value")
-    public ResponseEntity<Double> getTotalValue() {
-        return ResponseEntity.ok(portfolioService.getTotalValue());
+    public ResponseEntity<Double> getTotalValue(WebRequest request) {
+        return versioned(request, portfolioService::getTotalValue);
     }
 
     @GetMapping("/average-price")
-    public ResponseEntity<Double> getAveragePricePerShare() {
-        return ResponseEntity.ok(portfolioService.getAveragePricePerShare());
+    public ResponseEntity<Double> getAveragePricePerShare(WebRequest request) {
+        return versioned(request, portfolioService::getAveragePricePerShare);
     }
 
     @GetMapping("/summary")
-    public ResponseEntity<PortfolioSummary> getSummary() {
-        return ResponseEntity.ok(portfolioService.getPortfolioSummary());
+    public ResponseEntity<PortfolioSummary> getSummary(@RequestParam(defaultValue = "true") boolean details,
+                                                       WebRequest request) {
+        return versioned(request, () -> portfolioService.getPortfolioSummary(details));
     }
 
     @GetMapping("/highest-value")
@@ -92,30 +154,130 @@ public class StockController {
 
     @PostMapping("/buy")
     public ResponseEntity<StockResponse> buyStock(@Valid @RequestBody TransactionRequest request) {
-        Stock stock = transactionService.buyStock(request.getSymbol(), request.getQuantity());
+        Stock stock = trade(TransactionSide.BUY, request);
         return ResponseEntity.ok(StockMapper.toResponse(stock));
     }
 
     @PostMapping("/sell")
     public ResponseEntity<StockResponse> sellStock(@Valid @RequestBody TransactionRequest request) {
-        Stock stock = transactionService.sellStock(request.getSymbol(), request.getQuantity());
+        Stock stock = trade(TransactionSide.SELL, request);
         if (stock == null) {
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.ok(StockMapper.toResponse(stock));
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<BatchTransactionResponse> executeBatch(@Valid @RequestBody BatchTransactionRequest request) {
+        return ResponseEntity.ok(transactionService.executeBatch(request.getLegs()));
+    }
+
     @GetMapping("/sorted-by-value")
-    public ResponseEntity<List<StockValueResponse>> getStocksSortedByValue() {
-        List<StockValueResponse> stocks = transactionService.getAllStocks().stream()
-                .map(stock -> StockMapper.toValueResponse(stock, stockPriceService.getPrice(stock.getSymbol())))
-                .sorted(Comparator.comparingDouble(StockValueResponse::getTotalValue).reversed())
+    public ResponseEntity<List<StockValueResponse>> getStocksSortedByValue(@RequestParam(required = false) String after,
+                                                                           @RequestParam(required = false) Integer limit,
+                                                                           WebRequest request) {
+        int pageSize = after == null && limit == null ? Integer.MAX_VALUE : pageSize(limit);
+        String etag = portfolioVersion.etag();
+        if (request.checkNotModified(etag)) {
+            return notModified(etag);
+        }
+        List<StockValueResponse> stocks = portfolioService.getPositionsByValue(after, pageSize).stream()
+                .map(StockMapper::toValueResponse)
                 .toList();
-        return ResponseEntity.ok(stocks);
+        return withNextCursor(stocks, pageSize, stocks.isEmpty() ? null : stocks.get(stocks.size() - 1).getSymbol(),
+                etag);
+    }
+
+    // Tick di prezzo e variazioni di valore in push (SSE), al posto del polling di /summary
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPrices(@RequestParam(required = false) List<String> symbols) {
+        return priceStreamHub.subscribe(symbols == null ? List.of() : symbols);
+    }
+
+    // Tick in blocco, una riga SIMBOLO,PREZZO per tick; per simbolo vince l'ultimo prezzo
+    @PostMapping(path = "/ticks", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<IngestResult> ingestTicks(InputStream body) throws IOException {
+        return ResponseEntity.ok(tickPipeline.ingest(body));
+    }
+
+    // Import in blocco: una riga SIMBOLO,QUANTITA per posizione, errori riportati per riga
+    @PostMapping(path = "/import", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<ImportResult> importPositions(InputStream body) throws IOException {
+        return ResponseEntity.ok(bulkService.importCsv(body));
+    }
+
+    @GetMapping(path = "/export", produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> exportPositions() {
+        StreamingResponseBody body = bulkService::exportCsv;
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"positions.csv\"")
+                .body(body);
+    }
+
+    // Candele OHLC dallo storico in memoria (1s, 1m, 1h), dalla piu' vecchia alla piu' recente
+    @GetMapping("/{symbol}/candles")
+    public ResponseEntity<List<Candle>> getCandles(@PathVariable String symbol,
+                                                   @RequestParam(defaultValue = "1m") String interval,
+                                                   @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(priceHistory.candles(symbol, CandleInterval.of(interval), pageSize(limit)));
+    }
+
+    @GetMapping("/{symbol}/ticks")
+    public ResponseEntity<List<PricePoint>> getRecentTicks(@PathVariable String symbol,
+                                                           @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(priceHistory.ticks(symbol, pageSize(limit)));
     }
 
     @GetMapping("/{symbol}/investment")
     public ResponseEntity<Double> getTotalInvestment(@PathVariable String symbol) {
         return ResponseEntity.ok(transactionService.calculateTotalInvestment(symbol));
     }
-}
\ No newline at end of file
+
+    // Con il write engine attivo buy/sell passano dalla corsia del simbolo
+    private Stock trade(TransactionSide side, TransactionRequest request) {
+        StripedWriteEngine engine = writeEngine.getIfAvailable();
+        if (engine != null) {
+            return engine.execute(side, request.getSymbol(), request.getQuantity());
+        }
+        return side == TransactionSide.BUY
+                ? transactionService.buyStock(request.getSymbol(), request.getQuantity())
+                : transactionService.sellStock(request.getSymbol(), request.getQuantity());
+    }
+
+    private static int pageSize(Integer limit) {
+        if (limit == null) {
+            return MAX_PAGE_SIZE;
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return limit;
+    }
+
+    // Se la pagina e' piena il client riceve il cursore da passare come ?after=
+    private static <T> ResponseEntity<List<T>> withNextCursor(List<T> page, int pageSize, String lastSymbol,
+                                                              String etag) {
+        if (page.size() < pageSize || lastSymbol == null) {
+            return ResponseEntity.ok().eTag(etag).body(page);
+        }
+        return ResponseEntity.ok().eTag(etag).header(NEXT_CURSOR_HEADER, lastSymbol).body(page);
+    }
+
+    /**
+     * Letture polling: con If-None-Match uguale alla versione corrente risponde 304
+     * senza toccare repository e prezzi. La versione si legge prima di calcolare il corpo,
+     * quindi un ETag non e' mai piu' recente dei dati che accompagna.
+     */
+    private <T> ResponseEntity<T> versioned(WebRequest request, Supplier<T> body) {
+        String etag = portfolioVersion.etag();
+        if (request.checkNotModified(etag)) {
+            return notModified(etag);
+        }
+        return ResponseEntity.ok().eTag(etag).body(body.get());
+    }
+
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+}
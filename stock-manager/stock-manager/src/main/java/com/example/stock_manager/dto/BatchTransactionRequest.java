@@ -0,0 +1,24 @@
+package com.example.stock_manager.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransactionRequest {
+
+    @NotEmpty(message = "Batch must contain at least one leg")
+    @Size(max = 10000, message = "Batch cannot contain more than 10000 legs")
+    private List<@Valid TransactionLegRequest> legs;
+}
@@ -0,0 +1,18 @@
+package com.example.stock_manager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransactionResponse {
+    private int filled;
+    private int rejected;
+    private List<TransactionLegResult> results;
+}
@@ -0,0 +1,23 @@
+package com.example.stock_manager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Candela OHLC: {@code start} e' l'inizio dell'intervallo (epoch millis),
+ * {@code ticks} il numero di prezzi che vi sono confluiti.
+ */
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Candle {
+    private long start;
+    private double open;
+    private double high;
+    private double low;
+    private double close;
+    private long ticks;
+}
@@ -15,6 +15,6 @@ public class PortfolioSummary {
     private double totalValue;
     private double averagePricePerShare;
     private int totalStocks;
-    private int totalQuantity;
+    private long totalQuantity;
     private List<StockValueResponse> stockDetails;
 }
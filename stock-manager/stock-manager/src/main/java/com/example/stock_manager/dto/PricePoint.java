@@ -0,0 +1,15 @@
+package com.example.stock_manager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PricePoint {
+    private long timestamp;
+    private double price;
+}
@@ -0,0 +1,34 @@
+package com.example.stock_manager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Evento inviato ai client in streaming: ultimo prezzo del simbolo, stato della posizione
+ * e variazione di valore rispetto all'ultimo tick consegnato a quel client.
+ */
+@Getter
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceTick {
+    private String symbol;
+    private double price;
+    private long quantity;
+    private double positionValue;
+    private double positionValueDelta;
+    private double portfolioValue;
+    private long timestamp;
+
+    /**
+     * Accorpa un tick piu' recente dello stesso simbolo: vale lo stato piu' recente,
+     * mentre le variazioni di valore si sommano.
+     */
+    public PriceTick conflate(PriceTick newer) {
+        return newer.toBuilder()
+                .positionValueDelta(positionValueDelta + newer.positionValueDelta)
+                .build();
+    }
+}
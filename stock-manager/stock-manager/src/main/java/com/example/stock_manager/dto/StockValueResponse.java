@@ -11,7 +11,7 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class StockValueResponse {
     private String symbol;
-    private int quantity;
+    private long quantity;
     private double currentPrice;
     private double totalValue;
 }
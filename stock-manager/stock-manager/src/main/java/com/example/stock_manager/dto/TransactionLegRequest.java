@@ -0,0 +1,32 @@
+package com.example.stock_manager.dto;
+
+import com.example.stock_manager.model.TransactionSide;
+import com.example.stock_manager.symbol.ValidSymbol;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionLegRequest {
+
+    @NotNull(message = "Side is required")
+    private TransactionSide side;
+
+    @NotBlank(message = "Symbol cannot be blank")
+    @Size(min = 1, max = 10, message = "Symbol must be between 1 and 10 characters")
+    @ValidSymbol
+    private String symbol;
+
+    @Min(value = 1, message = "Quantity must be at least 1")
+    private int quantity;
+}
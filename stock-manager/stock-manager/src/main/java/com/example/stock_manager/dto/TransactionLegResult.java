@@ -0,0 +1,28 @@
+package com.example.stock_manager.dto;
+
+import com.example.stock_manager.model.TransactionSide;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionLegResult {
+
+    public enum Status {
+        FILLED,
+        REJECTED
+    }
+
+    private int index;
+    private TransactionSide side;
+    private String symbol;
+    private int quantity;
+    private Status status;
+    // quantita' detenuta dopo la gamba (0 se la posizione e' stata chiusa)
+    private Integer resultingQuantity;
+    private String error;
+}
@@ -0,0 +1,285 @@
+package com.example.stock_manager.engine;
+
+import com.example.stock_manager.exception.InsufficientStockException;
+import com.example.stock_manager.exception.QuantityOverflowException;
+import com.example.stock_manager.exception.StockNotFoundException;
+import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.model.TransactionSide;
+import com.example.stock_manager.repository.StockRepository;
+import com.example.stock_manager.service.StockTransactionService;
+import com.example.stock_manager.symbol.SymbolRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Motore di scrittura opzionale per buy/sell ({@code stock.write-engine.enabled=true}).
+ * Ogni simbolo e' assegnato a una di N corsie, ciascuna servita da un solo thread che
+ * consuma una coda circolare limitata: le operazioni sullo stesso simbolo non si contendono
+ * piu' la riga e restano ordinate. Le operazioni sullo stesso simbolo prelevate insieme
+ * vengono accorpate in un unico aggiornamento netto; ogni chiamante riceve il proprio
+ * esito tramite future.
+ */
+@Component
+@ConditionalOnProperty(prefix = "stock.write-engine", name = "enabled", havingValue = "true")
+@Slf4j
+public class StripedWriteEngine implements SmartLifecycle {
+
+    private static final long POLL_MILLIS = 100;
+
+    private final StockTransactionService transactionService;
+    private final StockRepository stockRepository;
+    private final SymbolRegistry symbolRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final Lane[] lanes;
+    private final int maxBatch;
+    private volatile boolean running;
+    private volatile boolean stopped;
+
+    @Autowired
+    public StripedWriteEngine(StockTransactionService transactionService,
+                              StockRepository stockRepository,
+                              SymbolRegistry symbolRegistry,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${stock.write-engine.lanes:4}") int laneCount,
+                              @Value("${stock.write-engine.queue-capacity:4096}") int queueCapacity,
+                              @Value("${stock.write-engine.max-batch:256}") int maxBatch) {
+        if (laneCount < 1 || queueCapacity < 1 || maxBatch < 1) {
+            throw new IllegalArgumentException("Write engine lanes, queue capacity and batch size must be positive");
+        }
+        this.transactionService = transactionService;
+        this.stockRepository = stockRepository;
+        this.symbolRegistry = symbolRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxBatch = maxBatch;
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(new ArrayBlockingQueue<>(queueCapacity));
+        }
+    }
+
+    /**
+     * Accoda l'operazione nella corsia del simbolo. Se la coda e' piena il chiamante
+     * attende (backpressure). Il future si completa con la posizione risultante,
+     * {@code null} se una vendita l'ha chiusa, oppure con l'eccezione della singola operazione.
+     */
+    public CompletableFuture<Stock> submit(TransactionSide side, String symbol, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        String upperSymbol = symbolRegistry.canonical(symbol);
+        Operation operation = new Operation(side, upperSymbol, quantity, new CompletableFuture<>());
+        BlockingQueue<Operation> queue = laneOf(upperSymbol).queue;
+        if (stopped) {
+            throw new IllegalStateException("Write engine is stopped");
+        }
+        try {
+            queue.put(operation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing write for " + upperSymbol, e);
+        }
+        // stop() concorrente: se la corsia e' gia' stata svuotata nessuno servira' l'operazione
+        if (stopped && queue.remove(operation)) {
+            operation.result.completeExceptionally(new IllegalStateException("Write engine is stopped"));
+        }
+        return operation.result;
+    }
+
+    /**
+     * Versione bloccante di {@link #submit}: rilancia l'eccezione originale
+     * (es. {@link InsufficientStockException}) invece di {@link CompletionException}.
+     */
+    public Stock execute(TransactionSide side, String symbol, int quantity) {
+        try {
+            return submit(side, symbol, quantity).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void start() {
+        stopped = false;
+        running = true;
+        for (int i = 0; i < lanes.length; i++) {
+            Thread thread = new Thread(lanes[i], "write-lane-" + i);
+            thread.setDaemon(true);
+            lanes[i].thread = thread;
+            thread.start();
+        }
+        log.info("Write engine started with {} lanes", lanes.length);
+    }
+
+    @Override
+    public void stop() {
+        stopped = true;
+        running = false;
+        for (Lane lane : lanes) {
+            lane.join();
+        }
+        for (Lane lane : lanes) {
+            List<Operation> pending = new ArrayList<>();
+            lane.queue.drainTo(pending);
+            pending.forEach(op -> op.result.completeExceptionally(new IllegalStateException("Write engine is stopped")));
+        }
+        log.info("Write engine stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // id del registro: consecutivi, quindi distribuiti in modo uniforme sulle corsie
+    private Lane laneOf(String upperSymbol) {
+        int id = symbolRegistry.id(upperSymbol);
+        return lanes[Math.floorMod(id >= 0 ? id : upperSymbol.hashCode(), lanes.length)];
+    }
+
+    private void process(List<Operation> batch) {
+        // raggruppa per simbolo mantenendo l'ordine di arrivo all'interno di ciascun simbolo
+        Map<String, List<Operation>> bySymbol = new LinkedHashMap<>();
+        for (Operation operation : batch) {
+            bySymbol.computeIfAbsent(operation.symbol, s -> new ArrayList<>()).add(operation);
+        }
+        for (List<Operation> operations : bySymbol.values()) {
+            if (operations.size() == 1) {
+                applySingle(operations.get(0));
+                continue;
+            }
+            try {
+                applyCoalesced(operations);
+            } catch (RuntimeException e) {
+                log.warn("Coalesced write for {} failed ({}), replaying {} operations one by one",
+                        operations.get(0).symbol, e.getMessage(), operations.size());
+                operations.forEach(this::applySingle);
+            }
+        }
+    }
+
+    private void applyCoalesced(List<Operation> operations) {
+        String symbol = operations.get(0).symbol;
+        Object[] outcomes = new Object[operations.size()];
+        transactionTemplate.executeWithoutResult(status -> {
+            // lock sulla riga: la simulazione parte dalla quantita' che verra' effettivamente aggiornata
+            int start = stockRepository.findForUpdateBySymbol(symbol).map(Stock::getQuantity).orElse(0);
+            int quantity = start;
+            int[] fills = new int[outcomes.length];
+            int filled = 0;
+            for (int i = 0; i < outcomes.length; i++) {
+                Operation operation = operations.get(i);
+                if (operation.side == TransactionSide.BUY) {
+                    try {
+                        quantity = Math.addExact(quantity, operation.quantity);
+                    } catch (ArithmeticException e) {
+                        // solo questo acquisto viene rifiutato, gli altri del blocco proseguono
+                        outcomes[i] = new QuantityOverflowException(symbol, quantity, operation.quantity);
+                        continue;
+                    }
+                    fills[filled++] = operation.quantity;
+                    outcomes[i] = position(symbol, quantity);
+                } else if (quantity == 0) {
+                    outcomes[i] = new StockNotFoundException(symbol);
+                } else if (quantity < operation.quantity) {
+                    outcomes[i] = new InsufficientStockException(symbol, quantity, operation.quantity);
+                } else {
+                    quantity -= operation.quantity;
+                    fills[filled++] = -operation.quantity;
+                    outcomes[i] = position(symbol, quantity);
+                }
+            }
+            transactionService.applyFills(symbol, Arrays.copyOf(fills, filled));
+        });
+        // i future si completano solo dopo il commit dell'aggiornamento netto
+        for (int i = 0; i < outcomes.length; i++) {
+            CompletableFuture<Stock> result = operations.get(i).result;
+            if (outcomes[i] instanceof RuntimeException e) {
+                result.completeExceptionally(e);
+            } else {
+                result.complete((Stock) outcomes[i]);
+            }
+        }
+        log.debug("Coalesced {} operations on {}", operations.size(), symbol);
+    }
+
+    private void applySingle(Operation operation) {
+        try {
+            Stock stock = operation.side == TransactionSide.BUY
+                    ? transactionService.buyStock(operation.symbol, operation.quantity)
+                    : transactionService.sellStock(operation.symbol, operation.quantity);
+            operation.result.complete(stock);
+        } catch (RuntimeException e) {
+            operation.result.completeExceptionally(e);
+        }
+    }
+
+    // Stessa convenzione di sellStock: null quando la posizione e' stata chiusa
+    private static Stock position(String symbol, int quantity) {
+        return quantity == 0 ? null : Stock.builder().symbol(symbol).quantity(quantity).build();
+    }
+
+    private record Operation(TransactionSide side, String symbol, int quantity, CompletableFuture<Stock> result) {
+    }
+
+    private final class Lane implements Runnable {
+
+        private final BlockingQueue<Operation> queue;
+        private volatile Thread thread;
+
+        private Lane(BlockingQueue<Operation> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public void run() {
+            List<Operation> batch = new ArrayList<>(Math.min(maxBatch, 1024));
+            while (running) {
+                try {
+                    Operation first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                queue.drainTo(batch, maxBatch - 1);
+                process(batch);
+                batch.clear();
+            }
+        }
+
+        private void join() {
+            Thread current = thread;
+            if (current == null) {
+                return;
+            }
+            try {
+                current.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.stock_manager.event;
+
+/**
+ * Pubblicato da {@code StockTransactionService} per ogni scrittura su una posizione.
+ * {@code quantityDelta} e' la variazione di quantita', anche quando la posizione viene
+ * eliminata: i listener ricevono gli eventi dopo il commit ma non necessariamente
+ * nell'ordine dei commit, quindi applicare solo delta li rende commutativi.
+ */
+public record PositionChangedEvent(String symbol, long quantityDelta, Operation operation) {
+
+    public enum Operation {
+        CREATE,
+        UPDATE,
+        DELETE,
+        BUY,
+        SELL
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.stock_manager.event;
+
+/**
+ * Pubblicato da {@code StockPriceServiceImpl} quando il prezzo di un simbolo cambia.
+ * {@code previousPrice} vale 0.0 se il simbolo non aveva ancora un prezzo.
+ */
+public record PriceUpdatedEvent(String symbol, double previousPrice, double price) {
+}
@@ -1,6 +1,6 @@
 package com.example.stock_manager.exception;
 
-public class DuplicateStockException extends RuntimeException {
+public class DuplicateStockException extends StockRejectedException {
     public DuplicateStockException(String symbol) {
         super("Stock with symbol '" + symbol + "' already exists");
     }
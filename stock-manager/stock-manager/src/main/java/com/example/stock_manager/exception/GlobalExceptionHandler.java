@@ -1,5 +1,8 @@
 package com.example.stock_manager.exception;
 
+import com.example.stock_manager.metrics.StockMetrics;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -12,54 +15,47 @@ import java.util.HashMap;
 import java.util.Map;
 
 @RestControllerAdvice
+@RequiredArgsConstructor
 public class GlobalExceptionHandler {
 
+    private final StockMetrics stockMetrics;
+
     @ExceptionHandler(StockNotFoundException.class)
-    public ResponseEntity<ErrorResponse> handleStockNotFound(StockNotFoundException ex) {
-        ErrorResponse error = ErrorResponse.builder()
-                .timestamp(LocalDateTime.now())
-                .status(HttpStatus.NOT_FOUND.value())
-                .error("Not Found")
-                .message(ex.getMessage())
-                .path("/api/stocks")
-                .build();
-        return new ResponseEntity<>(error, HttpStatus.NOT_FOUND);
+    public ResponseEntity<ErrorResponse> handleStockNotFound(StockNotFoundException ex, HttpServletRequest request) {
+        // rifiuto di business come gli altri (es. vendita di un titolo non in portafoglio)
+        stockMetrics.rejected(ex);
+        return respond(HttpStatus.NOT_FOUND, ex.getMessage(), request);
     }
 
     @ExceptionHandler(DuplicateStockException.class)
-    public ResponseEntity<ErrorResponse> handleDuplicateStock(DuplicateStockException ex) {
-        ErrorResponse error = ErrorResponse.builder()
-                .timestamp(LocalDateTime.now())
-                .status(HttpStatus.CONFLICT.value())
-                .error("Conflict")
-                .message(ex.getMessage())
-                .path("/api/stocks")
-                .build();
-        return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+    public ResponseEntity<ErrorResponse> handleDuplicateStock(DuplicateStockException ex, HttpServletRequest request) {
+        stockMetrics.rejected(ex);
+        return respond(HttpStatus.CONFLICT, ex.getMessage(), request);
     }
 
     @ExceptionHandler(InsufficientStockException.class)
-    public ResponseEntity<ErrorResponse> handleInsufficientStock(InsufficientStockException ex) {
-        ErrorResponse error = ErrorResponse.builder()
-                .timestamp(LocalDateTime.now())
-                .status(HttpStatus.BAD_REQUEST.value())
-                .error("Bad Request")
-                .message(ex.getMessage())
-                .path("/api/stocks")
-                .build();
-        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    public ResponseEntity<ErrorResponse> handleInsufficientStock(InsufficientStockException ex,
+                                                                 HttpServletRequest request) {
+        stockMetrics.rejected(ex);
+        return respond(HttpStatus.BAD_REQUEST, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(QuantityOverflowException.class)
+    public ResponseEntity<ErrorResponse> handleQuantityOverflow(QuantityOverflowException ex,
+                                                                HttpServletRequest request) {
+        stockMetrics.rejected(ex);
+        return respond(HttpStatus.BAD_REQUEST, ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(StaleCursorException.class)
+    public ResponseEntity<ErrorResponse> handleStaleCursor(StaleCursorException ex, HttpServletRequest request) {
+        stockMetrics.rejected(ex);
+        return respond(HttpStatus.GONE, ex.getMessage(), request);
     }
 
     @ExceptionHandler(IllegalArgumentException.class)
-    public ResponseEntity<ErrorResponse> handleIllegalArgument(IllegalArgumentException ex) {
-        ErrorResponse error = ErrorResponse.builder()
-                .timestamp(LocalDateTime.now())
-                .status(HttpStatus.BAD_REQUEST.value())
-                .error("Bad Request")
-                .message(ex.getMessage())
-                .path("/api/stocks")
-                .build();
-        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    public ResponseEntity<ErrorResponse> handleIllegalArgument(IllegalArgumentException ex, HttpServletRequest request) {
+        return respond(HttpStatus.BAD_REQUEST, ex.getMessage(), request);
     }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
@@ -82,15 +78,8 @@ public class GlobalExceptionHandler {
     }
 
     @ExceptionHandler(Exception.class)
-    public ResponseEntity<ErrorResponse> handleGenericException(Exception ex) {
-        ErrorResponse error = ErrorResponse.builder()
-                .timestamp(LocalDateTime.now())
-                .status(HttpStatus.INTERNAL_SERVER_ERROR.value())
-                .error("Internal Server Error")
-                .message(ex.getMessage())
-                .path("/api/stocks")
-                .build();
-        return new ResponseEntity<>(error, HttpStatus.INTERNAL_SERVER_ERROR);
+    public ResponseEntity<ErrorResponse> handleGenericException(Exception ex, HttpServletRequest request) {
+        return respond(HttpStatus.INTERNAL_SERVER_ERROR, ex.getMessage(), request);
     }
 
     @lombok.Data
@@ -104,4 +93,16 @@ public class GlobalExceptionHandler {
         private String message;
         private String path;
     }
+
+    private static ResponseEntity<ErrorResponse> respond(HttpStatus status, String message,
+                                                         HttpServletRequest request) {
+        ErrorResponse body = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(status.value())
+                .error(status.getReasonPhrase())
+                .message(message)
+                .path(request.getRequestURI())
+                .build();
+        return new ResponseEntity<>(body, status);
+    }
 }
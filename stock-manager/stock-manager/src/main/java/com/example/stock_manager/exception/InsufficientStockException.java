@@ -1,8 +1,7 @@
 package com.example.stock_manager.exception;
 
-public class InsufficientStockException extends RuntimeException {
+public class InsufficientStockException extends StockRejectedException {
     public InsufficientStockException(String symbol, int available, int requested) {
-        super(String.format("Insufficient stock for '%s': available %d, requested %d", 
-                symbol, available, requested));
+        super("Insufficient stock for '" + symbol + "': available " + available + ", requested " + requested);
     }
 }
@@ -0,0 +1,7 @@
+package com.example.stock_manager.exception;
+
+public class QuantityOverflowException extends StockRejectedException {
+    public QuantityOverflowException(String symbol, int held, int requested) {
+        super("Quantity overflow for '" + symbol + "': held " + held + ", requested " + requested);
+    }
+}
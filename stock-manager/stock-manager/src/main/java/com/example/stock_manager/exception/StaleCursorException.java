@@ -0,0 +1,7 @@
+package com.example.stock_manager.exception;
+
+public class StaleCursorException extends StockRejectedException {
+    public StaleCursorException(String symbol) {
+        super("Cursor '" + symbol + "' is no longer in the portfolio; restart from the first page");
+    }
+}
@@ -1,6 +1,6 @@
 package com.example.stock_manager.exception;
 
-public class StockNotFoundException extends RuntimeException {
+public class StockNotFoundException extends StockRejectedException {
     public StockNotFoundException(String symbol) {
         super("Stock with symbol '" + symbol + "' not found");
     }
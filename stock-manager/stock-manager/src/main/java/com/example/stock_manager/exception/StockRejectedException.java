@@ -0,0 +1,13 @@
+package com.example.stock_manager.exception;
+
+/**
+ * Base delle eccezioni di business (titolo mancante, duplicato, quantita' insufficiente):
+ * sono esiti ordinari del flusso ordini, non errori, quindi non catturano lo stack trace
+ * ne' le eccezioni soppresse. Il costo di un rifiuto resta quello del messaggio.
+ */
+public abstract class StockRejectedException extends RuntimeException {
+
+    protected StockRejectedException(String message) {
+        super(message, null, false, false);
+    }
+}
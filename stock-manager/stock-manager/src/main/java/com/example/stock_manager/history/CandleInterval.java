@@ -0,0 +1,38 @@
+package com.example.stock_manager.history;
+
+import java.util.Locale;
+
+/**
+ * Risoluzioni delle candele OHLC mantenute per ogni simbolo.
+ */
+public enum CandleInterval {
+    SECOND("1s", 1_000L),
+    MINUTE("1m", 60_000L),
+    HOUR("1h", 3_600_000L);
+
+    private final String label;
+    private final long millis;
+
+    CandleInterval(String label, long millis) {
+        this.label = label;
+        this.millis = millis;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public long millis() {
+        return millis;
+    }
+
+    public static CandleInterval of(String label) {
+        String normalized = label.trim().toLowerCase(Locale.ROOT);
+        for (CandleInterval interval : values()) {
+            if (interval.label.equals(normalized)) {
+                return interval;
+            }
+        }
+        throw new IllegalArgumentException("Unknown candle interval: " + label + " (expected 1s, 1m or 1h)");
+    }
+}
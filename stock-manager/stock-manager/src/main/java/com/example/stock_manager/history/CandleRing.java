@@ -0,0 +1,86 @@
+package com.example.stock_manager.history;
+
+import com.example.stock_manager.dto.Candle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ultime {@code capacity} candele di una risoluzione, aggiornate a ogni tick: se il tick
+ * cade nell'intervallo corrente aggiorna high/low/close, altrimenti apre la candela
+ * successiva sovrascrivendo la piu' vecchia. Gli intervalli senza tick non producono
+ * candele. Array primitivi, nessuna allocazione per tick. Non thread-safe.
+ */
+final class CandleRing {
+
+    private final long intervalMillis;
+    private final long[] starts;
+    private final double[] opens;
+    private final double[] highs;
+    private final double[] lows;
+    private final double[] closes;
+    private final long[] ticks;
+    private int current = -1;
+    private int size;
+
+    CandleRing(long intervalMillis, int capacity) {
+        this.intervalMillis = intervalMillis;
+        this.starts = new long[capacity];
+        this.opens = new double[capacity];
+        this.highs = new double[capacity];
+        this.lows = new double[capacity];
+        this.closes = new double[capacity];
+        this.ticks = new long[capacity];
+    }
+
+    void add(long timestamp, double price) {
+        long start = timestamp - Math.floorMod(timestamp, intervalMillis);
+        // tick in ritardo rispetto alla candela corrente: confluisce in quella corrente
+        if (current >= 0 && start <= starts[current]) {
+            if (price > highs[current]) {
+                highs[current] = price;
+            }
+            if (price < lows[current]) {
+                lows[current] = price;
+            }
+            closes[current] = price;
+            ticks[current]++;
+            return;
+        }
+        current = (current + 1) % starts.length;
+        starts[current] = start;
+        opens[current] = price;
+        highs[current] = price;
+        lows[current] = price;
+        closes[current] = price;
+        ticks[current] = 1;
+        if (size < starts.length) {
+            size++;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Le ultime {@code limit} candele, dalla piu' vecchia alla piu' recente.
+     */
+    List<Candle> latest(int limit) {
+        int count = Math.min(limit, size);
+        List<Candle> candles = new ArrayList<>(count);
+        int first = Math.floorMod(current - count + 1, starts.length);
+        for (int i = 0; i < count; i++) {
+            int slot = (first + i) % starts.length;
+            candles.add(Candle.builder()
+                    .start(starts[slot])
+                    .open(opens[slot])
+                    .high(highs[slot])
+                    .low(lows[slot])
+                    .close(closes[slot])
+                    .ticks(ticks[slot])
+                    .build());
+        }
+        return candles;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.stock_manager.history;
+
+import com.example.stock_manager.dto.Candle;
+import com.example.stock_manager.dto.PricePoint;
+import com.example.stock_manager.event.PriceUpdatedEvent;
+import com.example.stock_manager.symbol.SymbolRegistry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Storico prezzi per simbolo: gli ultimi {@code tick-depth} tick e, per ogni
+ * {@link CandleInterval}, le ultime {@code candle-depth} candele OHLC aggiornate
+ * incrementalmente a ogni {@link PriceUpdatedEvent}. Gli array di un simbolo vengono
+ * allocati al primo tick e poi solo riscritti, quindi la memoria per simbolo e' fissa:
+ * {@code 16 * tick-depth + 48 * candle-depth * 3} byte circa. Al massimo {@code max-symbols}
+ * simboli hanno uno storico: i tick dei simboli oltre il limite vengono solo contati.
+ */
+@Component
+public class PriceHistory implements MeterBinder {
+
+    private static final CandleInterval[] INTERVALS = CandleInterval.values();
+
+    private final SymbolRegistry symbolRegistry;
+    private final int tickDepth;
+    private final int candleDepth;
+    private final int maxSymbols;
+    private final Map<String, SymbolHistory> histories = new ConcurrentHashMap<>();
+    // posti occupati in histories: riservati dentro computeIfAbsent, quindi mai oltre maxSymbols
+    private final AtomicInteger tracked = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+
+    @Autowired
+    public PriceHistory(SymbolRegistry symbolRegistry,
+                        @Value("${stock.history.tick-depth:512}") int tickDepth,
+                        @Value("${stock.history.candle-depth:240}") int candleDepth,
+                        @Value("${stock.history.max-symbols:1000}") int maxSymbols) {
+        if (tickDepth < 1 || candleDepth < 1 || maxSymbols < 1) {
+            throw new IllegalArgumentException("History tick depth, candle depth and max symbols must be positive");
+        }
+        this.symbolRegistry = symbolRegistry;
+        this.tickDepth = tickDepth;
+        this.candleDepth = candleDepth;
+        this.maxSymbols = maxSymbols;
+    }
+
+    @EventListener
+    public void onPriceUpdated(PriceUpdatedEvent event) {
+        record(event.symbol(), System.currentTimeMillis(), event.price());
+    }
+
+    public void record(String symbol, long timestamp, double price) {
+        String canonical = symbolRegistry.canonical(symbol);
+        SymbolHistory history = histories.get(canonical);
+        if (history == null) {
+            history = histories.computeIfAbsent(canonical, this::track);
+            if (history == null) {
+                dropped.increment();
+                return;
+            }
+        }
+        history.add(timestamp, price);
+    }
+
+    /**
+     * Le ultime {@code limit} candele del simbolo, dalla piu' vecchia alla piu' recente;
+     * vuota se il simbolo non ha ancora ricevuto prezzi.
+     */
+    public List<Candle> candles(String symbol, CandleInterval interval, int limit) {
+        SymbolHistory history = histories.get(symbolRegistry.canonical(symbol));
+        if (history == null) {
+            return List.of();
+        }
+        synchronized (history) {
+            return history.candles[interval.ordinal()].latest(Math.min(limit, candleDepth));
+        }
+    }
+
+    /**
+     * Gli ultimi {@code limit} tick del simbolo, dal piu' vecchio al piu' recente.
+     */
+    public List<PricePoint> ticks(String symbol, int limit) {
+        SymbolHistory history = histories.get(symbolRegistry.canonical(symbol));
+        if (history == null) {
+            return List.of();
+        }
+        int count = Math.min(limit, tickDepth);
+        long[] timestamps = new long[count];
+        double[] prices = new double[count];
+        synchronized (history) {
+            count = history.ticks.copyLatest(count, timestamps, prices);
+        }
+        List<PricePoint> points = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            points.add(PricePoint.builder().timestamp(timestamps[i]).price(prices[i]).build());
+        }
+        return points;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("stock.history.symbols", histories, Map::size)
+                .description("Symbols with a price history")
+                .register(registry);
+        FunctionCounter.builder("stock.history.dropped", dropped, LongAdder::sum)
+                .description("Prices not recorded because max-symbols symbols already have a history")
+                .register(registry);
+    }
+
+    // null = limite raggiunto, computeIfAbsent non inserisce nulla
+    private SymbolHistory track(String symbol) {
+        if (tracked.incrementAndGet() > maxSymbols) {
+            tracked.decrementAndGet();
+            return null;
+        }
+        return new SymbolHistory(tickDepth, candleDepth);
+    }
+
+    private static final class SymbolHistory {
+
+        private final TickRing ticks;
+        private final CandleRing[] candles = new CandleRing[INTERVALS.length];
+
+        private SymbolHistory(int tickDepth, int candleDepth) {
+            this.ticks = new TickRing(tickDepth);
+            for (CandleInterval interval : INTERVALS) {
+                candles[interval.ordinal()] = new CandleRing(interval.millis(), candleDepth);
+            }
+        }
+
+        private synchronized void add(long timestamp, double price) {
+            ticks.add(timestamp, price);
+            for (CandleRing ring : candles) {
+                ring.add(timestamp, price);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.stock_manager.history;
+
+/**
+ * Ultimi {@code capacity} tick di un simbolo in due array primitivi paralleli: la
+ * scrittura sovrascrive il tick piu' vecchio e non alloca. Non thread-safe.
+ */
+final class TickRing {
+
+    private final long[] timestamps;
+    private final double[] prices;
+    private int next;
+    private int size;
+
+    TickRing(int capacity) {
+        this.timestamps = new long[capacity];
+        this.prices = new double[capacity];
+    }
+
+    void add(long timestamp, double price) {
+        timestamps[next] = timestamp;
+        prices[next] = price;
+        next = (next + 1) % timestamps.length;
+        if (size < timestamps.length) {
+            size++;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Copia gli ultimi {@code limit} tick, dal piu' vecchio al piu' recente; ritorna quanti.
+     */
+    int copyLatest(int limit, long[] timestampsOut, double[] pricesOut) {
+        int count = Math.min(limit, size);
+        int first = Math.floorMod(next - count, timestamps.length);
+        for (int i = 0; i < count; i++) {
+            int slot = (first + i) % timestamps.length;
+            timestampsOut[i] = timestamps[slot];
+            pricesOut[i] = prices[slot];
+        }
+        return count;
+    }
+}
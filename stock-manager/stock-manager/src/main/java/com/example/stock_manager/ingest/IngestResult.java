@@ -0,0 +1,7 @@
+package com.example.stock_manager.ingest;
+
+/**
+ * Esito di un'ingestione: tick accodati e righe scartate perche' malformate.
+ */
+public record IngestResult(long accepted, long rejected) {
+}
@@ -0,0 +1,230 @@
+package com.example.stock_manager.ingest;
+
+import com.example.stock_manager.symbol.Symbols;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodifica incrementale di tick testuali, una riga {@code SIMBOLO,PREZZO[,...]} per tick
+ * (i campi successivi al prezzo sono ignorati, le righe che iniziano con {@code #} sono
+ * commenti). Il simbolo segue la stessa regola di {@code @ValidSymbol} ({@link Symbols});
+ * le righe con un simbolo non valido sono scartate e contate. I byte possono arrivare
+ * spezzati in qualunque punto; i tick validi vengono accumulati in array riusati e
+ * consegnati al sink a blocchi di {@code batchSize}.
+ * Non thread-safe: un decoder per sorgente.
+ */
+final class TickDecoder {
+
+    static final int MAX_LINE = 256;
+
+    private static final int READ_BUFFER = 64 * 1024;
+    // potenza di 2: cache a indirizzamento diretto dei simboli gia' visti
+    private static final int SYMBOL_CACHE = 1024;
+    // oltre 15 cifre mantissa / 10^k non e' piu' esatto: si ripiega su Double.parseDouble
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    @FunctionalInterface
+    interface BatchSink {
+        void accept(String[] symbols, double[] prices, int count);
+    }
+
+    private final BatchSink sink;
+    private final String[] symbols;
+    private final double[] prices;
+    private final byte[] line = new byte[MAX_LINE];
+    private final String[] symbolCache = new String[SYMBOL_CACHE];
+    private int count;
+    private int length;
+    private boolean overlong;
+    private long accepted;
+    private long rejected;
+
+    TickDecoder(int batchSize, BatchSink sink) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Decode batch size must be positive");
+        }
+        this.sink = sink;
+        this.symbols = new String[batchSize];
+        this.prices = new double[batchSize];
+    }
+
+    /**
+     * Decodifica l'intero stream e consegna l'ultimo blocco parziale.
+     */
+    void decode(InputStream in) throws IOException {
+        byte[] buffer = new byte[READ_BUFFER];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            decode(buffer, 0, read);
+        }
+        finish();
+    }
+
+    void decode(byte[] buffer, int offset, int size) {
+        for (int i = offset, end = offset + size; i < end; i++) {
+            byte b = buffer[i];
+            if (b == '\n') {
+                endLine();
+            } else if (length < MAX_LINE) {
+                line[length++] = b;
+            } else {
+                overlong = true;
+            }
+        }
+    }
+
+    /**
+     * Chiude l'ultima riga (anche senza newline finale) e consegna i tick in sospeso.
+     */
+    void finish() {
+        if (length > 0 || overlong) {
+            endLine();
+        }
+        if (count > 0) {
+            sink.accept(symbols, prices, count);
+            count = 0;
+        }
+    }
+
+    long accepted() {
+        return accepted;
+    }
+
+    long rejected() {
+        return rejected;
+    }
+
+    private void endLine() {
+        int end = length;
+        boolean truncated = overlong;
+        length = 0;
+        overlong = false;
+        if (truncated) {
+            rejected++;
+            return;
+        }
+        if (end > 0 && line[end - 1] == '\r') {
+            end--;
+        }
+        int start = skipSpaces(0, end);
+        if (start == end || line[start] == '#') {
+            return;
+        }
+        int comma = indexOf(',', start, end);
+        int priceEnd = indexOf(',', comma + 1, end);
+        String symbol = comma < end ? symbol(start, trimEnd(start, comma)) : null;
+        double price = symbol == null ? Double.NaN : parsePrice(skipSpaces(comma + 1, priceEnd), trimEnd(comma + 1, priceEnd));
+        if (!(price > 0) || Double.isInfinite(price)) {
+            rejected++;
+            return;
+        }
+        symbols[count] = symbol;
+        prices[count] = price;
+        accepted++;
+        if (++count == symbols.length) {
+            sink.accept(symbols, prices, count);
+            count = 0;
+        }
+    }
+
+    // simbolo in maiuscolo; null se vuoto, troppo lungo o non alfanumerico
+    private String symbol(int start, int end) {
+        if (start == end || end - start > Symbols.MAX_LENGTH) {
+            return null;
+        }
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            byte b = line[i];
+            if (b >= 'a' && b <= 'z') {
+                b -= 'a' - 'A';
+                line[i] = b;
+            } else if (!(b >= 'A' && b <= 'Z') && !(b >= '0' && b <= '9')) {
+                return null;
+            }
+            hash = 31 * hash + b;
+        }
+        int slot = hash & (SYMBOL_CACHE - 1);
+        String cached = symbolCache[slot];
+        if (cached != null && matches(cached, start, end)) {
+            return cached;
+        }
+        String symbol = new String(line, start, end - start, StandardCharsets.US_ASCII);
+        symbolCache[slot] = symbol;
+        return symbol;
+    }
+
+    private boolean matches(String cached, int start, int end) {
+        if (cached.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (cached.charAt(i - start) != line[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // percorso veloce per il formato tipico (cifre con punto decimale opzionale)
+    private double parsePrice(int start, int end) {
+        long mantissa = 0;
+        int digits = 0;
+        int fraction = -1;
+        for (int i = start; i < end; i++) {
+            byte b = line[i];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                if (++digits > MAX_FAST_DIGITS) {
+                    return parseSlow(start, end);
+                }
+                if (fraction >= 0) {
+                    fraction++;
+                }
+            } else if (b == '.' && fraction < 0) {
+                fraction = 0;
+            } else {
+                return parseSlow(start, end);
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        return fraction > 0 ? mantissa / POWERS_OF_TEN[fraction] : mantissa;
+    }
+
+    private double parseSlow(int start, int end) {
+        try {
+            return Double.parseDouble(new String(line, start, end - start, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private int indexOf(char c, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (line[i] == c) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private int skipSpaces(int from, int end) {
+        while (from < end && line[from] == ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private int trimEnd(int start, int end) {
+        while (end > start && line[end - 1] == ' ') {
+            end--;
+        }
+        return end;
+    }
+}
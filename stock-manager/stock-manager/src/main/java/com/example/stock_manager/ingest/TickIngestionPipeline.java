@@ -0,0 +1,272 @@
+package com.example.stock_manager.ingest;
+
+import com.example.stock_manager.service.impl.StockPriceServiceImpl;
+import com.example.stock_manager.symbol.SymbolRegistry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ingestione ad alto volume dei tick di prezzo. I produttori (upload HTTP, replay da file)
+ * scrivono l'ultimo prezzo nello slot del simbolo e, solo se lo slot non era gia' in attesa,
+ * lo accodano in una coda lock-free: tra due applicazioni vince l'ultimo valore. Un solo
+ * thread applicatore preleva gli slot a blocchi e li scrive nel price store con
+ * {@link StockPriceServiceImpl#updatePrices}.
+ * <p>
+ * Le attese sono limitate a {@code max-pending} simboli: oltre, i produttori si fermano
+ * finche' l'applicatore non recupera (backpressure, esposta come metrica).
+ */
+@Component
+@Slf4j
+public class TickIngestionPipeline implements SmartLifecycle, MeterBinder {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long BACKPRESSURE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final StockPriceServiceImpl priceService;
+    private final SymbolRegistry symbolRegistry;
+    private final int decodeBatch;
+    private final int applyBatch;
+    private final int maxPending;
+
+    private final ConcurrentHashMap<String, Slot> slots = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Slot> dirty = new ConcurrentLinkedQueue<>();
+    // slot accodati e non ancora applicati: scende solo dopo la scrittura nel price store
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder conflated = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder backpressureWaits = new LongAdder();
+    private volatile boolean running;
+    private volatile Thread applier;
+
+    @Autowired
+    public TickIngestionPipeline(StockPriceServiceImpl priceService,
+                                 SymbolRegistry symbolRegistry,
+                                 @Value("${stock.ingest.decode-batch:4096}") int decodeBatch,
+                                 @Value("${stock.ingest.apply-batch:1024}") int applyBatch,
+                                 @Value("${stock.ingest.max-pending:65536}") int maxPending) {
+        if (decodeBatch < 1 || applyBatch < 1 || maxPending < 1) {
+            throw new IllegalArgumentException("Ingest batch sizes and max pending must be positive");
+        }
+        this.priceService = priceService;
+        this.symbolRegistry = symbolRegistry;
+        this.decodeBatch = decodeBatch;
+        this.applyBatch = applyBatch;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Decodifica e accoda i tick dello stream ({@code SIMBOLO,PREZZO} per riga).
+     * Ritorna quando tutti i tick sono stati accodati, non necessariamente applicati.
+     */
+    public IngestResult ingest(InputStream in) throws IOException {
+        return ingest(in, this::offer);
+    }
+
+    IngestResult ingest(InputStream in, TickDecoder.BatchSink sink) throws IOException {
+        TickDecoder decoder = new TickDecoder(decodeBatch, sink);
+        decoder.decode(in);
+        rejected.add(decoder.rejected());
+        return new IngestResult(decoder.accepted(), decoder.rejected());
+    }
+
+    /**
+     * Accoda i primi {@code count} tick. Gli array possono essere riusati dal chiamante
+     * al ritorno.
+     */
+    public void offer(String[] symbols, double[] prices, int count) {
+        if (!running) {
+            throw new IllegalStateException("Tick pipeline is stopped");
+        }
+        int valid = 0;
+        for (int i = 0; i < count; i++) {
+            double price = prices[i];
+            if (!(price > 0) || Double.isInfinite(price)) {
+                rejected.increment();
+                continue;
+            }
+            Slot slot = slot(symbols[i]);
+            if (slot == null) {
+                rejected.increment();
+                continue;
+            }
+            valid++;
+            slot.price = price;
+            if (slot.dirty.compareAndSet(false, true)) {
+                awaitCapacity();
+                pending.incrementAndGet();
+                dirty.offer(slot);
+            } else {
+                conflated.increment();
+            }
+        }
+        accepted.add(valid);
+    }
+
+    /**
+     * Attende che tutti i tick accodati siano stati applicati al price store.
+     */
+    public boolean awaitDrained(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (pending.get() > 0) {
+            if (System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        return true;
+    }
+
+    public int pending() {
+        return pending.get();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this::applyLoop, "tick-applier");
+        thread.setDaemon(true);
+        applier = thread;
+        thread.start();
+        log.info("Tick pipeline started (apply batch {}, max pending {})", applyBatch, maxPending);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = applier;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.info("Tick pipeline stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("stock.ingest.ticks", accepted, LongAdder::sum)
+                .description("Ticks accepted by the ingestion pipeline")
+                .tag("result", "accepted")
+                .register(registry);
+        FunctionCounter.builder("stock.ingest.ticks", rejected, LongAdder::sum)
+                .description("Malformed, non-positive or invalid-symbol ticks dropped by the ingestion pipeline")
+                .tag("result", "rejected")
+                .register(registry);
+        FunctionCounter.builder("stock.ingest.conflated", conflated, LongAdder::sum)
+                .description("Ticks overwritten by a newer tick of the same symbol before being applied")
+                .register(registry);
+        FunctionCounter.builder("stock.ingest.applied", applied, LongAdder::sum)
+                .description("Prices written to the price store by the ingestion pipeline")
+                .register(registry);
+        FunctionCounter.builder("stock.ingest.backpressure", backpressureWaits, LongAdder::sum)
+                .description("Times a producer waited because max-pending symbols were queued")
+                .register(registry);
+        Gauge.builder("stock.ingest.pending", pending, AtomicInteger::get)
+                .description("Symbols queued and not yet applied")
+                .register(registry);
+    }
+
+    // uno slot per simbolo del registro, quindi al massimo max-symbols slot;
+    // null se il simbolo non e' valido o il registro e' pieno
+    private Slot slot(String symbol) {
+        Slot slot = slots.get(symbol);
+        if (slot != null) {
+            return slot;
+        }
+        int id;
+        try {
+            id = symbolRegistry.id(symbol);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return id < 0 ? null : slots.computeIfAbsent(symbolRegistry.name(id), Slot::new);
+    }
+
+    private void awaitCapacity() {
+        if (pending.get() < maxPending) {
+            return;
+        }
+        backpressureWaits.increment();
+        while (pending.get() >= maxPending && running) {
+            LockSupport.parkNanos(BACKPRESSURE_PARK_NANOS);
+        }
+    }
+
+    private void applyLoop() {
+        String[] symbols = new String[applyBatch];
+        double[] prices = new double[applyBatch];
+        while (running) {
+            if (drain(symbols, prices) == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        // ultimi tick accodati prima dello stop
+        int drained;
+        do {
+            drained = drain(symbols, prices);
+        } while (drained > 0);
+    }
+
+    private int drain(String[] symbols, double[] prices) {
+        int taken = 0;
+        Slot slot;
+        while (taken < applyBatch && (slot = dirty.poll()) != null) {
+            // prima si libera lo slot, poi si legge: un tick successivo lo riaccoda
+            slot.dirty.set(false);
+            symbols[taken] = slot.symbol;
+            prices[taken] = slot.price;
+            taken++;
+        }
+        if (taken == 0) {
+            return 0;
+        }
+        try {
+            priceService.updatePrices(symbols, prices, taken);
+            applied.add(taken);
+        } catch (RuntimeException e) {
+            log.warn("Failed to apply {} ticks: {}", taken, e.getMessage());
+        } finally {
+            pending.addAndGet(-taken);
+        }
+        return taken;
+    }
+
+    private static final class Slot {
+
+        private final String symbol;
+        private final AtomicBoolean dirty = new AtomicBoolean();
+        private volatile double price;
+
+        private Slot(String symbol) {
+            this.symbol = symbol;
+        }
+    }
+}
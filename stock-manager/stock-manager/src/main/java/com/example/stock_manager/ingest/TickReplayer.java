@@ -0,0 +1,125 @@
+package com.example.stock_manager.ingest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Riproduce un file di tick attraverso la pipeline di ingestione, per i test di carico
+ * senza una sorgente di mercato. Con {@code stock.ingest.replay.location} valorizzato
+ * (es. {@code file:/dati/ticks.csv}; nei test {@code classpath:ticks/sample-ticks.csv}) il replay
+ * parte all'avvio su un thread separato; {@code ticks-per-second=0} significa senza limite.
+ */
+@Component
+@Slf4j
+public class TickReplayer implements ApplicationRunner {
+
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final TickIngestionPipeline pipeline;
+    private final ResourceLoader resourceLoader;
+    private final String location;
+    private final int loops;
+    private final long ticksPerSecond;
+
+    @Autowired
+    public TickReplayer(TickIngestionPipeline pipeline,
+                        ResourceLoader resourceLoader,
+                        @Value("${stock.ingest.replay.location:}") String location,
+                        @Value("${stock.ingest.replay.loops:1}") int loops,
+                        @Value("${stock.ingest.replay.ticks-per-second:0}") long ticksPerSecond) {
+        this.pipeline = pipeline;
+        this.resourceLoader = resourceLoader;
+        this.location = location;
+        this.loops = loops;
+        this.ticksPerSecond = ticksPerSecond;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (location == null || location.isBlank()) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                replay(location, loops, ticksPerSecond);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Tick replay from {} failed: {}", location, e.getMessage());
+            }
+        }, "tick-replay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Riproduce il file {@code loops} volte e attende che tutti i tick siano applicati.
+     */
+    public ReplayResult replay(String location, int loops, long ticksPerSecond) throws IOException {
+        if (loops < 1 || ticksPerSecond < 0) {
+            throw new IllegalArgumentException("Replay loops must be positive and rate not negative");
+        }
+        Resource resource = resourceLoader.getResource(location);
+        if (!resource.exists()) {
+            throw new IllegalArgumentException("Tick file not found: " + location);
+        }
+        long start = System.nanoTime();
+        TickDecoder.BatchSink sink = ticksPerSecond == 0 ? pipeline::offer : new Throttle(start, ticksPerSecond);
+        long ticks = 0;
+        long rejected = 0;
+        for (int loop = 0; loop < loops; loop++) {
+            try (InputStream in = resource.getInputStream()) {
+                IngestResult result = pipeline.ingest(in, sink);
+                ticks += result.accepted();
+                rejected += result.rejected();
+            }
+        }
+        if (!pipeline.awaitDrained(DRAIN_TIMEOUT)) {
+            log.warn("Tick replay: {} symbols still pending after {}", pipeline.pending(), DRAIN_TIMEOUT);
+        }
+        ReplayResult result = new ReplayResult(ticks, rejected, System.nanoTime() - start);
+        log.info("Replayed {} ticks from {} in {} ms ({} ticks/s, {} rejected)", ticks, location,
+                TimeUnit.NANOSECONDS.toMillis(result.elapsedNanos()), Math.round(result.ticksPerSecond()), rejected);
+        return result;
+    }
+
+    public record ReplayResult(long ticks, long rejected, long elapsedNanos) {
+
+        public double ticksPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : ticks * 1e9 / elapsedNanos;
+        }
+    }
+
+    // consegna un blocco alla volta e si ferma quando e' in anticipo sul ritmo richiesto
+    private final class Throttle implements TickDecoder.BatchSink {
+
+        private final long start;
+        private final double nanosPerTick;
+        private long sent;
+
+        private Throttle(long start, long ticksPerSecond) {
+            this.start = start;
+            this.nanosPerTick = 1e9 / ticksPerSecond;
+        }
+
+        @Override
+        public void accept(String[] symbols, double[] prices, int count) {
+            pipeline.offer(symbols, prices, count);
+            sent += count;
+            long wait = start + (long) (sent * nanosPerTick) - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+    }
+}
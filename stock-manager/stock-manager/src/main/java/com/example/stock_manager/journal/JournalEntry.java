@@ -0,0 +1,75 @@
+package com.example.stock_manager.journal;
+
+import com.example.stock_manager.event.PositionChangedEvent.Operation;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * Una riga del journal. Su disco occupa {@link #SIZE} byte fissi:
+ * <pre>
+ *  0  long   sequence       (1, 2, 3, ... ; 0 = slot mai scritto)
+ *  8  long   timestamp      (epoch millis)
+ * 16  long   quantityDelta
+ * 24  double price
+ * 32  byte   operation
+ * 33  byte   lunghezza simbolo
+ * 34  byte[] simbolo ASCII  (max {@link #MAX_SYMBOL_LENGTH})
+ * 60  int    CRC32C dei byte 0..59
+ * </pre>
+ */
+public record JournalEntry(long sequence, long timestamp, Operation operation, String symbol,
+                           long quantityDelta, double price) {
+
+    public static final int SIZE = 64;
+    public static final int MAX_SYMBOL_LENGTH = 26;
+
+    private static final int SYMBOL_OFFSET = 34;
+    private static final int CRC_OFFSET = 60;
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    /**
+     * Scrive la riga a partire da {@code offset}; il CRC viene scritto per ultimo.
+     */
+    void writeTo(ByteBuffer buffer, int offset) {
+        byte[] ascii = symbol.getBytes(StandardCharsets.US_ASCII);
+        if (ascii.length > MAX_SYMBOL_LENGTH) {
+            throw new IllegalArgumentException("Symbol too long for the journal: " + symbol);
+        }
+        buffer.putLong(offset, sequence);
+        buffer.putLong(offset + 8, timestamp);
+        buffer.putLong(offset + 16, quantityDelta);
+        buffer.putDouble(offset + 24, price);
+        buffer.put(offset + 32, (byte) operation.ordinal());
+        buffer.put(offset + 33, (byte) ascii.length);
+        buffer.put(offset + SYMBOL_OFFSET, ascii);
+        buffer.put(offset + SYMBOL_OFFSET + ascii.length, new byte[MAX_SYMBOL_LENGTH - ascii.length]);
+        buffer.putInt(offset + CRC_OFFSET, crc(buffer, offset));
+    }
+
+    /**
+     * Legge la riga in {@code offset}, oppure null se lo slot e' vuoto, troncato
+     * o non ha la sequenza attesa (fine del journal).
+     */
+    static JournalEntry readFrom(ByteBuffer buffer, int offset, long expectedSequence) {
+        if (buffer.getLong(offset) != expectedSequence || buffer.getInt(offset + CRC_OFFSET) != crc(buffer, offset)) {
+            return null;
+        }
+        int length = buffer.get(offset + 33);
+        byte[] ascii = new byte[length];
+        buffer.get(offset + SYMBOL_OFFSET, ascii);
+        return new JournalEntry(expectedSequence,
+                buffer.getLong(offset + 8),
+                OPERATIONS[buffer.get(offset + 32)],
+                new String(ascii, StandardCharsets.US_ASCII),
+                buffer.getLong(offset + 16),
+                buffer.getDouble(offset + 24));
+    }
+
+    private static int crc(ByteBuffer buffer, int offset) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset, CRC_OFFSET));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.stock_manager.journal;
+
+import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.repository.StockRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All'avvio ripopola la tabella delle posizioni dallo stato ricostruito dal journal.
+ * Gira prima di {@code ApplicationReadyEvent}, quindi gli aggregati partono gia' allineati.
+ * Se la tabella contiene gia' dati (database persistente) non la modifica e segnala
+ * soltanto eventuali differenze.
+ */
+@Component
+@ConditionalOnProperty(prefix = "stock.journal", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class JournalRecovery implements ApplicationRunner {
+
+    private final TransactionJournal journal;
+    private final StockRepository stockRepository;
+
+    @Override
+    @Transactional
+    public void run(ApplicationArguments args) {
+        Map<String, Long> positions = journal.positions();
+        if (stockRepository.count() > 0) {
+            long diverging = stockRepository.findAll().stream()
+                    .filter(stock -> positions.getOrDefault(stock.getSymbol(), 0L) != stock.getQuantity())
+                    .count();
+            if (diverging > 0 || stockRepository.count() != positions.size()) {
+                log.warn("Stock table differs from the journal ({} diverging rows); keeping the table", diverging);
+            }
+            return;
+        }
+        // scrittura diretta sul repository: nessun evento, quindi nessuna riga duplicata nel journal
+        List<Stock> restored = positions.entrySet().stream()
+                .map(position -> Stock.builder()
+                        .symbol(position.getKey())
+                        .quantity(Math.toIntExact(position.getValue()))
+                        .build())
+                .toList();
+        stockRepository.saveAll(restored);
+        log.info("Restored {} positions from the journal (sequence {})", restored.size(), journal.lastSequence());
+    }
+}
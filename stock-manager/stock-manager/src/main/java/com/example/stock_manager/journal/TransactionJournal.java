@@ -0,0 +1,503 @@
+package com.example.stock_manager.journal;
+
+import com.example.stock_manager.event.PositionChangedEvent;
+import com.example.stock_manager.event.PositionChangedEvent.Operation;
+import com.example.stock_manager.service.StockPriceService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Journal append-only di tutte le scritture sulle posizioni, su segmenti memory-mapped
+ * a righe fisse ({@link JournalEntry}). Ogni riga registra il delta di quantita', cosi'
+ * il replay non dipende dall'ordine in cui arrivano gli eventi dopo il commit.
+ * Ogni {@code snapshot-interval} righe salva uno snapshot delle posizioni su un thread
+ * dedicato, fuori dal percorso di append; all'avvio lo stato si ricostruisce dall'ultimo
+ * snapshot valido piu' la coda del journal.
+ * <p>
+ * Le righe vengono scritte dopo il commit della transazione che le ha prodotte: il journal
+ * e' best-effort, non un write-ahead log. Un arresto tra il commit e l'append (o prima che
+ * il sistema operativo scriva la pagina mappata) perde la riga, mentre il database resta la
+ * fonte di verita'; per questo {@link JournalRecovery} ripopola solo una tabella vuota.
+ */
+@Component
+@ConditionalOnProperty(prefix = "stock.journal", name = "enabled", havingValue = "true")
+@Slf4j
+public class TransactionJournal {
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final int SNAPSHOT_MAGIC = 0x534E4150;
+    private static final int SNAPSHOTS_TO_KEEP = 2;
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final long snapshotInterval;
+    private final StockPriceService stockPriceService;
+    private final Executor snapshotWriter;
+    // lock espliciti: chi attende su I/O non blocca il carrier di un virtual thread
+    private final ReentrantLock lock = new ReentrantLock();
+    // serializza le scritture degli snapshot, indipendente dal lock dell'append
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+
+    private final Map<String, Long> positions = new HashMap<>();
+    private long lastSequence;
+    private long sinceSnapshot;
+    private boolean snapshotPending;
+    private FileChannel segmentChannel;
+    private MappedByteBuffer segment;
+    private long segmentFirstSequence;
+
+    @Autowired
+    public TransactionJournal(@Value("${stock.journal.directory:data/journal}") Path directory,
+                              @Value("${stock.journal.segment-records:1048576}") int segmentRecords,
+                              @Value("${stock.journal.snapshot-interval:100000}") long snapshotInterval,
+                              StockPriceService stockPriceService) {
+        this(directory, segmentRecords, snapshotInterval, stockPriceService,
+                Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "journal-snapshot");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    TransactionJournal(Path directory, int segmentRecords, long snapshotInterval,
+                       StockPriceService stockPriceService, Executor snapshotWriter) {
+        if (segmentRecords < 1 || (long) segmentRecords * JournalEntry.SIZE > Integer.MAX_VALUE || snapshotInterval < 1) {
+            throw new IllegalArgumentException("Invalid journal segment size or snapshot interval");
+        }
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        this.snapshotInterval = snapshotInterval;
+        this.stockPriceService = stockPriceService;
+        this.snapshotWriter = snapshotWriter;
+    }
+
+    @PostConstruct
+    public void open() {
+        lock.lock();
+        try {
+            Files.createDirectories(directory);
+            long snapshotSequence = loadLatestSnapshot();
+            // il replay applica solo le righe successive allo snapshot
+            lastSequence = Math.max(snapshotSequence, scan(directory, snapshotSequence, this::apply));
+            openTail();
+            log.info("Journal recovered from {}: {} positions, last sequence {} (snapshot at {})",
+                    directory, positions.size(), lastSequence, snapshotSequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open journal in " + directory, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (snapshotWriter instanceof ExecutorService executor) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                    log.warn("Journal snapshot still running at shutdown");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        FileChannel channel;
+        MappedByteBuffer mapped;
+        Capture capture;
+        lock.lock();
+        try {
+            if (segmentChannel == null) {
+                return;
+            }
+            capture = sinceSnapshot > 0 ? capture() : null;
+            channel = segmentChannel;
+            mapped = segment;
+            // da qui gli append falliscono: lo snapshot finale e' l'ultimo stato
+            segmentChannel = null;
+            segment = null;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            if (capture != null) {
+                write(capture);
+            }
+        } finally {
+            try {
+                mapped.force();
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPositionChanged(PositionChangedEvent event) {
+        append(event.operation(), event.symbol(), event.quantityDelta(), stockPriceService.getPrice(event.symbol()));
+    }
+
+    public JournalEntry append(Operation operation, String symbol, long quantityDelta, double price) {
+        lock.lock();
+        try {
+            return appendLocked(operation, symbol, quantityDelta, price);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private JournalEntry appendLocked(Operation operation, String symbol, long quantityDelta, double price) {
+        if (segmentChannel == null) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        JournalEntry entry = new JournalEntry(lastSequence + 1, System.currentTimeMillis(),
+                operation, symbol, quantityDelta, price);
+        long slot = entry.sequence() - segmentFirstSequence;
+        if (slot >= segmentRecords) {
+            rollSegment(entry.sequence());
+            slot = 0;
+        }
+        entry.writeTo(segment, (int) slot * JournalEntry.SIZE);
+        lastSequence = entry.sequence();
+        apply(entry);
+        // sull'append resta solo la copia delle posizioni; il file si scrive sul thread dello snapshot
+        if (++sinceSnapshot >= snapshotInterval && !snapshotPending) {
+            Capture capture = capture();
+            snapshotPending = true;
+            try {
+                snapshotWriter.execute(() -> {
+                    try {
+                        write(capture);
+                    } catch (UncheckedIOException e) {
+                        log.warn("Journal snapshot at sequence {} failed: {}", capture.sequence(), e.getMessage());
+                    } finally {
+                        snapshotDone();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // in chiusura: lo snapshot finale di close() copre queste righe
+                snapshotPending = false;
+                sinceSnapshot = snapshotInterval;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Salva subito le posizioni correnti in uno snapshot (scrittura su file temporaneo
+     * e rename atomico) ed elimina gli snapshot piu' vecchi.
+     */
+    public void snapshot() {
+        Capture capture;
+        lock.lock();
+        try {
+            capture = capture();
+        } finally {
+            lock.unlock();
+        }
+        write(capture);
+    }
+
+    private Capture capture() {
+        sinceSnapshot = 0;
+        return new Capture(lastSequence, new HashMap<>(positions), segment);
+    }
+
+    private void snapshotDone() {
+        lock.lock();
+        try {
+            snapshotPending = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Le righe coperte dallo snapshot vengono forzate su disco prima di scriverlo; il file
+     * temporaneo e' sincronizzato prima del rename e la directory dopo, cosi' dopo un crash
+     * lo snapshot visibile e' sempre completo e non precede righe perse.
+     */
+    private void write(Capture capture) {
+        Path target = directory.resolve(name(SNAPSHOT_PREFIX, capture.sequence(), SNAPSHOT_SUFFIX));
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        snapshotLock.lock();
+        try {
+            capture.segment().force();
+            CRC32C crc = new CRC32C();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                         new BufferedOutputStream(Channels.newOutputStream(channel)), crc))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeLong(capture.sequence());
+                out.writeInt(capture.positions().size());
+                for (Map.Entry<String, Long> position : capture.positions().entrySet()) {
+                    out.writeUTF(position.getKey());
+                    out.writeLong(position.getValue());
+                }
+                out.flush();
+                // il CRC copre tutto il contenuto precedente
+                out.writeLong(crc.getValue());
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            forceDirectory();
+            pruneSnapshots();
+            log.debug("Journal snapshot at sequence {} ({} positions)", capture.sequence(), capture.positions().size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write journal snapshot " + target, e);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    // Rende persistenti rename e nuovi file; non tutti i sistemi permettono di aprire una directory
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("Cannot sync journal directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    public Map<String, Long> positions() {
+        lock.lock();
+        try {
+            return new HashMap<>(positions);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long lastSequence() {
+        lock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rilegge dal disco tutte le righe con sequenza maggiore di {@code afterSequence}.
+     */
+    public void replay(long afterSequence, Consumer<JournalEntry> consumer) {
+        try {
+            scan(directory, afterSequence, consumer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read journal in " + directory, e);
+        }
+    }
+
+    /**
+     * Scorre i segmenti in ordine e si ferma alla prima riga mancante o corrotta.
+     * Restituisce l'ultima sequenza valida (0 se il journal e' vuoto).
+     */
+    static long scan(Path directory, long afterSequence, Consumer<JournalEntry> consumer) throws IOException {
+        long last = 0;
+        List<Segment> segments = segments(directory);
+        for (int s = 0; s < segments.size(); s++) {
+            Segment segment = segments.get(s);
+            if (last > 0 && segment.firstSequence != last + 1) {
+                log.warn("Journal gap before {}: replay stops at sequence {}", segment.path, last);
+                break;
+            }
+            // segmento interamente gia' coperto (es. dallo snapshot): non serve rileggerlo
+            if (s + 1 < segments.size() && segments.get(s + 1).firstSequence - 1 <= afterSequence) {
+                last = segments.get(s + 1).firstSequence - 1;
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                int records = (int) (channel.size() / JournalEntry.SIZE);
+                int i = 0;
+                for (; i < records; i++) {
+                    JournalEntry entry = JournalEntry.readFrom(buffer, i * JournalEntry.SIZE, segment.firstSequence + i);
+                    if (entry == null) {
+                        break;
+                    }
+                    if (entry.sequence() > afterSequence) {
+                        consumer.accept(entry);
+                    }
+                }
+                if (i > 0) {
+                    last = segment.firstSequence + i - 1;
+                }
+                if (i < records) {
+                    // fine del journal: eventuali segmenti successivi non sono raggiungibili
+                    break;
+                }
+            }
+        }
+        return last;
+    }
+
+    private void apply(JournalEntry entry) {
+        positions.merge(entry.symbol(), entry.quantityDelta(), (a, b) -> a + b == 0 ? null : a + b);
+    }
+
+    private long loadLatestSnapshot() throws IOException {
+        List<Path> snapshots = snapshots();
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Path path = snapshots.get(i);
+            CRC32C crc = new CRC32C();
+            try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                    new BufferedInputStream(Files.newInputStream(path)), crc))) {
+                if (in.readInt() != SNAPSHOT_MAGIC) {
+                    throw new IOException("bad magic");
+                }
+                long sequence = in.readLong();
+                int count = in.readInt();
+                Map<String, Long> loaded = new HashMap<>(count * 2);
+                for (int p = 0; p < count; p++) {
+                    loaded.put(in.readUTF(), in.readLong());
+                }
+                long expected = crc.getValue();
+                if (in.readLong() != expected) {
+                    throw new IOException("checksum mismatch");
+                }
+                positions.clear();
+                positions.putAll(loaded);
+                return sequence;
+            } catch (IOException e) {
+                log.warn("Ignoring unreadable journal snapshot {}: {}", path, e.getMessage());
+            }
+        }
+        return 0;
+    }
+
+    private void openTail() throws IOException {
+        List<Segment> segments = segments(directory);
+        Segment tail = null;
+        for (Segment segment : segments) {
+            if (segment.firstSequence <= lastSequence + 1) {
+                tail = segment;
+            }
+        }
+        if (tail != null && lastSequence + 1 - tail.firstSequence < segmentRecords) {
+            mapSegment(tail.path, tail.firstSequence);
+            // azzera gli slot dopo la coda: una riga troncata non deve sembrare valida dopo la riscrittura
+            int from = (int) (lastSequence + 1 - tail.firstSequence) * JournalEntry.SIZE;
+            for (int offset = from; offset < segment.capacity(); offset += Long.BYTES) {
+                segment.putLong(offset, 0L);
+            }
+        } else {
+            mapSegment(directory.resolve(name(SEGMENT_PREFIX, lastSequence + 1, SEGMENT_SUFFIX)), lastSequence + 1);
+        }
+        // segmenti oltre la coda (dopo un buco o una riga corrotta) non verranno piu' riletti
+        for (Segment segment : segments) {
+            if (segment.firstSequence > lastSequence + 1) {
+                Files.move(segment.path, segment.path.resolveSibling(segment.path.getFileName() + ".corrupt"),
+                        StandardCopyOption.REPLACE_EXISTING);
+                log.warn("Moved unreachable journal segment {} aside", segment.path);
+            }
+        }
+    }
+
+    private void rollSegment(long firstSequence) {
+        try {
+            segment.force();
+            segmentChannel.close();
+            mapSegment(directory.resolve(name(SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX)), firstSequence);
+            forceDirectory();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot roll journal segment", e);
+        }
+    }
+
+    private void mapSegment(Path path, long firstSequence) throws IOException {
+        segmentChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentRecords * JournalEntry.SIZE);
+        segmentFirstSequence = firstSequence;
+    }
+
+    // I segmenti restano tutti (sono lo storico); degli snapshot bastano gli ultimi
+    private void pruneSnapshots() throws IOException {
+        List<Path> snapshots = snapshots();
+        for (int i = 0; i < snapshots.size() - SNAPSHOTS_TO_KEEP; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+    }
+
+    private List<Path> snapshots() throws IOException {
+        return list(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX).stream()
+                .sorted((a, b) -> Long.compare(sequenceOf(a, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX),
+                        sequenceOf(b, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)))
+                .toList();
+    }
+
+    private static List<Segment> segments(Path directory) throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        for (Path path : list(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            segments.add(new Segment(path, sequenceOf(path, SEGMENT_PREFIX, SEGMENT_SUFFIX)));
+        }
+        segments.sort((a, b) -> Long.compare(a.firstSequence, b.firstSequence));
+        return segments;
+    }
+
+    private static List<Path> list(Path directory, String prefix, String suffix) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(prefix) && name.endsWith(suffix);
+            }).toList();
+        }
+    }
+
+    private static long sequenceOf(Path path, String prefix, String suffix) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+    }
+
+    private static String name(String prefix, long sequence, String suffix) {
+        return String.format("%s%020d%s", prefix, sequence, suffix);
+    }
+
+    private record Segment(Path path, long firstSequence) {
+    }
+
+    private record Capture(long sequence, Map<String, Long> positions, MappedByteBuffer segment) {
+    }
+}
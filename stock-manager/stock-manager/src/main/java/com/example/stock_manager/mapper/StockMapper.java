@@ -3,6 +3,8 @@ package com.example.stock_manager.mapper;
 import com.example.stock_manager.dto.StockResponse;
 import com.example.stock_manager.dto.StockValueResponse;
 import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.service.ValuedPosition;
+import com.example.stock_manager.valuation.FixedPoint;
 
 public final class StockMapper {
 
@@ -19,12 +21,30 @@ public final class StockMapper {
     }
 
     public static StockValueResponse toValueResponse(Stock stock, double currentPrice) {
+        if (stock == null) return null;
+        return toValueResponse(stock, currentPrice, FixedPoint.toMicros(currentPrice));
+    }
+
+    /**
+     * Variante per chi ha gia' convertito il prezzo in micro-unita' (es. per sommarlo).
+     */
+    public static StockValueResponse toValueResponse(Stock stock, double currentPrice, long priceMicros) {
         if (stock == null) return null;
         return StockValueResponse.builder()
                 .symbol(stock.getSymbol())
                 .quantity(stock.getQuantity())
                 .currentPrice(currentPrice)
-                .totalValue(currentPrice * stock.getQuantity())
+                .totalValue(FixedPoint.value(priceMicros, stock.getQuantity()))
+                .build();
+    }
+
+    public static StockValueResponse toValueResponse(ValuedPosition position) {
+        if (position == null) return null;
+        return StockValueResponse.builder()
+                .symbol(position.symbol())
+                .quantity(position.quantity())
+                .currentPrice(position.price())
+                .totalValue(position.value())
                 .build();
     }
 }
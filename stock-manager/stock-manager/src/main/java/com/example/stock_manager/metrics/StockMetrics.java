@@ -0,0 +1,53 @@
+package com.example.stock_manager.metrics;
+
+import com.example.stock_manager.event.PositionChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Contatori di business: acquisti e vendite eseguiti (contati dopo il commit, quindi
+ * solo quelli andati a buon fine) e operazioni rifiutate, per tipo di eccezione.
+ */
+@Component
+public class StockMetrics {
+
+    private final MeterRegistry registry;
+    private final Counter buys;
+    private final Counter sells;
+    private final Map<Class<?>, Counter> rejections = new ConcurrentHashMap<>();
+
+    public StockMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.buys = transactions(registry, "buy");
+        this.sells = transactions(registry, "sell");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPositionChanged(PositionChangedEvent event) {
+        switch (event.operation()) {
+            case BUY -> buys.increment();
+            case SELL -> sells.increment();
+            default -> {
+                // create/update/delete non sono transazioni di mercato
+            }
+        }
+    }
+
+    public void rejected(RuntimeException exception) {
+        // un contatore per tipo, risolto una volta: i rifiuti sono un percorso caldo
+        rejections.computeIfAbsent(exception.getClass(),
+                type -> registry.counter("stock.rejections", "exception", type.getSimpleName())).increment();
+    }
+
+    private static Counter transactions(MeterRegistry registry, String side) {
+        return Counter.builder("stock.transactions")
+                .description("Executed buy/sell transactions")
+                .tag("side", side)
+                .register(registry);
+    }
+}
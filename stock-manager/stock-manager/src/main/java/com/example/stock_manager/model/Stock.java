@@ -7,6 +7,8 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Getter                       // Genera tutti i getter
@@ -14,7 +16,12 @@ import lombok.Setter;
 @NoArgsConstructor            // Costruttore vuoto per JPA
 @AllArgsConstructor           // Costruttore con tutti i parametri
 @Builder                      // Permette di creare oggetti con il pattern Builder
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Stock.CACHE_REGION) // cache di secondo livello
 public class Stock {
+
+    public static final String CACHE_REGION = "stock";
+    public static final String QUERY_CACHE_REGION = "stock-queries";
+
     @Id
     private String symbol;
     private int quantity;
@@ -0,0 +1,6 @@
+package com.example.stock_manager.model;
+
+public enum TransactionSide {
+    BUY,
+    SELL
+}
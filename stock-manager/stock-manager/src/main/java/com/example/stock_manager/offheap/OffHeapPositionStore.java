@@ -0,0 +1,406 @@
+package com.example.stock_manager.offheap;
+
+import com.example.stock_manager.exception.DuplicateStockException;
+import com.example.stock_manager.exception.InsufficientStockException;
+import com.example.stock_manager.exception.StockNotFoundException;
+import com.example.stock_manager.symbol.SymbolRegistry;
+import com.example.stock_manager.valuation.FixedPoint;
+import com.example.stock_manager.valuation.ValueAccumulator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Book di posizioni fuori heap per portafogli da decine di milioni di titoli. Ogni posizione
+ * e' un record a layout fisso di 8 byte (id del simbolo, quantita') in segmenti di memoria
+ * diretta; su heap resta solo l'indice id -> record, un int per simbolo. Niente entita' ne'
+ * persistence context: le scansioni leggono i record in sequenza senza allocare.
+ * Stesse operazioni e stesse eccezioni di {@code StockTransactionService}. Una
+ * cancellazione sposta l'ultimo record nel buco, quindi l'ordine di scansione non e'
+ * stabile. Solo in memoria: il contenuto non sopravvive al riavvio.
+ * <p>
+ * Con {@code stock.offheap.enabled} il bean e' una copia delle posizioni committate:
+ * {@code PortfolioAggregator} lo ricarica e vi applica i delta dei commit, e il riepilogo
+ * del portafoglio lo scandisce al posto di {@code findAll()}. Va quindi scritto solo
+ * tramite {@link #replaceAll} e {@link #applyDelta}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "stock.offheap", name = "enabled", havingValue = "true")
+public class OffHeapPositionStore {
+
+    private static final int RECORD_BYTES = 8;
+    private static final int QUANTITY_OFFSET = 4;
+    // 2^27 record da 8 byte: un segmento resta sotto il limite di 2 GB di un ByteBuffer
+    private static final int MAX_SEGMENT_RECORDS = 1 << 27;
+
+    private final SymbolRegistry symbolRegistry;
+    private final int segmentRecords;
+    private final int segmentShift;
+    private final int segmentMask;
+    private final StampedLock lock = new StampedLock();
+    private ByteBuffer[] segments = new ByteBuffer[0];
+    // record + 1 per id di simbolo: 0 = nessuna posizione, cosi' l'array cresce senza riempimenti
+    private int[] recordById = new int[0];
+    private int size;
+
+    /**
+     * Le posizioni sono indicizzate per id del registro: il book contiene al massimo
+     * {@code stock.symbols.max-symbols} simboli.
+     */
+    @Autowired
+    public OffHeapPositionStore(SymbolRegistry symbolRegistry,
+                                @Value("${stock.offheap.segment-records:1048576}") int segmentRecords) {
+        if (segmentRecords < 1 || segmentRecords > MAX_SEGMENT_RECORDS || Integer.bitCount(segmentRecords) != 1) {
+            throw new IllegalArgumentException("Off-heap segment records must be a power of two up to 2^27");
+        }
+        this.symbolRegistry = symbolRegistry;
+        this.segmentRecords = segmentRecords;
+        this.segmentShift = Integer.numberOfTrailingZeros(segmentRecords);
+        this.segmentMask = segmentRecords - 1;
+    }
+
+    /**
+     * Scansione dei record: id del simbolo (vedi {@link SymbolRegistry#name}) e quantita'.
+     */
+    @FunctionalInterface
+    public interface PositionVisitor {
+        void accept(int symbolId, int quantity);
+    }
+
+    /**
+     * Totali di una scansione; {@code highestValueSymbol} e' null per un book vuoto.
+     */
+    public record Totals(int positions, long totalQuantity, double totalValue, String highestValueSymbol) {
+
+        public double averagePricePerShare() {
+            return totalQuantity > 0 ? totalValue / totalQuantity : 0.0;
+        }
+    }
+
+    // --- CRUD ---
+
+    public int create(String symbol, int quantity) {
+        requirePositive(quantity);
+        int id = symbolRegistry.id(symbol);
+        if (id < 0) {
+            throw new IllegalArgumentException("Invalid symbol: " + symbol);
+        }
+        long stamp = lock.writeLock();
+        try {
+            if (recordOf(id) >= 0) {
+                throw new DuplicateStockException(symbolRegistry.name(id));
+            }
+            append(id, quantity);
+            return quantity;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int quantity(String symbol) {
+        int id = symbolRegistry.find(symbol);
+        long stamp = lock.readLock();
+        try {
+            return quantityAt(existingRecord(id, symbol));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public void update(String symbol, int quantity) {
+        requirePositive(quantity);
+        int id = symbolRegistry.find(symbol);
+        long stamp = lock.writeLock();
+        try {
+            setQuantityAt(existingRecord(id, symbol), quantity);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Elimina la posizione e restituisce la quantita' rimossa.
+     */
+    public int delete(String symbol) {
+        int id = symbolRegistry.find(symbol);
+        long stamp = lock.writeLock();
+        try {
+            int record = existingRecord(id, symbol);
+            int quantity = quantityAt(record);
+            remove(id, record);
+            return quantity;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // --- TRANSACTIONS ---
+
+    /**
+     * Acquisto con upsert: restituisce la quantita' risultante.
+     */
+    public int buy(String symbol, int quantity) {
+        requirePositive(quantity);
+        int id = symbolRegistry.id(symbol);
+        if (id < 0) {
+            throw new IllegalArgumentException("Invalid symbol: " + symbol);
+        }
+        long stamp = lock.writeLock();
+        try {
+            int record = recordOf(id);
+            if (record < 0) {
+                append(id, quantity);
+                return quantity;
+            }
+            int total = quantityAt(record) + quantity;
+            if (total < 0) {
+                throw new IllegalArgumentException("Quantity overflow for " + symbolRegistry.name(id));
+            }
+            setQuantityAt(record, total);
+            return total;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Vendita: restituisce la quantita' residua, 0 se la posizione e' stata chiusa ed eliminata.
+     */
+    public int sell(String symbol, int quantity) {
+        requirePositive(quantity);
+        int id = symbolRegistry.find(symbol);
+        long stamp = lock.writeLock();
+        try {
+            int record = existingRecord(id, symbol);
+            int available = quantityAt(record);
+            if (available < quantity) {
+                throw new InsufficientStockException(symbolRegistry.name(id), available, quantity);
+            }
+            int remaining = available - quantity;
+            if (remaining == 0) {
+                remove(id, record);
+            } else {
+                setQuantityAt(record, remaining);
+            }
+            return remaining;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // --- MIRROR ---
+
+    /**
+     * Applica la variazione di quantita' di un commit: crea la posizione se manca e la
+     * elimina quando torna a zero. Nessun controllo di segno, come per l'aggregatore:
+     * i delta di transazioni diverse possono arrivare fuori ordine.
+     */
+    public void applyDelta(String symbol, long quantityDelta) {
+        int id = symbolRegistry.id(symbol);
+        if (id < 0) {
+            throw new IllegalArgumentException("Invalid symbol: " + symbol);
+        }
+        long stamp = lock.writeLock();
+        try {
+            int record = recordOf(id);
+            if (record < 0) {
+                if (quantityDelta != 0) {
+                    append(id, Math.toIntExact(quantityDelta));
+                }
+                return;
+            }
+            int total = Math.toIntExact(quantityAt(record) + quantityDelta);
+            if (total == 0) {
+                remove(id, record);
+            } else {
+                setQuantityAt(record, total);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Sostituisce l'intero contenuto con le posizioni date (ricalcolo del book): i
+     * segmenti gia' allocati vengono riusati e le scansioni non vedono mai un book a meta'.
+     */
+    public void replaceAll(String[] symbols, int[] quantities) {
+        int[] ids = new int[symbols.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = symbolRegistry.id(symbols[i]);
+            if (ids[i] < 0) {
+                throw new IllegalArgumentException("Invalid symbol: " + symbols[i]);
+            }
+        }
+        long stamp = lock.writeLock();
+        try {
+            forEachRecord((record, symbolId, quantity) -> recordById[symbolId] = 0);
+            size = 0;
+            for (int i = 0; i < ids.length; i++) {
+                if (recordOf(ids[i]) >= 0) {
+                    throw new DuplicateStockException(symbols[i]);
+                }
+                append(ids[i], quantities[i]);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // --- SCANS ---
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Memoria diretta allocata per i segmenti.
+     */
+    public long allocatedBytes() {
+        long stamp = lock.readLock();
+        try {
+            return (long) segments.length * segmentRecords * RECORD_BYTES;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Visita tutti i record in ordine di memoria, sotto lock in lettura: le scritture
+     * attendono la fine della scansione.
+     */
+    public void forEach(PositionVisitor visitor) {
+        long stamp = lock.readLock();
+        try {
+            forEachRecord((record, symbolId, quantity) -> visitor.accept(symbolId, quantity));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Valorizza il book in una scansione senza allocare: {@code pricer} riceve l'id del
+     * simbolo di ogni record (es. {@code StockPriceService::getPrice}). Le quantita' sono
+     * lette sotto lock, i prezzi uno alla volta: non sono una fotografia unica dei prezzi.
+     */
+    public Totals valuate(IntToDoubleFunction pricer) {
+        long stamp = lock.readLock();
+        try {
+            ValueAccumulator totals = new ValueAccumulator();
+            int highestId = -1;
+            double highestValue = Double.NEGATIVE_INFINITY;
+            for (int s = 0, base = 0; base < size; s++, base += segmentRecords) {
+                ByteBuffer segment = segments[s];
+                int count = Math.min(size - base, segmentRecords);
+                for (int i = 0; i < count; i++) {
+                    int offset = i * RECORD_BYTES;
+                    int symbolId = segment.getInt(offset);
+                    int quantity = segment.getInt(offset + QUANTITY_OFFSET);
+                    long priceMicros = FixedPoint.toMicros(pricer.applyAsDouble(symbolId));
+                    totals.add(priceMicros, quantity);
+                    double value = FixedPoint.value(priceMicros, quantity);
+                    if (value > highestValue) {
+                        highestValue = value;
+                        highestId = symbolId;
+                    }
+                }
+            }
+            return new Totals(size, totals.totalQuantity(), totals.totalValue(),
+                    highestId < 0 ? null : symbolRegistry.name(highestId));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // --- RECORDS (chiamati con il lock gia' preso) ---
+
+    @FunctionalInterface
+    private interface RecordVisitor {
+        void accept(int record, int symbolId, int quantity);
+    }
+
+    private void forEachRecord(RecordVisitor visitor) {
+        for (int s = 0, base = 0; base < size; s++, base += segmentRecords) {
+            ByteBuffer segment = segments[s];
+            int count = Math.min(size - base, segmentRecords);
+            for (int i = 0; i < count; i++) {
+                int offset = i * RECORD_BYTES;
+                visitor.accept(base + i, segment.getInt(offset), segment.getInt(offset + QUANTITY_OFFSET));
+            }
+        }
+    }
+
+    private int recordOf(int symbolId) {
+        return symbolId < recordById.length ? recordById[symbolId] - 1 : -1;
+    }
+
+    private int existingRecord(int symbolId, String symbol) {
+        int record = symbolId < 0 ? -1 : recordOf(symbolId);
+        if (record < 0) {
+            throw new StockNotFoundException(symbol);
+        }
+        return record;
+    }
+
+    private void append(int symbolId, int quantity) {
+        int record = size;
+        if ((record >>> segmentShift) == segments.length) {
+            ByteBuffer[] grown = Arrays.copyOf(segments, segments.length + 1);
+            grown[segments.length] = ByteBuffer.allocateDirect(segmentRecords * RECORD_BYTES)
+                    .order(ByteOrder.nativeOrder());
+            segments = grown;
+        }
+        if (symbolId >= recordById.length) {
+            recordById = Arrays.copyOf(recordById, Math.max(symbolId + 1, recordById.length * 2));
+        }
+        ByteBuffer segment = segments[record >>> segmentShift];
+        int offset = (record & segmentMask) * RECORD_BYTES;
+        segment.putInt(offset, symbolId);
+        segment.putInt(offset + QUANTITY_OFFSET, quantity);
+        recordById[symbolId] = record + 1;
+        size = record + 1;
+    }
+
+    // l'ultimo record prende il posto di quello rimosso: i record restano contigui
+    private void remove(int symbolId, int record) {
+        int last = size - 1;
+        if (record != last) {
+            ByteBuffer from = segments[last >>> segmentShift];
+            int fromOffset = (last & segmentMask) * RECORD_BYTES;
+            int movedId = from.getInt(fromOffset);
+            ByteBuffer to = segments[record >>> segmentShift];
+            int toOffset = (record & segmentMask) * RECORD_BYTES;
+            to.putInt(toOffset, movedId);
+            to.putInt(toOffset + QUANTITY_OFFSET, from.getInt(fromOffset + QUANTITY_OFFSET));
+            recordById[movedId] = record + 1;
+        }
+        recordById[symbolId] = 0;
+        size = last;
+    }
+
+    private int quantityAt(int record) {
+        return segments[record >>> segmentShift].getInt((record & segmentMask) * RECORD_BYTES + QUANTITY_OFFSET);
+    }
+
+    private void setQuantityAt(int record, int quantity) {
+        segments[record >>> segmentShift].putInt((record & segmentMask) * RECORD_BYTES + QUANTITY_OFFSET, quantity);
+    }
+
+    private static void requirePositive(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+    }
+}
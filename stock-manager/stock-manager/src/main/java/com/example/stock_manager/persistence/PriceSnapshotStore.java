@@ -0,0 +1,211 @@
+package com.example.stock_manager.persistence;
+
+import com.example.stock_manager.service.impl.StockPriceServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Avvio a caldo dei prezzi: all'avvio ricarica l'ultimo snapshot nel price store (senza
+ * eventi, prima che gli aggregati vengano ricostruiti), poi lo riscrive ogni
+ * {@code save-interval} e alla chiusura. Stesso formato degli snapshot del journal:
+ * magic, numero di prezzi, coppie (simbolo, prezzo) e CRC32C finale, scritti su file
+ * temporaneo e rinominati atomicamente. Uno snapshot illeggibile viene ignorato.
+ */
+@Component
+@ConditionalOnProperty(prefix = "stock.persistence.prices", name = "enabled", havingValue = "true")
+@Slf4j
+public class PriceSnapshotStore implements SmartLifecycle {
+
+    private static final int MAGIC = 0x50524331; // "PRC1"
+    private static final int RESTORE_BATCH = 4096;
+
+    private final StockPriceServiceImpl priceService;
+    private final Path file;
+    private final Duration saveInterval;
+    private volatile ScheduledExecutorService saver;
+    // ReentrantLock e non synchronized: un virtual thread in attesa del file non blocca il carrier
+    private final ReentrantLock saveLock = new ReentrantLock();
+
+    @Autowired
+    public PriceSnapshotStore(StockPriceServiceImpl priceService,
+                              @Value("${stock.persistence.prices.file:data/prices.snapshot}") Path file,
+                              @Value("${stock.persistence.prices.save-interval:30s}") Duration saveInterval) {
+        if (saveInterval.isNegative() || saveInterval.isZero()) {
+            throw new IllegalArgumentException("Price snapshot interval must be positive");
+        }
+        this.priceService = priceService;
+        this.file = file;
+        this.saveInterval = saveInterval;
+    }
+
+    @Override
+    public void start() {
+        long started = System.nanoTime();
+        int restored = restore();
+        log.info("Restored {} prices from {} in {} ms", restored, file,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "price-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::saveQuietly, saveInterval.toMillis(), saveInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        saver = executor;
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService executor = saver;
+        saver = null;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        save();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return saver != null;
+    }
+
+    // parte prima (e si ferma dopo) di ingestione tick e write engine
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 1000;
+    }
+
+    /**
+     * Carica lo snapshot nel price store; restituisce i prezzi ripristinati (0 se manca).
+     */
+    public int restore() {
+        CRC32C crc = new CRC32C();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file)), crc))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("bad magic");
+            }
+            int count = in.readInt();
+            // tutto in memoria prima di applicare: un file troncato non lascia prezzi a meta'
+            String[] symbols = new String[count];
+            double[] prices = new double[count];
+            for (int i = 0; i < count; i++) {
+                symbols[i] = in.readUTF();
+                prices[i] = in.readDouble();
+            }
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("checksum mismatch");
+            }
+            String[] symbolBatch = new String[RESTORE_BATCH];
+            double[] priceBatch = new double[RESTORE_BATCH];
+            for (int from = 0; from < count; from += RESTORE_BATCH) {
+                int length = Math.min(RESTORE_BATCH, count - from);
+                System.arraycopy(symbols, from, symbolBatch, 0, length);
+                System.arraycopy(prices, from, priceBatch, 0, length);
+                priceService.restorePrices(symbolBatch, priceBatch, length);
+            }
+            return count;
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable price snapshot {}: {}", file, e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Scrive i prezzi correnti e restituisce quanti sono stati salvati.
+     */
+    public int save() {
+        saveLock.lock();
+        try {
+            return writeSnapshot();
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    private int writeSnapshot() {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            // il numero di prezzi va in testa: prima si contano, poi si scrivono i soli contati
+            AtomicInteger count = new AtomicInteger();
+            priceService.forEachPrice((symbol, price) -> count.incrementAndGet());
+            CRC32C crc = new CRC32C();
+            int written;
+            try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)), crc))) {
+                out.writeInt(MAGIC);
+                out.writeInt(count.get());
+                written = write(out, count.get());
+                out.flush();
+                out.writeLong(crc.getValue());
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Saved {} prices to {}", written, file);
+            return written;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write price snapshot " + file, e);
+        }
+    }
+
+    private int write(DataOutputStream out, int limit) throws IOException {
+        int[] written = {0};
+        try {
+            priceService.forEachPrice((symbol, price) -> {
+                if (written[0] == limit) {
+                    return; // simbolo comparso dopo il conteggio: entra nel prossimo snapshot
+                }
+                try {
+                    out.writeUTF(symbol);
+                    out.writeDouble(price);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                written[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (written[0] != limit) {
+            throw new IOException("price count changed while saving");
+        }
+        return written[0];
+    }
+
+    private void saveQuietly() {
+        try {
+            save();
+        } catch (RuntimeException e) {
+            log.warn("Price snapshot failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.stock_manager.portfolio;
+
+import com.example.stock_manager.dto.PortfolioSummary;
+import com.example.stock_manager.exception.DuplicateStockException;
+import com.example.stock_manager.exception.InsufficientStockException;
+import com.example.stock_manager.exception.StockNotFoundException;
+import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.service.StockPriceService;
+import com.example.stock_manager.symbol.SymbolRegistry;
+import com.example.stock_manager.valuation.PortfolioValuator;
+import com.example.stock_manager.valuation.PortfolioValuator.Valuation;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Operazioni sui portafogli clienti ({@code /api/portfolios/{portfolioId}/stocks}).
+ * Stessa semantica di {@code StockTransactionService} e {@code PortfolioService}, ma
+ * ogni chiamata tocca solo la partizione del portafoglio e i riepiloghi si calcolano
+ * sulle sole posizioni di quel cliente. Il portafoglio della casa resta su {@code /api/stocks}
+ * con i suoi aggregati incrementali; queste operazioni non pubblicano eventi di posizione.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Timed(value = "stock.service", histogram = true, percentiles = {0.5, 0.95, 0.99})
+public class ClientPortfolioService {
+
+    private final PositionShards positionShards;
+    private final StockPriceService stockPriceService;
+    private final PortfolioValuator portfolioValuator;
+    private final SymbolRegistry symbolRegistry;
+
+    // --- CRUD ---
+
+    @Transactional
+    public Stock createStock(String portfolioId, String symbol, int quantity) {
+        String upperSymbol = symbolRegistry.canonical(symbol);
+        if (!positionShards.insert(portfolioId, upperSymbol, quantity)) {
+            throw new DuplicateStockException(upperSymbol);
+        }
+        log.info("Created stock {} in portfolio {}", upperSymbol, portfolioId);
+        return Stock.builder().symbol(upperSymbol).quantity(quantity).build();
+    }
+
+    @Transactional(readOnly = true)
+    public List<Stock> getAllStocks(String portfolioId) {
+        return positionShards.findAll(portfolioId);
+    }
+
+    @Transactional(readOnly = true)
+    public Stock getStockBySymbol(String portfolioId, String symbol) {
+        String upperSymbol = symbolRegistry.canonical(symbol);
+        int quantity = currentQuantity(portfolioId, symbol, upperSymbol);
+        return Stock.builder().symbol(upperSymbol).quantity(quantity).build();
+    }
+
+    @Transactional
+    public Stock updateStock(String portfolioId, String symbol, int quantity) {
+        String upperSymbol = symbolRegistry.canonical(symbol);
+        if (positionShards.setQuantity(portfolioId, upperSymbol, quantity) == 0) {
+            throw new StockNotFoundException(symbol);
+        }
+        log.info("Updated quantity for stock {} in portfolio {}", upperSymbol, portfolioId);
+        return Stock.builder().symbol(upperSymbol).quantity(quantity).build();
+    }
+
+    @Transactional
+    public void deleteStock(String portfolioId, String symbol) {
+        String upperSymbol = symbolRegistry.canonical(symbol);
+        if (positionShards.delete(portfolioId, upperSymbol) == 0) {
+            throw new StockNotFoundException(symbol);
+        }
+        log.info("Deleted stock {} from portfolio {}", upperSymbol, portfolioId);
+    }
+
+    // --- TRANSACTIONS ---
+
+    @Transactional
+    public Stock buyStock(String portfolioId, String symbol, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        String upperSymbol = symbolRegistry.canonical(symbol);
+        positionShards.upsertQuantity(portfolioId, upperSymbol, quantity);
+        int total = currentQuantity(portfolioId, symbol, upperSymbol);
+        log.info("Bought {} shares of {} in portfolio {} (total: {})", quantity, upperSymbol, portfolioId, total);
+        return Stock.builder().symbol(upperSymbol).quantity(total).build();
+    }
+
+    /**
+     * Come {@code StockTransactionService.sellStock}: null se la posizione viene chiusa.
+     */
+    @Transactional
+    public Stock sellStock(String portfolioId, String symbol, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        String upperSymbol = symbolRegistry.canonical(symbol);
+        if (positionShards.decrementQuantity(portfolioId, upperSymbol, quantity) == 0) {
+            int available = currentQuantity(portfolioId, symbol, upperSymbol);
+            throw new InsufficientStockException(upperSymbol, available, quantity);
+        }
+        if (positionShards.deleteIfEmpty(portfolioId, upperSymbol) == 1) {
+            log.info("Sold all {} shares of {} in portfolio {} - stock removed", quantity, upperSymbol, portfolioId);
+            return null;
+        }
+        int remaining = currentQuantity(portfolioId, symbol, upperSymbol);
+        log.info("Sold {} shares of {} in portfolio {} (remaining: {})", quantity, upperSymbol, portfolioId, remaining);
+        return Stock.builder().symbol(upperSymbol).quantity(remaining).build();
+    }
+
+    // --- VALUATION ---
+
+    @Transactional(readOnly = true)
+    public double getTotalValue(String portfolioId) {
+        return valuate(positionShards.findAll(portfolioId), false).totalValue();
+    }
+
+    @Transactional(readOnly = true)
+    public double getAveragePricePerShare(String portfolioId) {
+        return valuate(positionShards.findAll(portfolioId), false).averagePricePerShare();
+    }
+
+    @Transactional(readOnly = true)
+    public PortfolioSummary getPortfolioSummary(String portfolioId) {
+        List<Stock> stocks = positionShards.findAll(portfolioId);
+        Valuation valuation = valuate(stocks, true);
+        return PortfolioSummary.builder()
+                .totalValue(valuation.totalValue())
+                .averagePricePerShare(valuation.averagePricePerShare())
+                .totalStocks(stocks.size())
+                .totalQuantity(valuation.totalQuantity())
+                .stockDetails(valuation.details())
+                .build();
+    }
+
+    @Transactional(readOnly = true)
+    public Stock findHighestValueStock(String portfolioId) {
+        List<Stock> stocks = positionShards.findAll(portfolioId);
+        int highest = valuate(stocks, false).highestIndex();
+        return highest < 0 ? null : stocks.get(highest);
+    }
+
+    private Valuation valuate(List<Stock> stocks, boolean withDetails) {
+        String[] symbols = new String[stocks.size()];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = stocks.get(i).getSymbol();
+        }
+        return portfolioValuator.valuate(stocks, stockPriceService.getPrices(symbols), withDetails);
+    }
+
+    private int currentQuantity(String portfolioId, String symbol, String upperSymbol) {
+        return positionShards.findQuantity(portfolioId, upperSymbol)
+                .orElseThrow(() -> new StockNotFoundException(symbol));
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.stock_manager.portfolio;
+
+import com.example.stock_manager.model.Stock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Posizioni dei portafogli clienti, partizionate per hash dell'id portafoglio su
+ * {@code shards} tabelle {@code portfolio_position_<n>} con chiave (portfolio_id, symbol).
+ * Ogni portafoglio vive per intero in una sola partizione: riepiloghi e aggiornamenti di
+ * portafogli diversi non condividono ne' righe ne' indici. Il numero di partizioni non
+ * puo' cambiare su dati esistenti, perche' sposterebbe i portafogli di tabella.
+ * Tutte le istruzioni sono atomiche, come quelle di {@code StockRepository}.
+ * <p>
+ * Con {@code stock.portfolio.create-tables=false} (profilo durable) le tabelle arrivano dalla
+ * migrazione Flyway {@code V2__create_portfolio_positions.sql}: all'avvio se ne verifica solo
+ * la presenza, cosi' un numero di partizioni diverso da quello migrato fallisce subito.
+ */
+@Component
+public class PositionShards {
+
+    private static final Pattern PORTFOLIO_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final RowMapper<Stock> POSITION = (rs, row) -> Stock.builder()
+            .symbol(rs.getString(1))
+            .quantity(rs.getInt(2))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String[] tables;
+
+    public PositionShards(JdbcTemplate jdbcTemplate, int shards) {
+        this(jdbcTemplate, shards, true);
+    }
+
+    @Autowired
+    public PositionShards(JdbcTemplate jdbcTemplate,
+                          @Value("${stock.portfolio.shards:16}") int shards,
+                          @Value("${stock.portfolio.create-tables:true}") boolean createTables) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("Portfolio shard count must be positive");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.tables = new String[shards];
+        for (int i = 0; i < shards; i++) {
+            tables[i] = "portfolio_position_" + i;
+            if (createTables) {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + tables[i] + " ("
+                        + "portfolio_id VARCHAR(64) NOT NULL, "
+                        + "symbol VARCHAR(255) NOT NULL, "
+                        + "quantity INTEGER NOT NULL, "
+                        + "PRIMARY KEY (portfolio_id, symbol))");
+            } else {
+                // fallisce se la migrazione non ha creato la partizione
+                jdbcTemplate.queryForList("SELECT 1 FROM " + tables[i] + " WHERE 1 = 0");
+            }
+        }
+    }
+
+    public int shards() {
+        return tables.length;
+    }
+
+    /**
+     * Partizione del portafoglio; l'id viene anche validato, dato che finisce nelle query.
+     */
+    public int shardOf(String portfolioId) {
+        if (portfolioId == null || !PORTFOLIO_ID.matcher(portfolioId).matches()) {
+            throw new IllegalArgumentException("Portfolio id must be 1-64 letters, digits, '-' or '_'");
+        }
+        return Math.floorMod(portfolioId.hashCode(), tables.length);
+    }
+
+    public List<Stock> findAll(String portfolioId) {
+        return jdbcTemplate.query("SELECT symbol, quantity FROM " + table(portfolioId)
+                + " WHERE portfolio_id = ? ORDER BY symbol", POSITION, portfolioId);
+    }
+
+    public Optional<Integer> findQuantity(String portfolioId, String symbol) {
+        List<Integer> quantity = jdbcTemplate.queryForList("SELECT quantity FROM " + table(portfolioId)
+                + " WHERE portfolio_id = ? AND symbol = ?", Integer.class, portfolioId, symbol);
+        return quantity.isEmpty() ? Optional.empty() : Optional.of(quantity.get(0));
+    }
+
+    /**
+     * Inserisce la posizione se assente; false se esiste gia'. Il MERGE senza ramo
+     * MATCHED non tocca la riga esistente e ne riporta 0 nel conteggio; la violazione
+     * di chiave resta possibile solo se due inserimenti concorrenti si sovrappongono.
+     */
+    public boolean insert(String portfolioId, String symbol, int quantity) {
+        try {
+            return jdbcTemplate.update("MERGE INTO " + table(portfolioId) + " t "
+                    + "USING (VALUES (CAST(? AS VARCHAR(64)), CAST(? AS VARCHAR(255)), CAST(? AS INTEGER))) "
+                    + "s(portfolio_id, symbol, quantity) "
+                    + "ON t.portfolio_id = s.portfolio_id AND t.symbol = s.symbol "
+                    + "WHEN NOT MATCHED THEN INSERT (portfolio_id, symbol, quantity) "
+                    + "VALUES (s.portfolio_id, s.symbol, s.quantity)", portfolioId, symbol, quantity) == 1;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    public int upsertQuantity(String portfolioId, String symbol, int quantity) {
+        return jdbcTemplate.update("MERGE INTO " + table(portfolioId) + " t "
+                + "USING (VALUES (CAST(? AS VARCHAR(64)), CAST(? AS VARCHAR(255)), CAST(? AS INTEGER))) "
+                + "s(portfolio_id, symbol, quantity) "
+                + "ON t.portfolio_id = s.portfolio_id AND t.symbol = s.symbol "
+                + "WHEN MATCHED THEN UPDATE SET quantity = t.quantity + s.quantity "
+                + "WHEN NOT MATCHED THEN INSERT (portfolio_id, symbol, quantity) "
+                + "VALUES (s.portfolio_id, s.symbol, s.quantity)", portfolioId, symbol, quantity);
+    }
+
+    public int setQuantity(String portfolioId, String symbol, int quantity) {
+        return jdbcTemplate.update("UPDATE " + table(portfolioId) + " SET quantity = ? "
+                + "WHERE portfolio_id = ? AND symbol = ?", quantity, portfolioId, symbol);
+    }
+
+    // Decremento condizionale: 0 righe se la posizione manca o non basta
+    public int decrementQuantity(String portfolioId, String symbol, int quantity) {
+        return jdbcTemplate.update("UPDATE " + table(portfolioId) + " SET quantity = quantity - ? "
+                + "WHERE portfolio_id = ? AND symbol = ? AND quantity >= ?", quantity, portfolioId, symbol, quantity);
+    }
+
+    public int deleteIfEmpty(String portfolioId, String symbol) {
+        return jdbcTemplate.update("DELETE FROM " + table(portfolioId)
+                + " WHERE portfolio_id = ? AND symbol = ? AND quantity = 0", portfolioId, symbol);
+    }
+
+    public int delete(String portfolioId, String symbol) {
+        return jdbcTemplate.update("DELETE FROM " + table(portfolioId)
+                + " WHERE portfolio_id = ? AND symbol = ?", portfolioId, symbol);
+    }
+
+    private String table(String portfolioId) {
+        return tables[shardOf(portfolioId)];
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.stock_manager.repository;
+
+import java.util.Optional;
+
+/**
+ * Variazioni atomiche della quantita' di una posizione, ciascuna in una sola istruzione
+ * che restituisce anche la quantita' risultante: nessuna SELECT di rilettura.
+ */
+public interface StockPositionWrites {
+
+    /**
+     * Somma {@code quantity} alla posizione, creandola se manca. Restituisce il nuovo totale.
+     */
+    int addQuantity(String symbol, int quantity);
+
+    /**
+     * Toglie {@code quantity} se la posizione ne ha abbastanza, eliminandola se si azzera.
+     * Restituisce la quantita' rimasta (0 se eliminata), vuoto se la posizione manca o non basta.
+     */
+    Optional<Integer> removeQuantity(String symbol, int quantity);
+}
@@ -0,0 +1,95 @@
+package com.example.stock_manager.repository;
+
+import com.example.stock_manager.model.Stock;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Cache;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Implementazione H2 con le delta table ({@code FINAL TABLE} / {@code OLD TABLE}): la MERGE
+ * aggiorna la riga e, nella stessa istruzione, ne restituisce la quantita'.
+ * <p>
+ * Per Hibernate sono query di lettura, quindi le pulizie che {@code @Modifying} faceva da se'
+ * sono esplicite: flush delle modifiche pendenti su Stock prima dell'istruzione (query space
+ * sincronizzato), rimozione dalla cache della riga toccata e dei risultati di query su Stock,
+ * subito e di nuovo al completamento della transazione, e distacco della sola entita' toccata
+ * se era gia' caricata, invece di svuotare l'intero persistence context.
+ */
+class StockPositionWritesImpl implements StockPositionWrites {
+
+    private static final String ADD = """
+            SELECT quantity FROM FINAL TABLE (
+                MERGE INTO stock t
+                USING (VALUES (CAST(:symbol AS VARCHAR(255)), CAST(:quantity AS INTEGER))) s(symbol, quantity)
+                ON t.symbol = s.symbol
+                WHEN MATCHED THEN UPDATE SET quantity = t.quantity + s.quantity
+                WHEN NOT MATCHED THEN INSERT (symbol, quantity) VALUES (s.symbol, s.quantity))
+            """;
+
+    // Restituisce la quantita' precedente delle righe toccate: nessuna riga se manca o non basta
+    private static final String REMOVE = """
+            SELECT quantity FROM OLD TABLE (
+                MERGE INTO stock t
+                USING (VALUES (CAST(:symbol AS VARCHAR(255)), CAST(:quantity AS INTEGER))) s(symbol, quantity)
+                ON t.symbol = s.symbol
+                WHEN MATCHED AND t.quantity = s.quantity THEN DELETE
+                WHEN MATCHED AND t.quantity > s.quantity THEN UPDATE SET quantity = t.quantity - s.quantity)
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int addQuantity(String symbol, int quantity) {
+        return execute(ADD, symbol, quantity).get(0);
+    }
+
+    @Override
+    public Optional<Integer> removeQuantity(String symbol, int quantity) {
+        List<Integer> previous = execute(REMOVE, symbol, quantity);
+        return previous.isEmpty() ? Optional.empty() : Optional.of(previous.get(0) - quantity);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Integer> execute(String sql, String symbol, int quantity) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        List<Integer> result = entityManager.createNativeQuery(sql, Integer.class)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(Stock.class)
+                .setParameter("symbol", symbol)
+                .setParameter("quantity", quantity)
+                .getResultList();
+        if (!result.isEmpty()) {
+            evict(session, symbol);
+            // di nuovo dopo il commit: una lettura concorrente puo' aver rimesso in cache la riga precedente
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        evict(session, symbol);
+                    }
+                });
+            }
+            // solo se gia' caricata: getReference creerebbe un proxy solo per staccarlo
+            Object loaded = session.getPersistenceContextInternal().getEntity(session.generateEntityKey(symbol,
+                    session.getFactory().getMappingMetamodel().getEntityDescriptor(Stock.class)));
+            if (loaded != null) {
+                entityManager.detach(loaded);
+            }
+        }
+        return result;
+    }
+
+    private static void evict(SessionImplementor session, String symbol) {
+        Cache cache = session.getSessionFactory().getCache();
+        cache.evict(Stock.class, symbol);
+        cache.evictQueryRegion(Stock.QUERY_CACHE_REGION);
+    }
+}
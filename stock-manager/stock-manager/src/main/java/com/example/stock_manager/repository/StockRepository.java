@@ -1,7 +1,59 @@
 package com.example.stock_manager.repository;
 
 import com.example.stock_manager.model.Stock;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface StockRepository extends JpaRepository<Stock, String> {
-}
\ No newline at end of file
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface StockRepository extends JpaRepository<Stock, String>, StockPositionWrites {
+
+    // Letture frequenti servite dalla query cache (se attiva); le scritture su stock la invalidano
+    @Override
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Stock.QUERY_CACHE_REGION)
+    })
+    List<Stock> findAll();
+
+    @Override
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Stock.QUERY_CACHE_REGION)
+    })
+    boolean existsById(String symbol);
+
+    // Paginazione keyset: la pagina successiva parte dall'ultimo simbolo restituito
+    List<Stock> findAllByOrderBySymbolAsc(Limit limit);
+
+    List<Stock> findBySymbolGreaterThanOrderBySymbolAsc(String symbol, Limit limit);
+
+    @Query("select s from Stock s order by s.symbol")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Stock> streamAllByOrderBySymbol();
+
+    @Query("select s.quantity from Stock s where s.symbol = :symbol")
+    Optional<Integer> findQuantityBySymbol(@Param("symbol") String symbol);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from Stock s where s.symbol = :symbol")
+    Optional<Stock> findForUpdateBySymbol(@Param("symbol") String symbol);
+
+    // Blocca e legge in una sola istruzione le posizioni toccate da un batch
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from Stock s where s.symbol in :symbols")
+    List<Stock> findAllForUpdateBySymbolIn(@Param("symbols") Collection<String> symbols);
+}
@@ -0,0 +1,341 @@
+package com.example.stock_manager.service;
+
+import com.example.stock_manager.event.PositionChangedEvent;
+import com.example.stock_manager.event.PriceUpdatedEvent;
+import com.example.stock_manager.exception.StaleCursorException;
+import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.offheap.OffHeapPositionStore;
+import com.example.stock_manager.repository.StockRepository;
+import com.example.stock_manager.valuation.FixedPoint;
+import com.example.stock_manager.valuation.ValueAccumulator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Mantiene quantita' totale, valore totale e numero di posizioni applicando i delta
+ * delle scritture (dopo il commit) e degli aggiornamenti di prezzo, cosi' che le
+ * letture aggregate non debbano riscorrere l'intera tabella. Tiene inoltre un indice
+ * delle posizioni ordinato per valore decrescente (a parita', per simbolo).
+ * <p>
+ * Rebuild e reconcile non contano due volte un commit: ogni transazione con eventi di
+ * posizione tiene il lato in lettura di {@code commits} da prima del commit fino a
+ * quando il suo delta e' stato applicato, e il ricalcolo prende il lato in scrittura.
+ * Un commit e' quindi tutto prima della lettura dal database (delta scartato dal reset)
+ * o tutto dopo (delta applicato), mai a cavallo; durante il ricalcolo i commit attendono.
+ * <p>
+ * Se il book fuori heap e' abilitato, rebuild, reconcile e delta dei commit lo tengono
+ * allineato sotto lo stesso lock e lo stesso gate dei commit.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PortfolioAggregator {
+
+    public static final int LISTENER_ORDER = 0;
+
+    private final StockRepository stockRepository;
+    private final StockPriceService stockPriceService;
+    private final ObjectProvider<OffHeapPositionStore> offHeapPositions;
+
+    private static final Comparator<Position> BY_VALUE_DESC = Comparator
+            .comparingDouble((Position p) -> p.value).reversed()
+            .thenComparing(p -> p.symbol);
+
+    // rebuild e reconcile leggono il database sotto questo lock: niente synchronized (pinning)
+    private final ReentrantLock lock = new ReentrantLock();
+    // commit con eventi di posizione in corso (lettura) contro rebuild/reconcile (scrittura)
+    private final ReentrantReadWriteLock commits = new ReentrantReadWriteLock();
+    private final Map<String, Position> positions = new HashMap<>();
+    private final NavigableSet<Position> byValue = new TreeSet<>(BY_VALUE_DESC);
+    // somme in virgola fissa: i delta si compensano esattamente, senza deriva
+    private final ValueAccumulator running = new ValueAccumulator();
+    private volatile Totals totals = Totals.EMPTY;
+    private volatile ValuedPosition highest;
+
+    public Totals totals() {
+        return totals;
+    }
+
+    public Optional<ValuedPosition> highestValue() {
+        return Optional.ofNullable(highest);
+    }
+
+    public Optional<ValuedPosition> position(String symbol) {
+        lock.lock();
+        try {
+            Position position = positions.get(symbol);
+            return position == null ? Optional.empty() : Optional.of(position.snapshot());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Le prime {@code limit} posizioni per valore, senza riordinare il portafoglio.
+     */
+    public List<ValuedPosition> topByValue(int limit) {
+        lock.lock();
+        try {
+            return collect(byValue.iterator(), limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Pagina successiva dell'ordinamento per valore, a partire dalla posizione
+     * che segue {@code afterSymbol}. Un simbolo non piu' presente (posizione chiusa o
+     * eliminata) non ha piu' un posto nell'ordinamento: il cursore e' scaduto e il client
+     * deve ripartire dalla prima pagina.
+     */
+    public List<ValuedPosition> pageByValue(String afterSymbol, int limit) {
+        lock.lock();
+        try {
+            Position after = positions.get(afterSymbol);
+            if (after == null) {
+                throw new StaleCursorException(afterSymbol);
+            }
+            return collect(byValue.tailSet(after, false).iterator(), limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        commits.writeLock().lock();
+        lock.lock();
+        try {
+            long started = System.nanoTime();
+            reset(load());
+            log.info("Portfolio aggregates rebuilt in {} ms: {}",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), totals);
+        } finally {
+            lock.unlock();
+            commits.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Confronta gli aggregati incrementali con un ricalcolo completo; se divergono
+     * li riallinea al ricalcolo.
+     */
+    public Reconciliation reconcile() {
+        commits.writeLock().lock();
+        lock.lock();
+        try {
+            Map<String, Position> recomputed = load();
+            Totals expected = sum(recomputed);
+            Totals actual = totals;
+            boolean consistent = expected.matches(actual);
+            if (!consistent) {
+                log.warn("Portfolio aggregates drifted: expected {} but was {}", expected, actual);
+                reset(recomputed);
+            }
+            return new Reconciliation(consistent, expected, actual);
+        } finally {
+            lock.unlock();
+            commits.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Prima del commit: il commit non puo' iniziare durante un rebuild o un reconcile.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onPositionCommitting(PositionChangedEvent event) {
+        commits.readLock().lock();
+    }
+
+    /**
+     * Dopo il commit (o il rollback) e dopo {@link #onPositionChanged}: rilascia il commit.
+     * Un rollback prima di BEFORE_COMMIT arriva qui senza aver preso nulla.
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onPositionCompleted(PositionChangedEvent event) {
+        if (commits.getReadHoldCount() > 0) {
+            commits.readLock().unlock();
+        }
+    }
+
+    // ordine esplicito: chi legge gli aggregati in risposta allo stesso evento li trova aggiornati
+    @Order(LISTENER_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPositionChanged(PositionChangedEvent event) {
+        lock.lock();
+        try {
+            // Solo delta: gli eventi di transazioni diverse possono arrivare fuori ordine
+            Position position = positions.get(event.symbol());
+            if (position == null) {
+                position = new Position(event.symbol(), stockPriceService.getPrice(event.symbol()));
+                positions.put(event.symbol(), position);
+            } else {
+                byValue.remove(position);
+            }
+            position.quantity += event.quantityDelta();
+            running.add(position.priceMicros, event.quantityDelta());
+            if (position.quantity == 0) {
+                // posizione chiusa (le righe a quantita' zero vengono sempre eliminate)
+                positions.remove(event.symbol());
+            } else {
+                position.revalue();
+                byValue.add(position);
+            }
+            publishTotals();
+            OffHeapPositionStore offHeap = offHeapPositions.getIfAvailable();
+            if (offHeap != null) {
+                offHeap.applyDelta(event.symbol(), event.quantityDelta());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Order(LISTENER_ORDER)
+    @EventListener
+    public void onPriceUpdated(PriceUpdatedEvent event) {
+        lock.lock();
+        try {
+            Position position = positions.get(event.symbol());
+            if (position == null) {
+                return;
+            }
+            byValue.remove(position);
+            long priceMicros = FixedPoint.toMicros(event.price());
+            running.addValue(priceMicros - position.priceMicros, position.quantity);
+            position.setPrice(event.price(), priceMicros);
+            position.revalue();
+            byValue.add(position);
+            publishTotals();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Map<String, Position> load() {
+        List<Stock> stocks = stockRepository.findAll();
+        double[] prices = stockPriceService.getPrices(stocks.stream().map(Stock::getSymbol).toArray(String[]::new));
+        Map<String, Position> loaded = new HashMap<>(stocks.size() * 2);
+        for (int i = 0; i < prices.length; i++) {
+            Position position = new Position(stocks.get(i).getSymbol(), prices[i]);
+            position.quantity = stocks.get(i).getQuantity();
+            position.revalue();
+            loaded.put(position.symbol, position);
+        }
+        return loaded;
+    }
+
+    private void reset(Map<String, Position> loaded) {
+        positions.clear();
+        positions.putAll(loaded);
+        byValue.clear();
+        byValue.addAll(loaded.values());
+        running.reset();
+        for (Position position : positions.values()) {
+            running.add(position.priceMicros, position.quantity);
+        }
+        totals = new Totals(running.totalQuantity(), running.totalValue(), positions.size());
+        highest = byValue.isEmpty() ? null : byValue.first().snapshot();
+        OffHeapPositionStore offHeap = offHeapPositions.getIfAvailable();
+        if (offHeap != null) {
+            String[] symbols = new String[positions.size()];
+            int[] quantities = new int[symbols.length];
+            int i = 0;
+            for (Position position : positions.values()) {
+                symbols[i] = position.symbol;
+                quantities[i++] = Math.toIntExact(position.quantity);
+            }
+            offHeap.replaceAll(symbols, quantities);
+        }
+    }
+
+    private void publishTotals() {
+        totals = new Totals(running.totalQuantity(), running.totalValue(), positions.size());
+        highest = byValue.isEmpty() ? null : byValue.first().snapshot();
+    }
+
+    private static List<ValuedPosition> collect(Iterator<Position> iterator, int limit) {
+        List<ValuedPosition> page = new ArrayList<>(Math.min(limit, 256));
+        while (page.size() < limit && iterator.hasNext()) {
+            page.add(iterator.next().snapshot());
+        }
+        return page;
+    }
+
+    private static Totals sum(Map<String, Position> positions) {
+        ValueAccumulator sum = new ValueAccumulator();
+        for (Position position : positions.values()) {
+            sum.add(position.priceMicros, position.quantity);
+        }
+        return new Totals(sum.totalQuantity(), sum.totalValue(), positions.size());
+    }
+
+    private static final class Position {
+        private final String symbol;
+        private long quantity;
+        private double price;
+        private long priceMicros;
+        // chiave dell'indice: va aggiornata solo quando la posizione e' fuori dal TreeSet
+        private double value;
+
+        private Position(String symbol, double price) {
+            this.symbol = symbol;
+            setPrice(price, FixedPoint.toMicros(price));
+        }
+
+        private void setPrice(double price, long priceMicros) {
+            this.price = price;
+            this.priceMicros = priceMicros;
+        }
+
+        private void revalue() {
+            value = FixedPoint.value(priceMicros, quantity);
+        }
+
+        private ValuedPosition snapshot() {
+            return new ValuedPosition(symbol, quantity, price, value);
+        }
+    }
+
+    public record Totals(long totalQuantity, double totalValue, int positionCount) {
+
+        static final Totals EMPTY = new Totals(0, 0.0, 0);
+
+        public double averagePricePerShare() {
+            return totalQuantity > 0 ? totalValue / totalQuantity : 0.0;
+        }
+
+        boolean matches(Totals other) {
+            double tolerance = 1e-9 * Math.max(Math.abs(totalValue), 1.0);
+            return totalQuantity == other.totalQuantity
+                    && positionCount == other.positionCount
+                    && Math.abs(totalValue - other.totalValue) <= tolerance;
+        }
+    }
+
+    public record Reconciliation(boolean consistent, Totals expected, Totals actual) {
+    }
+}
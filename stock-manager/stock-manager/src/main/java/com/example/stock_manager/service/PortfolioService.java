@@ -2,55 +2,75 @@ package com.example.stock_manager.service;
 
 import com.example.stock_manager.dto.PortfolioSummary;
 import com.example.stock_manager.dto.StockValueResponse;
-import com.example.stock_manager.mapper.StockMapper;
 import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.offheap.OffHeapPositionStore;
 import com.example.stock_manager.repository.StockRepository;
+import com.example.stock_manager.symbol.SymbolRegistry;
+import com.example.stock_manager.valuation.FixedPoint;
+import com.example.stock_manager.valuation.PortfolioValuator;
+import com.example.stock_manager.valuation.PortfolioValuator.Valuation;
+import com.example.stock_manager.valuation.ValueAccumulator;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
+@Timed(value = "stock.service", histogram = true, percentiles = {0.5, 0.95, 0.99})
 public class PortfolioService {
 
     private final StockRepository stockRepository; // Nuova dipendenza
     private final StockPriceService stockPriceService;
+    private final PortfolioAggregator portfolioAggregator;
+    private final PortfolioValuator portfolioValuator;
+    private final SymbolRegistry symbolRegistry;
+    private final ObjectProvider<OffHeapPositionStore> offHeapPositions;
 
     public double getTotalValue() {
-        return getTotalValue(stockRepository.findAll());
+        return portfolioAggregator.totals().totalValue();
     }
 
     public double getTotalValue(List<Stock> stocks) {
         if (stocks == null || stocks.isEmpty()) return 0.0;
-        return stocks.stream()
-                .mapToDouble(s -> stockPriceService.getPrice(s.getSymbol()) * s.getQuantity())
-                .sum();
+        return valuate(stocks, false).totalValue();
     }
 
     public double getAveragePricePerShare() {
-        return getAveragePricePerShare(stockRepository.findAll());
+        return portfolioAggregator.totals().averagePricePerShare();
     }
 
     public double getAveragePricePerShare(List<Stock> stocks) {
         if (stocks == null || stocks.isEmpty()) return 0.0;
-        int totalQuantity = stocks.stream()
-                .mapToInt(Stock::getQuantity)
-                .sum();
-
-        if (totalQuantity == 0) return 0.0;
-
-        double totalValue = getTotalValue(stocks);
-        return totalValue / totalQuantity;
+        return valuate(stocks, false).averagePricePerShare();
     }
 
     public PortfolioSummary getPortfolioSummary() {
-        return getPortfolioSummary(stockRepository.findAll());
+        return getPortfolioSummary(true);
+    }
+
+    /**
+     * Con il book fuori heap abilitato scandisce i suoi record invece di caricare le entita';
+     * senza dettagli la scansione calcola solo i totali e non alloca per posizione.
+     */
+    public PortfolioSummary getPortfolioSummary(boolean withDetails) {
+        OffHeapPositionStore offHeap = offHeapPositions.getIfAvailable();
+        if (offHeap != null) {
+            return withDetails ? offHeapSummaryWithDetails(offHeap) : offHeapSummary(offHeap);
+        }
+        return summary(stockRepository.findAll(), withDetails);
     }
 
     public PortfolioSummary getPortfolioSummary(List<Stock> stocks) {
+        return summary(stocks, true);
+    }
+
+    private PortfolioSummary summary(List<Stock> stocks, boolean withDetails) {
         if (stocks == null || stocks.isEmpty()) {
             return PortfolioSummary.builder()
                     .totalValue(0.0)
@@ -61,38 +81,80 @@ public class PortfolioService {
                     .build();
         }
 
-        List<StockValueResponse> details = stocks.stream()
-                .map(stock -> StockMapper.toValueResponse(stock, stockPriceService.getPrice(stock.getSymbol())))
-                .toList();
-
-        int totalQuantity = stocks.stream()
-                .mapToInt(Stock::getQuantity)
-                .sum();
-
-        // Calcoliamo totalValue qui per evitare una seconda query al DB se chiamassimo getTotalValue()
-        double totalPortfolioValue = details.stream().mapToDouble(StockValueResponse::getTotalValue).sum();
-
+        // Un solo snapshot dei prezzi e una sola riduzione (parallela oltre la soglia) per dettagli e totali
+        Valuation valuation = valuate(stocks, withDetails);
         return PortfolioSummary.builder()
-                .totalValue(totalPortfolioValue)
-                .averagePricePerShare(totalQuantity > 0 ? totalPortfolioValue / totalQuantity : 0)
+                .totalValue(valuation.totalValue())
+                .averagePricePerShare(valuation.averagePricePerShare())
                 .totalStocks(stocks.size())
-                .totalQuantity(totalQuantity)
-                .stockDetails(details)
+                .totalQuantity(valuation.totalQuantity())
+                .stockDetails(valuation.details())
                 .build();
     }
 
     public Stock findHighestValueStock() {
-        return findHighestValueStock(stockRepository.findAll());
+        return portfolioAggregator.highestValue()
+                .map(p -> Stock.builder().symbol(p.symbol()).quantity((int) p.quantity()).build())
+                .orElse(null);
+    }
+
+    public List<ValuedPosition> getPositionsByValue(int limit) {
+        return portfolioAggregator.topByValue(limit);
+    }
+
+    public List<ValuedPosition> getPositionsByValue(String after, int limit) {
+        if (after == null) {
+            return getPositionsByValue(limit);
+        }
+        return portfolioAggregator.pageByValue(symbolRegistry.canonical(after), limit);
     }
 
     public Stock findHighestValueStock(List<Stock> stocks) {
         if (stocks == null || stocks.isEmpty()) return null;
-        return stocks.stream()
-                .max((s1, s2) -> {
-                    double value1 = stockPriceService.getPrice(s1.getSymbol()) * s1.getQuantity();
-                    double value2 = stockPriceService.getPrice(s2.getSymbol()) * s2.getQuantity();
-                    return Double.compare(value1, value2);
-                })
-                .orElse(null);
+        return stocks.get(valuate(stocks, false).highestIndex());
+    }
+
+    private PortfolioSummary offHeapSummary(OffHeapPositionStore offHeap) {
+        OffHeapPositionStore.Totals totals = offHeap.valuate(stockPriceService::getPrice);
+        return PortfolioSummary.builder()
+                .totalValue(totals.totalValue())
+                .averagePricePerShare(totals.averagePricePerShare())
+                .totalStocks(totals.positions())
+                .totalQuantity(totals.totalQuantity())
+                .stockDetails(List.of())
+                .build();
+    }
+
+    // dettagli e totali nella stessa scansione: restano coerenti tra loro
+    private PortfolioSummary offHeapSummaryWithDetails(OffHeapPositionStore offHeap) {
+        List<StockValueResponse> details = new ArrayList<>(offHeap.size());
+        ValueAccumulator totals = new ValueAccumulator();
+        offHeap.forEach((symbolId, quantity) -> {
+            double price = stockPriceService.getPrice(symbolId);
+            long priceMicros = FixedPoint.toMicros(price);
+            totals.add(priceMicros, quantity);
+            // un solo oggetto per posizione, quello restituito
+            details.add(new StockValueResponse(symbolRegistry.name(symbolId), quantity, price,
+                    FixedPoint.value(priceMicros, quantity)));
+        });
+        return PortfolioSummary.builder()
+                .totalValue(totals.totalValue())
+                .averagePricePerShare(totals.averagePricePerShare())
+                .totalStocks(details.size())
+                .totalQuantity(totals.totalQuantity())
+                .stockDetails(details)
+                .build();
+    }
+
+    private Valuation valuate(List<Stock> stocks, boolean withDetails) {
+        return portfolioValuator.valuate(stocks, pricesOf(stocks), withDetails);
+    }
+
+    private double[] pricesOf(List<Stock> stocks) {
+        String[] symbols = new String[stocks.size()];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = stocks.get(i).getSymbol();
+        }
+        return stockPriceService.getPrices(symbols);
     }
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.example.stock_manager.service;
+
+import com.example.stock_manager.event.PositionChangedEvent;
+import com.example.stock_manager.event.PriceUpdatedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versione monotona del portafoglio della casa, usata come ETag forte dagli endpoint
+ * di lettura: cresce a ogni variazione di posizione (dopo il commit, cosi' nessuno vede
+ * la nuova versione con i dati vecchi) e a ogni aggiornamento di prezzo. L'epoca di avvio
+ * nell'ETag evita che, dopo un riavvio, una versione ripartita da zero combaci con una vecchia.
+ */
+@Component
+public class PortfolioVersion {
+
+    private final String epoch = Long.toHexString(System.currentTimeMillis());
+    private final AtomicLong version = new AtomicLong();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPositionChanged(PositionChangedEvent event) {
+        version.incrementAndGet();
+    }
+
+    @EventListener
+    public void onPriceUpdated(PriceUpdatedEvent event) {
+        version.incrementAndGet();
+    }
+
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * ETag forte (tra virgolette) della versione corrente.
+     */
+    public String etag() {
+        return "\"" + epoch + "-" + version.get() + "\"";
+    }
+}
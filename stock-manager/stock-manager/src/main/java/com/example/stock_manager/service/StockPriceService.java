@@ -1,5 +1,31 @@
 package com.example.stock_manager.service;
 
+import java.util.Collection;
+
 public interface StockPriceService {
     double getPrice(String symbol);
-}
\ No newline at end of file
+
+    /**
+     * Prezzo per id del {@code SymbolRegistry}, per le scansioni che conoscono gia'
+     * l'id (es. il book fuori heap): stesso risultato di {@link #getPrice(String)}.
+     *
+     * @throws IllegalArgumentException se l'id non e' stato assegnato
+     */
+    double getPrice(int symbolId);
+
+    /**
+     * Prezzi per piu' simboli in un solo passaggio; l'ordine del risultato
+     * segue quello dei simboli in input.
+     */
+    default double[] getPrices(String[] symbols) {
+        double[] prices = new double[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            prices[i] = getPrice(symbols[i]);
+        }
+        return prices;
+    }
+
+    default double[] getPrices(Collection<String> symbols) {
+        return getPrices(symbols.toArray(String[]::new));
+    }
+}
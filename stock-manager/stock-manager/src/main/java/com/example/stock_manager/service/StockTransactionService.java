@@ -1,32 +1,59 @@
 package com.example.stock_manager.service;
 
+import com.example.stock_manager.dto.BatchTransactionResponse;
 import com.example.stock_manager.dto.CreateStockRequest;
+import com.example.stock_manager.dto.TransactionLegRequest;
+import com.example.stock_manager.dto.TransactionLegResult;
 import com.example.stock_manager.dto.UpdateStockRequest;
+import com.example.stock_manager.event.PositionChangedEvent;
+import com.example.stock_manager.event.PositionChangedEvent.Operation;
 import com.example.stock_manager.exception.DuplicateStockException;
 import com.example.stock_manager.exception.InsufficientStockException;
+import com.example.stock_manager.exception.QuantityOverflowException;
 import com.example.stock_manager.exception.StockNotFoundException;
+import com.example.stock_manager.metrics.StockMetrics;
 import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.model.TransactionSide;
 import com.example.stock_manager.repository.StockRepository;
+import com.example.stock_manager.symbol.SymbolRegistry;
+import com.example.stock_manager.symbol.Symbols;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
+@Timed(value = "stock.service", histogram = true, percentiles = {0.5, 0.95, 0.99})
 public class StockTransactionService {
 
     private final StockRepository stockRepository;
     private final StockPriceService stockPriceService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+    private final StockMetrics stockMetrics;
+    private final SymbolRegistry symbolRegistry;
 
     // --- CRUD OPERATIONS ---
 
     @Transactional
     public Stock createStock(CreateStockRequest request) {
-        String symbol = request.getSymbol().toUpperCase();
+        String symbol = symbolRegistry.canonical(request.getSymbol());
 
         if (stockRepository.existsById(symbol)) {
             throw new DuplicateStockException(symbol);
@@ -38,6 +65,7 @@ public class StockTransactionService {
                 .build();
 
         Stock saved = stockRepository.save(stock);
+        eventPublisher.publishEvent(new PositionChangedEvent(symbol, saved.getQuantity(), Operation.CREATE));
         log.info("Created new stock: {}", symbol);
         return saved;
     }
@@ -47,29 +75,58 @@ public class StockTransactionService {
         return stockRepository.findAll();
     }
 
+    /**
+     * Pagina ordinata per simbolo che parte dopo {@code after} (dall'inizio se null).
+     */
+    @Transactional(readOnly = true)
+    public List<Stock> getStocksPage(String after, int limit) {
+        if (after == null) {
+            return stockRepository.findAllByOrderBySymbolAsc(Limit.of(limit));
+        }
+        return stockRepository.findBySymbolGreaterThanOrderBySymbolAsc(symbolRegistry.canonical(after), Limit.of(limit));
+    }
+
+    /**
+     * Scorre tutte le posizioni in ordine di simbolo senza materializzare la lista:
+     * ogni entita' viene staccata dal persistence context appena consumata.
+     */
+    @Transactional(readOnly = true)
+    public void streamAllStocks(Consumer<Stock> consumer) {
+        try (Stream<Stock> stocks = stockRepository.streamAllByOrderBySymbol()) {
+            stocks.forEach(stock -> {
+                consumer.accept(stock);
+                entityManager.detach(stock);
+            });
+        }
+    }
+
     @Transactional(readOnly = true)
     public Stock getStockBySymbol(String symbol) {
-        return stockRepository.findById(symbol.toUpperCase())
+        return stockRepository.findById(symbolRegistry.canonical(symbol))
                 .orElseThrow(() -> new StockNotFoundException(symbol));
     }
 
     @Transactional
     public Stock updateStock(String symbol, UpdateStockRequest request) {
-GAl        Stock existing = getStockBySymbol(symbol); // Riutilizza la logica di ricerca
+        Stock existing = getStockBySymbol(symbol); // Riutilizza la logica di ricerca
+        int previousQuantity = existing.getQuantity();
         existing.setQuantity(request.getQuantity());
         
         Stock updated = stockRepository.save(existing);
+        eventPublisher.publishEvent(new PositionChangedEvent(updated.getSymbol(),
+                (long) updated.getQuantity() - previousQuantity, Operation.UPDATE));
         log.info("Updated quantity for stock: {}", symbol);
         return updated;
     }
 
     @Transactional
     public void deleteStock(String symbol) {
-        String upperSymbol = symbol.toUpperCase();
-        if (!stockRepository.existsById(upperSymbol)) {
-            throw new StockNotFoundException(symbol);
-        }
-        stockRepository.deleteById(upperSymbol);
+        String upperSymbol = symbolRegistry.canonical(symbol);
+        // lock sulla riga: la quantita' rimossa non puo' cambiare prima della DELETE
+        Stock stock = stockRepository.findForUpdateBySymbol(upperSymbol)
+                .orElseThrow(() -> new StockNotFoundException(symbol));
+        stockRepository.delete(stock);
+        eventPublisher.publishEvent(new PositionChangedEvent(upperSymbol, -stock.getQuantity(), Operation.DELETE));
         log.info("Deleted stock: {}", upperSymbol);
     }
 
@@ -81,22 +138,17 @@ GAl        Stock existing = getStockBySymbol(symbol); // Riutilizza la logica di
             throw new IllegalArgumentException("Quantity must be positive");
         }
 
-        String upperSymbol = symbol.toUpperCase();
+        String upperSymbol = symbolRegistry.canonical(symbol);
         double price = stockPriceService.getPrice(upperSymbol);
 
-        Stock stock = stockRepository.findById(upperSymbol)
-                .orElse(Stock.builder()
-                        .symbol(upperSymbol)
-                        .quantity(0)
-                        .build());
-
-        stock.setQuantity(stock.getQuantity() + quantity);
-        Stock saved = stockRepository.save(stock);
+        // Upsert atomico che restituisce il totale: una sola istruzione, nessun aggiornamento perso
+        int total = stockRepository.addQuantity(upperSymbol, quantity);
+        eventPublisher.publishEvent(new PositionChangedEvent(upperSymbol, quantity, Operation.BUY));
 
         log.info("Bought {} shares of {} at price {} (total: {})",
-                quantity, upperSymbol, price, saved.getQuantity());
+                quantity, upperSymbol, price, total);
 
-        return saved;
+        return Stock.builder().symbol(upperSymbol).quantity(total).build();
     }
 
     @Transactional
@@ -105,25 +157,156 @@ GAl        Stock existing = getStockBySymbol(symbol); // Riutilizza la logica di
             throw new IllegalArgumentException("Quantity must be positive");
         }
 
-        Stock stock = getStockBySymbol(symbol);
+        String upperSymbol = symbolRegistry.canonical(symbol);
 
-        if (stock.getQuantity() < quantity) {
-            throw new InsufficientStockException(stock.getSymbol(), stock.getQuantity(), quantity);
+        int remaining = decrement(symbol, upperSymbol, quantity);
+        eventPublisher.publishEvent(new PositionChangedEvent(upperSymbol, -quantity, Operation.SELL));
+        if (remaining == 0) {
+            log.info("Sold all {} shares of {} - stock removed", quantity, upperSymbol);
+            return null;
         }
 
-        stock.setQuantity(stock.getQuantity() - quantity);
+        double price = stockPriceService.getPrice(upperSymbol);
+        log.info("Sold {} shares of {} at price {} (remaining: {})",
+                quantity, upperSymbol, price, remaining);
+        return Stock.builder().symbol(upperSymbol).quantity(remaining).build();
+    }
 
-        if (stock.getQuantity() == 0) {
-            stockRepository.delete(stock);
-            log.info("Sold all {} shares of {} - stock removed", quantity, stock.getSymbol());
-            return null;
+    /**
+     * Applica con una sola istruzione piu' operazioni accorpate sullo stesso simbolo
+     * (vedi {@code StripedWriteEngine}). {@code fills} contiene le quantita' eseguite,
+     * positive per gli acquisti e negative per le vendite; viene pubblicato un evento per
+     * ciascuna. Restituisce la quantita' risultante, 0 se la posizione e' stata chiusa.
+     */
+    @Transactional
+    public int applyFills(String symbol, int[] fills) {
+        String upperSymbol = symbolRegistry.canonical(symbol);
+        int delta = 0;
+        for (int fill : fills) {
+            delta += fill;
+        }
+        int quantity;
+        if (delta > 0) {
+            quantity = stockRepository.addQuantity(upperSymbol, delta);
+        } else if (delta < 0) {
+            quantity = decrement(symbol, upperSymbol, -delta);
         } else {
-            Stock saved = stockRepository.save(stock);
-            double price = stockPriceService.getPrice(stock.getSymbol());
-            log.info("Sold {} shares of {} at price {} (remaining: {})",
-                    quantity, stock.getSymbol(), price, saved.getQuantity());
-            return saved;
+            quantity = stockRepository.findQuantityBySymbol(upperSymbol).orElse(0);
+        }
+        for (int fill : fills) {
+            eventPublisher.publishEvent(new PositionChangedEvent(upperSymbol, fill,
+                    fill > 0 ? Operation.BUY : Operation.SELL));
         }
+        log.debug("Applied {} fills to {} (net: {}, total: {})", fills.length, upperSymbol, delta, quantity);
+        return quantity;
+    }
+
+    /**
+     * Applica tutte le gambe in un'unica transazione. Una gamba rifiutata non annulla le
+     * altre: l'errore viene riportato nel suo risultato.
+     * <p>
+     * Le gambe vengono raggruppate per simbolo: una sola SELECT ... FOR UPDATE blocca e legge
+     * tutte le posizioni coinvolte, le gambe di ogni simbolo vengono valutate in memoria
+     * nell'ordine ricevuto e quelle eseguite vengono scritte con {@link #applyFills}, cioe'
+     * un'istruzione per simbolo invece che una per gamba. Gli eventi restano in ordine di
+     * gamba all'interno di ciascun simbolo.
+     */
+    @Transactional
+    public BatchTransactionResponse executeBatch(List<TransactionLegRequest> legs) {
+        TransactionLegResult[] results = new TransactionLegResult[legs.size()];
+        Map<String, List<Integer>> legsBySymbol = new LinkedHashMap<>();
+        for (int i = 0; i < legs.size(); i++) {
+            TransactionLegRequest leg = legs.get(i);
+            try {
+                if (leg.getQuantity() <= 0) {
+                    throw new IllegalArgumentException("Quantity must be positive");
+                }
+                if (!Symbols.isValid(leg.getSymbol())) {
+                    throw new IllegalArgumentException("Invalid symbol: " + leg.getSymbol());
+                }
+                legsBySymbol.computeIfAbsent(symbolRegistry.canonical(leg.getSymbol()), s -> new ArrayList<>()).add(i);
+            } catch (IllegalArgumentException e) {
+                results[i] = rejected(i, leg, leg.getSymbol(), e);
+            }
+        }
+
+        Map<String, Integer> held = new HashMap<>();
+        if (!legsBySymbol.isEmpty()) {
+            for (Stock stock : stockRepository.findAllForUpdateBySymbolIn(legsBySymbol.keySet())) {
+                held.put(stock.getSymbol(), stock.getQuantity());
+            }
+        }
+        for (Map.Entry<String, List<Integer>> entry : legsBySymbol.entrySet()) {
+            String symbol = entry.getKey();
+            int quantity = held.getOrDefault(symbol, 0);
+            boolean exists = held.containsKey(symbol);
+            int[] fills = new int[entry.getValue().size()];
+            int count = 0;
+            for (int i : entry.getValue()) {
+                TransactionLegRequest leg = legs.get(i);
+                try {
+                    if (leg.getSide() == TransactionSide.BUY) {
+                        try {
+                            quantity = Math.addExact(quantity, leg.getQuantity());
+                        } catch (ArithmeticException e) {
+                            throw new QuantityOverflowException(symbol, quantity, leg.getQuantity());
+                        }
+                        exists = true;
+                        fills[count++] = leg.getQuantity();
+                    } else {
+                        if (!exists) {
+                            throw new StockNotFoundException(leg.getSymbol());
+                        }
+                        if (quantity < leg.getQuantity()) {
+                            throw new InsufficientStockException(symbol, quantity, leg.getQuantity());
+                        }
+                        quantity -= leg.getQuantity();
+                        exists = quantity > 0;
+                        fills[count++] = -leg.getQuantity();
+                    }
+                    results[i] = result(i, leg, symbol)
+                            .status(TransactionLegResult.Status.FILLED)
+                            .resultingQuantity(quantity)
+                            .build();
+                } catch (InsufficientStockException | StockNotFoundException | QuantityOverflowException e) {
+                    results[i] = rejected(i, leg, symbol, e);
+                }
+            }
+            if (count > 0) {
+                applyFills(symbol, Arrays.copyOf(fills, count));
+            }
+        }
+
+        int filled = 0;
+        for (TransactionLegResult result : results) {
+            if (result.getStatus() == TransactionLegResult.Status.FILLED) {
+                filled++;
+            }
+        }
+        log.info("Executed batch of {} legs on {} symbols: {} filled, {} rejected",
+                legs.size(), legsBySymbol.size(), filled, legs.size() - filled);
+        return BatchTransactionResponse.builder()
+                .filled(filled)
+                .rejected(legs.size() - filled)
+                .results(Arrays.asList(results))
+                .build();
+    }
+
+    private TransactionLegResult rejected(int index, TransactionLegRequest leg, String symbol, RuntimeException e) {
+        stockMetrics.rejected(e);
+        return result(index, leg, symbol)
+                .status(TransactionLegResult.Status.REJECTED)
+                .error(e.getMessage())
+                .build();
+    }
+
+    private static TransactionLegResult.TransactionLegResultBuilder result(int index, TransactionLegRequest leg,
+                                                                           String symbol) {
+        return TransactionLegResult.builder()
+                .index(index)
+                .side(leg.getSide())
+                .symbol(symbol)
+                .quantity(leg.getQuantity());
     }
 
     public double calculateTotalInvestment(String symbol) {
@@ -134,12 +317,35 @@ GAl        Stock existing = getStockBySymbol(symbol); // Riutilizza la logica di
 
     public List<Stock> getStocksByValue() {
         List<Stock> stocks = stockRepository.findAll();
-        return stocks.stream()
-                .sorted((s1, s2) -> {
-                    double value1 = stockPriceService.getPrice(s1.getSymbol()) * s1.getQuantity();
-                    double value2 = stockPriceService.getPrice(s2.getSymbol()) * s2.getQuantity();
-                    return Double.compare(value2, value1); 
-                })
-                .toList();
+        if (stocks.isEmpty()) return List.of();
+
+        String[] symbols = new String[stocks.size()];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = stocks.get(i).getSymbol();
+        }
+        double[] prices = stockPriceService.getPrices(symbols);
+
+        // Il valore viene calcolato una volta per titolo, non a ogni confronto del sort
+        List<ValuedStock> valued = new ArrayList<>(stocks.size());
+        for (int i = 0; i < prices.length; i++) {
+            Stock stock = stocks.get(i);
+            valued.add(new ValuedStock(stock, prices[i] * stock.getQuantity()));
+        }
+        valued.sort(Comparator.comparingDouble(ValuedStock::value).reversed());
+        return valued.stream().map(ValuedStock::stock).toList();
+    }
+
+    /**
+     * Decremento condizionale in una sola istruzione: fallisce se il titolo manca o non basta,
+     * altrimenti restituisce la quantita' rimasta (0 se la posizione e' stata eliminata).
+     */
+    private int decrement(String symbol, String upperSymbol, int quantity) {
+        return stockRepository.removeQuantity(upperSymbol, quantity).orElseThrow(() -> {
+            Stock stock = getStockBySymbol(symbol);
+            return new InsufficientStockException(stock.getSymbol(), stock.getQuantity(), quantity);
+        });
+    }
+
+    private record ValuedStock(Stock stock, double value) {
     }
 }
\ No newline at end of file
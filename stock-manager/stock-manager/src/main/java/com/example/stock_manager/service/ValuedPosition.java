@@ -0,0 +1,7 @@
+package com.example.stock_manager.service;
+
+/**
+ * Fotografia immutabile di una posizione con il prezzo usato per valorizzarla.
+ */
+public record ValuedPosition(String symbol, long quantity, double price, double value) {
+}
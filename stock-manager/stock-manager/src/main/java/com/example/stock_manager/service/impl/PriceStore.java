@@ -0,0 +1,216 @@
+package com.example.stock_manager.service.impl;
+
+import com.example.stock_manager.symbol.SymbolRegistry;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * Archivio prezzi thread-safe indicizzato per id del {@link SymbolRegistry}: il prezzo
+ * vive in uno slot {@code double} primitivo (bit grezzi in un {@link AtomicLongArray}).
+ * Nessun lock: letture e scritture singole sono atomiche sullo slot. Le letture multiple
+ * sono un seqlock per blocco di slot: ogni scrittura incrementa {@code started} prima e
+ * {@code finished} dopo, e la lettura e' valida se nessun blocco letto aveva scritture
+ * in corso o ne ha iniziate di nuove. Gli scrittori non si escludono tra loro; solo un
+ * lettore che fallisce piu' volte di seguito li ferma per il tempo della sua lettura.
+ */
+public final class PriceStore {
+
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // 0L == +0.0: i prezzi validi sono sempre positivi, quindi indica uno slot vuoto
+    private static final long EMPTY = 0L;
+
+    private static final int OPTIMISTIC_ATTEMPTS = 3;
+
+    private final SymbolRegistry symbols;
+    private final Object growLock = new Object();
+    // lettori in attesa di una fotografia: finche' > 0 le nuove scritture aspettano
+    private final AtomicInteger pausingReaders = new AtomicInteger();
+    private volatile Chunk[] chunks = new Chunk[0];
+
+    public PriceStore(SymbolRegistry symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * Restituisce l'id del simbolo oppure -1 se non ha ancora uno slot in questo archivio.
+     */
+    public int idOf(String symbol) {
+        int id = symbols.find(symbol);
+        return id >= 0 && (id >>> CHUNK_BITS) < chunks.length ? id : -1;
+    }
+
+    /**
+     * Registra il simbolo (se necessario), ne prepara lo slot e restituisce l'id.
+     *
+     * @throws IllegalArgumentException se la grafia non e' valida o il registro e' pieno
+     */
+    public int intern(String symbol) {
+        int id = symbols.id(symbol);
+        if (id < 0) {
+            throw new IllegalArgumentException("Invalid symbol: " + symbol);
+        }
+        if ((id >>> CHUNK_BITS) >= chunks.length) {
+            grow(id);
+        }
+        return id;
+    }
+
+    /**
+     * Prezzo corrente, oppure 0.0 se lo slot non e' ancora valorizzato.
+     */
+    public double get(int id) {
+        return Double.longBitsToDouble(chunk(id).slots.get(id & CHUNK_MASK));
+    }
+
+    /**
+     * Come {@link #get}, ma 0.0 anche per un id che non ha ancora uno slot.
+     */
+    public double getIfPresent(int id) {
+        Chunk[] current = chunks;
+        int chunk = id >>> CHUNK_BITS;
+        return id >= 0 && chunk < current.length
+                ? Double.longBitsToDouble(current[chunk].slots.get(id & CHUNK_MASK))
+                : 0.0;
+    }
+
+    /**
+     * Scrive il prezzo e restituisce quello precedente (0.0 se lo slot era vuoto).
+     */
+    public double set(int id, double price) {
+        Chunk chunk = chunk(id);
+        beginWrite(chunk);
+        try {
+            return Double.longBitsToDouble(chunk.slots.getAndSet(id & CHUNK_MASK, Double.doubleToRawLongBits(price)));
+        } finally {
+            chunk.finished.incrementAndGet();
+        }
+    }
+
+    /**
+     * Valorizza lo slot solo se ancora vuoto. Restituisce true se questo
+     * chiamante ha vinto la corsa.
+     */
+    public boolean initialize(int id, double price) {
+        Chunk chunk = chunk(id);
+        beginWrite(chunk);
+        try {
+            return chunk.slots.compareAndSet(id & CHUNK_MASK, EMPTY, Double.doubleToRawLongBits(price));
+        } finally {
+            chunk.finished.incrementAndGet();
+        }
+    }
+
+    /**
+     * Copia in {@code out} i prezzi degli id indicati come un'unica fotografia:
+     * nessuna scrittura concorrente puo' risultare applicata solo in parte. Un id negativo
+     * (simbolo senza slot, vedi {@link #idOf}) restituisce 0.0.
+     */
+    public void snapshot(int[] ids, double[] out) {
+        Chunk[] current = chunks;
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            if (tryRead(current, ids, out)) {
+                return;
+            }
+        }
+        // troppe scritture concorrenti: ferma le nuove e attende che finiscano quelle in corso
+        pausingReaders.incrementAndGet();
+        try {
+            while (!tryRead(current, ids, out)) {
+                Thread.onSpinWait();
+            }
+        } finally {
+            pausingReaders.decrementAndGet();
+        }
+    }
+
+    /**
+     * Passa a {@code consumer} ogni simbolo con un prezzo valorizzato. Non e' una
+     * fotografia coerente: una scrittura concorrente puo' esserci o no.
+     */
+    public void forEach(ObjDoubleConsumer<String> consumer) {
+        Chunk[] current = chunks;
+        int limit = Math.min(symbols.size(), current.length << CHUNK_BITS);
+        for (int id = 0; id < limit; id++) {
+            double price = Double.longBitsToDouble(current[id >>> CHUNK_BITS].slots.get(id & CHUNK_MASK));
+            if (price > 0) {
+                consumer.accept(symbols.name(id), price);
+            }
+        }
+    }
+
+    private void beginWrite(Chunk chunk) {
+        while (pausingReaders.get() > 0) {
+            Thread.onSpinWait();
+        }
+        chunk.started.incrementAndGet();
+    }
+
+    // valida se nessun blocco letto aveva scritture in corso all'inizio o ne ha iniziate durante
+    private static boolean tryRead(Chunk[] current, int[] ids, double[] out) {
+        long before = 0;
+        for (int id : ids) {
+            if (id < 0) {
+                continue;
+            }
+            Chunk chunk = current[id >>> CHUNK_BITS];
+            long finished = chunk.finished.get();
+            long started = chunk.started.get();
+            if (started != finished) {
+                return false;
+            }
+            before += started;
+        }
+        for (int i = 0; i < ids.length; i++) {
+            int id = ids[i];
+            out[i] = id < 0 ? 0.0 : Double.longBitsToDouble(current[id >>> CHUNK_BITS].slots.get(id & CHUNK_MASK));
+        }
+        long after = 0;
+        for (int id : ids) {
+            if (id < 0) {
+                continue;
+            }
+            after += current[id >>> CHUNK_BITS].started.get();
+        }
+        // i contatori crescono soltanto: somme uguali = nessun contatore e' cambiato
+        return after == before;
+    }
+
+    private Chunk chunk(int id) {
+        Chunk[] current = chunks;
+        int chunk = id >>> CHUNK_BITS;
+        if (id < 0 || chunk >= current.length) {
+            throw new IllegalArgumentException("Unknown symbol id: " + id);
+        }
+        return current[chunk];
+    }
+
+    private void grow(int id) {
+        synchronized (growLock) {
+            int chunk = id >>> CHUNK_BITS;
+            Chunk[] current = chunks;
+            if (chunk >= current.length) {
+                // gli id arrivano dal registro condiviso: possono saltare dei blocchi
+                Chunk[] grown = Arrays.copyOf(current, chunk + 1);
+                for (int i = current.length; i <= chunk; i++) {
+                    grown[i] = new Chunk();
+                }
+                // pubblicazione volatile: lo slot esiste prima che l'id venga restituito
+                chunks = grown;
+            }
+        }
+    }
+
+    private static final class Chunk {
+
+        private final AtomicLongArray slots = new AtomicLongArray(CHUNK_SIZE);
+        private final AtomicLong started = new AtomicLong();
+        private final AtomicLong finished = new AtomicLong();
+    }
+}
@@ -1,44 +1,194 @@
 package com.example.stock_manager.service.impl;
 
+import com.example.stock_manager.event.PriceUpdatedEvent;
 import com.example.stock_manager.service.StockPriceService;
+import com.example.stock_manager.symbol.SymbolRegistry;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ObjDoubleConsumer;
 
 @Service
 @Slf4j
-public class StockPriceServiceImpl implements StockPriceService {
+public class StockPriceServiceImpl implements StockPriceService, ApplicationEventPublisherAware, MeterBinder {
 
-    private final Map<String, Double> priceCache = new HashMap<>();
-    private final Random random = new Random();
+    private final SymbolRegistry symbolRegistry;
+    private final PriceStore priceStore;
+    // LongAdder: i contatori vengono incrementati da molti thread sul percorso caldo
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder generated = new LongAdder();
+    private ApplicationEventPublisher eventPublisher;
 
-    public StockPriceServiceImpl() {
+    @Autowired
+    public StockPriceServiceImpl(SymbolRegistry symbolRegistry) {
+        this.symbolRegistry = symbolRegistry;
+        this.priceStore = new PriceStore(symbolRegistry);
         // Inizializza alcuni prezzi mock
-        priceCache.put("AAPL", 150.0);
-        priceCache.put("GOOGL", 2800.0);
-        priceCache.put("MSFT", 350.0);
-        priceCache.put("AMZN", 3200.0);
-        priceCache.put("TSLA", 800.0);
+        priceStore.set(priceStore.intern("AAPL"), 150.0);
+        priceStore.set(priceStore.intern("GOOGL"), 2800.0);
+        priceStore.set(priceStore.intern("MSFT"), 350.0);
+        priceStore.set(priceStore.intern("AMZN"), 3200.0);
+        priceStore.set(priceStore.intern("TSLA"), 800.0);
     }
 
     @Override
+    @Timed(value = "stock.service", histogram = true, percentiles = {0.5, 0.95, 0.99})
     public double getPrice(String symbol) {
-        return priceCache.computeIfAbsent(symbol.toUpperCase(), s -> {
-            // Genera un prezzo random per simboli non conosciuti
-            double randomPrice = 50.0 + random.nextDouble() * 500.0;
-            log.info("Generated random price for {}: {}", symbol, randomPrice);
-            return randomPrice;
-        });
+        // sola lettura: solo updatePrice e il ripristino registrano simboli nel registro
+        int id = priceStore.idOf(symbol);
+        double price = id >= 0 ? priceStore.get(id) : 0.0;
+        if (price > 0) {
+            hits.increment();
+            return price;
+        }
+        return unknownPrice(id, id >= 0 ? symbolRegistry.name(id) : symbolRegistry.canonical(symbol));
+    }
+
+    // niente @Timed ne' conteggio dei hit: viene chiamato una volta per record nelle
+    // scansioni del book, sotto il lock in lettura del book
+    @Override
+    public double getPrice(int symbolId) {
+        double price = priceStore.getIfPresent(symbolId);
+        if (price > 0) {
+            return price;
+        }
+        String symbol = symbolRegistry.name(symbolId);
+        if (symbol == null) {
+            throw new IllegalArgumentException("Unknown symbol id: " + symbolId);
+        }
+        return unknownPrice(priceStore.idOf(symbol), symbol);
+    }
+
+    @Override
+    @Timed(value = "stock.service", histogram = true, percentiles = {0.5, 0.95, 0.99})
+    public double[] getPrices(String[] symbols) {
+        int[] ids = new int[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            ids[i] = priceStore.idOf(symbols[i]);
+        }
+        double[] prices = new double[symbols.length];
+        priceStore.snapshot(ids, prices);
+        int found = 0;
+        for (int i = 0; i < prices.length; i++) {
+            if (prices[i] > 0) {
+                found++;
+            } else {
+                prices[i] = getPrice(symbols[i]);
+            }
+        }
+        hits.add(found);
+        return prices;
     }
 
+    @Timed(value = "stock.service", histogram = true, percentiles = {0.5, 0.95, 0.99})
     public void updatePrice(String symbol, double price) {
-        if (price <= 0) {
+        if (!(price > 0)) {
             throw new IllegalArgumentException("Price must be positive");
         }
-        priceCache.put(symbol.toUpperCase(), price);
+        apply(symbol, price);
         log.info("Updated price for {} to {}", symbol, price);
     }
+
+    /**
+     * Applica i primi {@code count} prezzi in blocco (ingestione tick): un evento per
+     * simbolo come {@link #updatePrice}, ma un solo log per blocco. Se un prezzo non e'
+     * valido non viene applicato nessuno dei prezzi.
+     */
+    @Timed(value = "stock.service", histogram = true, percentiles = {0.5, 0.95, 0.99})
+    public void updatePrices(String[] symbols, double[] prices, int count) {
+        for (int i = 0; i < count; i++) {
+            if (!(prices[i] > 0)) {
+                throw new IllegalArgumentException("Price must be positive: " + symbols[i]);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            apply(symbols[i], prices[i]);
+        }
+        log.debug("Updated {} prices", count);
+    }
+
+    /**
+     * Ripristina prezzi salvati (avvio a caldo) senza pubblicare eventi: e' lo stato
+     * da cui ripartire, non una variazione di mercato.
+     */
+    public void restorePrices(String[] symbols, double[] prices, int count) {
+        for (int i = 0; i < count; i++) {
+            if (!(prices[i] > 0)) {
+                throw new IllegalArgumentException("Price must be positive: " + symbols[i]);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            priceStore.set(priceStore.intern(symbols[i]), prices[i]);
+        }
+    }
+
+    /**
+     * Tutti i prezzi noti, per salvarli su disco.
+     */
+    public void forEachPrice(ObjDoubleConsumer<String> consumer) {
+        priceStore.forEach(consumer);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("stock.price.lookups", hits, LongAdder::sum)
+                .description("Price lookups served from the price store")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("stock.price.lookups", misses, LongAdder::sum)
+                .description("Price lookups for symbols without a price")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("stock.price.generated", generated, LongAdder::sum)
+                .description("Random prices generated for unknown symbols")
+                .register(registry);
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+        this.eventPublisher = applicationEventPublisher;
+    }
+
+    private void apply(String symbol, double price) {
+        int id = priceStore.intern(symbol);
+        double previous = priceStore.set(id, price);
+        if (eventPublisher != null) {
+            eventPublisher.publishEvent(new PriceUpdatedEvent(symbolRegistry.name(id), previous, price));
+        }
+    }
+
+    /**
+     * Prezzo mock per un simbolo senza prezzo, derivato dal simbolo: stabile tra letture e
+     * thread senza registrarlo. Se il simbolo ha gia' uno slot il prezzo vi viene salvato.
+     */
+    private double unknownPrice(int id, String symbol) {
+        misses.increment();
+        double price = mockPrice(symbol);
+        if (id < 0) {
+            return price;
+        }
+        if (priceStore.initialize(id, price)) {
+            generated.increment();
+            log.info("Generated mock price for {}: {}", symbol, price);
+        }
+        return priceStore.get(id);
+    }
+
+    // tra 50 e 550, distribuito uniformemente sugli hash dei simboli
+    private static double mockPrice(String symbol) {
+        long bits = symbol.hashCode() * 0x9E3779B97F4A7C15L;
+        bits = (bits ^ (bits >>> 30)) * 0xBF58476D1CE4E5B9L;
+        bits = (bits ^ (bits >>> 27)) * 0x94D049BB133111EBL;
+        bits ^= bits >>> 31;
+        return 50.0 + (bits >>> 11) * 0x1.0p-53 * 500.0;
+    }
 }
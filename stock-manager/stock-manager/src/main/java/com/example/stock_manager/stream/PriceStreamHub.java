@@ -0,0 +1,418 @@
+package com.example.stock_manager.stream;
+
+import com.example.stock_manager.dto.PriceTick;
+import com.example.stock_manager.event.PositionChangedEvent;
+import com.example.stock_manager.event.PriceUpdatedEvent;
+import com.example.stock_manager.service.PortfolioAggregator;
+import com.example.stock_manager.service.StockPriceService;
+import com.example.stock_manager.service.ValuedPosition;
+import com.example.stock_manager.symbol.SymbolRegistry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribuisce ai client in streaming i tick di prezzo e le variazioni di valore delle
+ * posizioni. Ogni evento viene calcolato una sola volta e consegnato ai soli iscritti al
+ * simbolo; l'invio avviene su thread dedicati, quindi un client lento non rallenta chi
+ * aggiorna i prezzi.
+ * <p>
+ * Ogni client con tick da inviare ha il proprio thread del pool (creati su richiesta,
+ * {@code dispatch-threads} restano sempre pronti, al piu' {@code max-dispatch-threads}):
+ * un invio bloccato su un client non ferma gli altri. Con il pool pieno il client che non
+ * trova un thread viene chiuso. Un invio che dura piu' di {@code send-timeout-millis}
+ * stacca il client dallo stream; la connessione viene chiusa dal suo thread appena
+ * l'invio bloccato ritorna.
+ * <p>
+ * Ogni client ha un buffer limitato con al piu' un tick per simbolo: finche' un invio e'
+ * in corso i tick successivi dello stesso simbolo vengono accorpati. Se il buffer si
+ * riempie di simboli diversi il client e' troppo indietro e la connessione viene chiusa
+ * (si riconnette e riparte dallo stato corrente).
+ */
+@Component
+@Slf4j
+public class PriceStreamHub implements MeterBinder {
+
+    private final PortfolioAggregator aggregator;
+    private final StockPriceService stockPriceService;
+    private final SymbolRegistry symbolRegistry;
+
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final long sendTimeoutNanos;
+    private final ExecutorService dispatcher;
+    private final ScheduledExecutorService watchdog;
+
+    private final Map<String, Set<Subscriber>> bySymbol = new ConcurrentHashMap<>();
+    private final Set<Subscriber> allSymbols = ConcurrentHashMap.newKeySet();
+    // client con un invio in corso, controllati dal watchdog
+    private final Set<Subscriber> sending = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final LongAdder conflated = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+    private final LongAdder sendTimeouts = new LongAdder();
+
+    @Autowired
+    public PriceStreamHub(PortfolioAggregator aggregator,
+                          StockPriceService stockPriceService,
+                          SymbolRegistry symbolRegistry,
+                          @Value("${stock.stream.buffer-size:1024}") int bufferSize,
+                          @Value("${stock.stream.timeout-millis:0}") long timeoutMillis,
+                          @Value("${stock.stream.dispatch-threads:2}") int dispatchThreads,
+                          @Value("${stock.stream.max-dispatch-threads:64}") int maxDispatchThreads,
+                          @Value("${stock.stream.send-timeout-millis:5000}") long sendTimeoutMillis) {
+        if (bufferSize < 1 || dispatchThreads < 1 || timeoutMillis < 0 || sendTimeoutMillis < 1) {
+            throw new IllegalArgumentException("Stream buffer size, dispatch threads and send timeout must be positive");
+        }
+        if (maxDispatchThreads < dispatchThreads) {
+            throw new IllegalArgumentException("Max dispatch threads must be at least the dispatch threads");
+        }
+        this.aggregator = aggregator;
+        this.stockPriceService = stockPriceService;
+        this.symbolRegistry = symbolRegistry;
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        AtomicInteger threads = new AtomicInteger();
+        // nessuna coda: un drain trova un thread libero, ne crea uno o viene rifiutato a pool pieno
+        this.dispatcher = new ThreadPoolExecutor(dispatchThreads, maxDispatchThreads, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), task -> daemon(task, "price-stream-" + threads.getAndIncrement()));
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(task -> daemon(task, "price-stream-watchdog"));
+        long period = Math.max(1, sendTimeoutMillis / 2);
+        watchdog.scheduleAtFixedRate(this::closeStalledSends, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Apre uno stream SSE per i simboli indicati (tutti, se la lista e' vuota). Il client
+     * riceve subito lo stato corrente dei simboli richiesti.
+     */
+    public SseEmitter subscribe(Collection<String> symbols) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = register(symbols, new TickSink() {
+            @Override
+            public void send(PriceTick tick) throws IOException {
+                emitter.send(SseEmitter.event().name("tick").data(tick));
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        return emitter;
+    }
+
+    Subscriber register(Collection<String> symbols, TickSink sink) {
+        Set<String> wanted = normalize(symbols);
+        if (wanted.size() > bufferSize) {
+            throw new IllegalArgumentException("At most " + bufferSize + " symbols per stream");
+        }
+        Subscriber subscriber = new Subscriber(wanted, sink);
+        if (wanted.isEmpty()) {
+            allSymbols.add(subscriber);
+        } else {
+            for (String symbol : wanted) {
+                bySymbol.computeIfAbsent(symbol, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+            }
+        }
+        subscribers.incrementAndGet();
+        for (String symbol : wanted) {
+            deliver(subscriber, tick(symbol, stockPriceService.getPrice(symbol), position(symbol), 0.0));
+        }
+        return subscriber;
+    }
+
+    public int subscriberCount() {
+        return subscribers.get();
+    }
+
+    // dopo l'aggregatore: posizione e totale letti qui riflettono gia' l'evento
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @EventListener
+    public void onPriceUpdated(PriceUpdatedEvent event) {
+        if (subscribers.get() == 0) {
+            return;
+        }
+        // una sola lettura della posizione per evento: quantita' per il delta e valore per il tick
+        ValuedPosition position = position(event.symbol());
+        long quantity = position == null ? 0 : position.quantity();
+        publish(tick(event.symbol(), event.price(), position, quantity * (event.price() - event.previousPrice())));
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPositionChanged(PositionChangedEvent event) {
+        if (subscribers.get() == 0) {
+            return;
+        }
+        double price = stockPriceService.getPrice(event.symbol());
+        publish(tick(event.symbol(), price, position(event.symbol()), event.quantityDelta() * price));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("stock.stream.subscribers", subscribers, AtomicInteger::get)
+                .description("Open price streams")
+                .register(registry);
+        FunctionCounter.builder("stock.stream.conflated", conflated, LongAdder::sum)
+                .description("Ticks merged into a pending tick of the same symbol")
+                .register(registry);
+        FunctionCounter.builder("stock.stream.overflows", overflows, LongAdder::sum)
+                .description("Streams closed because their buffer was full")
+                .register(registry);
+        FunctionCounter.builder("stock.stream.send-timeouts", sendTimeouts, LongAdder::sum)
+                .description("Streams closed because a send took longer than the send timeout")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+        dispatcher.shutdownNow();
+        allSymbols.forEach(Subscriber::close);
+        bySymbol.values().forEach(set -> set.forEach(Subscriber::close));
+    }
+
+    private void publish(PriceTick tick) {
+        Set<Subscriber> interested = bySymbol.get(tick.getSymbol());
+        if (interested != null) {
+            interested.forEach(subscriber -> deliver(subscriber, tick));
+        }
+        allSymbols.forEach(subscriber -> deliver(subscriber, tick));
+    }
+
+    private void deliver(Subscriber subscriber, PriceTick tick) {
+        if (subscriber.offer(tick)) {
+            try {
+                dispatcher.execute(subscriber::drain);
+            } catch (RejectedExecutionException e) {
+                log.warn("Closing price stream: all dispatch threads are busy");
+                subscriber.close();
+            }
+        }
+    }
+
+    private ValuedPosition position(String symbol) {
+        return aggregator.position(symbol).orElse(null);
+    }
+
+    private PriceTick tick(String symbol, double price, ValuedPosition position, double valueDelta) {
+        return PriceTick.builder()
+                .symbol(symbol)
+                .price(price)
+                .quantity(position == null ? 0 : position.quantity())
+                .positionValue(position == null ? 0.0 : position.value())
+                .positionValueDelta(valueDelta)
+                .portfolioValue(aggregator.totals().totalValue())
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    private void closeStalledSends() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : sending) {
+            long started = subscriber.sendStarted;
+            // remove: ogni client bloccato viene chiuso e contato una volta sola
+            if (started != 0 && now - started > sendTimeoutNanos && sending.remove(subscriber)) {
+                sendTimeouts.increment();
+                log.warn("Closing price stream: send blocked for more than {} ms",
+                        TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos));
+                // solo detach: chiudere l'emitter attenderebbe il lock tenuto dall'invio bloccato
+                // e fermerebbe il watchdog; lo chiude il thread del drain quando l'invio ritorna
+                subscriber.detach();
+            }
+        }
+    }
+
+    private static Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private void unregister(Subscriber subscriber) {
+        boolean removed = subscriber.symbols.isEmpty()
+                ? allSymbols.remove(subscriber)
+                : subscriber.symbols.stream()
+                        .map(symbol -> removeFrom(symbol, subscriber))
+                        .reduce(false, Boolean::logicalOr);
+        if (removed) {
+            subscribers.decrementAndGet();
+        }
+    }
+
+    private boolean removeFrom(String symbol, Subscriber subscriber) {
+        boolean[] removed = new boolean[1];
+        bySymbol.computeIfPresent(symbol, (key, set) -> {
+            removed[0] = set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+        return removed[0];
+    }
+
+    private Set<String> normalize(Collection<String> symbols) {
+        Set<String> normalized = new LinkedHashSet<>();
+        for (String symbol : symbols) {
+            if (symbol != null && !symbol.isBlank()) {
+                normalized.add(symbolRegistry.canonical(symbol.trim()));
+            }
+        }
+        return normalized;
+    }
+
+    /**
+     * Un client: tick in attesa (al piu' uno per simbolo, in ordine di arrivo) e stato
+     * dell'invio. Un solo drain alla volta per client, quindi l'ordine e' preservato.
+     */
+    final class Subscriber {
+
+        private final Set<String> symbols;
+        private final TickSink sink;
+        private final Map<String, PriceTick> pending = new LinkedHashMap<>();
+        private boolean scheduled;
+        // volatile: il drain smette di inviare appena il watchdog chiude il client
+        private volatile boolean closed;
+        private boolean sinkClosed;
+        // System.nanoTime() dell'invio in corso, 0 se nessun invio
+        private volatile long sendStarted;
+
+        private Subscriber(Set<String> symbols, TickSink sink) {
+            this.symbols = symbols;
+            this.sink = sink;
+        }
+
+        /**
+         * Accoda il tick; true se il chiamante deve programmare un drain.
+         */
+        private boolean offer(PriceTick tick) {
+            boolean overflow = false;
+            synchronized (this) {
+                if (closed) {
+                    return false;
+                }
+                PriceTick previous = pending.get(tick.getSymbol());
+                if (previous != null) {
+                    pending.put(tick.getSymbol(), previous.conflate(tick));
+                    conflated.increment();
+                } else if (pending.size() < bufferSize) {
+                    pending.put(tick.getSymbol(), tick);
+                } else {
+                    overflow = true;
+                }
+                if (!overflow) {
+                    boolean schedule = !scheduled;
+                    scheduled = true;
+                    return schedule;
+                }
+            }
+            // fuori dal lock: la chiusura dell'emitter richiama i callback del client
+            overflows.increment();
+            log.warn("Closing price stream: {} symbols pending, consumer too slow", bufferSize);
+            close();
+            return false;
+        }
+
+        private void drain() {
+            while (true) {
+                List<PriceTick> batch;
+                synchronized (this) {
+                    if (closed || pending.isEmpty()) {
+                        scheduled = false;
+                        return;
+                    }
+                    batch = new ArrayList<>(pending.values());
+                    pending.clear();
+                }
+                sending.add(this);
+                try {
+                    for (PriceTick tick : batch) {
+                        if (closed) {
+                            return;
+                        }
+                        sendStarted = System.nanoTime();
+                        sink.send(tick);
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("Price stream closed by the client: {}", e.getMessage());
+                    close();
+                    return;
+                } finally {
+                    sendStarted = 0;
+                    sending.remove(this);
+                    if (closed) {
+                        closeSink();
+                    }
+                }
+            }
+        }
+
+        void close() {
+            if (detach()) {
+                closeSink();
+            }
+        }
+
+        /**
+         * Stacca il client dallo stream senza toccare la connessione; true alla prima chiamata.
+         */
+        private boolean detach() {
+            synchronized (this) {
+                if (closed) {
+                    return false;
+                }
+                closed = true;
+                pending.clear();
+            }
+            unregister(this);
+            return true;
+        }
+
+        // una sola volta, fuori dal lock: la chiusura dell'emitter richiama i callback del client
+        private void closeSink() {
+            synchronized (this) {
+                if (sinkClosed) {
+                    return;
+                }
+                sinkClosed = true;
+            }
+            try {
+                sink.close();
+            } catch (RuntimeException e) {
+                log.debug("Failed to close price stream: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.stock_manager.stream;
+
+import com.example.stock_manager.dto.PriceTick;
+
+import java.io.IOException;
+
+/**
+ * Destinazione dei tick di un singolo client (in produzione una connessione SSE).
+ */
+interface TickSink {
+
+    void send(PriceTick tick) throws IOException;
+
+    void close();
+}
@@ -0,0 +1,172 @@
+package com.example.stock_manager.symbol;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registro dei simboli dell'applicazione: ogni grafia valida viene portata in maiuscolo
+ * una sola volta, poi risolta con una lookup. Il simbolo canonico e' un'istanza unica con
+ * un id intero compatto, cosi' i percorsi caldi non allocano una nuova stringa a ogni
+ * richiesta e gli archivi in memoria (es. {@code PriceStore}) indicizzano per id.
+ * <p>
+ * Gli id non vengono mai riassegnati, quindi il registro non fa eviction: e' limitato a
+ * {@code max-symbols} simboli. Solo {@link #id} registra; {@link #canonical} risolve i
+ * simboli gia' noti e per gli altri restituisce la grafia in maiuscolo, cosi' le letture
+ * di simboli arbitrari non consumano posti.
+ */
+@Component
+public class SymbolRegistry implements MeterBinder {
+
+    public static final int DEFAULT_MAX_SYMBOLS = 100_000;
+
+    private final int maxSymbols;
+    private final ConcurrentHashMap<String, Symbol> bySpelling = new ConcurrentHashMap<>();
+    // grafie non canoniche (es. minuscole) ricordate, al massimo quante i simboli
+    private final AtomicInteger aliases = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    // nome canonico per id; cresce solo dentro register, letto senza lock
+    private volatile String[] names = new String[1024];
+    private int nextId;
+
+    public SymbolRegistry() {
+        this(DEFAULT_MAX_SYMBOLS);
+    }
+
+    @Autowired
+    public SymbolRegistry(@Value("${stock.symbols.max-symbols:100000}") int maxSymbols) {
+        if (maxSymbols < 1) {
+            throw new IllegalArgumentException("Symbol registry size must be positive");
+        }
+        this.maxSymbols = maxSymbols;
+    }
+
+    /**
+     * Simbolo canonico con il suo id.
+     */
+    public record Symbol(String name, int id) {
+    }
+
+    /**
+     * Istanza canonica (maiuscola) del simbolo se e' registrato, altrimenti la grafia
+     * portata in maiuscolo, senza registrarla.
+     */
+    public String canonical(String raw) {
+        Symbol symbol = bySpelling.get(raw);
+        if (symbol != null) {
+            return symbol.name();
+        }
+        String name = Symbols.normalize(raw);
+        if (name == null) {
+            return raw.toUpperCase(Locale.ROOT);
+        }
+        symbol = bySpelling.get(name);
+        if (symbol == null) {
+            return name;
+        }
+        remember(raw, name, symbol);
+        return symbol.name();
+    }
+
+    /**
+     * Id compatto del simbolo, registrandolo se serve; -1 se la grafia non e' valida.
+     *
+     * @throws IllegalArgumentException se il registro e' pieno
+     */
+    public int id(String raw) {
+        Symbol symbol = bySpelling.get(raw);
+        if (symbol != null) {
+            return symbol.id();
+        }
+        String name = Symbols.normalize(raw);
+        if (name == null) {
+            return -1;
+        }
+        symbol = bySpelling.get(name);
+        if (symbol == null) {
+            symbol = register(name);
+        }
+        remember(raw, name, symbol);
+        return symbol.id();
+    }
+
+    /**
+     * Id del simbolo se e' gia' registrato, altrimenti -1, senza registrarlo.
+     */
+    public int find(String raw) {
+        Symbol symbol = bySpelling.get(raw);
+        if (symbol == null) {
+            String name = Symbols.normalize(raw);
+            symbol = name != null ? bySpelling.get(name) : null;
+        }
+        return symbol != null ? symbol.id() : -1;
+    }
+
+    /**
+     * Nome canonico dell'id, oppure null se l'id non e' stato assegnato.
+     */
+    public String name(int id) {
+        String[] current = names;
+        return id >= 0 && id < current.length ? current[id] : null;
+    }
+
+    /**
+     * Simboli distinti registrati finora.
+     */
+    public synchronized int size() {
+        return nextId;
+    }
+
+    public int maxSymbols() {
+        return maxSymbols;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("stock.symbols.registered", this, SymbolRegistry::size)
+                .description("Distinct symbols with an id")
+                .register(registry);
+        FunctionCounter.builder("stock.symbols.rejected", rejected, LongAdder::sum)
+                .description("New symbols refused because the registry is full")
+                .register(registry);
+    }
+
+    private void remember(String raw, String name, Symbol symbol) {
+        // confronto per riferimento: normalize restituisce raw stesso se era gia' canonico
+        if (name != raw && aliases.get() < maxSymbols && bySpelling.putIfAbsent(raw, symbol) == null) {
+            aliases.incrementAndGet();
+        }
+    }
+
+    private synchronized Symbol register(String name) {
+        Symbol existing = bySpelling.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        if (nextId == maxSymbols) {
+            rejected.increment();
+            throw new IllegalArgumentException("Symbol registry is full (" + maxSymbols + " symbols): " + name);
+        }
+        int id = nextId++;
+        String[] current = names;
+        if (id == current.length) {
+            current = Arrays.copyOf(current, Math.min(current.length * 2, maxSymbols));
+        }
+        current[id] = name;
+        // scrittura volatile: chi riceve l'id dalla mappa trova gia' il nome
+        names = current;
+        Symbol symbol = new Symbol(name, id);
+        bySpelling.put(name, symbol);
+        return symbol;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.stock_manager.symbol;
+
+/**
+ * Regola di grafia dei simboli ({@code [A-Za-z0-9]{1,10}}, canonici in maiuscolo), senza
+ * stato: la usano sia la validazione ({@link ValidSymbol}) sia il {@link SymbolRegistry}.
+ */
+public final class Symbols {
+
+    public static final int MAX_LENGTH = 10;
+
+    private Symbols() {
+    }
+
+    public static boolean isValid(String raw) {
+        return normalize(raw) != null;
+    }
+
+    /**
+     * Grafia canonica (maiuscolo ASCII, senza regex), oppure null se la grafia non e' valida.
+     * Restituisce la stessa istanza se e' gia' canonica.
+     */
+    public static String normalize(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        int length = raw.length();
+        if (length == 0 || length > MAX_LENGTH) {
+            return null;
+        }
+        char[] upper = null;
+        for (int i = 0; i < length; i++) {
+            char c = raw.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                if (upper == null) {
+                    upper = raw.toCharArray();
+                }
+                upper[i] = (char) (c - ('a' - 'A'));
+            } else if (!(c >= 'A' && c <= 'Z') && !(c >= '0' && c <= '9')) {
+                return null;
+            }
+        }
+        return upper == null ? raw : new String(upper);
+    }
+}
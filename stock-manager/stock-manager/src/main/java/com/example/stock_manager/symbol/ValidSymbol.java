@@ -0,0 +1,28 @@
+package com.example.stock_manager.symbol;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Il simbolo contiene solo lettere e numeri. Vuoto, null e lunghezza sono lasciati a
+ * {@code @NotBlank} e {@code @Size}; il controllo e' quello di {@link Symbols}, carattere
+ * per carattere e senza regex.
+ */
+@Documented
+@Constraint(validatedBy = ValidSymbolValidator.class)
+@Target({ElementType.FIELD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ValidSymbol {
+
+    String message() default "Symbol must contain only letters and numbers";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
@@ -0,0 +1,15 @@
+package com.example.stock_manager.symbol;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+public class ValidSymbolValidator implements ConstraintValidator<ValidSymbol, String> {
+
+    @Override
+    public boolean isValid(String value, ConstraintValidatorContext context) {
+        if (value == null || value.isEmpty() || value.length() > Symbols.MAX_LENGTH) {
+            return true;
+        }
+        return Symbols.isValid(value);
+    }
+}
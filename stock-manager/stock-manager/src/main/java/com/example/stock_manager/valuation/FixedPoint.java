@@ -0,0 +1,53 @@
+package com.example.stock_manager.valuation;
+
+/**
+ * Importi in virgola fissa: un prezzo e' un {@code long} in milionesimi di unita'
+ * (micro-unita'), le quantita' sono {@code long}. Il prodotto prezzo x quantita' e'
+ * calcolato esatto su 128 bit, quindi non va mai in overflow; la conversione a
+ * {@code double} avviene una sola volta, sul risultato.
+ */
+public final class FixedPoint {
+
+    public static final int SCALE_DIGITS = 6;
+    public static final long SCALE = 1_000_000L;
+
+    // oltre questo valore price * SCALE non sta in un long
+    private static final double MAX_AMOUNT = Long.MAX_VALUE / (double) SCALE;
+    private static final double TWO_POW_64 = 0x1p64;
+
+    private FixedPoint() {
+        // utility class
+    }
+
+    /**
+     * Converte un importo in micro-unita', arrotondando al milionesimo piu' vicino.
+     */
+    public static long toMicros(double amount) {
+        if (!(Math.abs(amount) < MAX_AMOUNT)) {
+            throw new IllegalArgumentException("Amount out of fixed-point range: " + amount);
+        }
+        return Math.round(amount * SCALE);
+    }
+
+    public static double toDouble(long micros) {
+        return micros / (double) SCALE;
+    }
+
+    /**
+     * Valore di {@code quantity} unita' al prezzo {@code priceMicros}, in unita' monetarie.
+     */
+    public static double value(long priceMicros, long quantity) {
+        long low = priceMicros * quantity;
+        long high = Math.multiplyHigh(priceMicros, quantity);
+        return toDouble(high, low);
+    }
+
+    // 128 bit in complemento a due (high:low) divisi per SCALE
+    static double toDouble(long high, long low) {
+        if (high == (low >> 63)) {
+            return low / (double) SCALE;
+        }
+        double unsignedLow = low >= 0 ? low : (low >>> 1) * 2.0 + (low & 1);
+        return (high * TWO_POW_64 + unsignedLow) / SCALE;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.stock_manager.valuation;
+
+import com.example.stock_manager.dto.StockValueResponse;
+import com.example.stock_manager.mapper.StockMapper;
+import com.example.stock_manager.model.Stock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Valorizzazione di un portafoglio in una sola riduzione: dettagli per posizione,
+ * quantita' totale, valore totale (in virgola fissa) e posizione di maggior valore.
+ * Sotto {@code parallel-threshold} posizioni lavora in sequenza; sopra divide l'intervallo
+ * in blocchi di {@code chunk-size} sul common pool fork-join e unisce i parziali.
+ * I due percorsi danno lo stesso risultato, anche a parita' di valore (vince la prima).
+ */
+@Component
+public class PortfolioValuator {
+
+    private final int parallelThreshold;
+    private final int chunkSize;
+
+    @Autowired
+    public PortfolioValuator(@Value("${stock.valuation.parallel-threshold:100000}") int parallelThreshold,
+                             @Value("${stock.valuation.chunk-size:16384}") int chunkSize) {
+        if (parallelThreshold < 0 || chunkSize < 1) {
+            throw new IllegalArgumentException("Parallel threshold must not be negative and chunk size must be positive");
+        }
+        this.parallelThreshold = parallelThreshold;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Valorizza {@code stocks} ai prezzi {@code prices} (stesso ordine). Con
+     * {@code withDetails=false} calcola solo totali e massimo, senza creare i DTO.
+     */
+    public Valuation valuate(List<Stock> stocks, double[] prices, boolean withDetails) {
+        StockValueResponse[] details = withDetails ? new StockValueResponse[prices.length] : null;
+        Partial result = prices.length >= parallelThreshold && prices.length > chunkSize
+                ? ForkJoinPool.commonPool().invoke(new Chunk(stocks, prices, details, 0, prices.length))
+                : scan(stocks, prices, details, 0, prices.length);
+        return new Valuation(details == null ? List.of() : Arrays.asList(details),
+                result.totals.totalQuantity(), result.totals.totalValue(), result.highest);
+    }
+
+    private static Partial scan(List<Stock> stocks, double[] prices, StockValueResponse[] details, int from, int to) {
+        Partial partial = new Partial();
+        double highestValue = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            Stock stock = stocks.get(i);
+            long priceMicros = FixedPoint.toMicros(prices[i]);
+            double value;
+            if (details != null) {
+                // blocchi disgiunti: ogni task scrive solo i propri indici
+                details[i] = StockMapper.toValueResponse(stock, prices[i], priceMicros);
+                value = details[i].getTotalValue();
+            } else {
+                value = FixedPoint.value(priceMicros, stock.getQuantity());
+            }
+            partial.totals.add(priceMicros, stock.getQuantity());
+            if (value > highestValue) {
+                highestValue = value;
+                partial.highest = i;
+            }
+        }
+        partial.highestValue = highestValue;
+        return partial;
+    }
+
+    /**
+     * Esito della valorizzazione; {@code highestIndex} e' -1 per un portafoglio vuoto.
+     */
+    public record Valuation(List<StockValueResponse> details, long totalQuantity, double totalValue,
+                           int highestIndex) {
+
+        public double averagePricePerShare() {
+            return totalQuantity > 0 ? totalValue / totalQuantity : 0.0;
+        }
+    }
+
+    private static final class Partial {
+        private final ValueAccumulator totals = new ValueAccumulator();
+        private int highest = -1;
+        private double highestValue = Double.NEGATIVE_INFINITY;
+
+        // this copre indici precedenti a other: a parita' resta il massimo di sinistra
+        private Partial merge(Partial other) {
+            totals.merge(other.totals);
+            if (other.highestValue > highestValue) {
+                highest = other.highest;
+                highestValue = other.highestValue;
+            }
+            return this;
+        }
+    }
+
+    private final class Chunk extends RecursiveTask<Partial> {
+
+        private final List<Stock> stocks;
+        private final double[] prices;
+        private final StockValueResponse[] details;
+        private final int from;
+        private final int to;
+
+        private Chunk(List<Stock> stocks, double[] prices, StockValueResponse[] details, int from, int to) {
+            this.stocks = stocks;
+            this.prices = prices;
+            this.details = details;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from <= chunkSize) {
+                return scan(stocks, prices, details, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            Chunk left = new Chunk(stocks, prices, details, from, middle);
+            left.fork();
+            Partial right = new Chunk(stocks, prices, details, middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+}
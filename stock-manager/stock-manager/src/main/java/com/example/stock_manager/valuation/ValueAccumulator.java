@@ -0,0 +1,85 @@
+package com.example.stock_manager.valuation;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Somma di prezzo x quantita' in virgola fissa: il valore e' tenuto esatto su 128 bit
+ * (micro-unita'), la quantita' su {@code long} con controllo di overflow. Nessuna
+ * perdita di precisione ne' deriva al crescere del numero di addendi, e nessuna
+ * allocazione per addendo. Accetta delta negativi. Non thread-safe.
+ */
+public final class ValueAccumulator {
+
+    private long high;
+    private long low;
+    private long quantity;
+    private int count;
+
+    /**
+     * Aggiunge {@code quantity} unita' valutate a {@code priceMicros}.
+     */
+    public void add(long priceMicros, long quantity) {
+        addValue(priceMicros, quantity);
+        this.quantity = Math.addExact(this.quantity, quantity);
+        count++;
+    }
+
+    /**
+     * Aggiunge solo il valore, senza toccare quantita' e conteggio (es. variazione di prezzo
+     * di una posizione gia' contata).
+     */
+    public void addValue(long priceMicros, long quantity) {
+        long productLow = priceMicros * quantity;
+        long productHigh = Math.multiplyHigh(priceMicros, quantity);
+        long sumLow = low + productLow;
+        long carry = Long.compareUnsigned(sumLow, low) < 0 ? 1 : 0;
+        high = high + productHigh + carry;
+        low = sumLow;
+    }
+
+    /**
+     * Somma un accumulatore parziale (es. calcolato su un altro blocco di posizioni).
+     */
+    public void merge(ValueAccumulator other) {
+        long sumLow = low + other.low;
+        long carry = Long.compareUnsigned(sumLow, low) < 0 ? 1 : 0;
+        high = high + other.high + carry;
+        low = sumLow;
+        quantity = Math.addExact(quantity, other.quantity);
+        count += other.count;
+    }
+
+    public void addQuantity(long quantity) {
+        this.quantity = Math.addExact(this.quantity, quantity);
+    }
+
+    public void reset() {
+        high = 0;
+        low = 0;
+        quantity = 0;
+        count = 0;
+    }
+
+    public double totalValue() {
+        return FixedPoint.toDouble(high, low);
+    }
+
+    public BigDecimal exactTotalValue() {
+        BigInteger micros = BigInteger.valueOf(high).shiftLeft(64)
+                .add(new BigInteger(Long.toUnsignedString(low)));
+        return new BigDecimal(micros, FixedPoint.SCALE_DIGITS);
+    }
+
+    public long totalQuantity() {
+        return quantity;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public double averagePricePerShare() {
+        return quantity > 0 ? totalValue() / quantity : 0.0;
+    }
+}
@@ -0,0 +1,8 @@
+-- Posizioni del portafoglio della casa (entita' Stock).
+-- La chiave primaria su symbol serve sia le letture puntuali sia la paginazione keyset.
+CREATE TABLE stock (
+    symbol   VARCHAR(255) NOT NULL,
+    quantity INTEGER      NOT NULL,
+    CONSTRAINT pk_stock PRIMARY KEY (symbol),
+    CONSTRAINT ck_stock_quantity CHECK (quantity >= 0)
+);
@@ -0,0 +1,18 @@
+-- Posizioni dei portafogli clienti, partizionate per hash dell'id portafoglio (PositionShards).
+-- Il numero di tabelle deve coincidere con stock.portfolio.shards del profilo durable (16).
+CREATE TABLE portfolio_position_0  (portfolio_id VARCHAR(64) NOT NULL, symbol VARCHAR(255) NOT NULL, quantity INTEGER NOT NULL, PRIMARY KEY (portfolio_id, symbol));
+CREATE TABLE portfolio_position_1  (portfolio_id VARCHAR(64) NOT NULL, symbol VARCHAR(255) NOT NULL, quantity INTEGER NOT NULL, PRIMARY KEY (portfolio_id, symbol));
+CREATE TABLE portfolio_position_2  (portfolio_id VARCHAR(64) NOT NULL, symbol VARCHAR(255) NOT NULL, quantity INTEGER NOT NULL, PRIMARY KEY (portfolio_id, symbol));
+CREATE TABLE portfolio_position_3  (portfolio_id VARCHAR(64) NOT NULL, symbol VARCHAR(255) NOT NULL, quantity INTEGER NOT NULL, PRIMARY KEY (portfolio_id, symbol));
+CREATE TABLE portfolio_position_4  (portfolio_id VARCHAR(64) NOT NULL, symbol VARCHAR(255) NOT NULL, quantity INTEGER NOT NULL, PRIMARY KEY (portfolio_id, symbol));
+CREATE TABLE portfolio_position_5  (portfolio_id VARCHAR(64) NOT NULL, symbol VARCHAR(255) NOT NULL, quantity INTEGER NOT NULL, PRIMARY KEY (portfolio_id, symbol));
+CREATE TABLE portfolio_position_6  (portfolio_id VARCHAR(64) NOT NULL, symbol VARCHAR(255) NOT NULL, quantity INTEGER NOT NULL, PRIMARY KEY (portfolio_id, symbol));
+CREATE TABLE portfolio_position_7  (portfolio_id VARCHAR(64) NOT NULL, symbol VARCHAR(255) NOT NULL, quantity INTEGER NOT NULL, PRIMARY KEY (portfolio_id, symbol));
+CREATE TABLE portfolio_position_8  (portfolio_id VARCHAR(64) NOT NULL, symbol VARCHAR(255) NOT NULL, quantity INTEGER NOT NULL, PRIMARY KEY (portfolio_id, symbol));
+CREATE TABLE portfolio_position_9  (portfolio_id VARCHAR(64) NOT NULL, symbol VARCHAR(255) NOT NULL, quantity INTEGER NOT NULL, PRIMARY KEY (portfolio_id, symbol));
+CREATE TABLE portfolio_position_10 (portfolio_id VARCHAR(64) NOT NULL, symbol VARCHAR(255) NOT NULL, quantity INTEGER NOT NULL, PRIMARY KEY (portfolio_id, symbol));
+CREATE TABLE portfolio_position_11 (portfolio_id VARCHAR(64) NOT NULL, symbol VARCHAR(255) NOT NULL, quantity INTEGER NOT NULL, PRIMARY KEY (portfolio_id, symbol));
+CREATE TABLE portfolio_position_12 (portfolio_id VARCHAR(64) NOT NULL, symbol VARCHAR(255) NOT NULL, quantity INTEGER NOT NULL, PRIMARY KEY (portfolio_id, symbol));
+CREATE TABLE portfolio_position_13 (portfolio_id VARCHAR(64) NOT NULL, symbol VARCHAR(255) NOT NULL, quantity INTEGER NOT NULL, PRIMARY KEY (portfolio_id, symbol));
+CREATE TABLE portfolio_position_14 (portfolio_id VARCHAR(64) NOT NULL, symbol VARCHAR(255) NOT NULL, quantity INTEGER NOT NULL, PRIMARY KEY (portfolio_id, symbol));
+CREATE TABLE portfolio_position_15 (portfolio_id VARCHAR(64) NOT NULL, symbol VARCHAR(255) NOT NULL, quantity INTEGER NOT NULL, PRIMARY KEY (portfolio_id, symbol));
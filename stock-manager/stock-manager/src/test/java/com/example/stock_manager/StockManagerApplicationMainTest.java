@@ -8,7 +8,8 @@ class StockManagerApplicationMainTest {
     void main_startsApplicationAndCanBeClosed() {
         StockManagerApplication.main(new String[] {
                 "--spring.main.web-application-type=none",
-                "--spring.main.banner-mode=off"
+                "--spring.main.banner-mode=off",
+                "--stock.journal.directory=target/test-journal-main"
         });
         StockManagerApplication.closeLastContext();
     }
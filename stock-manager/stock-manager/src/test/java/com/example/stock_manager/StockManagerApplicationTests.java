@@ -3,7 +3,7 @@ package com.example.stock_manager;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "stock.journal.directory=target/test-journal")
 class StockManagerApplicationTests {
 
 	@Test
@@ -0,0 +1,137 @@
+package com.example.stock_manager.bulk;
+
+import com.example.stock_manager.bulk.ImportResult.RowError;
+import com.example.stock_manager.service.StockPriceService;
+import com.example.stock_manager.service.StockTransactionService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class PositionBulkServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private SessionFactory sessionFactory;
+
+    @Mock
+    private StockTransactionService transactionService;
+
+    @Mock
+    private StockPriceService stockPriceService;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+    }
+
+    @Test
+    void testReportsLowestLinesWhenErrorsExceedTheCap() throws Exception {
+        // la riga 1 risulta duplicata solo al flush, dopo che le righe 2 e 3 sono gia' state rifiutate
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class)))
+                .thenReturn(new int[]{0, 1, 1});
+        PositionBulkService service = service(3, 2);
+
+        ImportResult result = service.importCsv(csv("""
+                AAPL,1
+                MSFT,x
+                GOOG,0
+                TSLA,1
+                AMZN,1
+                """));
+
+        assertEquals(2, result.imported());
+        assertEquals(3, result.rejected());
+        assertEquals(List.of(
+                new RowError(1, "AAPL", "Stock with symbol 'AAPL' already exists"),
+                new RowError(2, "MSFT", "Quantity must be an integer")), result.errors());
+    }
+
+    @Test
+    void testRejectsChunkThatFailsAgainAfterOneRetry() throws Exception {
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class)))
+                .thenThrow(new DuplicateKeyException("first"))
+                .thenThrow(new DuplicateKeyException("again"))
+                .thenReturn(new int[]{1});
+        PositionBulkService service = service(2, 10);
+
+        ImportResult result = service.importCsv(csv("""
+                AAPL,1
+                MSFT,2
+                GOOG,3
+                """));
+
+        // un solo nuovo tentativo per il primo blocco, poi l'import prosegue con il secondo
+        verify(jdbcTemplate, times(3)).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+        assertEquals(1, result.imported());
+        assertEquals(2, result.rejected());
+        assertEquals(List.of(
+                new RowError(1, "AAPL", "Chunk failed: again"),
+                new RowError(2, "MSFT", "Chunk failed: again")), result.errors());
+        verify(transactionManager, times(2)).rollback(any());
+    }
+
+    @Test
+    void testReportsNoErrorsWhenCapIsZero() throws Exception {
+        PositionBulkService service = service(2, 0);
+
+        ImportResult result = service.importCsv(csv("""
+                symbol,quantity
+                BRK.B,1
+                AAPL
+                """));
+
+        assertEquals(0, result.imported());
+        assertEquals(2, result.rejected());
+        assertTrue(result.errors().isEmpty());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+    }
+
+    private PositionBulkService service(int chunkSize, int maxReportedErrors) {
+        return new PositionBulkService(jdbcTemplate, transactionManager, eventPublisher, entityManagerFactory,
+                transactionService, stockPriceService, chunkSize, maxReportedErrors);
+    }
+
+    private static InputStream csv(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.stock_manager.cache;
+
+import com.example.stock_manager.model.Stock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StockCacheMetricsTest {
+
+    @Test
+    void testExposesHitsMissesAndRatioPerRegion() {
+        Statistics statistics = mock(Statistics.class);
+        CacheRegionStatistics entities = mock(CacheRegionStatistics.class);
+        when(statistics.getCacheRegionStatistics(Stock.CACHE_REGION)).thenReturn(entities);
+        when(entities.getHitCount()).thenReturn(30L);
+        when(entities.getMissCount()).thenReturn(10L);
+        when(entities.getPutCount()).thenReturn(12L);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        new StockCacheMetrics(statistics).bindTo(registry);
+
+        assertEquals(30.0, registry.get("stock.cache.requests")
+                .tags("region", Stock.CACHE_REGION, "result", "hit").functionCounter().count());
+        assertEquals(10.0, registry.get("stock.cache.requests")
+                .tags("region", Stock.CACHE_REGION, "result", "miss").functionCounter().count());
+        assertEquals(12.0, registry.get("stock.cache.puts").tag("region", Stock.CACHE_REGION).functionCounter().count());
+        assertEquals(0.75, registry.get("stock.cache.hit.ratio").tag("region", Stock.CACHE_REGION).gauge().value());
+        // regione senza statistiche (cache appena avviata o spenta)
+        assertEquals(0.0, registry.get("stock.cache.hit.ratio").tag("region", Stock.QUERY_CACHE_REGION).gauge().value());
+        assertEquals(0.0, registry.get("stock.cache.requests")
+                .tags("region", Stock.QUERY_CACHE_REGION, "result", "miss").functionCounter().count());
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.stock_manager.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadsCheckTest {
+
+    private final VirtualThreadsCheck check = new VirtualThreadsCheck();
+
+    @Test
+    void testReportsPlatformThreadsBeforeJava21() {
+        assertFalse(check.report(17));
+        assertTrue(check.report(VirtualThreadsCheck.MIN_JAVA_VERSION));
+    }
+
+    @Test
+    void testReportUsesRunningJavaVersion() {
+        assertDoesNotThrow(() -> check.report());
+    }
+}
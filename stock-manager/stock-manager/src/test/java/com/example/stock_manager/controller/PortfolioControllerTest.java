@@ -0,0 +1,147 @@
+package com.example.stock_manager.controller;
+
+import com.example.stock_manager.dto.CreateStockRequest;
+import com.example.stock_manager.dto.PortfolioSummary;
+import com.example.stock_manager.dto.StockResponse;
+import com.example.stock_manager.dto.StockValueResponse;
+import com.example.stock_manager.dto.TransactionRequest;
+import com.example.stock_manager.dto.UpdateStockRequest;
+import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.portfolio.ClientPortfolioService;
+import com.example.stock_manager.service.StockPriceService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PortfolioControllerTest {
+
+    @Mock
+    private ClientPortfolioService clientPortfolioService;
+
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
+    private StockPriceService stockPriceService;
+
+    @InjectMocks
+    private PortfolioController controller;
+
+    @Test
+    void create_returnsCreatedStockInPortfolio() {
+        CreateStockRequest request = CreateStockRequest.builder().symbol("aapl").quantity(50).build();
+        when(clientPortfolioService.createStock("c1", "aapl", 50))
+                .thenReturn(Stock.builder().symbol("AAPL").quantity(50).build());
+
+        ResponseEntity<StockResponse> response = controller.create("c1", request);
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals("AAPL", response.getBody().getSymbol());
+        assertEquals(50, response.getBody().getQuantity());
+    }
+
+    @Test
+    void findAll_mapsPortfolioPositions() {
+        when(clientPortfolioService.getAllStocks("c1")).thenReturn(List.of(
+                Stock.builder().symbol("AAPL").quantity(10).build(),
+                Stock.builder().symbol("MSFT").quantity(5).build()));
+
+        ResponseEntity<List<StockResponse>> response = controller.findAll("c1");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(List.of("AAPL", "MSFT"), response.getBody().stream().map(StockResponse::getSymbol).toList());
+    }
+
+    @Test
+    void findBySymbol_mapsPosition() {
+        when(clientPortfolioService.getStockBySymbol("c1", "MSFT"))
+                .thenReturn(Stock.builder().symbol("MSFT").quantity(3).build());
+
+        ResponseEntity<StockResponse> response = controller.findBySymbol("c1", "MSFT");
+
+        assertNotNull(response.getBody());
+        assertEquals(3, response.getBody().getQuantity());
+    }
+
+    @Test
+    void update_usesPathSymbolAndQuantity() {
+        when(clientPortfolioService.updateStock("c1", "AAPL", 20))
+                .thenReturn(Stock.builder().symbol("AAPL").quantity(20).build());
+
+        ResponseEntity<StockResponse> response = controller.update("c1", "AAPL",
+                UpdateStockRequest.builder().quantity(20).build());
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(20, response.getBody().getQuantity());
+    }
+
+    @Test
+    void delete_returnsNoContent() {
+        ResponseEntity<Void> response = controller.delete("c1", "AAPL");
+
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+        verify(clientPortfolioService).deleteStock("c1", "AAPL");
+    }
+
+    @Test
+    void aggregates_delegateToPortfolio() {
+        PortfolioSummary summary = PortfolioSummary.builder().totalValue(300.0).totalStocks(1).build();
+        when(clientPortfolioService.getTotalValue("c1")).thenReturn(300.0);
+        when(clientPortfolioService.getAveragePricePerShare("c1")).thenReturn(150.0);
+        when(clientPortfolioService.getPortfolioSummary("c1")).thenReturn(summary);
+
+        assertEquals(300.0, controller.getTotalValue("c1").getBody());
+        assertEquals(150.0, controller.getAveragePricePerShare("c1").getBody());
+        assertEquals(summary, controller.getSummary("c1").getBody());
+    }
+
+    @Test
+    void highestValue_pricesPositionOrReturnsNotFound() {
+        when(clientPortfolioService.findHighestValueStock("c1"))
+                .thenReturn(Stock.builder().symbol("AAPL").quantity(2).build());
+        when(stockPriceService.getPrice("AAPL")).thenReturn(150.0);
+
+        ResponseEntity<StockValueResponse> response = controller.getHighestValueStock("c1");
+
+        assertNotNull(response.getBody());
+        assertEquals(300.0, response.getBody().getTotalValue());
+        assertEquals(HttpStatus.NOT_FOUND, controller.getHighestValueStock("c2").getStatusCode());
+    }
+
+    @Test
+    void buyAndSell_returnResultingPosition() {
+        TransactionRequest request = TransactionRequest.builder().symbol("AAPL").quantity(5).build();
+        when(clientPortfolioService.buyStock("c1", "AAPL", 5))
+                .thenReturn(Stock.builder().symbol("AAPL").quantity(15).build());
+        when(clientPortfolioService.sellStock("c1", "AAPL", 5))
+                .thenReturn(Stock.builder().symbol("AAPL").quantity(10).build());
+
+        assertEquals(15, controller.buyStock("c1", request).getBody().getQuantity());
+        assertEquals(10, controller.sellStock("c1", request).getBody().getQuantity());
+    }
+
+    @Test
+    void sell_closingPositionReturnsNoContent() {
+        TransactionRequest request = TransactionRequest.builder().symbol("AAPL").quantity(5).build();
+        when(clientPortfolioService.sellStock("c1", "AAPL", 5)).thenReturn(null);
+
+        ResponseEntity<StockResponse> response = controller.sellStock("c1", request);
+
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+        assertNull(response.getBody());
+    }
+}
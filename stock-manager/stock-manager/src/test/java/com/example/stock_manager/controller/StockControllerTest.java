@@ -1,32 +1,71 @@
 package com.example.stock_manager.controller;
 
+import com.example.stock_manager.bulk.ImportResult;
+import com.example.stock_manager.bulk.PositionBulkService;
+import com.example.stock_manager.dto.BatchTransactionRequest;
+import com.example.stock_manager.dto.BatchTransactionResponse;
+import com.example.stock_manager.dto.Candle;
 import com.example.stock_manager.dto.CreateStockRequest;
+import com.example.stock_manager.dto.TransactionLegRequest;
 import com.example.stock_manager.dto.PortfolioSummary;
+import com.example.stock_manager.dto.PricePoint;
 import com.example.stock_manager.dto.StockResponse;
 import com.example.stock_manager.dto.StockValueResponse;
 import com.example.stock_manager.dto.TransactionRequest;
 import com.example.stock_manager.dto.UpdateStockRequest;
+import com.example.stock_manager.engine.StripedWriteEngine;
+import com.example.stock_manager.event.PriceUpdatedEvent;
+import com.example.stock_manager.history.CandleInterval;
+import com.example.stock_manager.history.PriceHistory;
+import com.example.stock_manager.ingest.IngestResult;
+import com.example.stock_manager.ingest.TickIngestionPipeline;
 import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.model.TransactionSide;
 import com.example.stock_manager.service.PortfolioService;
+import com.example.stock_manager.service.PortfolioVersion;
 import com.example.stock_manager.service.StockPriceService;
 import com.example.stock_manager.service.StockTransactionService;
+import com.example.stock_manager.stream.PriceStreamHub;
+import com.example.stock_manager.service.ValuedPosition;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,9 +77,27 @@ class StockControllerTest {
     @Mock
     private StockTransactionService transactionService;
 
-    @Mock
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
     private StockPriceService stockPriceService;
 
+    @Mock
+    private ObjectProvider<StripedWriteEngine> writeEngine;
+
+    @Mock
+    private PriceStreamHub priceStreamHub;
+
+    @Mock
+    private TickIngestionPipeline tickPipeline;
+
+    @Mock
+    private PriceHistory priceHistory;
+
+    @Spy
+    private PortfolioVersion portfolioVersion = new PortfolioVersion();
+
+    @Mock
+    private PositionBulkService bulkService;
+
     @InjectMocks
     private StockController controller;
 
@@ -65,7 +122,7 @@ class StockControllerTest {
                 Stock.builder().symbol("GOOGL").quantity(5).build()
         ));
 
-        ResponseEntity<List<StockResponse>> response = controller.findAll();
+        ResponseEntity<List<StockResponse>> response = controller.findAll(null, null, get());
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
@@ -114,7 +171,7 @@ class StockControllerTest {
     void getTotalValue_delegatesToPortfolioService() {
         when(portfolioService.getTotalValue()).thenReturn(123.45);
 
-        ResponseEntity<Double> response = controller.getTotalValue();
+        ResponseEntity<Double> response = controller.getTotalValue(get());
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(123.45, response.getBody());
@@ -124,7 +181,7 @@ class StockControllerTest {
     void getAveragePricePerShare_delegatesToPortfolioService() {
         when(portfolioService.getAveragePricePerShare()).thenReturn(10.0);
 
-        ResponseEntity<Double> response = controller.getAveragePricePerShare();
+        ResponseEntity<Double> response = controller.getAveragePricePerShare(get());
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(10.0, response.getBody());
@@ -139,9 +196,9 @@ class StockControllerTest {
                 .totalQuantity(3)
                 .stockDetails(List.of())
                 .build();
-        when(portfolioService.getPortfolioSummary()).thenReturn(summary);
+        when(portfolioService.getPortfolioSummary(true)).thenReturn(summary);
 
-        ResponseEntity<PortfolioSummary> response = controller.getSummary();
+        ResponseEntity<PortfolioSummary> response = controller.getSummary(true, get());
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
@@ -173,6 +230,19 @@ class StockControllerTest {
         assertEquals(5, response.getBody().getQuantity());
     }
 
+    @Test
+    void buyAndSell_goThroughWriteEngineWhenEnabled() {
+        StripedWriteEngine engine = mock(StripedWriteEngine.class);
+        when(writeEngine.getIfAvailable()).thenReturn(engine);
+        when(engine.execute(TransactionSide.BUY, "AAPL", 10)).thenReturn(Stock.builder().symbol("AAPL").quantity(10).build());
+        when(engine.execute(TransactionSide.SELL, "AAPL", 10)).thenReturn(null);
+        TransactionRequest request = TransactionRequest.builder().symbol("AAPL").quantity(10).build();
+
+        assertEquals(10, controller.buyStock(request).getBody().getQuantity());
+        assertEquals(HttpStatus.NO_CONTENT, controller.sellStock(request).getStatusCode());
+        verifyNoInteractions(transactionService);
+    }
+
     @Test
     void getHighestValueStock_returnsValueDto() {
         Stock highest = Stock.builder().symbol("GOOGL").quantity(2).build();
@@ -211,21 +281,21 @@ class StockControllerTest {
     }
 
     @Test
-    void getStocksSortedByValue_sortsUsingComputedTotalValue() {
-        when(transactionService.getAllStocks()).thenReturn(List.of(
-                Stock.builder().symbol("AAPL").quantity(10).build(),   // price 10 -> total 100
-                Stock.builder().symbol("GOOGL").quantity(1).build()   // price 1000 -> total 1000
+    void getStocksSortedByValue_readsValueIndex() {
+        when(portfolioService.getPositionsByValue(null, Integer.MAX_VALUE)).thenReturn(List.of(
+                new ValuedPosition("GOOGL", 1, 1000.0, 1000.0),
+                new ValuedPosition("AAPL", 10, 10.0, 100.0)
         ));
-        when(stockPriceService.getPrice("AAPL")).thenReturn(10.0);
-        when(stockPriceService.getPrice("GOOGL")).thenReturn(1000.0);
 
-        ResponseEntity<List<StockValueResponse>> response = controller.getStocksSortedByValue();
+        ResponseEntity<List<StockValueResponse>> response = controller.getStocksSortedByValue(null, null, get());
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
         assertEquals(2, response.getBody().size());
         assertEquals("GOOGL", response.getBody().get(0).getSymbol());
+        assertEquals(1000.0, response.getBody().get(0).getTotalValue());
         assertEquals("AAPL", response.getBody().get(1).getSymbol());
+        assertEquals(10, response.getBody().get(1).getQuantity());
     }
 
     @Test
@@ -237,5 +307,207 @@ class StockControllerTest {
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(999.0, response.getBody());
     }
-}
 
+    @Test
+    void findAll_keysetPageCarriesNextCursorWhenFull() {
+        when(transactionService.getStocksPage("AAPL", 2)).thenReturn(List.of(
+                Stock.builder().symbol("GOOGL").quantity(5).build(),
+                Stock.builder().symbol("MSFT").quantity(1).build()
+        ));
+
+        ResponseEntity<List<StockResponse>> response = controller.findAll("AAPL", 2, get());
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, response.getBody().size());
+        assertEquals("MSFT", response.getHeaders().getFirst(StockController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void findAll_lastPageHasNoCursor() {
+        when(transactionService.getStocksPage(null, 1000)).thenReturn(List.of(
+                Stock.builder().symbol("AAPL").quantity(5).build()
+        ));
+
+        ResponseEntity<List<StockResponse>> response = controller.findAll(null, 1000, get());
+
+        assertEquals(1, response.getBody().size());
+        assertNull(response.getHeaders().getFirst(StockController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void findAll_defaultsPageSizeWhenOnlyCursorGiven() {
+        when(transactionService.getStocksPage("AAPL", 1000)).thenReturn(List.of());
+
+        ResponseEntity<List<StockResponse>> response = controller.findAll("AAPL", null, get());
+
+        assertEquals(0, response.getBody().size());
+        assertNull(response.getHeaders().getFirst(StockController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void findAll_rejectsLimitOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> controller.findAll(null, 0, get()));
+        assertThrows(IllegalArgumentException.class, () -> controller.findAll(null, 1001, get()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamAll_writesOneJsonObjectPerLine() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Stock> consumer = invocation.getArgument(0);
+            consumer.accept(Stock.builder().symbol("AAPL").quantity(10).build());
+            consumer.accept(Stock.builder().symbol("GOOGL").quantity(5).build());
+            return null;
+        }).when(transactionService).streamAllStocks(any(Consumer.class));
+
+        ResponseEntity<StreamingResponseBody> response = controller.streamAll();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        assertEquals(StockController.NDJSON, response.getHeaders().getContentType().toString());
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("{\"symbol\":\"AAPL\",\"quantity\":10}", lines[0]);
+        assertEquals("{\"symbol\":\"GOOGL\",\"quantity\":5}", lines[1]);
+    }
+
+    @Test
+    void getStocksSortedByValue_pagesFromCursor() {
+        when(portfolioService.getPositionsByValue("GOOGL", 1)).thenReturn(List.of(
+                new ValuedPosition("AAPL", 10, 10.0, 100.0)
+        ));
+
+        ResponseEntity<List<StockValueResponse>> response = controller.getStocksSortedByValue("GOOGL", 1, get());
+
+        assertEquals(1, response.getBody().size());
+        assertEquals("AAPL", response.getHeaders().getFirst(StockController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void executeBatch_delegatesLegsToService() {
+        List<TransactionLegRequest> legs = List.of(
+                TransactionLegRequest.builder().side(TransactionSide.BUY).symbol("AAPL").quantity(1).build());
+        BatchTransactionResponse result = BatchTransactionResponse.builder().filled(1).results(List.of()).build();
+        when(transactionService.executeBatch(legs)).thenReturn(result);
+
+        ResponseEntity<BatchTransactionResponse> response =
+                controller.executeBatch(BatchTransactionRequest.builder().legs(legs).build());
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().getFilled());
+    }
+
+    @Test
+    void streamPrices_subscribesToRequestedSymbols() {
+        SseEmitter emitter = new SseEmitter();
+        when(priceStreamHub.subscribe(List.of("AAPL", "MSFT"))).thenReturn(emitter);
+        when(priceStreamHub.subscribe(List.of())).thenReturn(emitter);
+
+        assertSame(emitter, controller.streamPrices(List.of("AAPL", "MSFT")));
+        assertSame(emitter, controller.streamPrices(null));
+    }
+
+    @Test
+    void ingestTicks_delegatesBodyToPipeline() throws Exception {
+        InputStream body = new ByteArrayInputStream("AAPL,151.5\n".getBytes(StandardCharsets.US_ASCII));
+        when(tickPipeline.ingest(body)).thenReturn(new IngestResult(1, 0));
+
+        ResponseEntity<IngestResult> response = controller.ingestTicks(body);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(new IngestResult(1, 0), response.getBody());
+    }
+
+    @Test
+    void importPositions_delegatesBodyToBulkService() throws Exception {
+        InputStream body = new ByteArrayInputStream("AAPL,10\n".getBytes(StandardCharsets.US_ASCII));
+        ImportResult result = new ImportResult(1, 0, List.of());
+        when(bulkService.importCsv(body)).thenReturn(result);
+
+        ResponseEntity<ImportResult> response = controller.importPositions(body);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(result, response.getBody());
+    }
+
+    @Test
+    void exportPositions_streamsCsvFromBulkService() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = controller.exportPositions();
+        OutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        assertEquals("text/csv", response.getHeaders().getContentType().toString());
+        verify(bulkService).exportCsv(out);
+    }
+
+    @Test
+    void getCandles_parsesIntervalAndLimit() {
+        List<Candle> candles = List.of(Candle.builder().start(60_000).open(1).high(2).low(1).close(2).ticks(3).build());
+        when(priceHistory.candles("AAPL", CandleInterval.HOUR, 1000)).thenReturn(candles);
+        when(priceHistory.candles("AAPL", CandleInterval.SECOND, 5)).thenReturn(List.of());
+
+        assertSame(candles, controller.getCandles("AAPL", "1h", null).getBody());
+        assertEquals(List.of(), controller.getCandles("AAPL", "1s", 5).getBody());
+        assertThrows(IllegalArgumentException.class, () -> controller.getCandles("AAPL", "5m", null));
+        assertThrows(IllegalArgumentException.class, () -> controller.getCandles("AAPL", "1m", 0));
+    }
+
+    @Test
+    void getRecentTicks_delegatesToHistory() {
+        List<PricePoint> ticks = List.of(PricePoint.builder().timestamp(1L).price(150.0).build());
+        when(priceHistory.ticks("AAPL", 10)).thenReturn(ticks);
+
+        ResponseEntity<List<PricePoint>> response = controller.getRecentTicks("AAPL", 10);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(ticks, response.getBody());
+    }
+
+    @Test
+    void pollingReadsCarryTheVersionAsEtag() {
+        when(portfolioService.getTotalValue()).thenReturn(10.0);
+
+        ResponseEntity<Double> response = controller.getTotalValue(get());
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(portfolioVersion.etag(), response.getHeaders().getETag());
+    }
+
+    @Test
+    void matchingIfNoneMatchShortCircuitsBeforeTheServices() {
+        String etag = portfolioVersion.etag();
+
+        assertEquals(HttpStatus.NOT_MODIFIED, controller.getSummary(true, get(etag)).getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED, controller.getTotalValue(get(etag)).getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED, controller.getAveragePricePerShare(get(etag)).getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED, controller.findAll(null, null, get(etag)).getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED, controller.findAll("AAPL", 10, get(etag)).getStatusCode());
+        ResponseEntity<List<StockValueResponse>> sorted = controller.getStocksSortedByValue(null, null, get(etag));
+        assertEquals(HttpStatus.NOT_MODIFIED, sorted.getStatusCode());
+        assertEquals(etag, sorted.getHeaders().getETag());
+        verifyNoInteractions(portfolioService, transactionService, stockPriceService);
+    }
+
+    @Test
+    void staleIfNoneMatchRecomputesAfterAWrite() {
+        String etag = portfolioVersion.etag();
+        portfolioVersion.onPriceUpdated(new PriceUpdatedEvent("AAPL", 1.0, 2.0));
+        when(portfolioService.getTotalValue()).thenReturn(20.0);
+
+        ResponseEntity<Double> response = controller.getTotalValue(get(etag));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(20.0, response.getBody());
+        assertEquals(portfolioVersion.etag(), response.getHeaders().getETag());
+    }
+
+    private static WebRequest get() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/api/stocks"), new MockHttpServletResponse());
+    }
+
+    private static WebRequest get(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/stocks");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+}
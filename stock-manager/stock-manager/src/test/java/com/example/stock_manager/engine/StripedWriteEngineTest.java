@@ -0,0 +1,195 @@
+package com.example.stock_manager.engine;
+
+import com.example.stock_manager.exception.InsufficientStockException;
+import com.example.stock_manager.exception.QuantityOverflowException;
+import com.example.stock_manager.exception.StockNotFoundException;
+import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.model.TransactionSide;
+import com.example.stock_manager.repository.StockRepository;
+import com.example.stock_manager.service.StockTransactionService;
+import com.example.stock_manager.symbol.SymbolRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class StripedWriteEngineTest {
+
+    @Mock
+    private StockTransactionService transactionService;
+
+    @Mock
+    private StockRepository stockRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SymbolRegistry symbols = new SymbolRegistry();
+
+    private StripedWriteEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        engine = new StripedWriteEngine(transactionService, stockRepository, symbols, transactionManager, 1, 64, 64);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (engine.isRunning()) {
+            engine.stop();
+        }
+    }
+
+    @Test
+    void testCoalescesQueuedOperationsIntoOneNetUpdate() throws Exception {
+        when(stockRepository.findForUpdateBySymbol("AAPL"))
+                .thenReturn(Optional.of(Stock.builder().symbol("AAPL").quantity(10).build()));
+
+        // accodate prima dell'avvio: la corsia le preleva tutte in un solo batch
+        CompletableFuture<Stock> buy = engine.submit(TransactionSide.BUY, "aapl", 5);
+        CompletableFuture<Stock> sell = engine.submit(TransactionSide.SELL, "AAPL", 3);
+        CompletableFuture<Stock> tooMuch = engine.submit(TransactionSide.SELL, "AAPL", 20);
+        CompletableFuture<Stock> closing = engine.submit(TransactionSide.SELL, "AAPL", 12);
+        CompletableFuture<Stock> afterClose = engine.submit(TransactionSide.SELL, "AAPL", 1);
+        engine.start();
+
+        assertEquals(15, buy.get(5, TimeUnit.SECONDS).getQuantity());
+        assertEquals(12, sell.get(5, TimeUnit.SECONDS).getQuantity());
+        assertInstanceOf(InsufficientStockException.class, cause(tooMuch));
+        assertNull(closing.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(StockNotFoundException.class, cause(afterClose));
+
+        verify(transactionService).applyFills("AAPL", new int[]{5, -3, -12});
+        verify(transactionService, never()).buyStock(anyString(), anyInt());
+        verify(transactionService, never()).sellStock(anyString(), anyInt());
+    }
+
+    @Test
+    void testCoalescedBuyThatOverflowsIsRejectedAlone() throws Exception {
+        when(stockRepository.findForUpdateBySymbol("AAPL"))
+                .thenReturn(Optional.of(Stock.builder().symbol("AAPL").quantity(Integer.MAX_VALUE - 10).build()));
+
+        CompletableFuture<Stock> fits = engine.submit(TransactionSide.BUY, "AAPL", 10);
+        CompletableFuture<Stock> overflow = engine.submit(TransactionSide.BUY, "AAPL", 1);
+        CompletableFuture<Stock> sell = engine.submit(TransactionSide.SELL, "AAPL", 5);
+        engine.start();
+
+        assertEquals(Integer.MAX_VALUE, fits.get(5, TimeUnit.SECONDS).getQuantity());
+        assertInstanceOf(QuantityOverflowException.class, cause(overflow));
+        assertEquals(Integer.MAX_VALUE - 5, sell.get(5, TimeUnit.SECONDS).getQuantity());
+        verify(transactionService).applyFills("AAPL", new int[]{10, -5});
+        verify(transactionService, never()).buyStock(anyString(), anyInt());
+    }
+
+    @Test
+    void testCoalescesEachSymbolSeparately() throws Exception {
+        when(stockRepository.findForUpdateBySymbol("AAPL")).thenReturn(Optional.empty());
+        when(stockRepository.findForUpdateBySymbol("TSLA"))
+                .thenReturn(Optional.of(Stock.builder().symbol("TSLA").quantity(1).build()));
+
+        CompletableFuture<Stock> apple1 = engine.submit(TransactionSide.BUY, "AAPL", 1);
+        CompletableFuture<Stock> tesla1 = engine.submit(TransactionSide.BUY, "TSLA", 1);
+        CompletableFuture<Stock> apple2 = engine.submit(TransactionSide.BUY, "AAPL", 2);
+        CompletableFuture<Stock> tesla2 = engine.submit(TransactionSide.SELL, "TSLA", 2);
+        engine.start();
+
+        assertEquals(3, apple2.get(5, TimeUnit.SECONDS).getQuantity());
+        assertEquals(1, apple1.get(5, TimeUnit.SECONDS).getQuantity());
+        assertEquals(2, tesla1.get(5, TimeUnit.SECONDS).getQuantity());
+        assertNull(tesla2.get(5, TimeUnit.SECONDS));
+        InOrder order = inOrder(transactionService);
+        order.verify(transactionService).applyFills("AAPL", new int[]{1, 2});
+        order.verify(transactionService).applyFills("TSLA", new int[]{1, -2});
+    }
+
+    @Test
+    void testSingleOperationUsesRegularPath() throws Exception {
+        when(transactionService.buyStock("AAPL", 5)).thenReturn(Stock.builder().symbol("AAPL").quantity(5).build());
+        engine.start();
+
+        Stock stock = engine.execute(TransactionSide.BUY, "AAPL", 5);
+
+        assertEquals(5, stock.getQuantity());
+        verify(transactionService, never()).applyFills(anyString(), any());
+    }
+
+    @Test
+    void testExecuteRethrowsOriginalException() {
+        when(transactionService.sellStock("AAPL", 5)).thenThrow(new InsufficientStockException("AAPL", 1, 5));
+        engine.start();
+
+        assertThrows(InsufficientStockException.class, () -> engine.execute(TransactionSide.SELL, "AAPL", 5));
+    }
+
+    @Test
+    void testFailedCoalescedUpdateIsReplayedOneByOne() throws Exception {
+        when(stockRepository.findForUpdateBySymbol("AAPL")).thenReturn(Optional.empty());
+        when(transactionService.applyFills("AAPL", new int[]{1, 2})).thenThrow(new IllegalStateException("boom"));
+        when(transactionService.buyStock("AAPL", 1)).thenReturn(Stock.builder().symbol("AAPL").quantity(1).build());
+        when(transactionService.buyStock("AAPL", 2)).thenReturn(Stock.builder().symbol("AAPL").quantity(3).build());
+
+        CompletableFuture<Stock> first = engine.submit(TransactionSide.BUY, "AAPL", 1);
+        CompletableFuture<Stock> second = engine.submit(TransactionSide.BUY, "AAPL", 2);
+        engine.start();
+
+        assertEquals(1, first.get(5, TimeUnit.SECONDS).getQuantity());
+        assertEquals(3, second.get(5, TimeUnit.SECONDS).getQuantity());
+        InOrder order = inOrder(transactionService);
+        order.verify(transactionService).buyStock("AAPL", 1);
+        order.verify(transactionService).buyStock("AAPL", 2);
+    }
+
+    @Test
+    void testStopFailsPendingAndRejectsNewOperations() {
+        engine.start();
+        engine.stop();
+        assertFalse(engine.isRunning());
+
+        assertThrows(IllegalStateException.class, () -> engine.submit(TransactionSide.BUY, "AAPL", 1));
+    }
+
+    @Test
+    void testStopBeforeStartFailsQueuedOperations() {
+        CompletableFuture<Stock> queued = engine.submit(TransactionSide.BUY, "AAPL", 1);
+
+        engine.stop();
+
+        assertInstanceOf(IllegalStateException.class, cause(queued));
+    }
+
+    @Test
+    void testRejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> engine.submit(TransactionSide.BUY, "AAPL", 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new StripedWriteEngine(transactionService, stockRepository, symbols, transactionManager, 0, 1, 1));
+    }
+
+    private static Throwable cause(CompletableFuture<Stock> future) {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        return e.getCause();
+    }
+}
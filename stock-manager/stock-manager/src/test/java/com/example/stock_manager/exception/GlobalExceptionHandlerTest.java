@@ -1,8 +1,11 @@
 package com.example.stock_manager.exception;
 
+import com.example.stock_manager.metrics.StockMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -15,48 +18,94 @@ import static org.mockito.Mockito.when;
 
 class GlobalExceptionHandlerTest {
 
-    private final GlobalExceptionHandler handler = new GlobalExceptionHandler();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final GlobalExceptionHandler handler = new GlobalExceptionHandler(new StockMetrics(registry));
+    private final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/stocks/sell");
 
     @Test
     void testHandleStockNotFound() {
         StockNotFoundException ex = new StockNotFoundException("AAPL");
-        ResponseEntity<GlobalExceptionHandler.ErrorResponse> response = handler.handleStockNotFound(ex);
+        ResponseEntity<GlobalExceptionHandler.ErrorResponse> response = handler.handleStockNotFound(ex, request);
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         assertNotNull(response.getBody());
         assertEquals(404, response.getBody().getStatus());
         assertEquals("Not Found", response.getBody().getError());
         assertTrue(response.getBody().getMessage().contains("AAPL"));
+        assertEquals(1, registry.counter("stock.rejections", "exception", "StockNotFoundException").count());
     }
 
     @Test
     void testHandleDuplicateStock() {
         DuplicateStockException ex = new DuplicateStockException("AAPL");
-        ResponseEntity<GlobalExceptionHandler.ErrorResponse> response = handler.handleDuplicateStock(ex);
+        ResponseEntity<GlobalExceptionHandler.ErrorResponse> response = handler.handleDuplicateStock(ex, request);
 
         assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
         assertNotNull(response.getBody());
         assertEquals(409, response.getBody().getStatus());
         assertEquals("Conflict", response.getBody().getError());
         assertTrue(response.getBody().getMessage().contains("AAPL"));
+        assertEquals(1, registry.counter("stock.rejections", "exception", "DuplicateStockException").count());
     }
 
     @Test
     void testHandleInsufficientStock() {
         InsufficientStockException ex = new InsufficientStockException("AAPL", 5, 10);
-        ResponseEntity<GlobalExceptionHandler.ErrorResponse> response = handler.handleInsufficientStock(ex);
+        ResponseEntity<GlobalExceptionHandler.ErrorResponse> response = handler.handleInsufficientStock(ex, request);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
         assertNotNull(response.getBody());
         assertEquals(400, response.getBody().getStatus());
         assertEquals("Bad Request", response.getBody().getError());
         assertTrue(response.getBody().getMessage().contains("AAPL"));
+        assertEquals("/api/stocks/sell", response.getBody().getPath());
+        assertEquals(1, registry.counter("stock.rejections", "exception", "InsufficientStockException").count());
+    }
+
+    @Test
+    void testHandleQuantityOverflow() {
+        QuantityOverflowException ex = new QuantityOverflowException("AAPL", Integer.MAX_VALUE, 1);
+        ResponseEntity<GlobalExceptionHandler.ErrorResponse> response = handler.handleQuantityOverflow(ex, request);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals("Quantity overflow for 'AAPL': held 2147483647, requested 1", response.getBody().getMessage());
+        assertEquals(1, registry.counter("stock.rejections", "exception", "QuantityOverflowException").count());
+    }
+
+    @Test
+    void testHandleStaleCursor() {
+        StaleCursorException ex = new StaleCursorException("AAPL");
+        ResponseEntity<GlobalExceptionHandler.ErrorResponse> response = handler.handleStaleCursor(ex, request);
+
+        assertEquals(HttpStatus.GONE, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals("Cursor 'AAPL' is no longer in the portfolio; restart from the first page",
+                response.getBody().getMessage());
+        assertEquals(1, registry.counter("stock.rejections", "exception", "StaleCursorException").count());
+    }
+
+    @Test
+    void testRejectionsReuseCounterPerExceptionType() {
+        handler.handleInsufficientStock(new InsufficientStockException("AAPL", 5, 10), request);
+        handler.handleInsufficientStock(new InsufficientStockException("MSFT", 1, 2), request);
+
+        assertEquals(2, registry.counter("stock.rejections", "exception", "InsufficientStockException").count());
+    }
+
+    @Test
+    void testBusinessExceptionsAreStackless() {
+        assertEquals(0, new StockNotFoundException("AAPL").getStackTrace().length);
+        assertEquals(0, new DuplicateStockException("AAPL").getStackTrace().length);
+        assertEquals(0, new InsufficientStockException("AAPL", 5, 10).getStackTrace().length);
+        assertEquals("Insufficient stock for 'AAPL': available 5, requested 10",
+                new InsufficientStockException("AAPL", 5, 10).getMessage());
     }
 
     @Test
     void testHandleIllegalArgument() {
         IllegalArgumentException ex = new IllegalArgumentException("Invalid quantity");
-        ResponseEntity<GlobalExceptionHandler.ErrorResponse> response = handler.handleIllegalArgument(ex);
+        ResponseEntity<GlobalExceptionHandler.ErrorResponse> response = handler.handleIllegalArgument(ex, request);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
         assertNotNull(response.getBody());
@@ -83,7 +132,7 @@ class GlobalExceptionHandlerTest {
     @Test
     void testHandleGenericException() {
         Exception ex = new Exception("Something went wrong");
-        ResponseEntity<GlobalExceptionHandler.ErrorResponse> response = handler.handleGenericException(ex);
+        ResponseEntity<GlobalExceptionHandler.ErrorResponse> response = handler.handleGenericException(ex, request);
 
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
         assertNotNull(response.getBody());
@@ -0,0 +1,127 @@
+package com.example.stock_manager.history;
+
+import com.example.stock_manager.dto.Candle;
+import com.example.stock_manager.dto.PricePoint;
+import com.example.stock_manager.event.PriceUpdatedEvent;
+import com.example.stock_manager.symbol.SymbolRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceHistoryTest {
+
+    private static final long T0 = 1_760_000_000_000L;
+
+    private final SymbolRegistry symbols = new SymbolRegistry();
+
+    @Test
+    void testRollsTicksIntoCandlesAtEveryResolution() {
+        PriceHistory history = history(16, 16);
+
+        history.record("AAPL", T0 + 100, 10.0);
+        history.record("AAPL", T0 + 400, 12.0);
+        history.record("AAPL", T0 + 900, 9.0);
+        history.record("AAPL", T0 + 1_200, 11.0);
+
+        List<Candle> seconds = history.candles("aapl", CandleInterval.SECOND, 10);
+        assertEquals(2, seconds.size());
+        assertCandle(seconds.get(0), T0, 10.0, 12.0, 9.0, 9.0, 3);
+        assertCandle(seconds.get(1), T0 + 1_000, 11.0, 11.0, 11.0, 11.0, 1);
+
+        List<Candle> minutes = history.candles("AAPL", CandleInterval.MINUTE, 10);
+        assertEquals(1, minutes.size());
+        assertCandle(minutes.get(0), T0 - T0 % 60_000, 10.0, 12.0, 9.0, 11.0, 4);
+        assertEquals(4, history.candles("AAPL", CandleInterval.HOUR, 10).get(0).getTicks());
+    }
+
+    @Test
+    void testRingsKeepOnlyTheConfiguredDepth() {
+        PriceHistory history = history(3, 2);
+
+        for (int i = 0; i < 5; i++) {
+            history.record("MSFT", T0 + i * 1_000L, 100.0 + i);
+        }
+
+        List<Candle> seconds = history.candles("MSFT", CandleInterval.SECOND, 100);
+        assertEquals(2, seconds.size());
+        assertEquals(103.0, seconds.get(0).getOpen());
+        assertEquals(104.0, seconds.get(1).getOpen());
+        assertEquals(1, history.candles("MSFT", CandleInterval.SECOND, 1).size());
+
+        List<PricePoint> ticks = history.ticks("MSFT", 100);
+        assertEquals(List.of(102.0, 103.0, 104.0), ticks.stream().map(PricePoint::getPrice).toList());
+        assertEquals(T0 + 4_000L, ticks.get(2).getTimestamp());
+        assertEquals(List.of(104.0), history.ticks("MSFT", 1).stream().map(PricePoint::getPrice).toList());
+    }
+
+    @Test
+    void testLateTickMergesIntoCurrentCandle() {
+        PriceHistory history = history(8, 8);
+
+        history.record("TSLA", T0 + 5_000, 800.0);
+        history.record("TSLA", T0 + 1_000, 790.0);
+
+        List<Candle> seconds = history.candles("TSLA", CandleInterval.SECOND, 10);
+        assertEquals(1, seconds.size());
+        assertCandle(seconds.get(0), T0 + 5_000, 800.0, 800.0, 790.0, 790.0, 2);
+    }
+
+    @Test
+    void testRecordsPriceEventsAndExposesSymbolCount() {
+        PriceHistory history = history(8, 8);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        history.bindTo(registry);
+
+        history.onPriceUpdated(new PriceUpdatedEvent("GOOGL", 2800.0, 2810.0));
+
+        assertEquals(2810.0, history.ticks("GOOGL", 10).get(0).getPrice());
+        assertEquals(1, history.candles("GOOGL", CandleInterval.HOUR, 10).size());
+        assertEquals(1, registry.get("stock.history.symbols").gauge().value());
+    }
+
+    @Test
+    void testSymbolsBeyondTheCapAreCountedNotRecorded() {
+        PriceHistory history = new PriceHistory(symbols, 8, 8, 2);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        history.bindTo(registry);
+
+        history.record("AAPL", 1_000, 150.0);
+        history.record("MSFT", 1_000, 350.0);
+        history.record("TSLA", 1_000, 800.0);
+        history.record("aapl", 2_000, 151.0);
+
+        assertEquals(2, history.ticks("AAPL", 10).size());
+        assertTrue(history.ticks("TSLA", 10).isEmpty());
+        assertEquals(2.0, registry.get("stock.history.symbols").gauge().value());
+        assertEquals(1.0, registry.get("stock.history.dropped").functionCounter().count());
+        assertThrows(IllegalArgumentException.class, () -> new PriceHistory(symbols, 8, 8, 0));
+    }
+
+    @Test
+    void testUnknownSymbolAndInvalidArguments() {
+        PriceHistory history = history(8, 8);
+
+        assertTrue(history.candles("NONE", CandleInterval.MINUTE, 10).isEmpty());
+        assertTrue(history.ticks("NONE", 10).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> history(0, 8));
+        assertEquals(CandleInterval.HOUR, CandleInterval.of(" 1H "));
+        assertThrows(IllegalArgumentException.class, () -> CandleInterval.of("5m"));
+    }
+
+    private PriceHistory history(int tickDepth, int candleDepth) {
+        return new PriceHistory(symbols, tickDepth, candleDepth, 1000);
+    }
+
+    private static void assertCandle(Candle candle, long start, double open, double high, double low,
+                                     double close, long ticks) {
+        assertEquals(start, candle.getStart());
+        assertEquals(open, candle.getOpen());
+        assertEquals(high, candle.getHigh());
+        assertEquals(low, candle.getLow());
+        assertEquals(close, candle.getClose());
+        assertEquals(ticks, candle.getTicks());
+    }
+}
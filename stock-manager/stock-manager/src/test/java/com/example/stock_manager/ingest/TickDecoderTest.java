@@ -0,0 +1,112 @@
+package com.example.stock_manager.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickDecoderTest {
+
+    private final List<String> symbols = new ArrayList<>();
+    private final List<Double> prices = new ArrayList<>();
+    private final List<Integer> batches = new ArrayList<>();
+
+    private TickDecoder decoder(int batchSize) {
+        return new TickDecoder(batchSize, (s, p, count) -> {
+            batches.add(count);
+            for (int i = 0; i < count; i++) {
+                symbols.add(s[i]);
+                prices.add(p[i]);
+            }
+        });
+    }
+
+    @Test
+    void testDecodesLinesCommentsAndExtraFields() throws Exception {
+        String input = "# header\nAAPL,150.25,1760000000000\r\n\n msft , 350 \ngoogl,2800.5";
+        TickDecoder decoder = decoder(100);
+
+        decoder.decode(new ByteArrayInputStream(input.getBytes(StandardCharsets.US_ASCII)));
+
+        assertEquals(List.of("AAPL", "MSFT", "GOOGL"), symbols);
+        assertEquals(List.of(150.25, 350.0, 2800.5), prices);
+        assertEquals(3, decoder.accepted());
+        assertEquals(0, decoder.rejected());
+    }
+
+    @Test
+    void testLinesSplitAcrossChunks() {
+        byte[] input = "AAPL,151.5\nMSFT,352.75\n".getBytes(StandardCharsets.US_ASCII);
+        TickDecoder decoder = decoder(100);
+
+        for (byte b : input) {
+            decoder.decode(new byte[]{b}, 0, 1);
+        }
+        decoder.finish();
+
+        assertEquals(List.of("AAPL", "MSFT"), symbols);
+        assertEquals(List.of(151.5, 352.75), prices);
+    }
+
+    @Test
+    void testRejectsMalformedLines() {
+        String input = "AAPL\n,10\nAAPL,\nAAPL,abc\nAAPL,-5\nAAPL,0\nAA PL,10\nAAPL,1.2.3\nAAPL,Infinity\nMSFT,1e2\n"
+                + "X".repeat(TickDecoder.MAX_LINE + 10) + ",1\n";
+        TickDecoder decoder = decoder(100);
+
+        decoder.decode(input.getBytes(StandardCharsets.US_ASCII), 0, input.length());
+        decoder.finish();
+
+        assertEquals(List.of("MSFT"), symbols);
+        assertEquals(List.of(100.0), prices);
+        assertEquals(10, decoder.rejected());
+    }
+
+    @Test
+    void testRejectsSymbolsOutsideTheValidSymbolRule() {
+        String input = "BRK.B,10\nS&P,10\nABCDEFGHIJK,10\nAAPL\u00e9,10\nABCDEFGHIJ,10\n";
+        TickDecoder decoder = decoder(100);
+
+        decoder.decode(input.getBytes(StandardCharsets.UTF_8), 0, input.getBytes(StandardCharsets.UTF_8).length);
+        decoder.finish();
+
+        assertEquals(List.of("ABCDEFGHIJ"), symbols);
+        assertEquals(4, decoder.rejected());
+    }
+
+    @Test
+    void testFlushesFullBatchesAndReusesSymbols() {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 5; i++) {
+            input.append("aapl,").append(100 + i).append(".5\n");
+        }
+        TickDecoder decoder = decoder(2);
+
+        decoder.decode(input.toString().getBytes(StandardCharsets.US_ASCII), 0, input.length());
+        decoder.finish();
+
+        assertEquals(List.of(2, 2, 1), batches);
+        assertEquals(104.5, prices.get(4));
+        assertSame(symbols.get(0), symbols.get(4));
+    }
+
+    @Test
+    void testLongPricesFallBackToExactParse() {
+        String input = "AAPL,123.4567890123456789\n";
+        TickDecoder decoder = decoder(10);
+
+        decoder.decode(input.getBytes(StandardCharsets.US_ASCII), 0, input.length());
+        decoder.finish();
+
+        assertEquals(Double.parseDouble("123.4567890123456789"), prices.get(0));
+    }
+
+    @Test
+    void testRejectsInvalidBatchSize() {
+        assertThrows(IllegalArgumentException.class, () -> decoder(0));
+    }
+}
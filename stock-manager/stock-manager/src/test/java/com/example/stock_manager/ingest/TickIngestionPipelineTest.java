@@ -0,0 +1,169 @@
+package com.example.stock_manager.ingest;
+
+import com.example.stock_manager.service.impl.StockPriceServiceImpl;
+import com.example.stock_manager.symbol.SymbolRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickIngestionPipelineTest {
+
+    private final SymbolRegistry symbols = new SymbolRegistry();
+
+    private TickIngestionPipeline pipeline;
+
+    @AfterEach
+    void tearDown() {
+        if (pipeline != null) {
+            pipeline.stop();
+        }
+    }
+
+    @Test
+    void testIngestAppliesLastPricePerSymbol() throws Exception {
+        StockPriceServiceImpl priceService = new StockPriceServiceImpl(symbols);
+        pipeline = new TickIngestionPipeline(priceService, symbols, 2, 16, 1024);
+        pipeline.start();
+
+        IngestResult result = pipeline.ingest(new ByteArrayInputStream(
+                "AAPL,151\nmsft,351\nAAPL,152\nbad\nAAPL,153\n".getBytes(StandardCharsets.US_ASCII)));
+
+        assertEquals(new IngestResult(4, 1), result);
+        assertTrue(pipeline.awaitDrained(Duration.ofSeconds(5)));
+        assertEquals(153.0, priceService.getPrice("AAPL"));
+        assertEquals(351.0, priceService.getPrice("MSFT"));
+        assertEquals(0, pipeline.pending());
+    }
+
+    @Test
+    void testNewSymbolsBeyondTheRegistryCapAreRejected() throws Exception {
+        // i 5 prezzi mock del servizio occupano gia' 5 posti del registro
+        SymbolRegistry capped = new SymbolRegistry(6);
+        StockPriceServiceImpl priceService = new StockPriceServiceImpl(capped);
+        pipeline = new TickIngestionPipeline(priceService, capped, 16, 16, 1024);
+        pipeline.start();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        pipeline.bindTo(registry);
+
+        pipeline.offer(new String[]{"NEW1", "NEW2", "aapl", "NEW3"}, new double[]{1.0, 2.0, 151.0, 3.0}, 4);
+
+        assertTrue(pipeline.awaitDrained(Duration.ofSeconds(5)));
+        assertEquals(1.0, priceService.getPrice("NEW1"));
+        assertEquals(151.0, priceService.getPrice("AAPL"));
+        assertEquals(6, capped.size());
+        assertEquals(2.0, registry.get("stock.ingest.ticks").tag("result", "rejected").functionCounter().count());
+        assertEquals(2.0, registry.get("stock.ingest.ticks").tag("result", "accepted").functionCounter().count());
+    }
+
+    @Test
+    void testConflatesTicksWhileApplierIsBusy() throws Exception {
+        BlockingPriceService priceService = new BlockingPriceService(symbols);
+        pipeline = new TickIngestionPipeline(priceService, symbols, 16, 16, 1024);
+        pipeline.start();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        pipeline.bindTo(registry);
+
+        pipeline.offer(new String[]{"AAPL"}, new double[]{151.0}, 1);
+        assertTrue(priceService.entered.await(5, TimeUnit.SECONDS));
+        pipeline.offer(new String[]{"MSFT", "MSFT", "MSFT", "AAPL"}, new double[]{1.0, 2.0, 3.0, 155.0}, 4);
+        assertEquals(3, pipeline.pending());
+        priceService.gate.countDown();
+
+        assertTrue(pipeline.awaitDrained(Duration.ofSeconds(5)));
+        assertEquals(3.0, priceService.getPrice("MSFT"));
+        assertEquals(155.0, priceService.getPrice("AAPL"));
+        assertEquals(2, registry.get("stock.ingest.conflated").functionCounter().count());
+        assertEquals(5, registry.get("stock.ingest.ticks").tag("result", "accepted").functionCounter().count());
+        assertEquals(3, registry.get("stock.ingest.applied").functionCounter().count());
+    }
+
+    @Test
+    void testProducerWaitsWhenPendingLimitIsReached() throws Exception {
+        BlockingPriceService priceService = new BlockingPriceService(symbols);
+        pipeline = new TickIngestionPipeline(priceService, symbols, 16, 16, 1);
+        pipeline.start();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        pipeline.bindTo(registry);
+
+        pipeline.offer(new String[]{"AAPL"}, new double[]{151.0}, 1);
+        assertTrue(priceService.entered.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> blocked = CompletableFuture.runAsync(
+                () -> pipeline.offer(new String[]{"MSFT"}, new double[]{351.0}, 1));
+
+        Thread.sleep(100);
+        assertFalse(blocked.isDone());
+        assertEquals(1, registry.get("stock.ingest.backpressure").functionCounter().count());
+        priceService.gate.countDown();
+
+        blocked.get(5, TimeUnit.SECONDS);
+        assertTrue(pipeline.awaitDrained(Duration.ofSeconds(5)));
+        assertEquals(351.0, priceService.getPrice("MSFT"));
+    }
+
+    @Test
+    void testRejectsInvalidPricesAndStoppedPipeline() {
+        StockPriceServiceImpl priceService = new StockPriceServiceImpl(symbols);
+        pipeline = new TickIngestionPipeline(priceService, symbols, 16, 16, 16);
+
+        assertThrows(IllegalStateException.class,
+                () -> pipeline.offer(new String[]{"AAPL"}, new double[]{151.0}, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TickIngestionPipeline(priceService, symbols, 0, 16, 16));
+
+        pipeline.start();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        pipeline.bindTo(registry);
+        pipeline.offer(new String[]{"AAPL", "MSFT"}, new double[]{-1.0, Double.NaN}, 2);
+
+        assertEquals(2, registry.get("stock.ingest.ticks").tag("result", "rejected").functionCounter().count());
+        assertEquals(0, pipeline.pending());
+        assertEquals(150.0, priceService.getPrice("AAPL"));
+    }
+
+    @Test
+    void testStopAppliesQueuedTicks() {
+        StockPriceServiceImpl priceService = new StockPriceServiceImpl(symbols);
+        pipeline = new TickIngestionPipeline(priceService, symbols, 16, 1, 1024);
+        pipeline.start();
+
+        for (int i = 1; i <= 100; i++) {
+            pipeline.offer(new String[]{"S" + i}, new double[]{i}, 1);
+        }
+        pipeline.stop();
+
+        assertFalse(pipeline.isRunning());
+        assertEquals(0, pipeline.pending());
+        assertEquals(100.0, priceService.getPrice("S100"));
+    }
+
+    // il primo blocco applicato resta fermo finche' il test non apre il gate
+    private static final class BlockingPriceService extends StockPriceServiceImpl {
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch gate = new CountDownLatch(1);
+
+        private BlockingPriceService(SymbolRegistry symbols) {
+            super(symbols);
+        }
+
+        @Override
+        public void updatePrices(String[] symbols, double[] prices, int count) {
+            entered.countDown();
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.updatePrices(symbols, prices, count);
+        }
+    }
+}
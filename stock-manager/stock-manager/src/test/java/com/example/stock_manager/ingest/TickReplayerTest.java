@@ -0,0 +1,105 @@
+package com.example.stock_manager.ingest;
+
+import com.example.stock_manager.service.impl.StockPriceServiceImpl;
+import com.example.stock_manager.symbol.SymbolRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickReplayerTest {
+
+    private static final String SAMPLE = "classpath:ticks/sample-ticks.csv";
+    private static final int SAMPLE_TICKS = 20_000;
+
+    private StockPriceServiceImpl priceService;
+    private TickIngestionPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        SymbolRegistry symbols = new SymbolRegistry();
+        priceService = new StockPriceServiceImpl(symbols);
+        pipeline = new TickIngestionPipeline(priceService, symbols, 10, 64, 1024);
+        pipeline.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipeline.stop();
+    }
+
+    @Test
+    void testReplaysBundledFileUpToLastPrices() throws Exception {
+        Map<String, Double> expected = lastPrices();
+        TickReplayer replayer = new TickReplayer(pipeline, new DefaultResourceLoader(), "", 1, 0);
+
+        TickReplayer.ReplayResult result = replayer.replay(SAMPLE, 2, 0);
+
+        assertEquals(2L * SAMPLE_TICKS, result.ticks());
+        assertEquals(0, result.rejected());
+        assertTrue(result.ticksPerSecond() > 0);
+        expected.forEach((symbol, price) -> assertEquals(price, priceService.getPrice(symbol), symbol));
+    }
+
+    @Test
+    void testThrottledReplayKeepsRequestedRate(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("ticks.csv");
+        StringBuilder ticks = new StringBuilder();
+        for (int i = 1; i <= 100; i++) {
+            ticks.append("T").append(i % 7).append(',').append(i).append('\n');
+        }
+        Files.writeString(file, ticks);
+        TickReplayer replayer = new TickReplayer(pipeline, new DefaultResourceLoader(), "", 1, 0);
+
+        TickReplayer.ReplayResult result = replayer.replay(file.toUri().toString(), 1, 1000);
+
+        assertEquals(100, result.ticks());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(result.elapsedNanos()) >= 90);
+        assertEquals(98.0, priceService.getPrice("T0"));
+    }
+
+    @Test
+    void testRejectsMissingFileAndInvalidArguments() {
+        TickReplayer replayer = new TickReplayer(pipeline, new DefaultResourceLoader(), "", 1, 0);
+
+        assertThrows(IllegalArgumentException.class, () -> replayer.replay("classpath:ticks/missing.csv", 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> replayer.replay(SAMPLE, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> replayer.replay(SAMPLE, 1, -1));
+    }
+
+    @Test
+    void testRunWithoutLocationDoesNothing() throws Exception {
+        new TickReplayer(pipeline, new DefaultResourceLoader(), " ", 1, 0).run(null);
+
+        assertEquals(0, pipeline.pending());
+        assertEquals(150.0, priceService.getPrice("AAPL"));
+    }
+
+    private static Map<String, Double> lastPrices() throws Exception {
+        Map<String, Double> prices = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ClassPathResource("ticks/sample-ticks.csv").getInputStream(), StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith("#")) {
+                    String[] fields = line.split(",");
+                    prices.put(fields[0], Double.parseDouble(fields[1]));
+                }
+            }
+        }
+        return prices;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.stock_manager.integration;
+
+import com.example.stock_manager.bulk.ImportResult;
+import com.example.stock_manager.bulk.ImportResult.RowError;
+import com.example.stock_manager.bulk.PositionBulkService;
+import com.example.stock_manager.dto.CreateStockRequest;
+import com.example.stock_manager.repository.StockRepository;
+import com.example.stock_manager.service.StockTransactionService;
+import com.example.stock_manager.service.impl.StockPriceServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Non transazionale: ogni blocco dell'import fa il proprio commit
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "stock.bulk.chunk-size=2")
+class BulkImportIntegrationTest {
+
+    @Autowired
+    private PositionBulkService bulkService;
+
+    @Autowired
+    private StockTransactionService transactionService;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private StockPriceServiceImpl priceService;
+
+    @BeforeEach
+    void setUp() {
+        stockRepository.deleteAll();
+    }
+
+    @Test
+    void shouldImportValidRowsAndReportEachRejectedRow() throws Exception {
+        transactionService.createStock(new CreateStockRequest("BULKD", 1));
+        // lettura in cache prima dell'import: non deve nascondere le righe importate
+        assertThat(stockRepository.existsById("BULKA")).isFalse();
+
+        ImportResult result = bulkService.importCsv(csv("""
+                symbol,quantity
+                bulka,10
+                # commento
+                BULKB, 20 ,ignored
+
+                BULKA,5
+                BULKD,7
+                BRK.B,1
+                BULKC,zero
+                BULKE,0
+                BULKF
+                BULKG,30
+                """));
+
+        assertThat(result.imported()).isEqualTo(3);
+        assertThat(result.rejected()).isEqualTo(6);
+        assertThat(result.errors()).containsExactly(
+                new RowError(6, "BULKA", "Stock with symbol 'BULKA' already exists"),
+                new RowError(7, "BULKD", "Stock with symbol 'BULKD' already exists"),
+                new RowError(8, "BRK.B", "Symbol must contain only letters and numbers"),
+                new RowError(9, "BULKC", "Quantity must be an integer"),
+                new RowError(10, "BULKE", "Quantity must be at least 1"),
+                new RowError(11, "BULKF", "Quantity is required"));
+
+        assertThat(stockRepository.existsById("BULKA")).isTrue();
+        assertThat(transactionService.getStockBySymbol("BULKA").getQuantity()).isEqualTo(10);
+        assertThat(transactionService.getStockBySymbol("BULKB").getQuantity()).isEqualTo(20);
+        assertThat(transactionService.getStockBySymbol("BULKD").getQuantity()).isEqualTo(1);
+        assertThat(transactionService.getStockBySymbol("BULKG").getQuantity()).isEqualTo(30);
+    }
+
+    @Test
+    void shouldExportEveryPositionWithPriceAndReimportIt() throws Exception {
+        priceService.updatePrice("EXPA", 150.0);
+        priceService.updatePrice("EXPB", 350.0);
+        transactionService.createStock(new CreateStockRequest("EXPA", 2));
+        transactionService.createStock(new CreateStockRequest("EXPB", 3));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bulkService.exportCsv(out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("""
+                symbol,quantity,price,value
+                EXPA,2,150.0,300.0
+                EXPB,3,350.0,1050.0
+                """);
+
+        stockRepository.deleteAll();
+        ImportResult result = bulkService.importCsv(new ByteArrayInputStream(out.toByteArray()));
+        assertThat(result.imported()).isEqualTo(2);
+        assertThat(result.errors()).isEmpty();
+        assertThat(transactionService.getStockBySymbol("EXPB").getQuantity()).isEqualTo(3);
+    }
+
+    private static InputStream csv(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
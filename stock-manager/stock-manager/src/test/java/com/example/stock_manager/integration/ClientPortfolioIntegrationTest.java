@@ -0,0 +1,87 @@
+package com.example.stock_manager.integration;
+
+import com.example.stock_manager.dto.PortfolioSummary;
+import com.example.stock_manager.exception.DuplicateStockException;
+import com.example.stock_manager.exception.InsufficientStockException;
+import com.example.stock_manager.exception.StockNotFoundException;
+import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.portfolio.ClientPortfolioService;
+import com.example.stock_manager.repository.StockRepository;
+import com.example.stock_manager.service.impl.StockPriceServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ClientPortfolioIntegrationTest {
+
+    @Autowired
+    private ClientPortfolioService clientPortfolioService;
+
+    @Autowired
+    private StockPriceServiceImpl stockPriceService;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Test
+    void shouldKeepClientPortfoliosApart() {
+        stockPriceService.updatePrice("CPA", 10.0);
+        stockPriceService.updatePrice("CPB", 100.0);
+
+        clientPortfolioService.buyStock("alice", "cpa", 10);
+        clientPortfolioService.buyStock("alice", "CPB", 2);
+        clientPortfolioService.buyStock("bob", "CPA", 1);
+
+        PortfolioSummary alice = clientPortfolioService.getPortfolioSummary("alice");
+        assertEquals(300.0, alice.getTotalValue());
+        assertEquals(2, alice.getTotalStocks());
+        assertEquals(12, alice.getTotalQuantity());
+        assertEquals(10.0, clientPortfolioService.getTotalValue("bob"));
+        assertEquals("CPB", clientPortfolioService.findHighestValueStock("alice").getSymbol());
+        assertNull(clientPortfolioService.findHighestValueStock("carol"));
+        assertEquals(0, clientPortfolioService.getPortfolioSummary("carol").getTotalStocks());
+        // il portafoglio della casa non vede le posizioni dei clienti
+        assertFalse(stockRepository.existsById("CPA"));
+    }
+
+    @Test
+    void shouldApplyTradeRulesPerPortfolio() {
+        clientPortfolioService.createStock("alice", "cpc", 5);
+        assertThrows(DuplicateStockException.class, () -> clientPortfolioService.createStock("alice", "CPC", 1));
+        assertThrows(InsufficientStockException.class, () -> clientPortfolioService.sellStock("alice", "CPC", 6));
+        assertThrows(StockNotFoundException.class, () -> clientPortfolioService.sellStock("bob", "CPC", 1));
+
+        Stock remaining = clientPortfolioService.sellStock("alice", "CPC", 2);
+        assertEquals(3, remaining.getQuantity());
+        assertEquals(8, clientPortfolioService.updateStock("alice", "CPC", 8).getQuantity());
+        assertNull(clientPortfolioService.sellStock("alice", "CPC", 8));
+        assertThrows(StockNotFoundException.class, () -> clientPortfolioService.getStockBySymbol("alice", "CPC"));
+        assertThrows(StockNotFoundException.class, () -> clientPortfolioService.deleteStock("alice", "CPC"));
+        assertThrows(IllegalArgumentException.class, () -> clientPortfolioService.getAllStocks("no spaces"));
+    }
+
+    @Test
+    void shouldReadUpdateAndDeletePositionsOfOnePortfolio() {
+        stockPriceService.updatePrice("CPD", 20.0);
+        stockPriceService.updatePrice("CPE", 40.0);
+        clientPortfolioService.createStock("dave", "cpd", 1);
+        clientPortfolioService.buyStock("dave", "CPE", 3);
+
+        assertEquals(2, clientPortfolioService.getAllStocks("dave").size());
+        assertEquals(3, clientPortfolioService.getStockBySymbol("dave", "cpe").getQuantity());
+        assertEquals(35.0, clientPortfolioService.getAveragePricePerShare("dave"));
+
+        clientPortfolioService.deleteStock("dave", "CPD");
+        assertEquals(1, clientPortfolioService.getAllStocks("dave").size());
+        assertThrows(StockNotFoundException.class, () -> clientPortfolioService.updateStock("dave", "CPD", 1));
+        assertThrows(IllegalArgumentException.class, () -> clientPortfolioService.buyStock("dave", "CPE", 0));
+        assertThrows(IllegalArgumentException.class, () -> clientPortfolioService.sellStock("dave", "CPE", -1));
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.stock_manager.integration;
+
+import com.example.stock_manager.service.StockTransactionService;
+import com.example.stock_manager.service.impl.StockPriceServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class ConditionalGetIntegrationTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private StockTransactionService transactionService;
+
+    @Autowired
+    private StockPriceServiceImpl priceService;
+
+    @Test
+    void testSummaryIsNotModifiedUntilAPositionOrPriceChanges() throws Exception {
+        HttpResponse<String> first = get("/api/stocks/summary", null);
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+        assertThat(first.statusCode()).isEqualTo(200);
+
+        HttpResponse<String> unchanged = get("/api/stocks/summary", etag);
+        assertThat(unchanged.statusCode()).isEqualTo(304);
+        assertThat(unchanged.body()).isEmpty();
+
+        transactionService.buyStock("ETAGA", 3);
+        HttpResponse<String> afterBuy = get("/api/stocks/summary", etag);
+        assertThat(afterBuy.statusCode()).isEqualTo(200);
+        assertThat(afterBuy.body()).contains("ETAGA");
+
+        String next = afterBuy.headers().firstValue("ETag").orElseThrow();
+        priceService.updatePrice("ETAGA", 12.5);
+        assertThat(get("/api/stocks/total-value", next).statusCode()).isEqualTo(200);
+        assertThat(next).isNotEqualTo(etag);
+    }
+
+    private HttpResponse<String> get(String path, String ifNoneMatch) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        return client.send(request.GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
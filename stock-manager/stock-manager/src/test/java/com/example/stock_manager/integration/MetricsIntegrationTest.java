@@ -0,0 +1,90 @@
+package com.example.stock_manager.integration;
+
+import com.example.stock_manager.exception.InsufficientStockException;
+import com.example.stock_manager.repository.StockRepository;
+import com.example.stock_manager.service.PortfolioAggregator;
+import com.example.stock_manager.service.PortfolioService;
+import com.example.stock_manager.service.StockTransactionService;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class MetricsIntegrationTest {
+
+    @Autowired
+    private StockTransactionService transactionService;
+
+    @Autowired
+    private PortfolioService portfolioService;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private PortfolioAggregator aggregator;
+
+    @Autowired
+    private PrometheusMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        stockRepository.deleteAll();
+        aggregator.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stockRepository.deleteAll();
+        aggregator.rebuild();
+    }
+
+    @Test
+    void testServiceAndRepositoryTimersAreScraped() {
+        transactionService.buyStock("METR", 10);
+        transactionService.sellStock("METR", 4);
+        portfolioService.getPortfolioSummary();
+
+        String scrape = registry.scrape();
+
+        assertThat(scrape)
+                .contains("stock_service_seconds_bucket{class=\"com.example.stock_manager.service.StockTransactionService\"")
+                .contains("method=\"buyStock\"")
+                .contains("method=\"getPortfolioSummary\"")
+                .contains("spring_data_repository_invocations_seconds_bucket")
+                .contains("stock_transactions_total{side=\"buy\"}")
+                .contains("stock_price_lookups_total{result=\"hit\"}");
+        assertThat(registry.get("stock.service").tag("method", "sellStock").timer().count()).isGreaterThanOrEqualTo(1);
+        assertThat(registry.get("stock.service").tag("method", "buyStock").timer()
+                .takeSnapshot().percentileValues()).hasSize(3);
+    }
+
+    @Test
+    void testFailedServiceCallsAreTaggedWithException() {
+        transactionService.buyStock("METR", 1);
+        long before = failedSells();
+
+        assertThatThrownBy(() -> transactionService.sellStock("METR", 5))
+                .isInstanceOf(InsufficientStockException.class);
+
+        // il registry e' condiviso con gli altri test che usano lo stesso contesto
+        assertThat(failedSells()).isEqualTo(before + 1);
+    }
+
+    private long failedSells() {
+        Timer timer = registry.find("stock.service")
+                .tag("method", "sellStock")
+                .tag("exception", "InsufficientStockException")
+                .timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
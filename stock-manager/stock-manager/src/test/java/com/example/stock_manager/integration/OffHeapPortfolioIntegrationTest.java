@@ -0,0 +1,70 @@
+package com.example.stock_manager.integration;
+
+import com.example.stock_manager.dto.CreateStockRequest;
+import com.example.stock_manager.dto.PortfolioSummary;
+import com.example.stock_manager.dto.StockValueResponse;
+import com.example.stock_manager.offheap.OffHeapPositionStore;
+import com.example.stock_manager.repository.StockRepository;
+import com.example.stock_manager.service.PortfolioAggregator;
+import com.example.stock_manager.service.PortfolioService;
+import com.example.stock_manager.service.StockTransactionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Non transazionale: il book fuori heap segue solo le scritture committate
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "stock.offheap.enabled=true")
+class OffHeapPortfolioIntegrationTest {
+
+    @Autowired
+    private OffHeapPositionStore offHeapPositions;
+
+    @Autowired
+    private PortfolioService portfolioService;
+
+    @Autowired
+    private PortfolioAggregator portfolioAggregator;
+
+    @Autowired
+    private StockTransactionService transactionService;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @BeforeEach
+    void setUp() {
+        stockRepository.deleteAll();
+        portfolioAggregator.rebuild();
+    }
+
+    @Test
+    void shouldMirrorCommittedTradesAndServeSummaryFromOffHeapBook() {
+        transactionService.createStock(new CreateStockRequest("OHA", 10));
+        transactionService.buyStock("OHB", 4);
+        transactionService.sellStock("OHA", 3);
+        transactionService.createStock(new CreateStockRequest("OHC", 1));
+        transactionService.deleteStock("OHC");
+
+        assertThat(offHeapPositions.size()).isEqualTo(2);
+        assertThat(offHeapPositions.quantity("OHA")).isEqualTo(7);
+        assertThat(offHeapPositions.quantity("OHB")).isEqualTo(4);
+
+        PortfolioSummary summary = portfolioService.getPortfolioSummary();
+        assertThat(summary.getTotalQuantity()).isEqualTo(11);
+        assertThat(summary.getStockDetails()).extracting(StockValueResponse::getSymbol)
+                .containsExactlyInAnyOrder("OHA", "OHB");
+        assertThat(summary.getTotalValue()).isEqualTo(portfolioAggregator.totals().totalValue());
+
+        PortfolioSummary totals = portfolioService.getPortfolioSummary(false);
+        assertThat(totals.getTotalValue()).isEqualTo(summary.getTotalValue());
+        assertThat(totals.getTotalStocks()).isEqualTo(2);
+        assertThat(totals.getStockDetails()).isEmpty();
+    }
+}
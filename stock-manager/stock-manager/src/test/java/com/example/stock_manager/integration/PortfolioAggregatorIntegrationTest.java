@@ -0,0 +1,124 @@
+package com.example.stock_manager.integration;
+
+import com.example.stock_manager.dto.CreateStockRequest;
+import com.example.stock_manager.dto.TransactionLegRequest;
+import com.example.stock_manager.dto.UpdateStockRequest;
+import com.example.stock_manager.model.TransactionSide;
+import com.example.stock_manager.repository.StockRepository;
+import com.example.stock_manager.service.PortfolioAggregator;
+import com.example.stock_manager.service.PortfolioService;
+import com.example.stock_manager.service.StockTransactionService;
+import com.example.stock_manager.service.impl.StockPriceServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Niente @Transactional: gli aggregati si aggiornano solo dopo il commit
+@SpringBootTest
+@ActiveProfiles("test")
+class PortfolioAggregatorIntegrationTest {
+
+    @Autowired
+    private StockTransactionService transactionService;
+
+    @Autowired
+    private PortfolioService portfolioService;
+
+    @Autowired
+    private PortfolioAggregator aggregator;
+
+    @Autowired
+    private StockPriceServiceImpl stockPriceService;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @BeforeEach
+    void setUp() {
+        stockRepository.deleteAll();
+        aggregator.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stockRepository.deleteAll();
+        aggregator.rebuild();
+    }
+
+    @Test
+    void shouldTrackEveryWriteAndPriceUpdate() {
+        transactionService.createStock(CreateStockRequest.builder().symbol("aggA").quantity(10).build());
+        transactionService.buyStock("AGGB", 4);
+        transactionService.sellStock("AGGA", 3);
+        transactionService.updateStock("AGGB", UpdateStockRequest.builder().quantity(6).build());
+        stockPriceService.updatePrice("AGGA", 10.0);
+        stockPriceService.updatePrice("AGGB", 20.0);
+
+        PortfolioAggregator.Totals totals = aggregator.totals();
+        assertThat(totals.totalQuantity()).isEqualTo(13);
+        assertThat(totals.positionCount()).isEqualTo(2);
+        assertThat(portfolioService.getTotalValue()).isCloseTo(7 * 10.0 + 6 * 20.0, offset(1e-9));
+        assertThat(aggregator.reconcile().consistent()).isTrue();
+
+        transactionService.sellStock("AGGA", 7);
+        transactionService.deleteStock("AGGB");
+
+        assertThat(aggregator.totals().positionCount()).isZero();
+        assertThat(portfolioService.getAveragePricePerShare()).isZero();
+        assertThat(aggregator.reconcile().consistent()).isTrue();
+    }
+
+    @Test
+    void shouldIgnoreRolledBackWrites() {
+        transactionService.buyStock("AGGC", 5);
+
+        assertThrows(RuntimeException.class, () -> transactionService.sellStock("AGGC", 50));
+
+        assertThat(aggregator.totals().totalQuantity()).isEqualTo(5);
+        assertThat(aggregator.reconcile().consistent()).isTrue();
+    }
+
+    @Test
+    void shouldCommitFilledLegsOfBatchDespiteRejections() {
+        transactionService.executeBatch(List.of(
+                TransactionLegRequest.builder().side(TransactionSide.BUY).symbol("AGGD").quantity(4).build(),
+                TransactionLegRequest.builder().side(TransactionSide.SELL).symbol("AGGD").quantity(40).build(),
+                TransactionLegRequest.builder().side(TransactionSide.BUY).symbol("AGGE").quantity(1).build()));
+
+        assertThat(stockRepository.findById("AGGD").orElseThrow().getQuantity()).isEqualTo(4);
+        assertThat(stockRepository.existsById("AGGE")).isTrue();
+        assertThat(aggregator.totals().totalQuantity()).isEqualTo(5);
+        assertThat(aggregator.reconcile().consistent()).isTrue();
+    }
+
+    @Test
+    void shouldNotDoubleCountCommitsRacingWithReconcile() {
+        transactionService.buyStock("AGGF", 1);
+        List<CompletableFuture<Void>> buyers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            buyers.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 50; i++) {
+                    transactionService.buyStock("AGGF", 1);
+                }
+            }));
+        }
+        while (!buyers.stream().allMatch(CompletableFuture::isDone)) {
+            aggregator.reconcile();
+        }
+        buyers.forEach(CompletableFuture::join);
+
+        assertThat(aggregator.totals().totalQuantity()).isEqualTo(201);
+        assertThat(aggregator.reconcile().consistent()).isTrue();
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.stock_manager.integration;
+
+import com.example.stock_manager.dto.PriceTick;
+import com.example.stock_manager.repository.StockRepository;
+import com.example.stock_manager.service.PortfolioAggregator;
+import com.example.stock_manager.service.StockTransactionService;
+import com.example.stock_manager.service.impl.StockPriceServiceImpl;
+import com.example.stock_manager.stream.PriceStreamHub;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class PriceStreamIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private StockTransactionService transactionService;
+
+    @Autowired
+    private StockPriceServiceImpl priceService;
+
+    @Autowired
+    private PriceStreamHub priceStreamHub;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private PortfolioAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        stockRepository.deleteAll();
+        aggregator.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stockRepository.deleteAll();
+        aggregator.rebuild();
+    }
+
+    @Test
+    void testStreamPushesPriceAndPositionChanges() throws Exception {
+        priceService.updatePrice("SSEA", 100.0);
+        BlockingQueue<PriceTick> ticks = new LinkedBlockingQueue<>();
+        HttpResponse<InputStream> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/stocks/stream?symbols=ssea")).build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        Thread reader = new Thread(() -> read(response.body(), ticks), "sse-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        try {
+            assertThat(response.headers().firstValue("Content-Type")).hasValueSatisfying(
+                    type -> assertThat(type).startsWith("text/event-stream"));
+            PriceTick snapshot = ticks.poll(5, TimeUnit.SECONDS);
+            assertThat(snapshot).isNotNull();
+            assertThat(snapshot.getPrice()).isEqualTo(100.0);
+            assertThat(snapshot.getQuantity()).isZero();
+
+            transactionService.buyStock("SSEA", 10);
+            priceService.updatePrice("SSEA", 110.0);
+            priceService.updatePrice("OTHER", 5.0);
+
+            // i tick possono essere accorpati: conta lo stato finale e la somma delle variazioni
+            double delta = 0.0;
+            PriceTick last = null;
+            while (last == null || last.getPrice() != 110.0) {
+                last = ticks.poll(5, TimeUnit.SECONDS);
+                assertThat(last).isNotNull();
+                assertThat(last.getSymbol()).isEqualTo("SSEA");
+                delta += last.getPositionValueDelta();
+            }
+            assertThat(last.getQuantity()).isEqualTo(10);
+            assertThat(last.getPositionValue()).isEqualTo(1100.0);
+            assertThat(last.getPortfolioValue()).isEqualTo(1100.0);
+            assertThat(delta).isEqualTo(1100.0);
+        } finally {
+            response.body().close();
+        }
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            priceService.updatePrice("SSEA", 120.0);
+            assertThat(priceStreamHub.subscriberCount()).isZero();
+        });
+    }
+
+    private static void read(InputStream body, BlockingQueue<PriceTick> ticks) {
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.startsWith("data:")) {
+                    ticks.add(JsonMapper.shared().readValue(line.substring(5), PriceTick.class));
+                }
+            }
+        } catch (Exception e) {
+            // stream chiuso dal test
+        }
+    }
+}
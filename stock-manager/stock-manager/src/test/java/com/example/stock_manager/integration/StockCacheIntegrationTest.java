@@ -0,0 +1,133 @@
+package com.example.stock_manager.integration;
+
+import com.example.stock_manager.dto.CreateStockRequest;
+import com.example.stock_manager.dto.UpdateStockRequest;
+import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.repository.StockRepository;
+import com.example.stock_manager.service.StockTransactionService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Non transazionale: la cache di secondo livello si popola e si invalida ai commit
+@SpringBootTest
+@ActiveProfiles("test")
+class StockCacheIntegrationTest {
+
+    @Autowired
+    private StockTransactionService transactionService;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        stockRepository.deleteAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void shouldServeRepeatedReadsFromCacheAndSeeEveryWrite() {
+        transactionService.createStock(new CreateStockRequest("CACHA", 10));
+
+        transactionService.getStockBySymbol("CACHA");
+        transactionService.getStockBySymbol("CACHA");
+        assertThat(statistics.getCacheRegionStatistics(Stock.CACHE_REGION).getHitCount()).isPositive();
+
+        transactionService.buyStock("CACHA", 5);
+        assertThat(transactionService.getStockBySymbol("CACHA").getQuantity()).isEqualTo(15);
+
+        transactionService.sellStock("CACHA", 3);
+        assertThat(transactionService.getStockBySymbol("CACHA").getQuantity()).isEqualTo(12);
+
+        transactionService.updateStock("CACHA", new UpdateStockRequest(7));
+        assertThat(transactionService.getStockBySymbol("CACHA").getQuantity()).isEqualTo(7);
+        assertThat(transactionService.getAllStocks()).extracting(Stock::getQuantity).containsExactly(7);
+
+        transactionService.deleteStock("CACHA");
+        assertThat(stockRepository.existsById("CACHA")).isFalse();
+        assertThat(transactionService.getAllStocks()).isEmpty();
+    }
+
+    @Test
+    void shouldBuyAndSellWithOneStatementEach() {
+        transactionService.createStock(new CreateStockRequest("CACHC", 10));
+        assertThat(transactionService.getAllStocks()).extracting(Stock::getQuantity).containsExactly(10);
+
+        long before = statistics.getPrepareStatementCount();
+        assertThat(transactionService.buyStock("CACHC", 5).getQuantity()).isEqualTo(15);
+        assertThat(statistics.getPrepareStatementCount() - before).isEqualTo(1);
+
+        before = statistics.getPrepareStatementCount();
+        assertThat(transactionService.sellStock("CACHC", 4).getQuantity()).isEqualTo(11);
+        assertThat(statistics.getPrepareStatementCount() - before).isEqualTo(1);
+
+        // la query cache non restituisce il risultato precedente alle scritture
+        assertThat(transactionService.getAllStocks()).extracting(Stock::getQuantity).containsExactly(11);
+
+        before = statistics.getPrepareStatementCount();
+        assertThat(transactionService.sellStock("CACHC", 11)).isNull();
+        assertThat(statistics.getPrepareStatementCount() - before).isEqualTo(1);
+        assertThat(transactionService.getAllStocks()).isEmpty();
+        assertThat(stockRepository.existsById("CACHC")).isFalse();
+    }
+
+    @Test
+    void shouldReloadPositionAlreadyReadInTheSameTransaction() {
+        transactionService.createStock(new CreateStockRequest("CACHD", 10));
+        assertThat(transactionService.getStockBySymbol("CACHD").getQuantity()).isEqualTo(10);
+
+        Integer reread = new TransactionTemplate(transactionManager).execute(status -> {
+            Stock loaded = stockRepository.findById("CACHD").orElseThrow();
+            assertThat(stockRepository.addQuantity("CACHD", 5)).isEqualTo(15);
+            assertThat(stockRepository.addQuantity("CACHX", 1)).isEqualTo(1);
+            // l'entita' caricata e' stata staccata: la lettura successiva vede la riga aggiornata
+            Stock current = stockRepository.findById("CACHD").orElseThrow();
+            assertThat(current).isNotSameAs(loaded);
+            return current.getQuantity();
+        });
+
+        assertThat(reread).isEqualTo(15);
+        assertThat(transactionService.getStockBySymbol("CACHD").getQuantity()).isEqualTo(15);
+        assertThat(transactionService.getStockBySymbol("CACHX").getQuantity()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldCacheQueriesAndExposeHitRatio() {
+        transactionService.createStock(new CreateStockRequest("CACHB", 1));
+
+        stockRepository.findAll();
+        stockRepository.findAll();
+        assertThat(stockRepository.existsById("CACHB")).isTrue();
+        assertThat(stockRepository.existsById("CACHB")).isTrue();
+
+        assertThat(statistics.getCacheRegionStatistics(Stock.QUERY_CACHE_REGION).getHitCount()).isGreaterThanOrEqualTo(2);
+        assertThat(meterRegistry.get("stock.cache.requests")
+                .tags("region", Stock.QUERY_CACHE_REGION, "result", "hit").functionCounter().count())
+                .isGreaterThanOrEqualTo(2.0);
+        assertThat(meterRegistry.get("stock.cache.hit.ratio").tag("region", Stock.QUERY_CACHE_REGION).gauge().value())
+                .isGreaterThan(0.0);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.stock_manager.integration;
+
+import com.example.stock_manager.dto.CreateStockRequest;
+import com.example.stock_manager.exception.InsufficientStockException;
+import com.example.stock_manager.exception.StockNotFoundException;
+import com.example.stock_manager.repository.StockRepository;
+import com.example.stock_manager.service.PortfolioAggregator;
+import com.example.stock_manager.service.StockTransactionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Niente @Transactional: ogni operazione deve committare nella propria transazione
+@SpringBootTest
+@ActiveProfiles("test")
+class StockTransactionConcurrencyIntegrationTest {
+
+    private static final int THREADS = 16;
+    private static final int OPS_PER_THREAD = 50;
+
+    @Autowired
+    private StockTransactionService transactionService;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private PortfolioAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        stockRepository.deleteAll();
+        aggregator.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stockRepository.deleteAll();
+        aggregator.rebuild();
+    }
+
+    @Test
+    void concurrentBuysOnExistingSymbolLoseNoUpdates() throws Exception {
+        transactionService.createStock(CreateStockRequest.builder().symbol("HOT").quantity(1).build());
+
+        runConcurrently(thread -> transactionService.buyStock("HOT", 1));
+
+        assertThat(stockRepository.findQuantityBySymbol("HOT")).contains(1 + THREADS * OPS_PER_THREAD);
+        assertThat(aggregator.reconcile().consistent()).isTrue();
+    }
+
+    @Test
+    void concurrentBuysAndSellsBalanceOut() throws Exception {
+        int initial = 10_000;
+        transactionService.createStock(CreateStockRequest.builder().symbol("HOT").quantity(initial).build());
+
+        // meta' dei thread compra, meta' vende la stessa quantita'
+        runConcurrently(thread -> thread % 2 == 0
+                ? transactionService.buyStock("HOT", 3)
+                : transactionService.sellStock("HOT", 3));
+
+        assertThat(stockRepository.findQuantityBySymbol("HOT")).contains(initial);
+        assertThat(aggregator.reconcile().consistent()).isTrue();
+    }
+
+    @Test
+    void concurrentSellsNeverOversell() throws Exception {
+        int available = THREADS * OPS_PER_THREAD / 2;
+        transactionService.createStock(CreateStockRequest.builder().symbol("HOT").quantity(available).build());
+        AtomicInteger filled = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(thread -> {
+            try {
+                transactionService.sellStock("HOT", 1);
+                filled.incrementAndGet();
+            } catch (InsufficientStockException | StockNotFoundException e) {
+                rejected.incrementAndGet();
+            }
+            return null;
+        });
+
+        assertThat(filled.get()).isEqualTo(available);
+        assertThat(rejected.get()).isEqualTo(THREADS * OPS_PER_THREAD - available);
+        // l'ultima vendita chiude la posizione
+        assertThat(stockRepository.existsById("HOT")).isFalse();
+        assertThat(aggregator.reconcile().consistent()).isTrue();
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(pool.submit((Callable<Void>) () -> {
+                start.await();
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    task.run(thread);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThreadTask {
+        Object run(int thread) throws Exception;
+    }
+}
@@ -1,8 +1,12 @@
 package com.example.stock_manager.integration;
 
+import com.example.stock_manager.dto.BatchTransactionResponse;
+import com.example.stock_manager.dto.TransactionLegRequest;
+import com.example.stock_manager.dto.TransactionLegResult;
 import com.example.stock_manager.exception.InsufficientStockException;
 import com.example.stock_manager.exception.StockNotFoundException;
 import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.model.TransactionSide;
 import com.example.stock_manager.repository.StockRepository;
 import com.example.stock_manager.service.StockTransactionService;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,6 +16,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -140,4 +145,56 @@ class StockTransactionServiceIntegrationTest {
             transactionService.sellStock("AAPL", 0);
         });
     }
+
+    @Test
+    void shouldPageBySymbolWithKeysetCursor() {
+        for (String symbol : List.of("DDD", "AAA", "CCC", "BBB", "EEE")) {
+            stockRepository.save(Stock.builder().symbol(symbol).quantity(1).build());
+        }
+
+        List<Stock> first = transactionService.getStocksPage(null, 2);
+        List<Stock> second = transactionService.getStocksPage(first.get(1).getSymbol(), 2);
+        List<Stock> last = transactionService.getStocksPage(second.get(1).getSymbol(), 2);
+
+        assertThat(first).extracting(Stock::getSymbol).containsExactly("AAA", "BBB");
+        assertThat(second).extracting(Stock::getSymbol).containsExactly("CCC", "DDD");
+        assertThat(last).extracting(Stock::getSymbol).containsExactly("EEE");
+    }
+
+    @Test
+    void shouldStreamAllStocksInSymbolOrder() {
+        stockRepository.save(Stock.builder().symbol("MSFT").quantity(3).build());
+        stockRepository.save(Stock.builder().symbol("AAPL").quantity(1).build());
+
+        List<String> streamed = new ArrayList<>();
+        transactionService.streamAllStocks(stock -> streamed.add(stock.getSymbol() + ":" + stock.getQuantity()));
+
+        assertThat(streamed).containsExactly("AAPL:1", "MSFT:3");
+    }
+
+    @Test
+    void shouldExecuteBatchInOneTransaction() {
+        stockRepository.save(Stock.builder().symbol("AAPL").quantity(10).build());
+
+        BatchTransactionResponse response = transactionService.executeBatch(List.of(
+                leg(TransactionSide.BUY, "AAPL", 5),
+                leg(TransactionSide.BUY, "MSFT", 3),
+                leg(TransactionSide.SELL, "AAPL", 15),
+                leg(TransactionSide.BUY, "AAPL", 2),
+                leg(TransactionSide.SELL, "MSFT", 4),
+                leg(TransactionSide.SELL, "TSLA", 1)));
+
+        assertEquals(4, response.getFilled());
+        assertEquals(2, response.getRejected());
+        assertThat(response.getResults()).extracting(TransactionLegResult::getStatus).containsExactly(
+                TransactionLegResult.Status.FILLED, TransactionLegResult.Status.FILLED,
+                TransactionLegResult.Status.FILLED, TransactionLegResult.Status.FILLED,
+                TransactionLegResult.Status.REJECTED, TransactionLegResult.Status.REJECTED);
+        assertEquals(2, stockRepository.findById("AAPL").orElseThrow().getQuantity());
+        assertEquals(3, stockRepository.findById("MSFT").orElseThrow().getQuantity());
+    }
+
+    private static TransactionLegRequest leg(TransactionSide side, String symbol, int quantity) {
+        return TransactionLegRequest.builder().side(side).symbol(symbol).quantity(quantity).build();
+    }
 }
@@ -0,0 +1,113 @@
+package com.example.stock_manager.integration;
+
+import com.example.stock_manager.dto.CreateStockRequest;
+import com.example.stock_manager.engine.StripedWriteEngine;
+import com.example.stock_manager.exception.InsufficientStockException;
+import com.example.stock_manager.exception.StockNotFoundException;
+import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.model.TransactionSide;
+import com.example.stock_manager.repository.StockRepository;
+import com.example.stock_manager.service.PortfolioAggregator;
+import com.example.stock_manager.service.StockTransactionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {"stock.write-engine.enabled=true", "stock.write-engine.lanes=2"})
+@ActiveProfiles("test")
+class StripedWriteEngineIntegrationTest {
+
+    private static final int THREADS = 16;
+    private static final int OPS_PER_THREAD = 100;
+
+    @Autowired
+    private StripedWriteEngine engine;
+
+    @Autowired
+    private StockTransactionService transactionService;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private PortfolioAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        stockRepository.deleteAll();
+        aggregator.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stockRepository.deleteAll();
+        aggregator.rebuild();
+    }
+
+    @Test
+    void hotSymbolTrafficKeepsEveryUpdate() throws Exception {
+        int initial = 10_000;
+        transactionService.createStock(CreateStockRequest.builder().symbol("HOT").quantity(initial).build());
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<CompletableFuture<Stock>>>> submitted = new ArrayList<>();
+
+        // meta' dei thread compra, meta' vende: il saldo netto deve tornare al valore iniziale
+        for (int t = 0; t < THREADS; t++) {
+            TransactionSide side = t % 2 == 0 ? TransactionSide.BUY : TransactionSide.SELL;
+            submitted.add(pool.submit(() -> {
+                start.await();
+                List<CompletableFuture<Stock>> results = new ArrayList<>();
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    results.add(engine.submit(side, "HOT", 2));
+                    results.add(engine.submit(TransactionSide.BUY, "COLD" + (i % 4), 1));
+                }
+                return results;
+            }));
+        }
+        start.countDown();
+        for (Future<List<CompletableFuture<Stock>>> future : submitted) {
+            for (CompletableFuture<Stock> result : future.get(60, TimeUnit.SECONDS)) {
+                assertThat(result.get(60, TimeUnit.SECONDS)).isNotNull();
+            }
+        }
+        pool.shutdown();
+
+        assertThat(stockRepository.findQuantityBySymbol("HOT")).contains(initial);
+        assertThat(stockRepository.findQuantityBySymbol("COLD0")).contains(THREADS * OPS_PER_THREAD / 4);
+        assertThat(aggregator.reconcile().consistent()).isTrue();
+    }
+
+    @Test
+    void perRequestOutcomesFollowSubmissionOrder() {
+        CompletableFuture<Stock> buy = engine.submit(TransactionSide.BUY, "ORD", 5);
+        CompletableFuture<Stock> oversell = engine.submit(TransactionSide.SELL, "ORD", 6);
+        CompletableFuture<Stock> closing = engine.submit(TransactionSide.SELL, "ORD", 5);
+        CompletableFuture<Stock> afterClose = engine.submit(TransactionSide.SELL, "ORD", 1);
+
+        assertThat(buy.join().getQuantity()).isEqualTo(5);
+        assertThat(oversell).failsWithin(10, TimeUnit.SECONDS)
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(InsufficientStockException.class);
+        assertThat(closing.join()).isNull();
+        assertThat(afterClose).failsWithin(10, TimeUnit.SECONDS)
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(StockNotFoundException.class);
+        assertThat(stockRepository.existsById("ORD")).isFalse();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.stock_manager.integration;
+
+import com.example.stock_manager.ingest.IngestResult;
+import com.example.stock_manager.ingest.TickIngestionPipeline;
+import com.example.stock_manager.service.impl.StockPriceServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class TickIngestionIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private StockPriceServiceImpl priceService;
+
+    @Autowired
+    private TickIngestionPipeline pipeline;
+
+    @Test
+    void testPostedTicksReachThePriceStore() throws Exception {
+        StringBuilder body = new StringBuilder("# upload\n");
+        for (int i = 1; i <= 1000; i++) {
+            body.append("ingA,").append(i).append(".25\n");
+        }
+        body.append("ingB,42\nnot-a-tick\n");
+
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/stocks/ticks"))
+                        .header("Content-Type", "text/csv")
+                        .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(JsonMapper.shared().readValue(response.body(), IngestResult.class))
+                .isEqualTo(new IngestResult(1001, 1));
+        assertThat(pipeline.awaitDrained(Duration.ofSeconds(5))).isTrue();
+        assertThat(priceService.getPrice("INGA")).isEqualTo(1000.25);
+        assertThat(priceService.getPrice("INGB")).isEqualTo(42.0);
+    }
+}
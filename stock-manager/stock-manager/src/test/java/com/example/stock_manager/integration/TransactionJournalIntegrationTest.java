@@ -0,0 +1,73 @@
+package com.example.stock_manager.integration;
+
+import com.example.stock_manager.dto.CreateStockRequest;
+import com.example.stock_manager.event.PositionChangedEvent.Operation;
+import com.example.stock_manager.journal.JournalEntry;
+import com.example.stock_manager.journal.TransactionJournal;
+import com.example.stock_manager.repository.StockRepository;
+import com.example.stock_manager.service.PortfolioAggregator;
+import com.example.stock_manager.service.StockTransactionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Niente @Transactional: il journal registra le scritture dopo il commit
+@SpringBootTest
+@ActiveProfiles("test")
+class TransactionJournalIntegrationTest {
+
+    @DynamicPropertySource
+    static void journalProperties(DynamicPropertyRegistry registry) throws IOException {
+        // sotto target/ e non @TempDir: il contesto resta in cache oltre la fine della classe
+        Path directory = Files.createTempDirectory(Files.createDirectories(Path.of("target")), "journal-it");
+        registry.add("stock.journal.enabled", () -> "true");
+        registry.add("stock.journal.directory", directory::toString);
+    }
+
+    @Autowired
+    private TransactionJournal journal;
+
+    @Autowired
+    private StockTransactionService transactionService;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private PortfolioAggregator aggregator;
+
+    @AfterEach
+    void tearDown() {
+        stockRepository.deleteAll();
+        aggregator.rebuild();
+    }
+
+    @Test
+    void everyMutationIsJournaledWithPrice() {
+        long before = journal.lastSequence();
+
+        transactionService.createStock(CreateStockRequest.builder().symbol("jrnl").quantity(10).build());
+        transactionService.buyStock("JRNL", 5);
+        transactionService.sellStock("JRNL", 15);
+
+        List<JournalEntry> entries = new ArrayList<>();
+        journal.replay(before, entries::add);
+        assertThat(entries).extracting(JournalEntry::operation)
+                .containsExactly(Operation.CREATE, Operation.BUY, Operation.SELL);
+        assertThat(entries).extracting(JournalEntry::quantityDelta).containsExactly(10L, 5L, -15L);
+        assertThat(entries).allSatisfy(entry -> assertThat(entry.price()).isPositive());
+        assertThat(journal.positions()).doesNotContainKey("JRNL");
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.stock_manager.journal;
+
+import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.repository.StockRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JournalRecoveryTest {
+
+    @Mock
+    private TransactionJournal journal;
+
+    @Mock
+    private StockRepository stockRepository;
+
+    @InjectMocks
+    private JournalRecovery recovery;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRun_restoresEmptyTableFromJournal() {
+        when(journal.positions()).thenReturn(Map.of("AAPL", 10L, "MSFT", 3L));
+        when(stockRepository.count()).thenReturn(0L);
+
+        recovery.run(null);
+
+        ArgumentCaptor<List<Stock>> saved = ArgumentCaptor.forClass(List.class);
+        verify(stockRepository).saveAll(saved.capture());
+        List<Stock> stocks = new ArrayList<>(saved.getValue());
+        stocks.sort(Comparator.comparing(Stock::getSymbol));
+        assertEquals(List.of("AAPL", "MSFT"), stocks.stream().map(Stock::getSymbol).toList());
+        assertEquals(List.of(10, 3), stocks.stream().map(Stock::getQuantity).toList());
+    }
+
+    @Test
+    void testRun_leavesPopulatedTableUntouched() {
+        when(journal.positions()).thenReturn(Map.of("AAPL", 10L));
+        when(stockRepository.count()).thenReturn(1L);
+        when(stockRepository.findAll()).thenReturn(List.of(Stock.builder().symbol("AAPL").quantity(7).build()));
+
+        recovery.run(null);
+
+        verify(stockRepository, never()).saveAll(any());
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.stock_manager.journal;
+
+import com.example.stock_manager.event.PositionChangedEvent.Operation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Misura la velocita' di replay del journal (eventi/secondo) su qualche milione di righe.
+ * Esclusa dalla build normale: {@code mvn test -Dtest=JournalReplayBenchmark -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class JournalReplayBenchmark {
+
+    private static final int EVENTS = 4_000_000;
+    private static final int SYMBOLS = 5_000;
+    private static final int ROUNDS = 5;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replayThroughput() {
+        TransactionJournal journal = new TransactionJournal(directory, 1 << 20, Long.MAX_VALUE, null);
+        journal.open();
+        long start = System.nanoTime();
+        for (int i = 0; i < EVENTS; i++) {
+            journal.append(i % 2 == 0 ? Operation.BUY : Operation.SELL, "SYM" + (i % SYMBOLS), i % 2 == 0 ? 2 : -1, 100.0);
+        }
+        report("append", EVENTS, System.nanoTime() - start);
+        journal.close();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            start = System.nanoTime();
+            TransactionJournal recovered = new TransactionJournal(directory, 1 << 20, Long.MAX_VALUE, null);
+            // lo snapshot di close() renderebbe il replay banale: si rilegge l'intero journal
+            long[] count = new long[1];
+            recovered.replay(0, entry -> count[0]++);
+            report("replay", count[0], System.nanoTime() - start);
+            assertEquals(EVENTS, count[0]);
+        }
+    }
+
+    private static void report(String phase, long events, long nanos) {
+        double seconds = nanos / (double) TimeUnit.SECONDS.toNanos(1);
+        System.out.printf("%-7s %,d events in %.3f s = %,.0f events/s%n", phase, events, seconds, events / seconds);
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.stock_manager.journal;
+
+import com.example.stock_manager.event.PositionChangedEvent;
+import com.example.stock_manager.event.PositionChangedEvent.Operation;
+import com.example.stock_manager.service.StockPriceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private StockPriceService stockPriceService;
+
+    private TransactionJournal journal;
+
+    @AfterEach
+    void tearDown() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    void testAppend_tracksPositionsAndSequence() {
+        journal = open(4, 1_000);
+
+        journal.append(Operation.CREATE, "AAPL", 10, 150.0);
+        journal.append(Operation.BUY, "MSFT", 3, 350.0);
+        JournalEntry last = journal.append(Operation.SELL, "AAPL", -4, 151.0);
+
+        assertEquals(3, last.sequence());
+        assertEquals(Operation.SELL, last.operation());
+        assertEquals(3, journal.lastSequence());
+        assertEquals(Map.of("AAPL", 6L, "MSFT", 3L), journal.positions());
+    }
+
+    @Test
+    void testPositionClosedByDeltasIsDropped() {
+        journal = open(4, 1_000);
+
+        journal.append(Operation.BUY, "AAPL", 5, 150.0);
+        journal.append(Operation.DELETE, "AAPL", -5, 150.0);
+
+        assertTrue(journal.positions().isEmpty());
+    }
+
+    @Test
+    void testOnPositionChanged_recordsPriceFromPriceService() {
+        when(stockPriceService.getPrice("TSLA")).thenReturn(800.0);
+        journal = open(4, 1_000);
+
+        journal.onPositionChanged(new PositionChangedEvent("TSLA", 2, Operation.BUY));
+
+        List<JournalEntry> entries = replayAll(journal);
+        assertEquals(1, entries.size());
+        assertEquals("TSLA", entries.get(0).symbol());
+        assertEquals(2, entries.get(0).quantityDelta());
+        assertEquals(800.0, entries.get(0).price());
+        assertTrue(entries.get(0).timestamp() > 0);
+    }
+
+    @Test
+    void testReopen_rebuildsStateAcrossSegmentsAndSnapshots() throws IOException {
+        journal = open(4, 5);
+        for (int i = 0; i < 23; i++) {
+            journal.append(Operation.BUY, "S" + (i % 3), i + 1, 10.0);
+        }
+        Map<String, Long> expected = journal.positions();
+        // senza close(): simula un arresto improvviso, niente snapshot finale
+        journal = null;
+
+        TransactionJournal reopened = open(4, 5);
+        journal = reopened;
+
+        assertEquals(23, reopened.lastSequence());
+        assertEquals(expected, reopened.positions());
+        // lo storico resta integro, degli snapshot si tengono gli ultimi due
+        assertEquals(6, files(".seg"));
+        assertEquals(2, files(".snap"));
+        assertEquals(23, replayAll(reopened).size());
+        assertEquals(24, reopened.append(Operation.BUY, "S0", 1, 10.0).sequence());
+    }
+
+    @Test
+    void testReplay_returnsOnlyEntriesAfterSequence() {
+        journal = open(4, 1_000);
+        for (int i = 0; i < 10; i++) {
+            journal.append(Operation.BUY, "AAPL", 1, 150.0);
+        }
+
+        List<JournalEntry> tail = new ArrayList<>();
+        journal.replay(7, tail::add);
+
+        assertEquals(List.of(8L, 9L, 10L), tail.stream().map(JournalEntry::sequence).toList());
+    }
+
+    @Test
+    void testTornTailIsDiscardedAndOverwritten() throws IOException {
+        journal = open(8, 1_000);
+        journal.append(Operation.BUY, "AAPL", 1, 150.0);
+        journal.append(Operation.BUY, "AAPL", 2, 150.0);
+        journal.append(Operation.BUY, "AAPL", 4, 150.0);
+        journal = null;
+        // corrompe la terza riga come una scrittura interrotta a meta'
+        Path segment = single(".seg");
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(2L * JournalEntry.SIZE + 16);
+            file.writeLong(99);
+        }
+
+        journal = open(8, 1_000);
+
+        assertEquals(2, journal.lastSequence());
+        assertEquals(Map.of("AAPL", 3L), journal.positions());
+        assertEquals(3, journal.append(Operation.SELL, "AAPL", -1, 150.0).sequence());
+        assertEquals(Map.of("AAPL", 2L), journal.positions());
+    }
+
+    @Test
+    void testUnreadableSnapshotFallsBackToPreviousOne() throws IOException {
+        journal = open(4, 3);
+        for (int i = 0; i < 7; i++) {
+            journal.append(Operation.BUY, "AAPL", 1, 150.0);
+        }
+        journal = null;
+        try (Stream<Path> snapshots = Files.list(directory)) {
+            Path newest = snapshots.filter(p -> p.toString().endsWith(".snap")).sorted().reduce((a, b) -> b).orElseThrow();
+            Files.write(newest, new byte[]{1, 2, 3});
+        }
+
+        journal = open(4, 3);
+
+        assertEquals(7, journal.lastSequence());
+        assertEquals(Map.of("AAPL", 7L), journal.positions());
+    }
+
+    @Test
+    void testCloseWritesFinalSnapshot() throws IOException {
+        journal = open(4, 1_000);
+        journal.append(Operation.BUY, "AAPL", 1, 150.0);
+        journal.close();
+        journal.close();
+
+        assertEquals(1, files(".snap"));
+        assertThrows(IllegalStateException.class, () -> journal.append(Operation.BUY, "AAPL", 1, 150.0));
+        journal = null;
+    }
+
+    @Test
+    void testSnapshotIsWrittenOffTheAppendPath() throws IOException {
+        List<Runnable> pending = new ArrayList<>();
+        journal = open(4, 2, pending::add);
+
+        journal.append(Operation.BUY, "AAPL", 1, 150.0);
+        journal.append(Operation.BUY, "AAPL", 2, 150.0);
+        journal.append(Operation.BUY, "AAPL", 3, 150.0);
+        journal.append(Operation.BUY, "AAPL", 4, 150.0);
+
+        // un solo snapshot in coda alla volta, e nessun file scritto dall'append
+        assertEquals(1, pending.size());
+        assertEquals(0, files(".snap"));
+        pending.get(0).run();
+        assertEquals(1, files(".snap"));
+        assertEquals(0, files(".tmp"));
+
+        journal.append(Operation.BUY, "AAPL", 5, 150.0);
+        journal.append(Operation.BUY, "AAPL", 6, 150.0);
+        assertEquals(2, pending.size());
+    }
+
+    @Test
+    void testDefaultSnapshotWriterIsStoppedOnClose() {
+        journal = new TransactionJournal(directory, 4, 1, stockPriceService);
+        journal.open();
+        journal.append(Operation.BUY, "AAPL", 1, 150.0);
+        journal.close();
+        journal = null;
+
+        TransactionJournal reopened = open(4, 1_000);
+        journal = reopened;
+        assertEquals(Map.of("AAPL", 1L), reopened.positions());
+    }
+
+    @Test
+    void testSnapshotOnDemandAndRejectedWriter() throws IOException {
+        // writer gia' fermo: l'append non fallisce, lo snapshot resta a close()
+        journal = open(4, 2, task -> {
+            throw new RejectedExecutionException("stopped");
+        });
+        journal.append(Operation.BUY, "AAPL", 1, 150.0);
+        journal.append(Operation.BUY, "AAPL", 2, 150.0);
+        journal.append(Operation.BUY, "AAPL", 3, 150.0);
+        assertEquals(0, files(".snap"));
+
+        journal.snapshot();
+
+        assertEquals(1, files(".snap"));
+        assertEquals(Map.of("AAPL", 6L), journal.positions());
+    }
+
+    @Test
+    void testCorruptSnapshotsFallBackToFullReplay() throws IOException {
+        journal = open(4, 3);
+        for (int i = 0; i < 7; i++) {
+            journal.append(Operation.BUY, "AAPL", 1, 150.0);
+        }
+        journal = null;
+        List<Path> snapshots;
+        try (Stream<Path> files = Files.list(directory)) {
+            snapshots = files.filter(p -> p.toString().endsWith(".snap")).sorted().toList();
+        }
+        assertEquals(2, snapshots.size());
+        // il piu' vecchio con magic errato, il piu' recente con checksum errato
+        Files.write(snapshots.get(0), new byte[32]);
+        try (RandomAccessFile file = new RandomAccessFile(snapshots.get(1).toFile(), "rw")) {
+            file.seek(file.length() - 1);
+            int last = file.read();
+            file.seek(file.length() - 1);
+            file.write(last ^ 1);
+        }
+
+        journal = open(4, 1_000);
+
+        assertEquals(7, journal.lastSequence());
+        assertEquals(Map.of("AAPL", 7L), journal.positions());
+    }
+
+    @Test
+    void testMissingSegmentStopsReplayAndSetsLaterSegmentsAside() throws IOException {
+        journal = open(4, 1_000);
+        for (int i = 0; i < 10; i++) {
+            journal.append(Operation.BUY, "AAPL", 1, 150.0);
+        }
+        journal = null;
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            segments = files.filter(p -> p.toString().endsWith(".seg")).sorted().toList();
+        }
+        assertEquals(3, segments.size());
+        Files.delete(segments.get(1));
+
+        journal = open(4, 1_000);
+
+        assertEquals(4, journal.lastSequence());
+        assertEquals(Map.of("AAPL", 4L), journal.positions());
+        assertEquals(1, files(".corrupt"));
+        assertEquals(5, journal.append(Operation.BUY, "AAPL", 1, 150.0).sequence());
+    }
+
+    @Test
+    void testRejectsInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> new TransactionJournal(directory, 0, 1, stockPriceService));
+        assertThrows(IllegalArgumentException.class, () -> new TransactionJournal(directory, 1, 0, stockPriceService));
+        journal = open(4, 1_000);
+        assertThrows(IllegalArgumentException.class,
+                () -> journal.append(Operation.BUY, "X".repeat(JournalEntry.MAX_SYMBOL_LENGTH + 1), 1, 1.0));
+    }
+
+    // snapshot sul thread chiamante: i test contano i file subito dopo l'append
+    private TransactionJournal open(int segmentRecords, long snapshotInterval) {
+        return open(segmentRecords, snapshotInterval, Runnable::run);
+    }
+
+    private TransactionJournal open(int segmentRecords, long snapshotInterval, Executor snapshotWriter) {
+        TransactionJournal opened = new TransactionJournal(directory, segmentRecords, snapshotInterval,
+                stockPriceService, snapshotWriter);
+        opened.open();
+        return opened;
+    }
+
+    private static List<JournalEntry> replayAll(TransactionJournal journal) {
+        List<JournalEntry> entries = new ArrayList<>();
+        journal.replay(0, entries::add);
+        return entries;
+    }
+
+    private long files(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.toString().endsWith(suffix)).count();
+        }
+    }
+
+    private Path single(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.toString().endsWith(suffix)).findFirst().orElseThrow();
+        }
+    }
+}
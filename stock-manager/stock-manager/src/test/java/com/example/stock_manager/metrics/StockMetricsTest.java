@@ -0,0 +1,37 @@
+package com.example.stock_manager.metrics;
+
+import com.example.stock_manager.event.PositionChangedEvent;
+import com.example.stock_manager.event.PositionChangedEvent.Operation;
+import com.example.stock_manager.exception.InsufficientStockException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StockMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final StockMetrics metrics = new StockMetrics(registry);
+
+    @Test
+    void testCountsBuysAndSellsOnly() {
+        metrics.onPositionChanged(new PositionChangedEvent("AAPL", 5, Operation.BUY));
+        metrics.onPositionChanged(new PositionChangedEvent("AAPL", 2, Operation.BUY));
+        metrics.onPositionChanged(new PositionChangedEvent("AAPL", -3, Operation.SELL));
+        metrics.onPositionChanged(new PositionChangedEvent("MSFT", 10, Operation.CREATE));
+        metrics.onPositionChanged(new PositionChangedEvent("MSFT", -10, Operation.DELETE));
+
+        assertEquals(2, registry.counter("stock.transactions", "side", "buy").count());
+        assertEquals(1, registry.counter("stock.transactions", "side", "sell").count());
+    }
+
+    @Test
+    void testRejectionsAreTaggedByException() {
+        metrics.rejected(new InsufficientStockException("AAPL", 1, 5));
+        metrics.rejected(new InsufficientStockException("AAPL", 1, 5));
+        metrics.rejected(new IllegalArgumentException("bad"));
+
+        assertEquals(2, registry.counter("stock.rejections", "exception", "InsufficientStockException").count());
+        assertEquals(1, registry.counter("stock.rejections", "exception", "IllegalArgumentException").count());
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.stock_manager.offheap;
+
+import com.example.stock_manager.exception.DuplicateStockException;
+import com.example.stock_manager.exception.InsufficientStockException;
+import com.example.stock_manager.exception.StockNotFoundException;
+import com.example.stock_manager.symbol.SymbolRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapPositionStoreTest {
+
+    // segmenti da 2 record: ogni test attraversa piu' segmenti
+    private final SymbolRegistry symbols = new SymbolRegistry();
+    private final OffHeapPositionStore store = new OffHeapPositionStore(symbols, 2);
+
+    @Test
+    void testCrudAcrossSegments() {
+        store.create("AAPL", 10);
+        store.create("msft", 20);
+        store.create("TSLA", 30);
+
+        assertEquals(3, store.size());
+        assertEquals(20, store.quantity("MSFT"));
+        assertEquals(2 * 2 * 8, store.allocatedBytes());
+
+        store.update("tsla", 35);
+        assertEquals(35, store.quantity("TSLA"));
+
+        assertThrows(DuplicateStockException.class, () -> store.create("AAPL", 1));
+        assertThrows(StockNotFoundException.class, () -> store.quantity("GOOGL"));
+        assertThrows(StockNotFoundException.class, () -> store.quantity("BRK.B"));
+        assertThrows(IllegalArgumentException.class, () -> store.create("BRK.B", 1));
+    }
+
+    @Test
+    void testDeleteMovesLastRecordIntoTheHole() {
+        store.create("AAPL", 10);
+        store.create("MSFT", 20);
+        store.create("TSLA", 30);
+
+        assertEquals(10, store.delete("aapl"));
+
+        assertEquals(2, store.size());
+        assertEquals(Map.of("MSFT", 20, "TSLA", 30), contents());
+        assertThrows(StockNotFoundException.class, () -> store.delete("AAPL"));
+
+        store.create("AAPL", 5);
+        assertEquals(Map.of("AAPL", 5, "MSFT", 20, "TSLA", 30), contents());
+    }
+
+    @Test
+    void testBuyAndSell() {
+        assertEquals(5, store.buy("AAPL", 5));
+        assertEquals(8, store.buy("aapl", 3));
+        assertEquals(6, store.sell("AAPL", 2));
+
+        InsufficientStockException ex = assertThrows(InsufficientStockException.class, () -> store.sell("AAPL", 7));
+        assertTrue(ex.getMessage().contains("available 6"));
+        assertEquals(6, store.quantity("AAPL"));
+
+        assertEquals(0, store.sell("AAPL", 6));
+        assertEquals(0, store.size());
+        assertThrows(StockNotFoundException.class, () -> store.sell("AAPL", 1));
+        assertThrows(IllegalArgumentException.class, () -> store.buy("AAPL", 0));
+        assertThrows(IllegalArgumentException.class, () -> store.buy("AAPL", -1));
+    }
+
+    @Test
+    void testBuyRejectsQuantityOverflow() {
+        store.create("AAPL", Integer.MAX_VALUE - 1);
+
+        assertThrows(IllegalArgumentException.class, () -> store.buy("AAPL", 2));
+        assertEquals(Integer.MAX_VALUE - 1, store.quantity("AAPL"));
+    }
+
+    @Test
+    void testValuateScansAllRecordsWithAlignedPrices() {
+        store.create("AAPL", 10);
+        store.create("MSFT", 4);
+        store.create("TSLA", 1);
+        store.delete("AAPL");
+        store.create("GOOGL", 2);
+        Map<String, Double> prices = Map.of("MSFT", 350.0, "TSLA", 800.0, "GOOGL", 2800.0);
+
+        OffHeapPositionStore.Totals totals = store.valuate(symbolId -> prices.get(symbols.name(symbolId)));
+
+        assertEquals(3, totals.positions());
+        assertEquals(7, totals.totalQuantity());
+        assertEquals(1400.0 + 800.0 + 5600.0, totals.totalValue(), 1e-9);
+        assertEquals("GOOGL", totals.highestValueSymbol());
+        assertEquals(totals.totalValue() / 7, totals.averagePricePerShare(), 1e-9);
+    }
+
+    @Test
+    void testValuateEmptyBook() {
+        OffHeapPositionStore.Totals totals = store.valuate(symbolId -> 0.0);
+
+        assertEquals(0, totals.positions());
+        assertEquals(0.0, totals.totalValue());
+        assertEquals(0.0, totals.averagePricePerShare());
+        assertNull(totals.highestValueSymbol());
+    }
+
+    @Test
+    void testApplyDeltaMirrorsCommittedChanges() {
+        store.applyDelta("AAPL", 10);
+        store.applyDelta("msft", 5);
+        store.applyDelta("AAPL", -4);
+        // delta fuori ordine: la vendita arriva prima della creazione
+        store.applyDelta("TSLA", -2);
+        store.applyDelta("TSLA", 3);
+        store.applyDelta("MSFT", -5);
+
+        assertEquals(Map.of("AAPL", 6, "TSLA", 1), contents());
+        assertThrows(IllegalArgumentException.class, () -> store.applyDelta("BRK.B", 1));
+    }
+
+    @Test
+    void testReplaceAllReusesSegments() {
+        store.create("AAPL", 10);
+        store.create("MSFT", 20);
+        store.create("TSLA", 30);
+
+        store.replaceAll(new String[]{"GOOGL", "aapl"}, new int[]{2, 3});
+
+        assertEquals(Map.of("GOOGL", 2, "AAPL", 3), contents());
+        assertEquals(2 * 2 * 8, store.allocatedBytes());
+        assertThrows(StockNotFoundException.class, () -> store.quantity("MSFT"));
+        store.applyDelta("MSFT", 1);
+        assertEquals(1, store.quantity("MSFT"));
+    }
+
+    @Test
+    void testRejectsInvalidSegmentSize() {
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapPositionStore(symbols, 0));
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapPositionStore(symbols, 3));
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapPositionStore(symbols, 1 << 28));
+    }
+
+    private Map<String, Integer> contents() {
+        Map<String, Integer> contents = new HashMap<>();
+        store.forEach((symbolId, quantity) -> contents.put(symbols.name(symbolId), quantity));
+        return contents;
+    }
+}
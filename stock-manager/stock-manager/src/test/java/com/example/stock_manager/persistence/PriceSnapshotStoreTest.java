@@ -0,0 +1,119 @@
+package com.example.stock_manager.persistence;
+
+import com.example.stock_manager.service.impl.StockPriceServiceImpl;
+import com.example.stock_manager.symbol.SymbolRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class PriceSnapshotStoreTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void testSavedPricesAreRestoredWithoutEvents() {
+        StockPriceServiceImpl source = priceService();
+        for (int i = 0; i < 10_000; i++) {
+            source.updatePrice("SNAP" + i, 1.0 + i);
+        }
+        Path file = directory.resolve("nested/prices.snapshot");
+        int saved = new PriceSnapshotStore(source, file, Duration.ofSeconds(30)).save();
+
+        StockPriceServiceImpl target = priceService();
+        ApplicationEventPublisher publisher = mock(ApplicationEventPublisher.class);
+        target.setApplicationEventPublisher(publisher);
+        int restored = new PriceSnapshotStore(target, file, Duration.ofSeconds(30)).restore();
+
+        // 10.000 simboli piu' i 5 prezzi iniziali
+        assertEquals(10_005, saved);
+        assertEquals(saved, restored);
+        assertEquals(1.0, target.getPrice("SNAP0"));
+        assertEquals(10_000.0, target.getPrice("SNAP9999"));
+        assertEquals(150.0, target.getPrice("AAPL"));
+        verifyNoInteractions(publisher);
+    }
+
+    @Test
+    void testMissingOrCorruptSnapshotIsIgnored() throws IOException {
+        Path file = directory.resolve("prices.snapshot");
+        PriceSnapshotStore store = new PriceSnapshotStore(priceService(), file, Duration.ofSeconds(30));
+
+        assertEquals(0, store.restore());
+
+        store.save();
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x7f;
+        Files.write(file, bytes);
+        assertEquals(0, store.restore());
+
+        Files.write(file, new byte[]{1, 2, 3});
+        assertEquals(0, store.restore());
+
+        Files.write(file, new byte[16]);
+        assertEquals(0, store.restore());
+    }
+
+    @Test
+    void testSaveFailureIsReported() throws IOException {
+        // il file di destinazione e' una directory non vuota: il rename non puo' riuscire
+        Path file = directory.resolve("prices.snapshot");
+        Files.createDirectories(file.resolve("occupied"));
+        PriceSnapshotStore store = new PriceSnapshotStore(priceService(), file, Duration.ofSeconds(30));
+
+        assertThrows(UncheckedIOException.class, store::save);
+    }
+
+    @Test
+    void testPriceAddedWhileSavingWaitsForNextSnapshot() {
+        StockPriceServiceImpl source = spy(priceService());
+        // primo passaggio (conteggio) senza il nuovo simbolo, secondo (scrittura) con
+        doCallRealMethod().doAnswer(invocation -> {
+            source.updatePrice("LATE", 1.0);
+            invocation.callRealMethod();
+            return null;
+        }).when(source).forEachPrice(any());
+        Path file = directory.resolve("prices.snapshot");
+
+        assertEquals(5, new PriceSnapshotStore(source, file, Duration.ofSeconds(30)).save());
+    }
+
+    @Test
+    void testLifecycleRestoresOnStartAndSavesOnStop() {
+        Path file = directory.resolve("prices.snapshot");
+        StockPriceServiceImpl first = priceService();
+        PriceSnapshotStore store = new PriceSnapshotStore(first, file, Duration.ofSeconds(30));
+        store.start();
+        assertTrue(store.isRunning());
+        first.updatePrice("LIFE", 42.0);
+        store.stop();
+        assertFalse(store.isRunning());
+
+        StockPriceServiceImpl second = priceService();
+        new PriceSnapshotStore(second, file, Duration.ofSeconds(30)).start();
+        assertEquals(42.0, second.getPrice("LIFE"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PriceSnapshotStore(second, file, Duration.ZERO));
+        // prima della ingestione tick e del write engine
+        assertTrue(store.getPhase() < SmartLifecycle.DEFAULT_PHASE);
+    }
+
+    // un registro per servizio: ogni servizio fa la parte di un processo distinto
+    private static StockPriceServiceImpl priceService() {
+        return new StockPriceServiceImpl(new SymbolRegistry());
+    }
+}
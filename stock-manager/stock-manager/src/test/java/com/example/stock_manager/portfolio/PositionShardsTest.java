@@ -0,0 +1,72 @@
+package com.example.stock_manager.portfolio;
+
+import com.example.stock_manager.model.Stock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionShardsTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private PositionShards shards;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:shards-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        shards = new PositionShards(jdbcTemplate, 4);
+    }
+
+    @Test
+    void testPortfoliosAreIsolatedAndRoutedToOneShard() {
+        shards.upsertQuantity("client-1", "AAPL", 10);
+        shards.upsertQuantity("client-1", "AAPL", 5);
+        shards.upsertQuantity("client-2", "AAPL", 7);
+        shards.insert("client-1", "MSFT", 3);
+
+        List<Stock> positions = shards.findAll("client-1");
+        assertEquals(List.of("AAPL", "MSFT"), positions.stream().map(Stock::getSymbol).toList());
+        assertEquals(15, positions.get(0).getQuantity());
+        assertEquals(Optional.of(7), shards.findQuantity("client-2", "AAPL"));
+        assertEquals(Optional.empty(), shards.findQuantity("client-3", "AAPL"));
+
+        String table = "portfolio_position_" + shards.shardOf("client-1");
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + table + " WHERE portfolio_id = 'client-1'", Integer.class));
+        assertEquals(shards.shardOf("client-1"), shards.shardOf("client-1"));
+    }
+
+    @Test
+    void testConditionalUpdates() {
+        assertTrue(shards.insert("p", "TSLA", 4));
+        assertFalse(shards.insert("p", "TSLA", 9));
+
+        assertEquals(0, shards.decrementQuantity("p", "TSLA", 5));
+        assertEquals(1, shards.decrementQuantity("p", "TSLA", 4));
+        assertEquals(1, shards.deleteIfEmpty("p", "TSLA"));
+        assertEquals(0, shards.setQuantity("p", "TSLA", 1));
+        assertEquals(0, shards.delete("p", "TSLA"));
+    }
+
+    @Test
+    void testInvalidConfigurationAndPortfolioIds() {
+        assertThrows(IllegalArgumentException.class, () -> new PositionShards(jdbcTemplate, 0));
+        assertThrows(IllegalArgumentException.class, () -> shards.shardOf("bad id; drop"));
+        assertThrows(IllegalArgumentException.class, () -> shards.findAll(""));
+        assertEquals(4, shards.shards());
+    }
+
+    @Test
+    void testMigratedTablesAreRequiredWhenNotCreated() {
+        // le 4 partizioni esistono gia' dal setUp; la quinta no
+        assertEquals(4, new PositionShards(jdbcTemplate, 4, false).shards());
+        assertThrows(DataAccessException.class, () -> new PositionShards(jdbcTemplate, 5, false));
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.stock_manager.service;
+
+import com.example.stock_manager.event.PositionChangedEvent;
+import com.example.stock_manager.event.PositionChangedEvent.Operation;
+import com.example.stock_manager.event.PriceUpdatedEvent;
+import com.example.stock_manager.exception.StaleCursorException;
+import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.offheap.OffHeapPositionStore;
+import com.example.stock_manager.repository.StockRepository;
+import com.example.stock_manager.symbol.SymbolRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PortfolioAggregatorTest {
+
+    @Mock
+    private StockRepository stockRepository;
+
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
+    private StockPriceService stockPriceService;
+
+    @Mock
+    private ObjectProvider<OffHeapPositionStore> offHeapPositions;
+
+    @InjectMocks
+    private PortfolioAggregator aggregator;
+
+    @Test
+    void testRebuild_loadsTotalsFromRepository() {
+        when(stockRepository.findAll()).thenReturn(List.of(
+                Stock.builder().symbol("AAPL").quantity(10).build(),
+                Stock.builder().symbol("GOOGL").quantity(5).build()));
+        when(stockPriceService.getPrice("AAPL")).thenReturn(150.0);
+        when(stockPriceService.getPrice("GOOGL")).thenReturn(2800.0);
+
+        aggregator.rebuild();
+
+        PortfolioAggregator.Totals totals = aggregator.totals();
+        assertEquals(15, totals.totalQuantity());
+        assertEquals(15500.0, totals.totalValue(), 0.0001);
+        assertEquals(2, totals.positionCount());
+    }
+
+    @Test
+    void testTotals_emptyBeforeRebuild() {
+        PortfolioAggregator.Totals totals = aggregator.totals();
+
+        assertEquals(0, totals.totalQuantity());
+        assertEquals(0.0, totals.totalValue());
+        assertEquals(0.0, totals.averagePricePerShare());
+    }
+
+    @Test
+    void testOnPositionChanged_appliesDeltas() {
+        when(stockPriceService.getPrice("AAPL")).thenReturn(100.0);
+
+        aggregator.onPositionChanged(new PositionChangedEvent("AAPL", 10, Operation.BUY));
+        aggregator.onPositionChanged(new PositionChangedEvent("AAPL", -4, Operation.SELL));
+
+        PortfolioAggregator.Totals totals = aggregator.totals();
+        assertEquals(6, totals.totalQuantity());
+        assertEquals(600.0, totals.totalValue(), 0.0001);
+        assertEquals(1, totals.positionCount());
+        assertEquals(100.0, totals.averagePricePerShare(), 0.0001);
+    }
+
+    @Test
+    void testOnPositionChanged_removesPosition() {
+        when(stockPriceService.getPrice("AAPL")).thenReturn(100.0);
+        when(stockPriceService.getPrice("MSFT")).thenReturn(50.0);
+        aggregator.onPositionChanged(new PositionChangedEvent("AAPL", 10, Operation.BUY));
+        aggregator.onPositionChanged(new PositionChangedEvent("MSFT", 2, Operation.BUY));
+
+        aggregator.onPositionChanged(new PositionChangedEvent("AAPL", -10, Operation.SELL));
+
+        PortfolioAggregator.Totals totals = aggregator.totals();
+        assertEquals(2, totals.totalQuantity());
+        assertEquals(100.0, totals.totalValue(), 0.0001);
+        assertEquals(1, totals.positionCount());
+        assertEquals(List.of("MSFT"), symbols(aggregator.topByValue(10)));
+    }
+
+    @Test
+    void testOnPositionChanged_outOfOrderEventsConverge() {
+        when(stockPriceService.getPrice("AAPL")).thenReturn(100.0);
+        aggregator.onPositionChanged(new PositionChangedEvent("AAPL", 10, Operation.BUY));
+
+        // commit: vendita di 4, poi vendita del resto; consegna: prima la chiusura
+        aggregator.onPositionChanged(new PositionChangedEvent("AAPL", -6, Operation.SELL));
+        assertEquals(1, aggregator.totals().positionCount());
+        aggregator.onPositionChanged(new PositionChangedEvent("AAPL", -4, Operation.SELL));
+
+        PortfolioAggregator.Totals totals = aggregator.totals();
+        assertEquals(0, totals.totalQuantity());
+        assertEquals(0.0, totals.totalValue(), 0.0001);
+        assertEquals(0, totals.positionCount());
+        assertTrue(aggregator.highestValue().isEmpty());
+    }
+
+    @Test
+    void testMirrorsRebuildAndDeltasIntoOffHeapBook() {
+        OffHeapPositionStore offHeap = new OffHeapPositionStore(new SymbolRegistry(), 2);
+        when(offHeapPositions.getIfAvailable()).thenReturn(offHeap);
+        when(stockRepository.findAll()).thenReturn(List.of(
+                Stock.builder().symbol("AAPL").quantity(10).build(),
+                Stock.builder().symbol("GOOGL").quantity(5).build()));
+        when(stockPriceService.getPrice("AAPL")).thenReturn(150.0);
+        when(stockPriceService.getPrice("GOOGL")).thenReturn(2800.0);
+        when(stockPriceService.getPrice("MSFT")).thenReturn(350.0);
+
+        aggregator.rebuild();
+        aggregator.onPositionChanged(new PositionChangedEvent("MSFT", 3, Operation.CREATE));
+        aggregator.onPositionChanged(new PositionChangedEvent("AAPL", -10, Operation.SELL));
+
+        assertEquals(2, offHeap.size());
+        assertEquals(5, offHeap.quantity("GOOGL"));
+        assertEquals(3, offHeap.quantity("MSFT"));
+        assertEquals(aggregator.totals().totalQuantity(), offHeap.valuate(id -> 1.0).totalQuantity());
+    }
+
+    @Test
+    void testOnPriceUpdated_revaluesHeldPositionOnly() {
+        when(stockPriceService.getPrice("AAPL")).thenReturn(100.0);
+        aggregator.onPositionChanged(new PositionChangedEvent("AAPL", 10, Operation.BUY));
+
+        aggregator.onPriceUpdated(new PriceUpdatedEvent("AAPL", 100.0, 120.0));
+        aggregator.onPriceUpdated(new PriceUpdatedEvent("TSLA", 800.0, 900.0));
+
+        assertEquals(1200.0, aggregator.totals().totalValue(), 0.0001);
+    }
+
+    @Test
+    void testOnPriceUpdated_manyRevaluationsLeaveNoResidue() {
+        when(stockPriceService.getPrice("AAPL")).thenReturn(0.1);
+        when(stockPriceService.getPrice("MSFT")).thenReturn(0.1);
+        aggregator.onPositionChanged(new PositionChangedEvent("AAPL", 3, Operation.BUY));
+        double price = 0.1;
+        for (int i = 0; i < 10_000; i++) {
+            double next = 0.1 + (i % 7) * 0.7;
+            aggregator.onPriceUpdated(new PriceUpdatedEvent("AAPL", price, next));
+            price = next;
+        }
+        aggregator.onPositionChanged(new PositionChangedEvent("MSFT", 1, Operation.BUY));
+
+        assertEquals(3 * price + 0.1, aggregator.totals().totalValue(), 1e-9);
+
+        aggregator.onPositionChanged(new PositionChangedEvent("AAPL", -3, Operation.SELL));
+        aggregator.onPositionChanged(new PositionChangedEvent("MSFT", -1, Operation.SELL));
+        assertEquals(0.0, aggregator.totals().totalValue());
+    }
+
+    @Test
+    void testReconcile_consistentWhenNothingDrifted() {
+        when(stockRepository.findAll()).thenReturn(List.of(Stock.builder().symbol("AAPL").quantity(10).build()));
+        when(stockPriceService.getPrice("AAPL")).thenReturn(100.0);
+        aggregator.rebuild();
+
+        PortfolioAggregator.Reconciliation result = aggregator.reconcile();
+
+        assertTrue(result.consistent());
+        assertEquals(result.expected(), result.actual());
+    }
+
+    @Test
+    void testReconcile_realignsAfterOutOfBandWrite() {
+        when(stockRepository.findAll())
+                .thenReturn(List.of(Stock.builder().symbol("AAPL").quantity(10).build()))
+                .thenReturn(List.of(Stock.builder().symbol("AAPL").quantity(25).build()));
+        when(stockPriceService.getPrice("AAPL")).thenReturn(100.0);
+        aggregator.rebuild();
+
+        PortfolioAggregator.Reconciliation result = aggregator.reconcile();
+
+        assertFalse(result.consistent());
+        assertEquals(10, result.actual().totalQuantity());
+        assertEquals(25, result.expected().totalQuantity());
+        assertEquals(2500.0, aggregator.totals().totalValue(), 0.0001);
+    }
+
+    @Test
+    void testRebuild_waitsForCommitInFlightInsteadOfCountingItTwice() throws Exception {
+        when(stockRepository.findAll()).thenReturn(List.of(Stock.builder().symbol("AAPL").quantity(10).build()));
+        when(stockPriceService.getPrice("AAPL")).thenReturn(100.0);
+        aggregator.rebuild();
+        PositionChangedEvent buy = new PositionChangedEvent("AAPL", 5, Operation.BUY);
+
+        // la transazione e' in commit: il database ha gia' 15, il listener non ha ancora applicato +5
+        aggregator.onPositionCommitting(buy);
+        when(stockRepository.findAll()).thenReturn(List.of(Stock.builder().symbol("AAPL").quantity(15).build()));
+        CompletableFuture<Void> rebuild = CompletableFuture.runAsync(aggregator::rebuild);
+        assertThrows(TimeoutException.class, () -> rebuild.get(100, TimeUnit.MILLISECONDS));
+        aggregator.onPositionChanged(buy);
+        aggregator.onPositionCompleted(buy);
+        rebuild.get(5, TimeUnit.SECONDS);
+
+        assertEquals(15, aggregator.totals().totalQuantity());
+        assertEquals(1500.0, aggregator.totals().totalValue(), 0.0001);
+    }
+
+    @Test
+    void testOnPositionCompleted_withoutCommitIsIgnored() {
+        PositionChangedEvent rolledBack = new PositionChangedEvent("AAPL", 5, Operation.BUY);
+
+        assertDoesNotThrow(() -> aggregator.onPositionCompleted(rolledBack));
+        aggregator.rebuild();
+        assertEquals(0, aggregator.totals().positionCount());
+    }
+
+    @Test
+    void testValueIndex_ordersByValueAndFollowsUpdates() {
+        when(stockPriceService.getPrice("AAPL")).thenReturn(150.0);
+        when(stockPriceService.getPrice("GOOGL")).thenReturn(2800.0);
+        when(stockPriceService.getPrice("MSFT")).thenReturn(350.0);
+        aggregator.onPositionChanged(new PositionChangedEvent("AAPL", 10, Operation.BUY));  // 1500
+        aggregator.onPositionChanged(new PositionChangedEvent("GOOGL", 1, Operation.BUY));  // 2800
+        aggregator.onPositionChanged(new PositionChangedEvent("MSFT", 2, Operation.BUY));   // 700
+
+        assertEquals(List.of("GOOGL", "AAPL", "MSFT"), symbols(aggregator.topByValue(10)));
+        assertEquals("GOOGL", aggregator.highestValue().orElseThrow().symbol());
+
+        aggregator.onPositionChanged(new PositionChangedEvent("MSFT", 8, Operation.BUY));   // 3500
+        assertEquals("MSFT", aggregator.highestValue().orElseThrow().symbol());
+
+        aggregator.onPriceUpdated(new PriceUpdatedEvent("AAPL", 150.0, 400.0));  // 4000
+        assertEquals(List.of("AAPL", "MSFT"), symbols(aggregator.topByValue(2)));
+
+        aggregator.onPositionChanged(new PositionChangedEvent("AAPL", -10, Operation.SELL));
+        assertEquals(List.of("MSFT", "GOOGL"), symbols(aggregator.topByValue(10)));
+    }
+
+    @Test
+    void testValueIndex_tiesBrokenBySymbol() {
+        when(stockPriceService.getPrice("BBB")).thenReturn(10.0);
+        when(stockPriceService.getPrice("AAA")).thenReturn(10.0);
+        aggregator.onPositionChanged(new PositionChangedEvent("BBB", 1, Operation.BUY));
+        aggregator.onPositionChanged(new PositionChangedEvent("AAA", 1, Operation.BUY));
+
+        assertEquals(List.of("AAA", "BBB"), symbols(aggregator.topByValue(10)));
+    }
+
+    @Test
+    void testPageByValue_continuesAfterCursor() {
+        when(stockRepository.findAll()).thenReturn(List.of(
+                Stock.builder().symbol("A").quantity(1).build(),
+                Stock.builder().symbol("B").quantity(2).build(),
+                Stock.builder().symbol("C").quantity(3).build(),
+                Stock.builder().symbol("D").quantity(4).build()));
+        for (String symbol : List.of("A", "B", "C", "D")) {
+            when(stockPriceService.getPrice(symbol)).thenReturn(10.0);
+        }
+        aggregator.rebuild();
+
+        List<ValuedPosition> first = aggregator.topByValue(2);
+        assertEquals(List.of("D", "C"), symbols(first));
+        assertEquals(List.of("B", "A"), symbols(aggregator.pageByValue("C", 2)));
+        assertEquals(List.of("A"), symbols(aggregator.pageByValue("B", 5)));
+        assertEquals(List.of(), aggregator.pageByValue("A", 5));
+        assertThrows(StaleCursorException.class, () -> aggregator.pageByValue("GONE", 5));
+    }
+
+    @Test
+    void testHighestValue_emptyPortfolio() {
+        assertTrue(aggregator.highestValue().isEmpty());
+        assertTrue(aggregator.topByValue(5).isEmpty());
+    }
+
+    private static List<String> symbols(List<ValuedPosition> positions) {
+        return positions.stream().map(ValuedPosition::symbol).toList();
+    }
+}
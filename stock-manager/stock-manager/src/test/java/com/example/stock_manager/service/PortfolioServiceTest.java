@@ -1,18 +1,32 @@
 package com.example.stock_manager.service;
 
 import com.example.stock_manager.dto.PortfolioSummary;
+import com.example.stock_manager.dto.StockValueResponse;
 import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.offheap.OffHeapPositionStore;
 import com.example.stock_manager.repository.StockRepository;
+import com.example.stock_manager.symbol.SymbolRegistry;
+import com.example.stock_manager.valuation.PortfolioValuator;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
 
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -21,9 +35,21 @@ class PortfolioServiceTest {
     @Mock
     private StockRepository stockRepository;
 
-    @Mock
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
     private StockPriceService stockPriceService;
 
+    @Mock
+    private PortfolioAggregator portfolioAggregator;
+
+    @Spy
+    private PortfolioValuator portfolioValuator = new PortfolioValuator(100_000, 16_384);
+
+    @Spy
+    private SymbolRegistry symbolRegistry = new SymbolRegistry();
+
+    @Mock
+    private ObjectProvider<OffHeapPositionStore> offHeapPositions;
+
     @InjectMocks
     private PortfolioService portfolioService;
 
@@ -44,6 +70,50 @@ class PortfolioServiceTest {
         assertEquals(1500.0, total);
     }
 
+    @Test
+    void testGetPortfolioSummary_scansOffHeapBookWhenEnabled() {
+        OffHeapPositionStore positions = new OffHeapPositionStore(symbolRegistry, 2);
+        positions.applyDelta("AAPL", 10);
+        positions.applyDelta("MSFT", 4);
+        positions.applyDelta("TSLA", 1);
+        when(offHeapPositions.getIfAvailable()).thenReturn(positions);
+
+        when(stockPriceService.getPrice(symbolRegistry.find("AAPL"))).thenReturn(150.0);
+        when(stockPriceService.getPrice(symbolRegistry.find("MSFT"))).thenReturn(350.0);
+        when(stockPriceService.getPrice(symbolRegistry.find("TSLA"))).thenReturn(800.0);
+
+        PortfolioSummary summary = portfolioService.getPortfolioSummary();
+
+        assertEquals(3700.0, summary.getTotalValue());
+        assertEquals(3700.0 / 15, summary.getAveragePricePerShare(), 1e-9);
+        assertEquals(3, summary.getTotalStocks());
+        assertEquals(15, summary.getTotalQuantity());
+        assertEquals(List.of("AAPL", "MSFT", "TSLA"),
+                summary.getStockDetails().stream().map(StockValueResponse::getSymbol).toList());
+        assertEquals(1400.0, summary.getStockDetails().get(1).getTotalValue());
+
+        // solo totali: stessa valorizzazione, nessun dettaglio
+        PortfolioSummary totals = portfolioService.getPortfolioSummary(false);
+        assertEquals(3700.0, totals.getTotalValue());
+        assertEquals(3, totals.getTotalStocks());
+        assertEquals(15, totals.getTotalQuantity());
+        assertTrue(totals.getStockDetails().isEmpty());
+        verify(stockRepository, never()).findAll();
+    }
+
+    @Test
+    void testGetPortfolioSummary_loadsEntitiesWithoutOffHeapBook() {
+        when(stockRepository.findAll()).thenReturn(List.of(Stock.builder().symbol("AAPL").quantity(2).build()));
+        when(stockPriceService.getPrice("AAPL")).thenReturn(150.0);
+
+        PortfolioSummary summary = portfolioService.getPortfolioSummary();
+
+        assertEquals(300.0, summary.getTotalValue());
+        assertEquals(1, summary.getTotalStocks());
+        assertEquals(1, summary.getStockDetails().size());
+        assertTrue(portfolioService.getPortfolioSummary(false).getStockDetails().isEmpty());
+    }
+
     @Test
     void testGetTotalValue_multipleStocks() {
         Stock apple = Stock.builder()
@@ -151,6 +221,21 @@ class PortfolioServiceTest {
         assertEquals(15500.0, summary.getTotalValue(), 0.01);
     }
 
+    @Test
+    void testGetPortfolioSummary_largeQuantitiesDoNotOverflow() {
+        Stock apple = Stock.builder().symbol("AAPL").quantity(Integer.MAX_VALUE).build();
+        Stock google = Stock.builder().symbol("GOOGL").quantity(Integer.MAX_VALUE).build();
+
+        when(stockPriceService.getPrice("AAPL")).thenReturn(0.1);
+        when(stockPriceService.getPrice("GOOGL")).thenReturn(9_000.0);
+
+        PortfolioSummary summary = portfolioService.getPortfolioSummary(List.of(apple, google));
+
+        assertEquals(2L * Integer.MAX_VALUE, summary.getTotalQuantity());
+        assertEquals(9_000.1 * Integer.MAX_VALUE, summary.getTotalValue(), 1.0);
+        assertEquals(9_000.0 * Integer.MAX_VALUE, summary.getStockDetails().get(1).getTotalValue(), 1e-2);
+    }
+
     @Test
     void testGetPortfolioSummary_withNullList() {
         PortfolioSummary summary = portfolioService.getPortfolioSummary(null);
@@ -218,4 +303,79 @@ class PortfolioServiceTest {
 
         assertEquals("AAPL", highest.getSymbol());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetPortfolioSummary_resolvesPricesInOneBulkCall() {
+        List<Stock> stocks = List.of(
+                Stock.builder().symbol("AAPL").quantity(10).build(),
+                Stock.builder().symbol("GOOGL").quantity(5).build());
+
+        doReturn(new double[]{150.0, 2800.0}).when(stockPriceService).getPrices(new String[]{"AAPL", "GOOGL"});
+
+        PortfolioSummary summary = portfolioService.getPortfolioSummary(stocks);
+
+        assertEquals(15500.0, summary.getTotalValue(), 0.01);
+        assertEquals(150.0, summary.getStockDetails().get(0).getCurrentPrice());
+        verify(stockPriceService, times(1)).getPrices(any(String[].class));
+        verify(stockPriceService, never()).getPrice("AAPL");
+    }
+
+    @Test
+    void testGetTotalValue_readsMaintainedAggregates() {
+        when(portfolioAggregator.totals()).thenReturn(new PortfolioAggregator.Totals(15, 15500.0, 2));
+
+        assertEquals(15500.0, portfolioService.getTotalValue());
+        verify(stockRepository, never()).findAll();
+    }
+
+    @Test
+    void testGetAveragePricePerShare_readsMaintainedAggregates() {
+        when(portfolioAggregator.totals()).thenReturn(new PortfolioAggregator.Totals(10, 2000.0, 2));
+
+        assertEquals(200.0, portfolioService.getAveragePricePerShare());
+        verify(stockRepository, never()).findAll();
+    }
+
+    @Test
+    void testFindHighestValueStock_readsValueIndex() {
+        when(portfolioAggregator.highestValue())
+                .thenReturn(Optional.of(new ValuedPosition("GOOGL", 2, 2800.0, 5600.0)));
+
+        Stock highest = portfolioService.findHighestValueStock();
+
+        assertEquals("GOOGL", highest.getSymbol());
+        assertEquals(2, highest.getQuantity());
+        verify(stockRepository, never()).findAll();
+    }
+
+    @Test
+    void testFindHighestValueStock_emptyIndex() {
+        when(portfolioAggregator.highestValue()).thenReturn(Optional.empty());
+
+        assertNull(portfolioService.findHighestValueStock());
+    }
+
+    @Test
+    void testGetPositionsByValue_delegatesToIndex() {
+        List<ValuedPosition> top = List.of(new ValuedPosition("GOOGL", 2, 2800.0, 5600.0));
+        when(portfolioAggregator.topByValue(1)).thenReturn(top);
+
+        assertEquals(top, portfolioService.getPositionsByValue(1));
+    }
+
+    @Test
+    void testGetPositionsByValue_pagesFromCursor() {
+        List<ValuedPosition> page = List.of(new ValuedPosition("AAPL", 10, 150.0, 1500.0));
+        when(portfolioAggregator.pageByValue("GOOGL", 1)).thenReturn(page);
+
+        assertEquals(page, portfolioService.getPositionsByValue("googl", 1));
+    }
+
+    @Test
+    void testGetPositionsByValue_withoutCursorStartsFromTop() {
+        List<ValuedPosition> top = List.of(new ValuedPosition("GOOGL", 2, 2800.0, 5600.0));
+        when(portfolioAggregator.topByValue(1)).thenReturn(top);
+
+        assertEquals(top, portfolioService.getPositionsByValue(null, 1));
+    }
+}
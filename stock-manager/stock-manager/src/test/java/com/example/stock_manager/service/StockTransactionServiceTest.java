@@ -1,24 +1,42 @@
 package com.example.stock_manager.service;
 
+import com.example.stock_manager.dto.BatchTransactionResponse;
 import com.example.stock_manager.dto.CreateStockRequest;
+import com.example.stock_manager.dto.TransactionLegRequest;
+import com.example.stock_manager.dto.TransactionLegResult;
 import com.example.stock_manager.dto.UpdateStockRequest;
+import com.example.stock_manager.event.PositionChangedEvent;
+import com.example.stock_manager.event.PositionChangedEvent.Operation;
 import com.example.stock_manager.exception.DuplicateStockException;
 import com.example.stock_manager.exception.InsufficientStockException;
+import com.example.stock_manager.exception.QuantityOverflowException;
 import com.example.stock_manager.exception.StockNotFoundException;
+import com.example.stock_manager.metrics.StockMetrics;
 import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.model.TransactionSide;
 import com.example.stock_manager.repository.StockRepository;
+import com.example.stock_manager.symbol.SymbolRegistry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Answers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -29,9 +47,21 @@ class StockTransactionServiceTest {
     @Mock
     private StockRepository stockRepository;
 
-    @Mock
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
     private StockPriceService stockPriceService;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private StockMetrics stockMetrics;
+
+    @Spy
+    private SymbolRegistry symbolRegistry = new SymbolRegistry();
+
     @InjectMocks
     private StockTransactionService transactionService;
 
@@ -50,6 +80,7 @@ class StockTransactionServiceTest {
         assertNotNull(created);
         assertEquals("AAPL", created.getSymbol());
         assertEquals(10, created.getQuantity());
+        verify(eventPublisher).publishEvent(new PositionChangedEvent("AAPL", 10, Operation.CREATE));
     }
 
     @Test
@@ -98,20 +129,23 @@ class StockTransactionServiceTest {
         Stock updated = transactionService.updateStock("AAPL", request);
 
         assertEquals(99, updated.getQuantity());
+        verify(eventPublisher).publishEvent(new PositionChangedEvent("AAPL", 98, Operation.UPDATE));
     }
 
     @Test
     void testDeleteStock_deletesWhenExists() {
-        when(stockRepository.existsById("AAPL")).thenReturn(true);
+        Stock stock = Stock.builder().symbol("AAPL").quantity(7).build();
+        when(stockRepository.findForUpdateBySymbol("AAPL")).thenReturn(Optional.of(stock));
 
         transactionService.deleteStock("aapl");
 
-        verify(stockRepository).deleteById("AAPL");
+        verify(stockRepository).delete(stock);
+        verify(eventPublisher).publishEvent(new PositionChangedEvent("AAPL", -7, Operation.DELETE));
     }
 
     @Test
     void testDeleteStock_throwsWhenMissing() {
-        when(stockRepository.existsById("AAPL")).thenReturn(false);
+        when(stockRepository.findForUpdateBySymbol("AAPL")).thenReturn(Optional.empty());
         assertThrows(StockNotFoundException.class, () -> transactionService.deleteStock("AAPL"));
     }
 
@@ -120,16 +154,17 @@ class StockTransactionServiceTest {
         String symbol = "AAPL";
         int quantity = 10;
 
-        when(stockRepository.findById(symbol)).thenReturn(Optional.empty());
         when(stockPriceService.getPrice(symbol)).thenReturn(150.0);
-        when(stockRepository.save(any(Stock.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(stockRepository.addQuantity(symbol, quantity)).thenReturn(quantity);
 
         Stock result = transactionService.buyStock(symbol, quantity);
 
         assertNotNull(result);
         assertEquals(symbol, result.getSymbol());
         assertEquals(quantity, result.getQuantity());
-        verify(stockRepository).save(any(Stock.class));
+        verify(stockRepository, never()).findQuantityBySymbol(any());
+        verify(stockRepository, never()).findById(any());
+        verify(stockRepository, never()).save(any(Stock.class));
     }
 
     @Test
@@ -138,20 +173,14 @@ class StockTransactionServiceTest {
         int existingQuantity = 5;
         int buyQuantity = 10;
 
-        Stock existing = Stock.builder()
-                .symbol(symbol)
-                .quantity(existingQuantity)
-                .build();
-
-        when(stockRepository.findById(symbol)).thenReturn(Optional.of(existing));
         when(stockPriceService.getPrice(symbol)).thenReturn(150.0);
-        when(stockRepository.save(any(Stock.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(stockRepository.addQuantity(symbol, buyQuantity)).thenReturn(existingQuantity + buyQuantity);
 
-        Stock result = transactionService.buyStock(symbol, buyQuantity);
+        Stock result = transactionService.buyStock("aapl", buyQuantity);
 
         assertNotNull(result);
         assertEquals(existingQuantity + buyQuantity, result.getQuantity());
-        verify(stockRepository).save(any(Stock.class));
+        verify(eventPublisher).publishEvent(new PositionChangedEvent(symbol, buyQuantity, Operation.BUY));
     }
 
     @Test
@@ -171,21 +200,16 @@ class StockTransactionServiceTest {
         int existingQuantity = 20;
         int sellQuantity = 5;
 
-        Stock existing = Stock.builder()
-                .symbol(symbol)
-                .quantity(existingQuantity)
-                .build();
-
-        when(stockRepository.findById(symbol)).thenReturn(Optional.of(existing));
+        when(stockRepository.removeQuantity(symbol, sellQuantity)).thenReturn(Optional.of(existingQuantity - sellQuantity));
         when(stockPriceService.getPrice(symbol)).thenReturn(150.0);
-        when(stockRepository.save(any(Stock.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         Stock result = transactionService.sellStock(symbol, sellQuantity);
 
         assertNotNull(result);
         assertEquals(existingQuantity - sellQuantity, result.getQuantity());
-        verify(stockRepository).save(any(Stock.class));
-        verify(stockRepository, never()).delete(any(Stock.class));
+        verify(stockRepository, never()).findQuantityBySymbol(any());
+        verify(stockRepository, never()).save(any(Stock.class));
+        verify(eventPublisher).publishEvent(new PositionChangedEvent(symbol, -sellQuantity, Operation.SELL));
     }
 
     @Test
@@ -193,27 +217,24 @@ class StockTransactionServiceTest {
         String symbol = "AAPL";
         int quantity = 10;
 
-        Stock existing = Stock.builder()
-                .symbol(symbol)
-                .quantity(quantity)
-                .build();
-
-        when(stockRepository.findById(symbol)).thenReturn(Optional.of(existing));
+        when(stockRepository.removeQuantity(symbol, quantity)).thenReturn(Optional.of(0));
 
         Stock result = transactionService.sellStock(symbol, quantity);
 
         assertNull(result);
-        verify(stockRepository).delete(existing);
-        verify(stockRepository, never()).save(any(Stock.class));
+        verify(stockRepository, never()).findQuantityBySymbol(any());
+        verify(eventPublisher).publishEvent(new PositionChangedEvent(symbol, -quantity, Operation.SELL));
     }
 
     @Test
     void testSellStock_notFound() {
+        when(stockRepository.removeQuantity("UNKNOWN", 10)).thenReturn(Optional.empty());
         when(stockRepository.findById("UNKNOWN")).thenReturn(Optional.empty());
 
         assertThrows(StockNotFoundException.class, () -> {
             transactionService.sellStock("UNKNOWN", 10);
         });
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
@@ -227,11 +248,49 @@ class StockTransactionServiceTest {
                 .quantity(existingQuantity)
                 .build();
 
+        when(stockRepository.removeQuantity(symbol, sellQuantity)).thenReturn(Optional.empty());
         when(stockRepository.findById(symbol)).thenReturn(Optional.of(existing));
 
-        assertThrows(InsufficientStockException.class, () -> {
+        InsufficientStockException exception = assertThrows(InsufficientStockException.class, () -> {
             transactionService.sellStock(symbol, sellQuantity);
         });
+        assertTrue(exception.getMessage().contains("Insufficient stock"));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testApplyFills_appliesNetChangeInOneStatement() {
+        when(stockRepository.addQuantity("AAPL", 5)).thenReturn(15);
+        when(stockRepository.removeQuantity("AAPL", 3)).thenReturn(Optional.of(12));
+
+        assertEquals(15, transactionService.applyFills("aapl", new int[]{7, -2}));
+        assertEquals(12, transactionService.applyFills("AAPL", new int[]{-3}));
+
+        verify(stockRepository, never()).findQuantityBySymbol(any());
+        verify(eventPublisher).publishEvent(new PositionChangedEvent("AAPL", 7, Operation.BUY));
+        verify(eventPublisher).publishEvent(new PositionChangedEvent("AAPL", -2, Operation.SELL));
+        verify(eventPublisher).publishEvent(new PositionChangedEvent("AAPL", -3, Operation.SELL));
+    }
+
+    @Test
+    void testApplyFills_closesPosition() {
+        when(stockRepository.removeQuantity("AAPL", 7)).thenReturn(Optional.of(0));
+
+        assertEquals(0, transactionService.applyFills("AAPL", new int[]{-7}));
+
+        verify(stockRepository, never()).findQuantityBySymbol(any());
+        verify(eventPublisher).publishEvent(new PositionChangedEvent("AAPL", -7, Operation.SELL));
+    }
+
+    @Test
+    void testApplyFills_zeroNetOnlyReads() {
+        when(stockRepository.findQuantityBySymbol("AAPL")).thenReturn(Optional.empty());
+
+        assertEquals(0, transactionService.applyFills("AAPL", new int[]{4, -4}));
+
+        verify(stockRepository, never()).addQuantity(any(), anyInt());
+        verify(stockRepository, never()).removeQuantity(any(), anyInt());
+        verify(eventPublisher, times(2)).publishEvent(any(PositionChangedEvent.class));
     }
 
     @Test
@@ -296,4 +355,107 @@ class StockTransactionServiceTest {
         assertNotNull(sorted);
         assertTrue(sorted.isEmpty());
     }
+
+    @Test
+    void testGetStocksPage_firstPage() {
+        List<Stock> page = List.of(Stock.builder().symbol("AAPL").quantity(1).build());
+        when(stockRepository.findAllByOrderBySymbolAsc(Limit.of(2))).thenReturn(page);
+
+        assertEquals(page, transactionService.getStocksPage(null, 2));
+    }
+
+    @Test
+    void testGetStocksPage_afterCursorIsUppercased() {
+        List<Stock> page = List.of(Stock.builder().symbol("GOOGL").quantity(1).build());
+        when(stockRepository.findBySymbolGreaterThanOrderBySymbolAsc("AAPL", Limit.of(2))).thenReturn(page);
+
+        assertEquals(page, transactionService.getStocksPage("aapl", 2));
+    }
+
+    @Test
+    void testStreamAllStocks_detachesEachRowAfterConsuming() {
+        Stock apple = Stock.builder().symbol("AAPL").quantity(1).build();
+        Stock google = Stock.builder().symbol("GOOGL").quantity(2).build();
+        when(stockRepository.streamAllByOrderBySymbol()).thenReturn(Stream.of(apple, google));
+
+        List<String> seen = new ArrayList<>();
+        transactionService.streamAllStocks(stock -> seen.add(stock.getSymbol()));
+
+        assertEquals(List.of("AAPL", "GOOGL"), seen);
+        verify(entityManager).detach(apple);
+        verify(entityManager).detach(google);
+    }
+
+    @Test
+    void testExecuteBatch_reportsEachLegWithoutAbortingTheBatch() {
+        when(stockRepository.findAllForUpdateBySymbolIn(Set.of("AAPL", "MSFT")))
+                .thenReturn(List.of(Stock.builder().symbol("AAPL").quantity(5).build()));
+        when(stockRepository.removeQuantity("AAPL", 5)).thenReturn(Optional.of(0));
+
+        BatchTransactionResponse response = transactionService.executeBatch(List.of(
+                leg(TransactionSide.BUY, "aapl", 5),
+                leg(TransactionSide.SELL, "AAPL", 100),
+                leg(TransactionSide.SELL, "MSFT", 1),
+                leg(TransactionSide.SELL, "AAPL", 10),
+                leg(TransactionSide.BUY, "bad symbol", 1)));
+
+        assertEquals(2, response.getFilled());
+        assertEquals(3, response.getRejected());
+        List<TransactionLegResult> results = response.getResults();
+        assertEquals(TransactionLegResult.Status.FILLED, results.get(0).getStatus());
+        assertEquals("AAPL", results.get(0).getSymbol());
+        assertEquals(10, results.get(0).getResultingQuantity());
+        assertEquals(TransactionLegResult.Status.REJECTED, results.get(1).getStatus());
+        assertTrue(results.get(1).getError().contains("Insufficient stock"));
+        assertEquals(TransactionLegResult.Status.REJECTED, results.get(2).getStatus());
+        assertTrue(results.get(2).getError().contains("not found"));
+        assertEquals(TransactionLegResult.Status.FILLED, results.get(3).getStatus());
+        assertEquals(0, results.get(3).getResultingQuantity());
+        assertEquals(3, results.get(3).getIndex());
+        // un simbolo non valido rifiuta solo la propria gamba
+        assertEquals(TransactionLegResult.Status.REJECTED, results.get(4).getStatus());
+        assertEquals("bad symbol", results.get(4).getSymbol());
+
+        // una sola scrittura per simbolo, con il netto delle gambe eseguite
+        verify(stockRepository).removeQuantity("AAPL", 5);
+        verify(stockRepository, never()).addQuantity(any(), anyInt());
+        verify(stockRepository, never()).findById(any());
+        verify(eventPublisher).publishEvent(new PositionChangedEvent("AAPL", 5, Operation.BUY));
+        verify(eventPublisher).publishEvent(new PositionChangedEvent("AAPL", -10, Operation.SELL));
+        verify(stockMetrics).rejected(any(InsufficientStockException.class));
+        verify(stockMetrics).rejected(any(StockNotFoundException.class));
+        verify(stockMetrics).rejected(any(IllegalArgumentException.class));
+    }
+
+    @Test
+    void testExecuteBatch_rejectsOnlyTheLegThatOverflows() {
+        when(stockRepository.findAllForUpdateBySymbolIn(Set.of("AAPL")))
+                .thenReturn(List.of(Stock.builder().symbol("AAPL").quantity(Integer.MAX_VALUE - 1).build()));
+        when(stockRepository.removeQuantity("AAPL", 1)).thenReturn(Optional.of(Integer.MAX_VALUE - 2));
+
+        BatchTransactionResponse response = transactionService.executeBatch(List.of(
+                leg(TransactionSide.BUY, "AAPL", 2),
+                leg(TransactionSide.SELL, "AAPL", 1)));
+
+        assertEquals(1, response.getFilled());
+        assertEquals(TransactionLegResult.Status.REJECTED, response.getResults().get(0).getStatus());
+        assertTrue(response.getResults().get(0).getError().contains("Quantity overflow"));
+        assertEquals(Integer.MAX_VALUE - 2, response.getResults().get(1).getResultingQuantity());
+        verify(stockMetrics).rejected(any(QuantityOverflowException.class));
+    }
+
+    @Test
+    void testExecuteBatch_rejectsInvalidLegsWithoutTouchingTheDatabase() {
+        BatchTransactionResponse response = transactionService.executeBatch(List.of(
+                leg(TransactionSide.BUY, "AAPL", 0),
+                leg(TransactionSide.SELL, null, 1)));
+
+        assertEquals(0, response.getFilled());
+        assertEquals(2, response.getRejected());
+        verifyNoInteractions(stockRepository, eventPublisher);
+    }
+
+    private static TransactionLegRequest leg(TransactionSide side, String symbol, int quantity) {
+        return TransactionLegRequest.builder().side(side).symbol(symbol).quantity(quantity).build();
+    }
 }
@@ -0,0 +1,317 @@
+package com.example.stock_manager.service.impl;
+
+import com.example.stock_manager.symbol.SymbolRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceStoreTest {
+
+    private static final int WRITERS = 64;
+    private static final int SYMBOLS_PER_WRITER = 2_000;
+
+    private final SymbolRegistry symbols = new SymbolRegistry();
+
+    @Test
+    void testIntern_returnsStableIds() {
+        PriceStore store = new PriceStore(symbols);
+
+        int aapl = store.intern("AAPL");
+        int googl = store.intern("GOOGL");
+
+        assertEquals(aapl, store.intern("AAPL"));
+        assertEquals(aapl, store.idOf("AAPL"));
+        assertEquals(aapl, store.intern("aapl"));
+        assertNotEquals(aapl, googl);
+        assertEquals(2, symbols.size());
+    }
+
+    @Test
+    void testIdOf_unknownSymbol() {
+        PriceStore store = new PriceStore(symbols);
+        assertEquals(-1, store.idOf("UNKNOWN"));
+    }
+
+    @Test
+    void testIntern_rejectsInvalidSymbols() {
+        PriceStore store = new PriceStore(symbols);
+        assertThrows(IllegalArgumentException.class, () -> store.intern("BRK.B"));
+        assertEquals(0, symbols.size());
+    }
+
+    @Test
+    void testIndexesBySharedRegistryIds() {
+        // id assegnati da altri componenti prima che il simbolo arrivi nell'archivio
+        for (int i = 0; i < 3_000; i++) {
+            symbols.id("OTHER" + i);
+        }
+        PriceStore store = new PriceStore(symbols);
+        assertEquals(-1, store.idOf("OTHER2999"));
+
+        int id = store.intern("other2999");
+        store.set(id, 42.0);
+
+        assertEquals(symbols.find("OTHER2999"), id);
+        assertEquals(42.0, store.get(id));
+        List<String> priced = new ArrayList<>();
+        store.forEach((symbol, price) -> priced.add(symbol));
+        assertEquals(List.of("OTHER2999"), priced);
+    }
+
+    @Test
+    void testSetAndGet() {
+        PriceStore store = new PriceStore(symbols);
+        int id = store.intern("AAPL");
+
+        assertEquals(0.0, store.get(id));
+        store.set(id, 150.0);
+        assertEquals(150.0, store.get(id));
+    }
+
+    @Test
+    void testInitialize_onlyFirstWins() {
+        PriceStore store = new PriceStore(symbols);
+        int id = store.intern("AAPL");
+
+        assertTrue(store.initialize(id, 100.0));
+        assertFalse(store.initialize(id, 200.0));
+        assertEquals(100.0, store.get(id));
+    }
+
+    @Test
+    void testGet_unknownIdThrows() {
+        PriceStore store = new PriceStore(symbols);
+        assertThrows(IllegalArgumentException.class, () -> store.get(5_000));
+        assertThrows(IllegalArgumentException.class, () -> store.get(-1));
+    }
+
+    @Test
+    void testConcurrentWriters_noLostUpdates() throws Exception {
+        SymbolRegistry symbols = new SymbolRegistry(WRITERS * SYMBOLS_PER_WRITER + SYMBOLS_PER_WRITER);
+        PriceStore store = new PriceStore(symbols);
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < SYMBOLS_PER_WRITER; i++) {
+                    // simboli condivisi tra tutti i writer + simboli privati
+                    store.intern("SHARED" + i);
+                    int id = store.intern("W" + writer + "S" + i);
+                    store.set(id, writer * 10_000.0 + i + 1);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(WRITERS * SYMBOLS_PER_WRITER + SYMBOLS_PER_WRITER, symbols.size());
+
+        Set<Integer> seen = new HashSet<>();
+        for (int w = 0; w < WRITERS; w++) {
+            for (int i = 0; i < SYMBOLS_PER_WRITER; i++) {
+                int id = store.idOf("W" + w + "S" + i);
+                assertTrue(seen.add(id), "duplicate id " + id);
+                assertEquals(w * 10_000.0 + i + 1, store.get(id));
+            }
+        }
+        for (int i = 0; i < SYMBOLS_PER_WRITER; i++) {
+            assertTrue(seen.add(store.idOf("SHARED" + i)));
+        }
+    }
+
+    @Test
+    void testSnapshot_readsAllRequestedSlots() {
+        PriceStore store = new PriceStore(symbols);
+        int aapl = store.intern("AAPL");
+        int googl = store.intern("GOOGL");
+        store.set(aapl, 150.0);
+        store.set(googl, 2800.0);
+
+        double[] out = new double[3];
+        store.snapshot(new int[]{googl, aapl, googl}, out);
+
+        assertArrayEquals(new double[]{2800.0, 150.0, 2800.0}, out);
+    }
+
+    @Test
+    void testSnapshot_missingSlotReadsAsZero() {
+        PriceStore store = new PriceStore(symbols);
+        int aapl = store.intern("AAPL");
+        store.set(aapl, 150.0);
+        double[] out = new double[2];
+
+        store.snapshot(new int[]{store.idOf("UNKNOWN"), aapl}, out);
+
+        assertArrayEquals(new double[]{0.0, 150.0}, out);
+    }
+
+    @Test
+    void testSnapshot_neverObservesHalfAppliedWrites() throws Exception {
+        PriceStore store = new PriceStore(symbols);
+        int[] ids = new int[64];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = store.intern("S" + i);
+            store.set(ids[i], 1.0);
+        }
+        // il writer porta tutti i simboli allo stesso valore un round alla volta;
+        // un lettore coerente vede sempre valori uguali o il round precedente
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        CountDownLatch done = new CountDownLatch(1);
+        Future<?> writer = pool.submit(() -> {
+            for (int round = 2; round < 20_000; round++) {
+                for (int id : ids) {
+                    store.set(id, round);
+                }
+            }
+            done.countDown();
+        });
+        Future<?> reader = pool.submit(() -> {
+            double[] out = new double[ids.length];
+            while (done.getCount() > 0) {
+                store.snapshot(ids, out);
+                double min = Double.MAX_VALUE;
+                double max = 0.0;
+                for (double v : out) {
+                    min = Math.min(min, v);
+                    max = Math.max(max, v);
+                }
+                assertTrue(max - min <= 1.0, "torn snapshot: " + min + ".." + max);
+            }
+        });
+        writer.get(60, TimeUnit.SECONDS);
+        reader.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+    }
+
+    @Test
+    void testSnapshot_acrossChunksWithConcurrentWriters() throws Exception {
+        PriceStore store = new PriceStore(symbols);
+        int[] ids = new int[64];
+        int[] others = new int[64];
+        // meta' degli id nel primo blocco e meta' nel secondo, con altri slot scritti in parallelo
+        for (int i = 0; i < 1_100; i++) {
+            int id = store.intern("F" + i);
+            if (i < 32) {
+                ids[i] = id;
+            } else if (i >= 1_068) {
+                ids[i - 1_036] = id;
+            } else if (i < 96) {
+                others[i - 32] = id;
+            }
+            store.set(id, 1.0);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        CountDownLatch done = new CountDownLatch(1);
+        List<Future<?>> noise = new ArrayList<>();
+        for (int w = 0; w < 2; w++) {
+            noise.add(pool.submit(() -> {
+                for (int n = 0; done.getCount() > 0; n++) {
+                    store.set(others[n & 63], n + 1.0);
+                }
+            }));
+        }
+        Future<?> writer = pool.submit(() -> {
+            for (int round = 2; round < 20_000; round++) {
+                for (int id : ids) {
+                    store.set(id, round);
+                }
+            }
+            done.countDown();
+        });
+        Future<?> reader = pool.submit(() -> {
+            double[] out = new double[ids.length];
+            while (done.getCount() > 0) {
+                store.snapshot(ids, out);
+                double min = Double.MAX_VALUE;
+                double max = 0.0;
+                for (double v : out) {
+                    min = Math.min(min, v);
+                    max = Math.max(max, v);
+                }
+                assertTrue(max - min <= 1.0, "torn snapshot: " + min + ".." + max);
+            }
+        });
+        writer.get(60, TimeUnit.SECONDS);
+        reader.get(60, TimeUnit.SECONDS);
+        for (Future<?> future : noise) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    void testSameSlotContention_readersNeverSeeTornOrForeignValues() throws Exception {
+        PriceStore store = new PriceStore(symbols);
+        int id = store.intern("HOT");
+        int neighbour = store.intern("COLD");
+        store.set(id, 1.0);
+        store.set(neighbour, 7.0);
+        int writers = 8;
+        int readers = 4;
+        int writes = 50_000;
+        ExecutorService pool = Executors.newFixedThreadPool(writers + readers);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(writers);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            futures.add(pool.submit(() -> {
+                start.await();
+                // ogni writer usa valori suoi, interi in [1, writers * writes]: un valore
+                // spezzato tra due scritture non e' mai un intero in quell'intervallo
+                for (int i = 0; i < writes; i++) {
+                    store.set(id, 1.0 + writer * (double) writes + i);
+                }
+                done.countDown();
+                return null;
+            }));
+        }
+        for (int r = 0; r < readers; r++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                int[] ids = {id, neighbour};
+                double[] out = new double[2];
+                while (done.getCount() > 0) {
+                    assertWritten(store.get(id), writers * writes);
+                    store.snapshot(ids, out);
+                    assertWritten(out[0], writers * writes);
+                    assertEquals(7.0, out[1]);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        // l'ultimo valore e' l'ultima scrittura di uno dei writer
+        double last = store.get(id);
+        assertEquals(0.0, (last - 1.0) % writes - (writes - 1), "not a final write: " + last);
+        assertEquals(7.0, store.get(neighbour));
+    }
+
+    private static void assertWritten(double value, int max) {
+        assertTrue(value >= 1.0 && value <= max && value == Math.rint(value), "torn or foreign value: " + value);
+    }
+}
@@ -1,14 +1,30 @@
 package com.example.stock_manager.service.impl;
 
+import com.example.stock_manager.event.PriceUpdatedEvent;
+import com.example.stock_manager.symbol.SymbolRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 class StockPriceServiceImplTest {
 
+    private final SymbolRegistry symbols = new SymbolRegistry();
+
     @Test
     void testGetPrice_knownSymbol() {
-        StockPriceServiceImpl service = new StockPriceServiceImpl();
+        StockPriceServiceImpl service = new StockPriceServiceImpl(symbols);
         
         double aaplPrice = service.getPrice("AAPL");
         assertEquals(150.0, aaplPrice);
@@ -19,7 +35,7 @@ class StockPriceServiceImplTest {
 
     @Test
     void testGetPrice_unknownSymbol() {
-        StockPriceServiceImpl service = new StockPriceServiceImpl();
+        StockPriceServiceImpl service = new StockPriceServiceImpl(symbols);
         
         double price = service.getPrice("UNKNOWN");
         
@@ -28,9 +44,42 @@ class StockPriceServiceImplTest {
         assertTrue(price <= 550.0);
     }
 
+    @Test
+    void testGetPrice_bySymbolId() {
+        StockPriceServiceImpl service = new StockPriceServiceImpl(symbols);
+
+        assertEquals(150.0, service.getPrice(symbols.find("AAPL")));
+
+        // id registrato altrove ma senza prezzo: come getPrice(String), genera un prezzo
+        int id = symbols.id("NEWSYM");
+        double price = service.getPrice(id);
+        assertTrue(price >= 50.0 && price <= 550.0);
+        assertEquals(price, service.getPrice("NEWSYM"));
+
+        assertThrows(IllegalArgumentException.class, () -> service.getPrice(symbols.size()));
+    }
+
+    @Test
+    void testReadsDoNotRegisterSymbols() {
+        StockPriceServiceImpl service = new StockPriceServiceImpl(symbols);
+        int registered = symbols.size();
+
+        double price = service.getPrice("READONLY");
+        service.getPrices(new String[]{"AAPL", "READTWO"});
+
+        assertEquals(registered, symbols.size());
+        assertEquals(-1, symbols.find("READONLY"));
+        // stesso prezzo a ogni lettura anche senza memorizzarlo
+        assertEquals(price, service.getPrice("readonly"));
+
+        service.updatePrice("READONLY", 12.0);
+        assertEquals(registered + 1, symbols.size());
+        assertEquals(12.0, service.getPrice("READONLY"));
+    }
+
     @Test
     void testGetPrice_caseInsensitive() {
-        StockPriceServiceImpl service = new StockPriceServiceImpl();
+        StockPriceServiceImpl service = new StockPriceServiceImpl(symbols);
         
         double price1 = service.getPrice("aapl");
         double price2 = service.getPrice("AAPL");
@@ -40,7 +89,7 @@ class StockPriceServiceImplTest {
 
     @Test
     void testUpdatePrice() {
-        StockPriceServiceImpl service = new StockPriceServiceImpl();
+        StockPriceServiceImpl service = new StockPriceServiceImpl(symbols);
         
         service.updatePrice("AAPL", 200.0);
         double price = service.getPrice("AAPL");
@@ -50,7 +99,7 @@ class StockPriceServiceImplTest {
 
     @Test
     void testUpdatePrice_invalidPrice() {
-        StockPriceServiceImpl service = new StockPriceServiceImpl();
+        StockPriceServiceImpl service = new StockPriceServiceImpl(symbols);
         
         assertThrows(IllegalArgumentException.class, () -> {
             service.updatePrice("AAPL", -10.0);
@@ -63,11 +112,157 @@ class StockPriceServiceImplTest {
 
     @Test
     void testUpdatePrice_newSymbol() {
-        StockPriceServiceImpl service = new StockPriceServiceImpl();
+        StockPriceServiceImpl service = new StockPriceServiceImpl(symbols);
         
         service.updatePrice("NEWSTOCK", 500.0);
         double price = service.getPrice("NEWSTOCK");
         
         assertEquals(500.0, price);
     }
+
+    @Test
+    void testUpdatePrice_nanRejected() {
+        StockPriceServiceImpl service = new StockPriceServiceImpl(symbols);
+
+        assertThrows(IllegalArgumentException.class, () -> service.updatePrice("AAPL", Double.NaN));
+    }
+
+    @Test
+    void testConcurrentUpdates_noLostUpdates() throws Exception {
+        StockPriceServiceImpl service = new StockPriceServiceImpl(symbols);
+        int writers = 64;
+        int symbolsPerWriter = 500;
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < symbolsPerWriter; i++) {
+                    service.updatePrice("w" + writer + "s" + i, writer + i + 1.0);
+                    service.getPrice("AAPL");
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        for (int w = 0; w < writers; w++) {
+            for (int i = 0; i < symbolsPerWriter; i++) {
+                assertEquals(w + i + 1.0, service.getPrice("W" + w + "S" + i));
+            }
+        }
+    }
+
+    @Test
+    void testGetPrice_unknownSymbolIsStableAcrossThreads() throws Exception {
+        StockPriceServiceImpl service = new StockPriceServiceImpl(symbols);
+        int readers = 64;
+        ExecutorService pool = Executors.newFixedThreadPool(readers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Double>> futures = new ArrayList<>();
+
+        for (int r = 0; r < readers; r++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                return service.getPrice("NEWCO");
+            }));
+        }
+        start.countDown();
+        double first = futures.get(0).get(30, TimeUnit.SECONDS);
+        for (Future<Double> future : futures) {
+            assertEquals(first, future.get(30, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    void testGetPrices_bulkLookup() {
+        StockPriceServiceImpl service = new StockPriceServiceImpl(symbols);
+
+        double[] prices = service.getPrices(new String[]{"AAPL", "googl", "MSFT"});
+
+        assertArrayEquals(new double[]{150.0, 2800.0, 350.0}, prices);
+    }
+
+    @Test
+    void testGetPrices_unknownSymbolGetsStablePrice() {
+        StockPriceServiceImpl service = new StockPriceServiceImpl(symbols);
+
+        double[] prices = service.getPrices(List.of("AAPL", "NEWCO"));
+
+        assertEquals(150.0, prices[0]);
+        assertTrue(prices[1] >= 50.0 && prices[1] <= 550.0);
+        assertEquals(prices[1], service.getPrice("NEWCO"));
+    }
+
+    @Test
+    void testGetPrices_emptyInput() {
+        StockPriceServiceImpl service = new StockPriceServiceImpl(symbols);
+        assertEquals(0, service.getPrices(new String[0]).length);
+    }
+
+    @Test
+    void testUpdatePrice_publishesEventWithPreviousPrice() {
+        StockPriceServiceImpl service = new StockPriceServiceImpl(symbols);
+        ApplicationEventPublisher publisher = mock(ApplicationEventPublisher.class);
+        service.setApplicationEventPublisher(publisher);
+
+        service.updatePrice("aapl", 175.0);
+        service.updatePrice("NEWCO", 20.0);
+
+        verify(publisher).publishEvent(new PriceUpdatedEvent("AAPL", 150.0, 175.0));
+        verify(publisher).publishEvent(new PriceUpdatedEvent("NEWCO", 0.0, 20.0));
+    }
+
+    @Test
+    void testUpdatePrices_appliesPrefixAndPublishesEvents() {
+        StockPriceServiceImpl service = new StockPriceServiceImpl(symbols);
+        ApplicationEventPublisher publisher = mock(ApplicationEventPublisher.class);
+        service.setApplicationEventPublisher(publisher);
+
+        service.updatePrices(new String[]{"AAPL", "newco", "MSFT"}, new double[]{160.0, 12.5, 999.0}, 2);
+
+        assertEquals(160.0, service.getPrice("AAPL"));
+        assertEquals(12.5, service.getPrice("NEWCO"));
+        assertEquals(350.0, service.getPrice("MSFT"));
+        verify(publisher).publishEvent(new PriceUpdatedEvent("AAPL", 150.0, 160.0));
+        verify(publisher).publishEvent(new PriceUpdatedEvent("NEWCO", 0.0, 12.5));
+    }
+
+    @Test
+    void testUpdatePrices_invalidPriceAppliesNothing() {
+        StockPriceServiceImpl service = new StockPriceServiceImpl(symbols);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.updatePrices(new String[]{"AAPL", "MSFT"}, new double[]{160.0, Double.NaN}, 2));
+
+        assertEquals(150.0, service.getPrice("AAPL"));
+    }
+
+    @Test
+    void testBindTo_exposesLookupAndGenerationCounters() {
+        StockPriceServiceImpl service = new StockPriceServiceImpl(symbols);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        service.bindTo(registry);
+        symbols.id("HELD");
+
+        service.getPrice("AAPL");
+        service.getPrices(new String[]{"MSFT", "NEWCO", "TSLA"});
+        service.getPrice("NEWCO");
+        service.getPrice("HELD");
+        service.getPrice("HELD");
+
+        // NEWCO non e' registrato: ogni lettura e' un miss e il prezzo non viene salvato;
+        // HELD ha uno slot e il prezzo generato vi resta
+        assertEquals(4, registry.get("stock.price.lookups").tag("result", "hit").functionCounter().count());
+        assertEquals(3, registry.get("stock.price.lookups").tag("result", "miss").functionCounter().count());
+        assertEquals(1, registry.get("stock.price.generated").functionCounter().count());
+    }
 }
@@ -0,0 +1,337 @@
+package com.example.stock_manager.stream;
+
+import com.example.stock_manager.dto.PriceTick;
+import com.example.stock_manager.event.PositionChangedEvent;
+import com.example.stock_manager.event.PositionChangedEvent.Operation;
+import com.example.stock_manager.event.PriceUpdatedEvent;
+import com.example.stock_manager.service.PortfolioAggregator;
+import com.example.stock_manager.service.StockPriceService;
+import com.example.stock_manager.service.ValuedPosition;
+import com.example.stock_manager.symbol.SymbolRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class PriceStreamHubTest {
+
+    @Mock
+    private PortfolioAggregator aggregator;
+
+    @Mock
+    private StockPriceService stockPriceService;
+
+    private final SymbolRegistry symbols = new SymbolRegistry();
+
+    private PriceStreamHub hub;
+
+    @BeforeEach
+    void setUp() {
+        when(aggregator.position(anyString())).thenReturn(Optional.empty());
+        when(aggregator.totals()).thenReturn(new PortfolioAggregator.Totals(0, 0.0, 0));
+        when(stockPriceService.getPrice(anyString())).thenReturn(100.0);
+        hub = new PriceStreamHub(aggregator, stockPriceService, symbols, 2, 0, 1, 4, 5_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hub.shutdown();
+    }
+
+    @Test
+    void testSubscribeSendsSnapshotThenOnlySubscribedSymbols() throws Exception {
+        when(aggregator.position("AAPL")).thenReturn(Optional.of(new ValuedPosition("AAPL", 10, 150.0, 1500.0)));
+        when(aggregator.totals()).thenReturn(new PortfolioAggregator.Totals(10, 1500.0, 1));
+        RecordingSink sink = new RecordingSink();
+        sink.block();
+
+        hub.register(List.of("aapl", " ", "AAPL"), sink);
+        // snapshot in invio: il tick successivo non viene accorpato allo snapshot
+        sink.awaitSending();
+        hub.onPriceUpdated(new PriceUpdatedEvent("MSFT", 300.0, 310.0));
+        hub.onPriceUpdated(new PriceUpdatedEvent("AAPL", 140.0, 150.0));
+        sink.release();
+
+        PriceTick snapshot = sink.next();
+        assertEquals("AAPL", snapshot.getSymbol());
+        assertEquals(100.0, snapshot.getPrice());
+        assertEquals(0.0, snapshot.getPositionValueDelta());
+        PriceTick tick = sink.next();
+        assertEquals("AAPL", tick.getSymbol());
+        assertEquals(10, tick.getQuantity());
+        assertEquals(1500.0, tick.getPositionValue());
+        assertEquals(100.0, tick.getPositionValueDelta());
+        assertEquals(1500.0, tick.getPortfolioValue());
+        assertNull(sink.ticks.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, hub.subscriberCount());
+    }
+
+    @Test
+    void testConflatesTicksWhileClientIsBusy() throws Exception {
+        RecordingSink sink = new RecordingSink();
+        sink.block();
+        hub.register(List.of(), sink);
+
+        hub.onPositionChanged(new PositionChangedEvent("AAPL", 1, Operation.BUY));
+        sink.awaitSending();
+        hub.onPositionChanged(new PositionChangedEvent("AAPL", 2, Operation.BUY));
+        hub.onPositionChanged(new PositionChangedEvent("AAPL", 3, Operation.BUY));
+        sink.release();
+
+        assertEquals(100.0, sink.next().getPositionValueDelta());
+        assertEquals(500.0, sink.next().getPositionValueDelta());
+        assertNull(sink.ticks.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, metric("stock.stream.conflated"));
+    }
+
+    @Test
+    void testFullBufferClosesSlowClient() throws Exception {
+        RecordingSink sink = new RecordingSink();
+        sink.block();
+        hub.register(List.of(), sink);
+
+        hub.onPriceUpdated(new PriceUpdatedEvent("A", 1.0, 2.0));
+        sink.awaitSending();
+        hub.onPriceUpdated(new PriceUpdatedEvent("B", 1.0, 2.0));
+        hub.onPriceUpdated(new PriceUpdatedEvent("C", 1.0, 2.0));
+        hub.onPriceUpdated(new PriceUpdatedEvent("D", 1.0, 2.0));
+        sink.release();
+
+        assertTrue(sink.closed.await(5, TimeUnit.SECONDS));
+        assertEquals(0, hub.subscriberCount());
+        assertEquals(1, metric("stock.stream.overflows"));
+    }
+
+    @Test
+    void testFailedSendClosesClient() throws Exception {
+        RecordingSink sink = new RecordingSink();
+        sink.failing = true;
+
+        hub.register(List.of("AAPL"), sink);
+
+        assertTrue(sink.closed.await(5, TimeUnit.SECONDS));
+        assertEquals(0, hub.subscriberCount());
+    }
+
+    @Test
+    void testBlockedClientDoesNotDelayOtherClients() throws Exception {
+        RecordingSink stuck = new RecordingSink();
+        stuck.block();
+        RecordingSink healthy = new RecordingSink();
+        // un solo thread sempre pronto: il secondo client ne riceve uno nuovo
+        hub.register(List.of("AAPL"), stuck);
+        stuck.awaitSending();
+
+        hub.register(List.of("AAPL"), healthy);
+
+        assertEquals("AAPL", healthy.next().getSymbol());
+        stuck.release();
+    }
+
+    @Test
+    void testSendTimeoutClosesBlockedClient() throws Exception {
+        hub.shutdown();
+        hub = new PriceStreamHub(aggregator, stockPriceService, symbols, 2, 0, 1, 4, 50);
+        RecordingSink sink = new RecordingSink();
+        sink.block();
+
+        hub.register(List.of("AAPL"), sink);
+        sink.awaitSending();
+
+        awaitTrue(() -> hub.subscriberCount() == 0);
+        assertEquals(1, metric("stock.stream.send-timeouts"));
+        // la connessione viene chiusa dal thread del drain quando l'invio ritorna
+        sink.release();
+        assertTrue(sink.closed.await(5, TimeUnit.SECONDS));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PriceStreamHub(aggregator, stockPriceService, symbols, 2, 0, 1, 4, 0));
+    }
+
+    @Test
+    void testWatchdogIsNotBlockedByClientHoldingItsSendLock() throws Exception {
+        hub.shutdown();
+        hub = new PriceStreamHub(aggregator, stockPriceService, symbols, 2, 0, 1, 4, 50);
+        // come SseEmitter: close attende il lock tenuto dall'invio bloccato
+        LockingSink first = new LockingSink();
+        LockingSink second = new LockingSink();
+
+        hub.register(List.of("AAPL"), first);
+        assertTrue(first.sending.await(5, TimeUnit.SECONDS));
+        awaitTrue(() -> hub.subscriberCount() == 0);
+
+        hub.register(List.of("MSFT"), second);
+        assertTrue(second.sending.await(5, TimeUnit.SECONDS));
+        awaitTrue(() -> hub.subscriberCount() == 0);
+        assertEquals(2, metric("stock.stream.send-timeouts"));
+
+        first.gate.countDown();
+        second.gate.countDown();
+        assertTrue(first.closed.await(5, TimeUnit.SECONDS));
+        assertTrue(second.closed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testBusyDispatchPoolClosesNewClient() throws Exception {
+        hub.shutdown();
+        hub = new PriceStreamHub(aggregator, stockPriceService, symbols, 2, 0, 1, 1, 5_000);
+        RecordingSink stuck = new RecordingSink();
+        stuck.block();
+        hub.register(List.of("AAPL"), stuck);
+        stuck.awaitSending();
+
+        RecordingSink rejected = new RecordingSink();
+        hub.register(List.of("MSFT"), rejected);
+
+        assertTrue(rejected.closed.await(5, TimeUnit.SECONDS));
+        assertEquals(1, hub.subscriberCount());
+        stuck.release();
+        assertThrows(IllegalArgumentException.class,
+                () -> new PriceStreamHub(aggregator, stockPriceService, symbols, 2, 0, 2, 1, 50));
+    }
+
+    @Test
+    void testReadsThePositionOncePerEvent() throws Exception {
+        when(aggregator.position("AAPL")).thenReturn(Optional.of(new ValuedPosition("AAPL", 10, 150.0, 1500.0)));
+        RecordingSink sink = new RecordingSink();
+        hub.register(List.of("AAPL"), sink);
+        sink.next();
+        clearInvocations(aggregator);
+
+        hub.onPriceUpdated(new PriceUpdatedEvent("AAPL", 140.0, 150.0));
+
+        PriceTick tick = sink.next();
+        assertEquals(100.0, tick.getPositionValueDelta());
+        assertEquals(1500.0, tick.getPositionValue());
+        verify(aggregator, times(1)).position("AAPL");
+    }
+
+    @Test
+    void testNoWorkWithoutSubscribers() {
+        hub.onPriceUpdated(new PriceUpdatedEvent("AAPL", 1.0, 2.0));
+        hub.onPositionChanged(new PositionChangedEvent("AAPL", 1, Operation.BUY));
+
+        verify(aggregator, never()).position(anyString());
+        verify(stockPriceService, never()).getPrice(anyString());
+    }
+
+    @Test
+    void testSubscribeReturnsEmitterAndRejectsTooManySymbols() {
+        assertNotNull(hub.subscribe(List.of("AAPL")));
+        assertEquals(1, hub.subscriberCount());
+
+        assertThrows(IllegalArgumentException.class, () -> hub.subscribe(List.of("A", "B", "C")));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PriceStreamHub(aggregator, stockPriceService, symbols, 0, 0, 1, 4, 5_000));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 5 s");
+            Thread.sleep(5);
+        }
+    }
+
+    private double metric(String name) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        hub.bindTo(registry);
+        return registry.get(name).functionCounter().count();
+    }
+
+    private static final class LockingSink implements TickSink {
+
+        private final Object lock = new Object();
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch gate = new CountDownLatch(1);
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        @Override
+        public void send(PriceTick tick) {
+            synchronized (lock) {
+                sending.countDown();
+                try {
+                    gate.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (lock) {
+                closed.countDown();
+            }
+        }
+    }
+
+    private static final class RecordingSink implements TickSink {
+
+        private final BlockingQueue<PriceTick> ticks = new LinkedBlockingQueue<>();
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch closed = new CountDownLatch(1);
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+        private volatile boolean failing;
+
+        @Override
+        public void send(PriceTick tick) throws IOException {
+            if (failing) {
+                throw new IOException("broken pipe");
+            }
+            sending.countDown();
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ticks.add(tick);
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+
+        void block() {
+            gate = new CountDownLatch(1);
+        }
+
+        void release() {
+            gate.countDown();
+        }
+
+        void awaitSending() throws InterruptedException {
+            assertTrue(sending.await(5, TimeUnit.SECONDS));
+        }
+
+        PriceTick next() throws InterruptedException {
+            PriceTick tick = ticks.poll(5, TimeUnit.SECONDS);
+            assertNotNull(tick);
+            return tick;
+        }
+    }
+}
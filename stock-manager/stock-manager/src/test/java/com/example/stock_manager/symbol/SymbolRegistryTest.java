@@ -0,0 +1,79 @@
+package com.example.stock_manager.symbol;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SymbolRegistryTest {
+
+    private final SymbolRegistry registry = new SymbolRegistry(4);
+
+    @Test
+    void testEverySpellingResolvesToTheSameCanonicalInstance() {
+        String canonical = registry.name(registry.id("SYMT1"));
+
+        assertEquals("SYMT1", canonical);
+        assertSame(canonical, registry.canonical("symt1"));
+        assertSame(canonical, registry.canonical(new String("SymT1")));
+        assertSame(canonical, registry.canonical(new String("SYMT1")));
+    }
+
+    @Test
+    void testIdsAreStableAndDistinct() {
+        int id = registry.id("SYMT2");
+
+        assertEquals(0, id);
+        assertEquals(id, registry.id("symt2"));
+        assertEquals(id, registry.find("Symt2"));
+        assertNotEquals(id, registry.id("SYMT3"));
+        assertEquals("SYMT2", registry.name(id));
+        assertNull(registry.name(-1));
+        assertNull(registry.name(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void testLookupsAndInvalidSpellingsAreNotRegistered() {
+        assertEquals("MSFT", registry.canonical("msft"));
+        assertEquals(-1, registry.find("MSFT"));
+        assertEquals(-1, registry.id("s&p"));
+        assertEquals("S&P", registry.canonical("s&p"));
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    void testRegistryIsBounded() {
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        registry.bindTo(meters);
+        for (int i = 0; i < 4; i++) {
+            registry.id("SYM" + i);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> registry.id("SYM4"));
+        // i simboli gia' registrati restano risolvibili
+        assertEquals(3, registry.id("sym3"));
+        assertEquals("SYM4", registry.canonical("sym4"));
+        assertEquals(4, meters.get("stock.symbols.registered").gauge().value());
+        assertEquals(1, meters.get("stock.symbols.rejected").functionCounter().count());
+    }
+
+    @Test
+    void testInstancesDoNotShareSymbols() {
+        registry.id("AAPL");
+        SymbolRegistry other = new SymbolRegistry();
+
+        assertEquals(-1, other.find("AAPL"));
+        assertEquals(0, other.id("GOOGL"));
+        assertTrue(registry.find("AAPL") >= 0);
+    }
+
+    @Test
+    void testInvalidSize() {
+        assertThrows(IllegalArgumentException.class, () -> new SymbolRegistry(0));
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.stock_manager.symbol;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SymbolsTest {
+
+    @Test
+    void testNormalizeUppercasesAndKeepsCanonicalInstances() {
+        String canonical = "SYMT1";
+
+        assertSame(canonical, Symbols.normalize(canonical));
+        assertEquals("SYMT1", Symbols.normalize("SymT1"));
+        assertTrue(Symbols.isValid("aapl"));
+    }
+
+    @Test
+    void testInvalidSpellings() {
+        assertFalse(Symbols.isValid("BRK.B"));
+        assertFalse(Symbols.isValid(""));
+        assertFalse(Symbols.isValid("ABCDEFGHIJK"));
+        assertFalse(Symbols.isValid(null));
+        assertNull(Symbols.normalize("s&p"));
+    }
+
+    @Test
+    void testValidatorLeavesBlankAndLengthToOtherConstraints() {
+        ValidSymbolValidator validator = new ValidSymbolValidator();
+
+        assertTrue(validator.isValid(null, null));
+        assertTrue(validator.isValid("", null));
+        assertTrue(validator.isValid("ABCDEFGHIJK", null));
+        assertTrue(validator.isValid("aapl", null));
+        assertFalse(validator.isValid("AA-PL", null));
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.stock_manager.valuation;
+
+import com.example.stock_manager.dto.StockValueResponse;
+import com.example.stock_manager.model.Stock;
+import com.example.stock_manager.valuation.PortfolioValuator.Valuation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PortfolioValuatorTest {
+
+    private static final int POSITIONS = 1_000;
+
+    @Test
+    void testParallelReductionMatchesSequentialScan() {
+        List<Stock> stocks = new ArrayList<>(POSITIONS);
+        double[] prices = new double[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            stocks.add(Stock.builder().symbol("S" + i).quantity(1 + i % 37).build());
+            prices[i] = 0.1 + (i * 7919 % 1000) / 100.0;
+        }
+
+        Valuation sequential = new PortfolioValuator(Integer.MAX_VALUE, 16).valuate(stocks, prices, true);
+        Valuation parallel = new PortfolioValuator(0, 16).valuate(stocks, prices, true);
+
+        assertEquals(sequential.totalValue(), parallel.totalValue());
+        assertEquals(sequential.totalQuantity(), parallel.totalQuantity());
+        assertEquals(sequential.highestIndex(), parallel.highestIndex());
+        assertEquals(POSITIONS, parallel.details().size());
+        for (int i = 0; i < POSITIONS; i++) {
+            StockValueResponse detail = parallel.details().get(i);
+            assertEquals("S" + i, detail.getSymbol());
+            assertEquals(sequential.details().get(i).getTotalValue(), detail.getTotalValue());
+        }
+    }
+
+    @Test
+    void testTiesResolveToTheFirstPositionInBothModes() {
+        List<Stock> stocks = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            stocks.add(Stock.builder().symbol("T" + i).quantity(i == 10 || i == 50 ? 100 : 1).build());
+        }
+        double[] prices = new double[64];
+        Arrays.fill(prices, 2.5);
+
+        assertEquals(10, new PortfolioValuator(Integer.MAX_VALUE, 4).valuate(stocks, prices, false).highestIndex());
+        assertEquals(10, new PortfolioValuator(0, 4).valuate(stocks, prices, false).highestIndex());
+    }
+
+    @Test
+    void testTotalsWithoutDetailsAndInvalidConfiguration() {
+        List<Stock> stocks = List.of(
+                Stock.builder().symbol("AAPL").quantity(10).build(),
+                Stock.builder().symbol("MSFT").quantity(30).build());
+
+        Valuation valuation = new PortfolioValuator(0, 1).valuate(stocks, new double[]{150.0, 0.1}, false);
+
+        assertTrue(valuation.details().isEmpty());
+        assertEquals(1503.0, valuation.totalValue());
+        assertEquals(40, valuation.totalQuantity());
+        assertEquals(0, valuation.highestIndex());
+        assertEquals(1503.0 / 40, valuation.averagePricePerShare());
+        assertEquals(-1, new PortfolioValuator(0, 1).valuate(List.of(), new double[0], true).highestIndex());
+        assertThrows(IllegalArgumentException.class, () -> new PortfolioValuator(-1, 16));
+        assertThrows(IllegalArgumentException.class, () -> new PortfolioValuator(0, 0));
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.stock_manager.valuation;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValueAccumulatorTest {
+
+    @Test
+    void testToMicrosRoundsToTheNearestMillionth() {
+        assertEquals(150_000_000L, FixedPoint.toMicros(150.0));
+        assertEquals(100_000L, FixedPoint.toMicros(0.1));
+        assertEquals(1_234_568L, FixedPoint.toMicros(1.2345678));
+        assertEquals(0.1, FixedPoint.toDouble(100_000L));
+        assertThrows(IllegalArgumentException.class, () -> FixedPoint.toMicros(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> FixedPoint.toMicros(1e13));
+    }
+
+    @Test
+    void testSumsWithoutDrift() {
+        ValueAccumulator fixed = new ValueAccumulator();
+        double floating = 0.0;
+        for (int i = 0; i < 1_000_000; i++) {
+            fixed.add(FixedPoint.toMicros(0.1), 1);
+            floating += 0.1;
+        }
+
+        assertEquals(new BigDecimal("100000.000000"), fixed.exactTotalValue());
+        assertEquals(100_000.0, fixed.totalValue());
+        assertNotEquals(100_000.0, floating);
+        assertEquals(1_000_000, fixed.totalQuantity());
+        assertEquals(1_000_000, fixed.count());
+        assertEquals(0.1, fixed.averagePricePerShare());
+    }
+
+    @Test
+    void testDeltasCancelExactly() {
+        ValueAccumulator accumulator = new ValueAccumulator();
+        long price = FixedPoint.toMicros(123.456789);
+
+        accumulator.add(price, 7);
+        accumulator.addValue(FixedPoint.toMicros(0.3) - price, 7);
+        accumulator.add(FixedPoint.toMicros(0.3), -7);
+
+        assertEquals(BigDecimal.ZERO.setScale(FixedPoint.SCALE_DIGITS), accumulator.exactTotalValue());
+        assertEquals(0.0, accumulator.totalValue());
+        assertEquals(0, accumulator.totalQuantity());
+        assertEquals(0.0, accumulator.averagePricePerShare());
+    }
+
+    @Test
+    void testValuesBeyondLongMicrosStayExact() {
+        ValueAccumulator accumulator = new ValueAccumulator();
+        long price = FixedPoint.toMicros(5_000.0);
+
+        // 5000 * 2^31 in micro-unita' supera Long.MAX_VALUE
+        accumulator.add(price, Integer.MAX_VALUE);
+        accumulator.add(price, Integer.MAX_VALUE);
+
+        BigDecimal expected = BigDecimal.valueOf(5_000L * 2 * Integer.MAX_VALUE).setScale(FixedPoint.SCALE_DIGITS);
+        assertEquals(expected, accumulator.exactTotalValue());
+        assertEquals(expected.doubleValue(), accumulator.totalValue(), 1e-2);
+        assertEquals(5_000.0 * Integer.MAX_VALUE, FixedPoint.value(price, Integer.MAX_VALUE), 1e-2);
+        assertEquals(-5_000.0 * Integer.MAX_VALUE, FixedPoint.value(-price, Integer.MAX_VALUE), 1e-2);
+
+        accumulator.add(price, -Integer.MAX_VALUE);
+        assertEquals(BigDecimal.valueOf(5_000L * Integer.MAX_VALUE).setScale(FixedPoint.SCALE_DIGITS),
+                accumulator.exactTotalValue());
+    }
+
+    @Test
+    void testQuantityOverflowIsDetected() {
+        ValueAccumulator accumulator = new ValueAccumulator();
+        accumulator.addQuantity(Long.MAX_VALUE);
+
+        assertThrows(ArithmeticException.class, () -> accumulator.add(1, 1));
+
+        accumulator.reset();
+        assertEquals(0, accumulator.totalQuantity());
+        assertEquals(0, accumulator.count());
+    }
+
+    @Test
+    void testMergeEqualsSequentialSum() {
+        ValueAccumulator whole = new ValueAccumulator();
+        ValueAccumulator left = new ValueAccumulator();
+        ValueAccumulator right = new ValueAccumulator();
+        long price = FixedPoint.toMicros(5_000.0);
+
+        // il riporto fra le due parole a 64 bit deve sopravvivere all'unione
+        for (int i = 0; i < 4; i++) {
+            whole.add(price, Integer.MAX_VALUE);
+            (i % 2 == 0 ? left : right).add(price, Integer.MAX_VALUE);
+        }
+        whole.add(-price, 3);
+        right.add(-price, 3);
+        left.merge(right);
+
+        assertEquals(whole.exactTotalValue(), left.exactTotalValue());
+        assertEquals(whole.totalQuantity(), left.totalQuantity());
+        assertEquals(5, left.count());
+    }
+}